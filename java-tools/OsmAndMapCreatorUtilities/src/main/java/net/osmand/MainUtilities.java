@@ -331,9 +331,27 @@ public class MainUtilities {
 			} else if (s.equals("--ram-process")) {
 				settings.processInRam = true;
 				it.remove();
+			} else if (s.equals("--parallel-iteration")) {
+				settings.parallelEntityIteration = true;
+				it.remove();
+			} else if (s.equals("--rtree-bulk-load")) {
+				settings.rtreeBulkLoad = true;
+				it.remove();
+			} else if (s.startsWith("--node-locations=")) {
+				settings.nodeLocationStore = NodeLocationStore.StoreType.valueOf(s.substring(s.indexOf('=') + 1).toUpperCase());
+				it.remove();
 			} else if (s.startsWith("--max-height-tiles-in-ram=")) {
 				settings.maxHeightTilesInRam = Integer.parseInt(s.substring(s.indexOf('=') + 1));
 				it.remove();
+			} else if (s.startsWith("--max-height-tiles-mapped-mb=")) {
+				settings.maxHeightTilesMappedMb = Integer.parseInt(s.substring(s.indexOf('=') + 1));
+				it.remove();
+			} else if (s.startsWith("--srtm-cache-mb=")) {
+				settings.srtmDiskCacheMb = Integer.parseInt(s.substring(s.indexOf('=') + 1));
+				it.remove();
+			} else if (s.startsWith("--srtm-cache=")) {
+				settings.srtmCacheFolder = s.substring(s.indexOf('=') + 1);
+				it.remove();
 			} else if (s.startsWith("--srtm=")) {
 				settings.srtmDataFolderUrl = s.substring(s.indexOf('=') + 1);
 				it.remove();
@@ -403,6 +421,19 @@ public class MainUtilities {
 		if (settings.maxHeightTilesInRam > 0) {
 			IndexHeightData.MAXIMUM_LOADED_DATA = settings.maxHeightTilesInRam;
 		}
+		if (settings.maxHeightTilesMappedMb == -1) {
+			SrtmElevationService.MAX_MAPPED_BYTES = -1;
+		} else if (settings.maxHeightTilesMappedMb > 0) {
+			SrtmElevationService.MAX_MAPPED_BYTES = (long) settings.maxHeightTilesMappedMb << 20;
+		}
+		if (settings.srtmDiskCacheMb == -1) {
+			SrtmElevationService.MAX_DISK_CACHE_BYTES = -1;
+		} else if (settings.srtmDiskCacheMb > 0) {
+			SrtmElevationService.MAX_DISK_CACHE_BYTES = (long) settings.srtmDiskCacheMb << 20;
+		}
+		if (settings.srtmCacheFolder != null) {
+			SrtmElevationService.RAW_CACHE_FOLDER = settings.srtmCacheFolder;
+		}
 		IndexCreator ic = new IndexCreator(new File("."), settings);
 		ic.setDialects(settings.processInRam ? DBDialect.SQLITE_IN_MEMORY : DBDialect.SQLITE,
 				settings.processInRam ? DBDialect.SQLITE_IN_MEMORY : DBDialect.SQLITE);
@@ -17,6 +17,8 @@ public class Boundary {
 	private long adminCenterId;
 	private CityType cityType;
 	private Multipolygon multipolygon;
+	// lazily built from multipolygon, reset only by mergeWith
+	private PreparedMultipolygon preparedMultipolygon;
 	private Map<String, String> nameTags;
 
 
@@ -39,15 +41,27 @@ public class Boundary {
 	}
 
 	public boolean containsPoint(double latitude, double longitude) {
-		return multipolygon.containsPoint(latitude, longitude);
+		return getPreparedMultipolygon().containsPoint(latitude, longitude);
 	}
 
 	public void mergeWith(Boundary boundary) {
 		multipolygon.mergeWith(boundary.multipolygon);
+		preparedMultipolygon = null;
 	}
 
 	public boolean containsPoint(LatLon location) {
-		return multipolygon.containsPoint(location);
+		return getPreparedMultipolygon().containsPoint(location);
+	}
+
+	/**
+	 * Prepared multipolygon is cached, so it is stale if multipolygon was changed after it was built
+	 * by other way than {@link #mergeWith(Boundary)}.
+	 */
+	public PreparedMultipolygon getPreparedMultipolygon() {
+		if (preparedMultipolygon == null) {
+			preparedMultipolygon = new PreparedMultipolygon(multipolygon);
+		}
+		return preparedMultipolygon;
 	}
 
 	public long getBoundaryId() {
@@ -133,6 +147,9 @@ public class Boundary {
 		return multipolygon.getPolyCenter();
 	}
 
+	/**
+	 * Multipolygon shouldn't be modified, containsPoint uses cached {@link #getPreparedMultipolygon()}.
+	 */
 	public Multipolygon getMultipolygon() {
 		return multipolygon;
 	}
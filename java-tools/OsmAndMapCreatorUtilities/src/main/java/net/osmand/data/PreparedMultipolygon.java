@@ -0,0 +1,163 @@
+package net.osmand.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.osmand.osm.edit.Node;
+
+/**
+ * Multipolygon prepared for many point tests. Bbox of rings is split into uniform grid, cells which are not touched by
+ * any ring segment are completely inside or outside (state is calculated once for connected area of such cells), so
+ * only points in edge cells are tested exactly with {@link Multipolygon#containsPoint(double, double)}.
+ */
+public class PreparedMultipolygon {
+
+	private static final byte UNKNOWN = 0;
+	private static final byte INSIDE = 1;
+	private static final byte OUTSIDE = 2;
+	private static final byte EDGE = 3;
+
+	private static final int MIN_POINTS_TO_PREPARE = 64;
+	private static final int MIN_CELLS = 4;
+	private static final int MAX_CELLS = 256;
+	// segments close to cell border mark both cells (rounding of cell index)
+	private static final double EDGE_EPSILON = 1e-6;
+
+	private final Multipolygon multipolygon;
+	private double left = Double.POSITIVE_INFINITY;
+	private double right = Double.NEGATIVE_INFINITY;
+	private double top = Double.NEGATIVE_INFINITY;
+	private double bottom = Double.POSITIVE_INFINITY;
+	private int cellsX;
+	private int cellsY;
+	private double cellWidth;
+	private double cellHeight;
+	// null if polygon is small enough to test exactly
+	private byte[] cells;
+
+	public PreparedMultipolygon(Multipolygon multipolygon) {
+		this.multipolygon = multipolygon;
+		List<Ring> rings = new ArrayList<>(multipolygon.getOuterRings());
+		rings.addAll(multipolygon.getInnerRings());
+		int points = 0;
+		for (Ring r : rings) {
+			for (Node n : r.getBorder()) {
+				left = Math.min(left, n.getLongitude());
+				right = Math.max(right, n.getLongitude());
+				top = Math.max(top, n.getLatitude());
+				bottom = Math.min(bottom, n.getLatitude());
+				points++;
+			}
+		}
+		if (points >= MIN_POINTS_TO_PREPARE && right > left && top > bottom) {
+			int size = Math.max(MIN_CELLS, Math.min(MAX_CELLS, (int) Math.sqrt(points)));
+			cellsX = size;
+			cellsY = size;
+			cellWidth = (right - left) / cellsX;
+			cellHeight = (top - bottom) / cellsY;
+			cells = new byte[cellsX * cellsY];
+			for (Ring r : rings) {
+				markEdgeCells(r.getBorder());
+			}
+			fillAreas();
+		}
+	}
+
+	private void markEdgeCells(List<Node> border) {
+		if (border.isEmpty()) {
+			return;
+		}
+		// ring is checked as closed (same as Ring.containsPoint)
+		Node prev = border.get(border.size() - 1);
+		double epsX = cellWidth * EDGE_EPSILON;
+		double epsY = cellHeight * EDGE_EPSILON;
+		for (Node n : border) {
+			int x0 = cellX(Math.min(prev.getLongitude(), n.getLongitude()) - epsX);
+			int x1 = cellX(Math.max(prev.getLongitude(), n.getLongitude()) + epsX);
+			int y0 = cellY(Math.max(prev.getLatitude(), n.getLatitude()) + epsY);
+			int y1 = cellY(Math.min(prev.getLatitude(), n.getLatitude()) - epsY);
+			for (int y = y0; y <= y1; y++) {
+				for (int x = x0; x <= x1; x++) {
+					cells[y * cellsX + x] = EDGE;
+				}
+			}
+			prev = n;
+		}
+	}
+
+	private void fillAreas() {
+		int[] queue = new int[cells.length];
+		for (int start = 0; start < cells.length; start++) {
+			if (cells[start] != UNKNOWN) {
+				continue;
+			}
+			// area of connected cells without segments is crossed by nothing, so one point is enough
+			double lon = left + (start % cellsX + 0.5) * cellWidth;
+			double lat = top - (start / cellsX + 0.5) * cellHeight;
+			byte state = multipolygon.containsPoint(lat, lon) ? INSIDE : OUTSIDE;
+			int head = 0;
+			int tail = 0;
+			cells[start] = state;
+			queue[tail++] = start;
+			while (head < tail) {
+				int c = queue[head++];
+				int x = c % cellsX;
+				int y = c / cellsX;
+				if (x > 0 && cells[c - 1] == UNKNOWN) {
+					cells[c - 1] = state;
+					queue[tail++] = c - 1;
+				}
+				if (x < cellsX - 1 && cells[c + 1] == UNKNOWN) {
+					cells[c + 1] = state;
+					queue[tail++] = c + 1;
+				}
+				if (y > 0 && cells[c - cellsX] == UNKNOWN) {
+					cells[c - cellsX] = state;
+					queue[tail++] = c - cellsX;
+				}
+				if (y < cellsY - 1 && cells[c + cellsX] == UNKNOWN) {
+					cells[c + cellsX] = state;
+					queue[tail++] = c + cellsX;
+				}
+			}
+		}
+	}
+
+	private int cellX(double lon) {
+		return Math.max(0, Math.min(cellsX - 1, (int) ((lon - left) / cellWidth)));
+	}
+
+	private int cellY(double lat) {
+		return Math.max(0, Math.min(cellsY - 1, (int) ((top - lat) / cellHeight)));
+	}
+
+	public boolean containsPoint(double latitude, double longitude) {
+		if (latitude > top || latitude < bottom || longitude < left || longitude > right) {
+			return false;
+		}
+		if (cells != null) {
+			byte state = cells[cellY(latitude) * cellsX + cellX(longitude)];
+			if (state == INSIDE) {
+				return true;
+			} else if (state == OUTSIDE) {
+				return false;
+			}
+		}
+		return multipolygon.containsPoint(latitude, longitude);
+	}
+
+	public boolean containsPoint(LatLon location) {
+		return containsPoint(location.getLatitude(), location.getLongitude());
+	}
+
+	/**
+	 * @return bbox of rings as QuadRect(left, bottom, right, top) to be used in lat/lon QuadTree
+	 */
+	public QuadRect getLatLonQuadTreeBbox() {
+		return new QuadRect(left, bottom, right, top);
+	}
+
+	public Multipolygon getMultipolygon() {
+		return multipolygon;
+	}
+}
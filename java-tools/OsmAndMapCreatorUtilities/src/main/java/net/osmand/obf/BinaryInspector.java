@@ -6,6 +6,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.text.DecimalFormat;
 import java.text.MessageFormat;
 import java.text.ParseException;
@@ -496,7 +497,7 @@ public class BinaryInspector {
 		// write files
 		FileOutputStream fout = new FileOutputStream(fileToCreate);
 		CodedOutputStream ous = CodedOutputStream.newInstance(fout, BUFFER_SIZE);
-		byte[] BUFFER_TO_READ = new byte[BUFFER_SIZE];
+		FileChannel outChannel = fout.getChannel();
 
 		long dateCreated = System.currentTimeMillis();
 		if (!Algorithms.isEmpty(date)) {
@@ -550,7 +551,7 @@ public class BinaryInspector {
 					parts++;
 					ous.writeTag(fieldNumber, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
 					writeInt(ous, part.getLength());
-					copyBinaryPart(ous, BUFFER_TO_READ, raf, part.getFilePointer(), part.getLength());
+					copyBinaryPart(ous, outChannel, raf, part.getFilePointer(), part.getLength());
 					System.out.printf("%s %s from %s is extracted %,d bytes\n", part.getPartName(), part.getName(), f.getName(),
 							part.getLength());
 				}
@@ -586,6 +587,25 @@ public class BinaryInspector {
 		raf.seek(old);
 	}
 
+	/**
+	 * Copies part of file directly between channels (without heap buffers), output channel should be the one
+	 * coded output stream writes to.
+	 */
+	public static void copyBinaryPart(CodedOutputStream ous, FileChannel out, RandomAccessFile raf, long fp, long length)
+			throws IOException {
+		ous.flush();
+		FileChannel in = raf.getChannel();
+		long toCopy = length;
+		while (toCopy > 0) {
+			long copied = in.transferTo(fp, toCopy, out);
+			if (copied <= 0) {
+				throw new IllegalArgumentException("Unexpected end of file");
+			}
+			fp += copied;
+			toCopy -= copied;
+		}
+	}
+
 
 	protected String formatBounds(int left, int right, int top, int bottom) {
 		double l = MapUtils.get31LongitudeX(left);
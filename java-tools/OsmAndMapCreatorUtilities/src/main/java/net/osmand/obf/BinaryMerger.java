@@ -29,6 +29,7 @@ import org.xmlpull.v1.XmlPullParserException;
 import rtree.RTreeException;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.sql.SQLException;
 import java.text.MessageFormat;
 import java.util.*;
@@ -638,6 +639,11 @@ public class BinaryMerger {
 		BinaryInspector.copyBinaryPart(ous, BUFFER, raf, fp, length);
 	}
 
+	public static void copyBinaryPart(CodedOutputStream ous, FileChannel out, RandomAccessFile raf, long fp, long length)
+			throws IOException {
+		BinaryInspector.copyBinaryPart(ous, out, raf, fp, length);
+	}
+
 	public void combineParts(File fileToExtract, List<File> files, List<BinaryMapIndexReader> readers, Set<Integer> combineParts) throws IOException, SQLException {
 		boolean combineFiles = files != null;
 		BinaryMapIndexReader[] indexes =  combineFiles ? new BinaryMapIndexReader[files.size()] : readers.toArray(new BinaryMapIndexReader[readers.size()]);
@@ -683,7 +689,7 @@ public class BinaryMerger {
 		RandomAccessFile rafToExtract = new RandomAccessFile(fileToExtract, "rw");
 		BinaryMapIndexWriter writer = new BinaryMapIndexWriter(rafToExtract, dateCreated);
 		CodedOutputStream ous = writer.getCodedOutStream();
-		byte[] BUFFER_TO_READ = new byte[BUFFER_SIZE];
+		FileChannel outChannel = rafToExtract.getChannel();
 		AddressRegion[] addressRegions = new AddressRegion[combineFiles ? files.size() : readers.size()];
 		PoiRegion[] poiRegions = new PoiRegion[combineFiles ? files.size() : readers.size()];
 		for (int k = 0; k < indexes.length; k++) {
@@ -702,7 +708,7 @@ public class BinaryMerger {
 				} else if (raf != null) {
 					ous.writeTag(part.getFieldNumber(), WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
 					writeInt(ous, part.getLength());
-					copyBinaryPart(ous, BUFFER_TO_READ, raf, part.getFilePointer(), part.getLength());
+					copyBinaryPart(ous, outChannel, raf, part.getFilePointer(), part.getLength());
 					System.out.println(MessageFormat.format("{2} part {0} is extracted {1} bytes",
 							new Object[]{part.getName(), part.getLength(), part.getPartName()}));
 				}
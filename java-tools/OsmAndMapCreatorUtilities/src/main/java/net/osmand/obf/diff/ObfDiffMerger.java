@@ -25,6 +25,9 @@ public class ObfDiffMerger {
 	}
 	private static final String OSMAND_CHANGE_VALUE = "delete";
 	private static final String OSMAND_CHANGE_TAG = "osmand_change";
+
+	// merge section by section instead of reading all files in memory (output is the same)
+	private boolean mergeBySections;
 	
 	public static void main(String[] args) {
 		try {
@@ -250,7 +253,9 @@ public class ObfDiffMerger {
 				Map<String, List<File>> fls = groupFilesByMonth(regionName, days, cdate, allowedMonths);
 				for (String fl : fls.keySet()) {
 					File flToMerge = new File(region, fl);
-					boolean processed = new ObfDiffMerger().process(flToMerge, fls.get(fl), true);
+					ObfDiffMerger merger = new ObfDiffMerger();
+					merger.mergeBySections = true;
+					boolean processed = merger.process(flToMerge, fls.get(fl), true);
 					if(processed) {
 						String s = "";
 						for(File f: fls.get(fl)) {
@@ -318,6 +323,10 @@ public class ObfDiffMerger {
 				checkTimestamps = true;
 				continue;
 			}
+			if (args[i].equals("--merge-by-sections")) {
+				mergeBySections = true;
+				continue;
+			}
 			File fl = new File(args[i]);
 			if(!fl.exists()) {
 				throw new IllegalArgumentException("File not found: " + fl.getAbsolutePath());
@@ -363,8 +372,12 @@ public class ObfDiffMerger {
 			}
 		}
 		ObfFileInMemory context = new ObfFileInMemory();
-		context.readObfFiles(diffs);
-		context.writeFile(result, true);
+		if (mergeBySections) {
+			context.mergeObfFilesBySections(diffs, result, true);
+		} else {
+			context.readObfFiles(diffs);
+			context.writeFile(result, true);
+		}
 		return true;
 	}
 
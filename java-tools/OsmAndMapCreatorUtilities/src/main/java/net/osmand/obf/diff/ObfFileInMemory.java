@@ -117,13 +117,146 @@ public class ObfFileInMemory {
 	}
 
 	public void writeFile(File targetFile, boolean doNotSimplifyObjects) throws IOException, RTreeException, SQLException {
-		boolean gzip = targetFile.getName().endsWith(".gz");
+		ObfWriteTarget target = startWriteFile(targetFile);
+		if (mapObjects.size() > 0) {
+			startWriteMapIndex(target);
+			Iterator<Entry<MapZoomPair, TLongObjectHashMap<BinaryMapDataObject>>> it = mapObjects.entrySet().iterator();
+			while (it.hasNext()) {
+				Entry<MapZoomPair, TLongObjectHashMap<BinaryMapDataObject>> n = it.next();
+				writeMapData(target.writer, n.getKey(), n.getValue(), targetFile, doNotSimplifyObjects);
+			}
+			target.writer.endWriteMapIndex();
+		}
+		writeRouteIndex(target);
+		writePoiIndex(target);
+		writeTransportIndex(target);
+		finishWriteFile(target);
+	}
+
+	/**
+	 * Merges files with the same result as {@link #readObfFiles(List)} and {@link #writeFile(File, boolean)},
+	 * but sections are read and written one by one (map data by zoom levels), so only the largest section
+	 * is kept in memory instead of the whole file.
+	 */
+	public void mergeObfFilesBySections(List<File> files, File targetFile, boolean doNotSimplifyObjects)
+			throws IOException, RTreeException, SQLException {
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		List<File> unpackedFiles = new ArrayList<>();
+		try {
+			for (File inputFile : files) {
+				if (inputFile == null) {
+					continue;
+				}
+				File parentFile = inputFile.getParentFile();
+				LOG.info(String.format("Reading %s / %s ", parentFile == null ? "" : parentFile.getName(),
+						inputFile.getName()));
+				File nonGzip = unpackObfFile(inputFile);
+				if (nonGzip != inputFile) {
+					unpackedFiles.add(nonGzip);
+				}
+				BinaryMapIndexReader indexReader = new BinaryMapIndexReader(new RandomAccessFile(nonGzip, "r"), nonGzip);
+				readers.add(indexReader);
+				updateTimestamp(indexReader.getDateCreated());
+				setOsmAndOwner(indexReader.getOwner());
+			}
+			ObfWriteTarget target = startWriteFile(targetFile);
+			// encoding rules are written before map data, so all zooms are adopted in the order of reading files
+			Set<MapZoomPair> zooms = new LinkedHashSet<>();
+			for (BinaryMapIndexReader indexReader : readers) {
+				for (BinaryIndexPart p : indexReader.getIndexes()) {
+					if (p instanceof MapIndex) {
+						MapIndex mi = (MapIndex) p;
+						for (MapRoot mr : mi.getRoots()) {
+							zooms.add(new MapZooms.MapZoomPair(mr.getMinZoom(), mr.getMaxZoom()));
+							for (BinaryMapDataObject o : readBinaryMapData(indexReader, mi, mr.getMinZoom()).valueCollection()) {
+								mapIndex.adoptMapObject(o);
+							}
+						}
+					}
+				}
+			}
+			if (zooms.size() > 0) {
+				startWriteMapIndex(target);
+				for (MapZoomPair pair : zooms) {
+					for (BinaryMapIndexReader indexReader : readers) {
+						for (BinaryIndexPart p : indexReader.getIndexes()) {
+							if (p instanceof MapIndex) {
+								MapIndex mi = (MapIndex) p;
+								for (MapRoot mr : mi.getRoots()) {
+									if (pair.equals(new MapZooms.MapZoomPair(mr.getMinZoom(), mr.getMaxZoom()))) {
+										putMapObjects(pair, readBinaryMapData(indexReader, mi, mr.getMinZoom()).valueCollection(), true);
+									}
+								}
+							}
+						}
+					}
+					writeMapData(target.writer, pair, get(pair), targetFile, doNotSimplifyObjects);
+					mapObjects.remove(pair);
+				}
+				target.writer.endWriteMapIndex();
+			}
+			for (BinaryMapIndexReader indexReader : readers) {
+				for (BinaryIndexPart p : indexReader.getIndexes()) {
+					if (p instanceof RouteRegion) {
+						readRoutingData(indexReader, (RouteRegion) p, ZOOM_LEVEL_ROUTING, true);
+					}
+				}
+			}
+			writeRouteIndex(target);
+			routeObjects = new TLongObjectHashMap<>();
+			for (BinaryMapIndexReader indexReader : readers) {
+				for (BinaryIndexPart p : indexReader.getIndexes()) {
+					if (p instanceof PoiRegion) {
+						putPoiData(readPoiData(indexReader, (PoiRegion) p, ZOOM_LEVEL_POI, true), true);
+					}
+				}
+			}
+			writePoiIndex(target);
+			poiObjects = new TLongObjectHashMap<>();
+			for (BinaryMapIndexReader indexReader : readers) {
+				for (BinaryIndexPart p : indexReader.getIndexes()) {
+					if (p instanceof TransportIndex) {
+						readTransportData(indexReader, (TransportIndex) p, true);
+					}
+				}
+			}
+			writeTransportIndex(target);
+			transportStops = new TLongObjectHashMap<>();
+			transportRoutes = new TLongObjectHashMap<>();
+			finishWriteFile(target);
+		} finally {
+			for (BinaryMapIndexReader indexReader : readers) {
+				indexReader.close();
+			}
+			for (File f : unpackedFiles) {
+				f.delete();
+			}
+		}
+	}
+
+	private static class ObfWriteTarget {
+		File targetFile;
+		File nonGzip;
+		boolean gzip;
+		int version;
+		String defName;
+		RandomAccessFile raf;
+		CodedOutputStream ous;
+		BinaryMapIndexWriter writer;
+	}
+
+	private ObfWriteTarget startWriteFile(File targetFile) throws IOException {
+		ObfWriteTarget target = new ObfWriteTarget();
+		target.targetFile = targetFile;
+		target.gzip = targetFile.getName().endsWith(".gz");
 		File nonGzip = targetFile;
-		if(gzip) {
+		if(target.gzip) {
 			nonGzip = new File(targetFile.getParentFile(),
 				targetFile.getName().substring(0, targetFile.getName().length() - 3));
 		}
+		target.nonGzip = nonGzip;
 		final RandomAccessFile raf = new RandomAccessFile(nonGzip, "rw");
+		target.raf = raf;
 		// write files
 		CodedOutputStream ous = CodedOutputStream.newInstance(new OutputStream() {
 			@Override
@@ -142,42 +275,49 @@ public class ObfFileInMemory {
 			}
 
 		});
+		target.ous = ous;
 
 		timestamp = timestamp == 0 ? System.currentTimeMillis() : timestamp;
 		int version = IndexConstants.BINARY_MAP_VERSION;
+		target.version = version;
 		ous.writeInt32(OsmandOdb.OsmAndStructure.VERSION_FIELD_NUMBER, version);
 		ous.writeInt64(OsmandOdb.OsmAndStructure.DATECREATED_FIELD_NUMBER, timestamp);
-		BinaryMapIndexWriter writer = new BinaryMapIndexWriter(raf, ous);
-		String defName = targetFile.getName().substring(0, targetFile.getName().indexOf('.'));
-		if (mapObjects.size() > 0) {
-			String name = mapIndex.getName();
-			if(Algorithms.isEmpty(name)) {
-				name = defName;
-			}
-			writer.startWriteMapIndex(Algorithms.capitalizeFirstLetter(name));
-			writer.writeMapEncodingRules(mapIndex.decodingRules);
-			Iterator<Entry<MapZoomPair, TLongObjectHashMap<BinaryMapDataObject>>> it = mapObjects.entrySet().iterator();
-			while (it.hasNext()) {
-				Entry<MapZoomPair, TLongObjectHashMap<BinaryMapDataObject>> n = it.next();
-				writeMapData(writer, n.getKey(), n.getValue(), targetFile, doNotSimplifyObjects);
-			}
-			writer.endWriteMapIndex();
+		target.writer = new BinaryMapIndexWriter(raf, ous);
+		target.defName = targetFile.getName().substring(0, targetFile.getName().indexOf('.'));
+		return target;
+	}
+
+	private void startWriteMapIndex(ObfWriteTarget target) throws IOException {
+		String name = mapIndex.getName();
+		if(Algorithms.isEmpty(name)) {
+			name = target.defName;
 		}
+		target.writer.startWriteMapIndex(Algorithms.capitalizeFirstLetter(name));
+		target.writer.writeMapEncodingRules(mapIndex.decodingRules);
+	}
+
+	private void writeRouteIndex(ObfWriteTarget target) throws IOException, RTreeException, SQLException {
+		BinaryMapIndexWriter writer = target.writer;
 		if (routeObjects.size() > 0) {
 			String name = mapIndex.getName();
 			if(Algorithms.isEmpty(name)) {
-				name = defName;
+				name = target.defName;
 			}
 			writer.startWriteRouteIndex(name);
 			writer.writeRouteRawEncodingRules(routeIndex.routeEncodingRules);
-			writeRouteData(writer, routeObjects, targetFile);
+			writeRouteData(writer, routeObjects, target.targetFile);
 
 			writer.endWriteRouteIndex();
 		}
+	}
+
+	private void writePoiIndex(ObfWriteTarget target) throws IOException, SQLException {
+		BinaryMapIndexWriter writer = target.writer;
+		File targetFile = target.targetFile;
 		if (poiObjects.size() > 0) {
 			String name = "";
 			if(Algorithms.isEmpty(name)) {
-				name = defName;
+				name = target.defName;
 			}
 			MapRenderingTypesEncoder renderingTypes = new MapRenderingTypesEncoder(null, name);
 			IndexCreatorSettings settings = new IndexCreatorSettings();
@@ -194,12 +334,16 @@ public class ObfFileInMemory {
 			indexPoiCreator.commitAndClosePoiFile(System.currentTimeMillis());
 			indexPoiCreator.removePoiFile();
 		}
+	}
+
+	private void writeTransportIndex(ObfWriteTarget target) throws IOException, RTreeException, SQLException {
+		BinaryMapIndexWriter writer = target.writer;
+		File targetFile = target.targetFile;
 		if (transportStops.size() > 0) {
 			String name = mapIndex.getName();
 			if(Algorithms.isEmpty(name)) {
-				name = defName;
+				name = target.defName;
 			}
-
 			IndexCreatorSettings settings = new IndexCreatorSettings();
 			settings.indexTransport = true;
 			IndexTransportCreator indexCreator = new IndexTransportCreator(settings);
@@ -244,29 +388,38 @@ public class ObfFileInMemory {
 				}
 				writer.endWriteTransportRoutes();
 			}
-			for (TransportStop stop : transportStops.valueCollection()) {
-				long[] routesIds = stop.getRoutesIds();
-				long[] nrefs = null;
-				if (routesIds != null) {
-					nrefs = new long[routesIds.length];
-					for (int i = 0; i < routesIds.length; i++) {
-						Long vl = newRoutesIds.get(routesIds[i]);
-						if(vl == null) {
-							throw new IllegalStateException(
-									String.format("Transport stop (%s) has reference to route %d but it wasn't found in the list",
-									stop, routesIds[i] / 2));
+			// stops could be shared with other files written in parallel (same transport routes map)
+			synchronized (this.transportRoutes) {
+				for (TransportStop stop : transportStops.valueCollection()) {
+					long[] routesIds = stop.getRoutesIds();
+					long[] nrefs = null;
+					if (routesIds != null) {
+						nrefs = new long[routesIds.length];
+						for (int i = 0; i < routesIds.length; i++) {
+							Long vl = newRoutesIds.get(routesIds[i]);
+							if(vl == null) {
+								throw new IllegalStateException(
+										String.format("Transport stop (%s) has reference to route %d but it wasn't found in the list",
+										stop, routesIds[i] / 2));
+							}
+							nrefs[i] = vl.intValue();
 						}
-						nrefs[i] = vl.intValue();
 					}
+					stop.setReferencesToRoutes(nrefs);
 				}
-				stop.setReferencesToRoutes(nrefs);
-			}
 
-			writeTransportStops(indexCreator, writer, transportStops, stringTable, targetFile);
+				writeTransportStops(indexCreator, writer, transportStops, stringTable, targetFile);
+			}
 			writer.writeTransportStringTable(stringTable);
 			writer.endWriteTransportIndex();
 		}
 
+	}
+
+	private void finishWriteFile(ObfWriteTarget target) throws IOException {
+		CodedOutputStream ous = target.ous;
+		File targetFile = target.targetFile;
+		File nonGzip = target.nonGzip;
 		if (osmAndOwner != null) {
 			OsmandOdb.OsmAndOwner.Builder b = OsmandOdb.OsmAndOwner.newBuilder();
 			b.setName(osmAndOwner.getName());
@@ -283,11 +436,11 @@ public class ObfFileInMemory {
 			ous.writeMessage(OsmandOdb.OsmAndStructure.OWNER_FIELD_NUMBER, m);
 		}
 
-		ous.writeInt32(OsmandOdb.OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, version);
+		ous.writeInt32(OsmandOdb.OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, target.version);
 		ous.flush();
-		raf.close();
+		target.raf.close();
 
-		if (gzip) {
+		if (target.gzip) {
 			nonGzip.setLastModified(timestamp);
 
 			FileInputStream fis = new FileInputStream(nonGzip);
@@ -463,12 +616,7 @@ public class ObfFileInMemory {
 			LOG.info(String.format("Reading %s / %s ", parentFile == null ? "" : parentFile.getName(),
 					inputFile.getName()));
 			if (inputFile.getName().endsWith(".gz")) {
-				nonGzip = new File(inputFile.getParentFile(), inputFile.getName().substring(0, inputFile.getName().length() - 3));
-				GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(inputFile));
-				FileOutputStream fous = new FileOutputStream(nonGzip);
-				Algorithms.streamCopy(gzin, fous);
-				fous.close();
-				gzin.close();
+				nonGzip = unpackObfFile(inputFile);
 				gzip = true;
 			}
 			RandomAccessFile raf = new RandomAccessFile(nonGzip, "r");
@@ -504,6 +652,19 @@ public class ObfFileInMemory {
 		}
 	}
 
+	private static File unpackObfFile(File inputFile) throws IOException {
+		if (!inputFile.getName().endsWith(".gz")) {
+			return inputFile;
+		}
+		File nonGzip = new File(inputFile.getParentFile(), inputFile.getName().substring(0, inputFile.getName().length() - 3));
+		GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(inputFile));
+		FileOutputStream fous = new FileOutputStream(nonGzip);
+		Algorithms.streamCopy(gzin, fous);
+		fous.close();
+		gzin.close();
+		return nonGzip;
+	}
+
 	public void readTransportData(BinaryMapIndexReader indexReader, TransportIndex ind, boolean override) throws IOException {
 		SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(
 				MapUtils.get31TileNumberX(lonleft),
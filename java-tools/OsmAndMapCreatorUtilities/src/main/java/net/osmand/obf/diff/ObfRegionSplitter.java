@@ -16,13 +16,24 @@ import net.osmand.util.MapUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import gnu.trove.map.hash.TLongObjectHashMap;
+import rtree.RTreeException;
 
 public class ObfRegionSplitter {
-	
-	
+
+	private static final int DEFAULT_THREADS = 4;
+
+	private int threads = DEFAULT_THREADS;
+	private final TLongObjectHashMap<List<String>> pointRegions = new TLongObjectHashMap<>();
+	private final Map<BinaryMapDataObject, String> downloadRegions = new IdentityHashMap<>();
+
 	public static void main(String[] args) throws IOException {
 		if(args.length == 1 && args[0].equals("test")) {
 			args = new String[4];
@@ -33,7 +44,7 @@ public class ObfRegionSplitter {
 //			args[4] = "--srtm=/Users/macmini/OsmAnd/overpass/srtm/";
 		}
 		if (args.length <= 3) {
-			System.err.println("Usage: <path_to_world_obf_diff> <path_to_result_folder> <subfolder_name> <file_suffix> --srtm=<folder with srtm>");
+			System.err.println("Usage: <path_to_world_obf_diff> <path_to_result_folder> <subfolder_name> <file_suffix> --srtm=<folder with srtm> --threads=<number of threads>");
 			return;
 		}
 		
@@ -55,12 +66,16 @@ public class ObfRegionSplitter {
 		}
 
 		IndexHeightData heightData = null;
-		if (args.length > 4 && args[4].startsWith("--srtm=")) {
-			String srtmDataFolderUrl = args[4].replace("--srtm=", "");
-			File heightDir = new File(srtmDataFolderUrl);
-			if (heightDir.exists()) {
-				heightData = new IndexHeightData();
-				heightData.setSrtmData(srtmDataFolderUrl, dir);
+		for (int i = 4; i < args.length; i++) {
+			if (args[i].startsWith("--srtm=")) {
+				String srtmDataFolderUrl = args[i].replace("--srtm=", "");
+				File heightDir = new File(srtmDataFolderUrl);
+				if (heightDir.exists()) {
+					heightData = new IndexHeightData();
+					heightData.setSrtmData(srtmDataFolderUrl, dir);
+				}
+			} else if (args[i].startsWith("--threads=")) {
+				threads = Integer.parseInt(args[i].substring("--threads=".length()));
 			}
 		}
 
@@ -80,38 +95,26 @@ public class ObfRegionSplitter {
 			regionNames.addAll(regionsPoiData.keySet());
 			regionNames.addAll(regionsTransportData.keySet());
 
-			for (String regionName : regionNames) {
-				File folder = new File(dir, regionName);
-				if (!Algorithms.isEmpty(subFolder)) {
-					folder = new File(folder, subFolder);
-				}
-				folder.mkdirs();
-				File result = new File(folder, Algorithms.capitalizeFirstLetter(regionName) + fileSuffix + ".obf.gz");
-				ObfFileInMemory obf = new ObfFileInMemory();
-
-				Map<MapZoomPair, TLongObjectHashMap<BinaryMapDataObject>> mp = regionsMapData.get(regionName);
-				if (mp != null) {
-					for (MapZoomPair mzPair : mp.keySet()) {
-						obf.putMapObjects(mzPair, mp.get(mzPair).valueCollection(), true);
-					}
-				}
-				
-				TLongObjectHashMap<RouteDataObject> ro = regionsRouteData.get(regionName);
-				if (ro != null) {
-					obf.putRoutingData(ro, true);
-				}
-				TLongObjectHashMap<Map<String, Amenity>> poi = regionsPoiData.get(regionName);
-				if (poi != null) {
-					obf.putPoiData(poi, true);
+			// each region is written with own rtree and poi temp files next to result, gzip runs in the same task
+			ExecutorService service = Executors.newFixedThreadPool(threads);
+			List<Future<?>> results = new ArrayList<>();
+			try {
+				for (String regionName : regionNames) {
+					results.add(service.submit(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							writeRegion(dir, subFolder, fileSuffix, regionName, fl, regionsMapData.get(regionName),
+									regionsRouteData.get(regionName), regionsPoiData.get(regionName),
+									regionsTransportData.get(regionName));
+							return null;
+						}
+					}));
 				}
-				TLongObjectHashMap<TransportStop> stops = regionsTransportData.get(regionName);
-				if (stops != null) {
-					Collection<TransportStop> stopsCollection = stops.valueCollection();
-					obf.setTransportRoutes(fl.getTransportRoutes());
-					obf.putTransportStops(stopsCollection, true);
+				for (Future<?> f : results) {
+					f.get();
 				}
-				obf.updateTimestamp(fl.getTimestamp());
-				obf.writeFile(result, true);
+			} finally {
+				service.shutdownNow();
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -120,6 +123,38 @@ public class ObfRegionSplitter {
 	}
 			
 
+	private void writeRegion(File dir, String subFolder, String fileSuffix, String regionName, ObfFileInMemory fl,
+			Map<MapZoomPair, TLongObjectHashMap<BinaryMapDataObject>> mp, TLongObjectHashMap<RouteDataObject> ro,
+			TLongObjectHashMap<Map<String, Amenity>> poi, TLongObjectHashMap<TransportStop> stops)
+			throws IOException, RTreeException, SQLException {
+		File folder = new File(dir, regionName);
+		if (!Algorithms.isEmpty(subFolder)) {
+			folder = new File(folder, subFolder);
+		}
+		folder.mkdirs();
+		File result = new File(folder, Algorithms.capitalizeFirstLetter(regionName) + fileSuffix + ".obf.gz");
+		ObfFileInMemory obf = new ObfFileInMemory();
+
+		if (mp != null) {
+			for (MapZoomPair mzPair : mp.keySet()) {
+				obf.putMapObjects(mzPair, mp.get(mzPair).valueCollection(), true);
+			}
+		}
+		if (ro != null) {
+			obf.putRoutingData(ro, true);
+		}
+		if (poi != null) {
+			obf.putPoiData(poi, true);
+		}
+		if (stops != null) {
+			Collection<TransportStop> stopsCollection = stops.valueCollection();
+			obf.setTransportRoutes(fl.getTransportRoutes());
+			obf.putTransportStops(stopsCollection, true);
+		}
+		obf.updateTimestamp(fl.getTimestamp());
+		obf.writeFile(result, true);
+	}
+
 	private Map<String, TLongObjectHashMap<Map<String, Amenity>>> splitRegionPoiData(ObfFileInMemory fl,
  			OsmandRegions osmandRegions) throws IOException {
  		Map<String, TLongObjectHashMap<Map<String, Amenity>>> result = new HashMap<>();
@@ -128,23 +163,13 @@ public class ObfRegionSplitter {
  			Amenity obj = objMap.values().iterator().next();
  			int x = MapUtils.get31TileNumberX(obj.getLocation().getLongitude());
  			int y = MapUtils.get31TileNumberY(obj.getLocation().getLatitude());
- 			List<BinaryMapDataObject> l = osmandRegions.query(x, y);
- 			for (BinaryMapDataObject b : l) {
- 				if (OsmandRegions.contain(b, x, y)) {
- 					String dw = osmandRegions.getDownloadName(b);
- 					WorldRegion wr = osmandRegions.getRegionDataByDownloadName(dw);
- 					if (dw == null || wr == null) {
-						continue;
-					}
-					if (!Algorithms.isEmpty(dw) && (wr.isRegionMapDownload() || wr.isRegionRoadsDownload())) {
- 						TLongObjectHashMap<Map<String, Amenity>> mp = result.get(dw);
- 						if (mp == null) {
- 							mp = new TLongObjectHashMap<>();
- 							result.put(dw, mp);
- 						}
- 						mp.put(obj.getId(), objMap);
- 					}
+ 			for (String dw : getDownloadRegions(osmandRegions, x, y)) {
+ 				TLongObjectHashMap<Map<String, Amenity>> mp = result.get(dw);
+ 				if (mp == null) {
+ 					mp = new TLongObjectHashMap<>();
+ 					result.put(dw, mp);
  				}
+ 				mp.put(obj.getId(), objMap);
  			}
  		}
  		return result;
@@ -169,24 +194,13 @@ public class ObfRegionSplitter {
 				}
 				int x = obj.getPoint31XTile(0);
 				int y = obj.getPoint31YTile(0);
-				List<BinaryMapDataObject> l = osmandRegions.query(x, y);
-				for (BinaryMapDataObject b : l) {
-					if (OsmandRegions.contain(b, x, y)) {
-						String dw = osmandRegions.getDownloadName(b);
-						WorldRegion wr = osmandRegions.getRegionDataByDownloadName(dw);
-						if (dw == null || wr == null) {
-							continue;
-						}
-						if (!Algorithms.isEmpty(dw) && (wr.isRegionMapDownload() || wr.isRegionRoadsDownload())) {
-							TLongObjectHashMap<RouteDataObject> mp = result.get(dw);
-							if (mp == null) {
-								mp = new TLongObjectHashMap<>();
-								result.put(dw, mp);
-							}
-							
-							mp.put(obj.getId(), obj);
-						}
+				for (String dw : getDownloadRegions(osmandRegions, x, y)) {
+					TLongObjectHashMap<RouteDataObject> mp = result.get(dw);
+					if (mp == null) {
+						mp = new TLongObjectHashMap<>();
+						result.put(dw, mp);
 					}
+					mp.put(obj.getId(), obj);
 				}
 			}
 		}
@@ -313,28 +327,49 @@ public class ObfRegionSplitter {
 		for (TransportStop stop : transportStops.valueCollection()) {
 			int x = stop.x31;
 			int y = stop.y31;
-			List<BinaryMapDataObject> l = osmandRegions.query(x, y);
-			for (BinaryMapDataObject b : l) {
-				if (OsmandRegions.contain(b, x, y)) {
-					String dw = osmandRegions.getDownloadName(b);
-					WorldRegion wr = osmandRegions.getRegionDataByDownloadName(dw);
-					if (dw == null || wr == null) {
-						continue;
-					}
-					if (!Algorithms.isEmpty(dw) && (wr.isRegionMapDownload() || wr.isRegionRoadsDownload())) {
-						TLongObjectHashMap<TransportStop> mp = result.get(dw);
-						if (mp == null) {
-							mp = new TLongObjectHashMap<>();
-							result.put(dw, mp);
-						}
-						mp.put(stop.getId(), stop);
-					}
+			for (String dw : getDownloadRegions(osmandRegions, x, y)) {
+				TLongObjectHashMap<TransportStop> mp = result.get(dw);
+				if (mp == null) {
+					mp = new TLongObjectHashMap<>();
+					result.put(dw, mp);
 				}
+				mp.put(stop.getId(), stop);
 			}
 		}
 		return result;
 	}
 	
+	private List<String> getDownloadRegions(OsmandRegions osmandRegions, int x, int y) throws IOException {
+		// map objects of all zooms and route object of the same way start from the same point
+		long key = Algorithms.combine2Points(x, y);
+		List<String> res = pointRegions.get(key);
+		if (res == null) {
+			res = new ArrayList<>(2);
+			for (BinaryMapDataObject b : osmandRegions.query(x, y)) {
+				// polygon test only for download regions
+				String dw = getDownloadRegion(osmandRegions, b);
+				if (dw != null && OsmandRegions.contain(b, x, y)) {
+					res.add(dw);
+				}
+			}
+			pointRegions.put(key, res);
+		}
+		return res;
+	}
+
+	private String getDownloadRegion(OsmandRegions osmandRegions, BinaryMapDataObject b) {
+		if (downloadRegions.containsKey(b)) {
+			return downloadRegions.get(b);
+		}
+		String dw = osmandRegions.getDownloadName(b);
+		WorldRegion wr = dw == null ? null : osmandRegions.getRegionDataByDownloadName(dw);
+		if (wr == null || Algorithms.isEmpty(dw) || !(wr.isRegionMapDownload() || wr.isRegionRoadsDownload())) {
+			dw = null;
+		}
+		downloadRegions.put(b, dw);
+		return dw;
+	}
+
 	private boolean isPossibleVandalism(BinaryMapDataObject b) {
 		if ("ferry".equals(b.getTagValue("route"))) {
 			return false;
@@ -374,28 +409,18 @@ public class ObfRegionSplitter {
 				}
 				int x = obj.getPoint31XTile(0);
 				int y = obj.getPoint31YTile(0);
-				List<BinaryMapDataObject> l = osmandRegions.query(x, y);
-				for (BinaryMapDataObject b : l) {
-					if (OsmandRegions.contain(b, x, y)) {
-						String dw = osmandRegions.getDownloadName(b);
-						WorldRegion wr = osmandRegions.getRegionDataByDownloadName(dw);
-						if (dw == null || wr == null) {
-							continue;
-						}
-						if (!Algorithms.isEmpty(dw) && (wr.isRegionMapDownload() || wr.isRegionRoadsDownload())) {
-							Map<MapZoomPair, TLongObjectHashMap<BinaryMapDataObject>> mp = result.get(dw);
-							if(mp == null) {
-								mp = new LinkedHashMap<>();
-								result.put(dw, mp);
-							}
-							TLongObjectHashMap<BinaryMapDataObject> list = mp.get(p);
-							if (list == null) {
-								list = new TLongObjectHashMap<>();
-								mp.put(p, list);
-							}
-							list.put(obj.getId(), obj);
-						}
+				for (String dw : getDownloadRegions(osmandRegions, x, y)) {
+					Map<MapZoomPair, TLongObjectHashMap<BinaryMapDataObject>> mp = result.get(dw);
+					if(mp == null) {
+						mp = new LinkedHashMap<>();
+						result.put(dw, mp);
+					}
+					TLongObjectHashMap<BinaryMapDataObject> list = mp.get(p);
+					if (list == null) {
+						list = new TLongObjectHashMap<>();
+						mp.put(p, list);
 					}
+					list.put(obj.getId(), obj);
 				}
 			}
 		}
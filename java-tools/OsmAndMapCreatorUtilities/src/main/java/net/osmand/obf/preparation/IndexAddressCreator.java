@@ -45,9 +45,10 @@ import net.osmand.data.City;
 import net.osmand.data.City.CityType;
 import net.osmand.data.LatLon;
 import net.osmand.data.MapObject;
-import net.osmand.data.Multipolygon;
 import net.osmand.data.MultipolygonBuilder;
+import net.osmand.data.PreparedMultipolygon;
 import net.osmand.data.QuadRect;
+import net.osmand.data.QuadTree;
 import net.osmand.data.Street;
 import net.osmand.obf.preparation.DBStreetDAO.SimpleStreet;
 import net.osmand.osm.MapRenderingTypes;
@@ -1364,34 +1365,47 @@ public class IndexAddressCreator extends AbstractIndexPartCreator {
 
 	private void updatePostcodeBoundaries(IProgress progress, Map<String, City> postcodes) throws SQLException {
 		progress.startTask("Process postcode boundaries", postcodeBoundaries.size());
-		Iterator<Entry<Entity, Boundary>> it = postcodeBoundaries.entrySet().iterator();
-		PreparedStatement ps =
-				mapConnection.prepareStatement("SELECT postcode, latitude, longitude, id"
-						+ " FROM building where latitude <= ? and latitude >= ? and longitude >= ? and longitude <= ? ");
+		// buildings are read once and matched with boundaries by bbox index (instead of bbox query per boundary)
+		QuadTree<Integer> boundariesTree = new QuadTree<Integer>(new QuadRect(-180, 90, 180, -90), 8, 0.55f);
+		List<PreparedMultipolygon> boundaries = new ArrayList<>();
+		List<String> boundariesPostcodes = new ArrayList<>();
+		for (Entry<Entity, Boundary> e : postcodeBoundaries.entrySet()) {
+			Boundary b = e.getValue();
+			if (b.getMultipolygon().getLatLonBbox().width() > 0) {
+				PreparedMultipolygon mp = b.getPreparedMultipolygon();
+				boundariesTree.insert(boundaries.size(), mp.getLatLonQuadTreeBbox());
+				boundaries.add(mp);
+				boundariesPostcodes.add(e.getKey().getTag(OSMTagKey.POSTAL_CODE));
+			}
+			progress.progress(1);
+		}
 		TLongObjectHashMap<String> assignPostcodes = new TLongObjectHashMap<>();
-		while(it.hasNext()) {
-			Entry<Entity, Boundary> e = it.next();
-			String postcode = e.getKey().getTag(OSMTagKey.POSTAL_CODE);
-			Multipolygon mp = e.getValue().getMultipolygon();
-			QuadRect bbox = mp.getLatLonBbox();
-			if (bbox.width() > 0) {
-				ps.setDouble(1, bbox.top);
-				ps.setDouble(2, bbox.bottom);
-				ps.setDouble(3, bbox.left);
-				ps.setDouble(4, bbox.right);
-				ResultSet rs = ps.executeQuery();
-				while (rs.next()) {
-					String pst = rs.getString(1);
-					if (Algorithms.isEmpty(pst)) {
-						if (mp.containsPoint(rs.getDouble(2), rs.getDouble(3))) {
-							assignPostcodes.put(rs.getLong(4), postcode);
+		PreparedStatement ps;
+		if (!boundaries.isEmpty()) {
+			ps = mapConnection.prepareStatement("SELECT postcode, latitude, longitude, id FROM building");
+			ResultSet rs = ps.executeQuery();
+			List<Integer> candidates = new ArrayList<>();
+			while (rs.next()) {
+				String pst = rs.getString(1);
+				if (Algorithms.isEmpty(pst)) {
+					double lat = rs.getDouble(2);
+					double lon = rs.getDouble(3);
+					candidates.clear();
+					boundariesTree.queryInBox(new QuadRect(lon, lat, lon, lat), candidates);
+					// postcode of the last boundary (in order of postcodeBoundaries) containing building wins
+					Collections.sort(candidates);
+					for (int i = candidates.size() - 1; i >= 0; i--) {
+						int ind = candidates.get(i);
+						if (boundaries.get(ind).containsPoint(lat, lon)) {
+							assignPostcodes.put(rs.getLong(4), boundariesPostcodes.get(ind));
+							break;
 						}
 					}
 				}
 			}
-			progress.progress(1);
+			rs.close();
+			ps.close();
 		}
-		ps.close();
 		ps = mapConnection.prepareStatement("UPDATE "
 				+ " building set postcode = ? where id = ? ");
 		TLongObjectIterator<String> its = assignPostcodes.iterator();
@@ -29,7 +29,9 @@ import javax.imageio.ImageReader;
 import java.io.*;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -55,6 +57,7 @@ public class IndexCreator {
 	public static final int BATCH_SIZE = 5000;
 	public static final int BATCH_SIZE_OSM = 10000;
 	public static final String TEMP_NODES_DB = "nodes.tmp.odb";
+	public static final String TEMP_NODE_LOCATIONS = "nodes.tmp.locations";
 
 	public static final int STEP_MAIN = 4;
 
@@ -201,21 +204,34 @@ public class IndexCreator {
 	/* ***** END OF GETTERS/SETTERS ***** */
 
 	private void iterateMainEntity(Entity e, OsmDbAccessorContext ctx, IndexCreationContext icc) throws SQLException {
+		prepareMainEntity(e, icc);
+		indexMainEntity(e, ctx, icc);
+	}
+
+	// changes only the entity itself and reads prepared data, so it could run ahead of indexMainEntity
+	private void prepareMainEntity(Entity e, IndexCreationContext icc) {
 		calculateRegionTagAndTransliterate(e, icc);
+		if (e.getTag(TIGER_OSMAND_TAG) != null) {
+			return;
+		}
+		if (propagateToNodes != null && e instanceof Node) {
+			propagateToNodes.propagateTagsToNode((Node) e, true);
+		}
+	}
+
+	private void indexMainEntity(Entity e, OsmDbAccessorContext ctx, IndexCreationContext icc) throws SQLException {
         if (e.getTag(TIGER_OSMAND_TAG) != null) {
 			if (settings.indexAddress) {
 				indexAddressCreator.iterateMainEntity(e, ctx, icc);
 			}
             return;
         }
+		// height tiles cache and border points are read by creators, so they are updated in the same stage
 		if (heightData != null && e instanceof Way) {
 			if (!settings.keepOnlyRouteRelationObjects) {// small speedup
 				heightData.proccess((Way) e);
 			}
 		}
-		if (propagateToNodes != null && e instanceof Node) {
-			propagateToNodes.propagateTagsToNode((Node) e, true);
-		}
 		if (settings.indexPOI) {
 			indexPoiCreator.iterateEntity(e, ctx, icc);
 		}
@@ -302,6 +318,7 @@ public class IndexCreator {
 		if (!this.settings.ignorePropagate) {
 			dbCreator.setPropagateToNodes(propagateToNodes);
 		}
+		dbCreator.setNodeLocations(accessor.getNodeLocations());
 		accessor.setCreator(dbCreator);
 
 		try {
@@ -349,6 +366,10 @@ public class IndexCreator {
 
 		Connection dbConn = (Connection) getDatabaseConnection(dbFile.getAbsolutePath(), osmDBdialect);
 		accessor.setDbConn(dbConn, osmDBdialect);
+		if (settings.nodeLocationStore != NodeLocationStore.StoreType.SQLITE) {
+			accessor.setNodeLocations(new NodeLocationStore(new File(workingDir, TEMP_NODE_LOCATIONS),
+					settings.nodeLocationStore, ObfConstants.SHIFT_ID));
+		}
 		OsmDbCreator dbCreator = null;
 		int idShift = readFile.length < 16 ? 4 : (readFile.length < 64 ? 6 : 11);
 		if (readFile.length > (1 << 11)) {
@@ -675,6 +696,9 @@ public class IndexCreator {
 				writer.close();
 				mapRAFile.close();
 				log.info("Finish writing binary file"); //$NON-NLS-1$
+				if (heightData != null) {
+					log.info(heightData.getStats());
+				}
 			}
 		} catch (RuntimeException e) {
 			log.error("Log exception", e); //$NON-NLS-1$
@@ -726,6 +750,10 @@ public class IndexCreator {
 
 	private void iterateMainEntities(OsmDbAccessor accessor, IProgress progress, IndexCreationContext icc)
 			throws SQLException, InterruptedException {
+		if (settings.parallelEntityIteration) {
+			iterateMainEntitiesParallel(accessor, progress, icc);
+			return;
+		}
 		setGeneralProgress(progress, "[50 / 100]");
 		progress.startTask(settings.getString("IndexCreator.PROCESS_OSM_NODES"), accessor.getAllNodes());
 		accessor.iterateOverEntities(progress, EntityType.NODE, new OsmDbVisitor() {
@@ -754,6 +782,43 @@ public class IndexCreator {
 		});
 	}
 
+	private void iterateMainEntitiesParallel(OsmDbAccessor accessor, IProgress progress, IndexCreationContext icc)
+			throws SQLException, InterruptedException {
+		// region tags and transliteration are prepared ahead on the calling thread, creators share
+		// connection, height tiles cache and border points, so they stay together in the second stage
+		List<OsmDbVisitor> stages = new ArrayList<>();
+		stages.add(new OsmDbVisitor() {
+			@Override
+			public void iterateEntity(Entity e, OsmDbAccessorContext ctx) throws SQLException {
+				prepareMainEntity(e, icc);
+			}
+		});
+		stages.add(new OsmDbVisitor() {
+			@Override
+			public void iterateEntity(Entity e, OsmDbAccessorContext ctx) throws SQLException {
+				if (e instanceof Way) {
+					propagateToNodes.calculateBorderPoints((Way) e);
+				}
+				indexMainEntity(e, ctx, icc);
+			}
+		});
+		setGeneralProgress(progress, "[50 / 100]");
+		progress.startTask(settings.getString("IndexCreator.PROCESS_OSM_NODES"), accessor.getAllNodes());
+		accessor.iterateOverEntities(progress, EntityType.NODE, stages);
+		setGeneralProgress(progress, "[70 / 100]");
+		progress.startTask(settings.getString("IndexCreator.PROCESS_OSM_WAYS"), accessor.getAllWays());
+		accessor.iterateOverEntities(progress, EntityType.WAY, stages);
+		// relation visitors load members into shared entities, so relations are iterated serially
+		setGeneralProgress(progress, "[85 / 100]");
+		progress.startTask(settings.getString("IndexCreator.PROCESS_OSM_REL"), accessor.getAllRelations());
+		accessor.iterateOverEntities(progress, EntityType.RELATION, new OsmDbVisitor() {
+			@Override
+			public void iterateEntity(Entity e, OsmDbAccessorContext ctx) throws SQLException {
+				iterateMainEntity(e, ctx, icc);
+			}
+		});
+	}
+
 	private void indexRelations(OsmDbAccessor accessor, IProgress progress, IndexCreationContext icc)
 			throws SQLException, InterruptedException {
 		if (settings.indexAddress || settings.indexMap || settings.indexRouting || settings.indexPOI
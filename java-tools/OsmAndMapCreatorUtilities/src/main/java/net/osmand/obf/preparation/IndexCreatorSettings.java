@@ -17,12 +17,28 @@ public class IndexCreatorSettings {
 
 	// use Sqlite in RAM instead of normal Sqlite (speeds up process but takes a lot of RAM)
 	public boolean processInRam;
+
+	// keep coordinates of untagged nodes in memory mapped file instead of Sqlite node table
+	// (DENSE for planet and large countries, SPARSE for small extracts)
+	public NodeLocationStore.StoreType nodeLocationStore = NodeLocationStore.StoreType.SQLITE;
+
+	// prepare region tags and transliteration of main entities on own thread ahead of creators
+	public boolean parallelEntityIteration = false;
+
+	// build packed rtree files with external STR bulk loader instead of rtree inserts and repacking
+	public boolean rtreeBulkLoad = false;
 	
 	public boolean wikiQrankFilter = false;
 
 	// maximum tiles to use in RAM
 	public int maxHeightTilesInRam = -1;
 
+	// maximum size of mapped height tiles and of converted tiles cache on disk (MB), 0 - default, -1 - no limit
+	public int maxHeightTilesMappedMb = 0;
+	public int srtmDiskCacheMb = 0;
+	// folder of converted height tiles shared between runs (working dir by default)
+	public String srtmCacheFolder = null;
+
 	// generate low level roads and maps
 	public boolean generateLowLevel = true;
 
@@ -1,25 +1,14 @@
 package net.osmand.obf.preparation;
 
 import java.awt.Shape;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferShort;
 import java.io.*;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
-import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
-import javax.imageio.stream.ImageInputStream;
-
 import net.osmand.binary.ObfConstants;
 import org.apache.commons.logging.Log;
 import org.xmlpull.v1.XmlPullParser;
@@ -50,10 +39,7 @@ public class IndexHeightData {
 	public static int MAXIMUM_LOADED_DATA = 150; 
 	private static final double MINIMAL_DISTANCE = 0;
 	private static final int HEIGHT_ACCURACY = 4;
-	private static boolean USE_BILINEAR_INTERPOLATION = false;
 
-	private String srtmDataUrl;
-	private File srtmWorkingDir;
 	
 	public static final String ELE_ASC_START = "osmand_ele_start";
 	public static final String ELE_ASC_END = "osmand_ele_end";
@@ -66,7 +52,6 @@ public class IndexHeightData {
 	public static final double INEXISTENT_HEIGHT = Double.MIN_VALUE;
 
 	public static final int MAX_SRTM_COUNT_DOWNLOAD = 20000;
-	private int srtmCountDownload;
 	public static final double MAX_LAT_LON_DIST = 500 * 1000; // 500 km
 	
 	public static final Set<String> ELEVATION_TAGS = new TreeSet<>(); 
@@ -83,238 +68,12 @@ public class IndexHeightData {
 	}
 
 	
-	private Map<Integer, TileData> map = new HashMap<Integer, TileData>();
-
 	private static final Log log = PlatformUtil.getLog(IndexHeightData.class);
 	
-	private static class TileData {
-		DataBufferShort data;
-		private int id;
-		private boolean dataLoaded;
-		private int height;
-		private int width;
-		public int accessed;
-		public int loaded;
-		
-		private TileData(int id) {
-			this.id = id;
-			
-		}
-		
-		public File loadData(String srtmDataUrl, File workDir) throws IOException {
-			dataLoaded = true;
-			File f = loadFile(getFileName() + ".tif", srtmDataUrl, workDir);
-			BufferedImage img;
-			if (f.exists()) {
-				try (FileInputStream fis = new FileInputStream(f)) {
-					img = ImageIO.read(fis);
-					readSRTMData(img);
-				} catch (Exception e) {
-					iterativeReadData(f);
-				}
-				
-				// remove all downloaded files to save disk space
-				if (!srtmDataUrl.startsWith("/") && !srtmDataUrl.startsWith(".")) {
-					f.delete();
-				}
-				return null;
-			}
-			return f;
-		}
-		
-		private BufferedImage iterativeReadData(File file) {
-			boolean readSuccess = false;
-			BufferedImage img = null;
-			Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("tiff");
-			ImageInputStream iis = null;
-			while (readers.hasNext() && !readSuccess) {
-				ImageReader reader = readers.next();
-				if (!(reader instanceof com.sun.media.imageioimpl.plugins.tiff.TIFFImageReader)) {
-					try {
-						iis = ImageIO.createImageInputStream(file);
-						reader.setInput(iis, true);
-						img = reader.read(0);
-						readSRTMData(img);
-						readSuccess = true;
-					} catch (IOException e) {
-						log.info("Error reading TIFF file with reader " + reader.getClass().getName() + ": " + e.getMessage());
-					} finally {
-						reader.dispose();
-						if (iis != null) {
-							try {
-								iis.close();
-							} catch (IOException e) {
-								log.error("Error closing ImageInputStream: " + e.getMessage());
-							}
-						}
-					}
-				}
-			}
-			
-			if (!readSuccess) {
-				log.error("Failed to read TIFF file with all available readers.");
-			}
-			return img;
-		}
-		
-		private void readSRTMData(BufferedImage img) {
-			if (img != null) {
-				width = img.getWidth();
-				height = img.getHeight();
-				data = (DataBufferShort) img.getRaster().getDataBuffer();
-			}
-		}
-		
-
-		private String getFileName() {
-			int ln = (id >> 10) - 180;
-			int lt = (id - ((id >> 10) << 10)) - 90;
-			String nd = getId(ln, lt);
-			return nd;
-		}
-		
-		public double getHeight(double x, double y, double[] array) {
-			if (data == null) {
-				return INEXISTENT_HEIGHT;
-			}
-			if(USE_BILINEAR_INTERPOLATION) {
-				return bilinearInterpolation(x, y, array);
-			} else {
-				return bicubicInterpolation(x, y, array);
-			}
-//			System.out.println(" --- " + (h1 - h2) + " " + h1 + " " + h2);
-		}
-		
-		protected double bicubicInterpolation(double ix, double iy, double[] cf) {
-			double pdx = (width - 2) * ix + 1;
-			double pdy = (height - 2) * (1 - iy) + 1;
-			int px = (int) Math.round(pdx);
-			int py = (int) Math.round(pdy);
-			double x = pdx - px + 0.5;
-			double y = pdy - py + 0.5;
-//			int px = (int) pdx;
-//			int py = (int) pdy;
-//			double x = pdx - px;
-//			double y = pdy - py;
-			// pdx = 26.6 -> px = 27, x = 0.1 (26.5=0, 27.5=1)
-			// pdx = 26.4 -> px = 26, x = 0.9 (25.5=0, 26.5=1)
-			// pdx = 27.0 -> px = 27, x = 0.5 (26.5=0, 27.5=1)
-			px --;
-			py --;
-			if(cf == null) {
-				cf = new double[16]; 
-			}
-			for(int i = 0; i < cf.length; i++) {
-				cf[i] = 0;
-			}
-			//https://en.wikipedia.org/wiki/Bicubic_interpolation
-			// swap formula
-			double tx = y;
-			y = x;
-			x = tx;
-			cf[0] = (x-1)*(x-2)*(x+1)*(y-1)*(y-2)*(y+1) / 4 * getElem(px, py);
-			cf[1] = -(x)*(x-2)*(x+1)*(y-1)*(y-2)*(y+1) / 4 * getElem(px, py + 1);
-			cf[2] = -(x-1)*(x-2)*(x+1)*(y)*(y-2)*(y+1) / 4 * getElem(px + 1, py);
-			cf[3] = (x)*(x-2)*(x+1)*(y)*(y-2)*(y+1) / 4 * getElem(px + 1, py + 1);
-			cf[4] = -(x)*(x-2)*(x-1)*(y-1)*(y-2)*(y+1) / 12 * getElem(px, py - 1);
-			cf[5] = -(x+1)*(x-2)*(x-1)*(y-1)*(y-2)*(y) / 12 * getElem(px - 1, py);
-			cf[6] = (x)*(x-2)*(x-1)*(y+1)*(y-2)*(y) / 12 * getElem(px + 1, py - 1);
-			cf[7] = (x)*(x-2)*(x+1)*(y-1)*(y-2)*(y) / 12 * getElem(px - 1, py + 1);
-			cf[8] = (x)*(x-1)*(x+1)*(y-1)*(y-2)*(y+1) / 12 * getElem(px, py + 2);
-			cf[9] = (x-2)*(x-1)*(x+1)*(y-1)*(y)*(y+1) / 12 * getElem(px + 2, py);
-			cf[10] = (x)*(x-1)*(x-2)*(y)*(y-1)*(y-2) / 36 * getElem(px - 1, py - 1);
-			cf[11] = -(x)*(x-1)*(x+1)*(y)*(y+1)*(y-2) / 12 * getElem(px + 1, py + 2);
-			cf[12] = -(x)*(x+1)*(x-2)*(y)*(y-1)*(y+1) / 12 * getElem(px + 2, py + 1);
-			cf[13] = -(x)*(x-1)*(x+1)*(y)*(y-1)*(y-2) / 36 * getElem(px - 1, py + 2);
-			cf[14] = -(x)*(x-1)*(x-2)*(y)*(y-1)*(y+1) / 36 * getElem(px + 2, py - 1);
-			cf[15] =  (x)*(x-1)*(x+1)*(y)*(y-1)*(y+1) / 36 * getElem(px + 2, py + 2);
-			double h = 0;
-			for(int i = 0; i < cf.length; i++) {
-				h += cf[i];
-			}
-			return h;
-		}
-
-		protected double bilinearInterpolation(double x, double y, double[] array) {
-			double pdx = (width - 2) * x + 1;
-			double pdy = (height - 2) * (1 - y) + 1;
-			int px = (int) Math.round(pdx);
-			int py = (int) Math.round(pdy);
-			if(array == null) {
-				array = new double[4]; 
-			}
-			array[0] = getElem(px - 1, py - 1);
-			array[1] = getElem(px, py - 1);
-			array[2] = getElem(px - 1, py);
-			array[3] = getElem(px, py);
-			double cx = 0.5 + pdx - px;
-			double cy = 0.5 + pdy - py;
-			// 1.3 pdx ->  px = 1, px - 1 = 0, cx = 0.8, 1 - cx = 0.2,
-			// 1.7 pdx ->  px = 2, px - 1 = 1, cx = 0.2, 1 - cx = 0.8, 
-			
-			double h = (1 - cx) * (1 - cy) * array[0] + 
-					         cx * (1 - cy) * array[1] + 
-					   (1 - cx) * cy       * array[2] + 
-					         cx * cy       * array[3];
-			return h;
-		}
-
-		private double getElem(int px, int py) {
-			if (px <= 0) {
-				px = 1;
-			}
-			if(py <= 0) {
-				py = 1;
-			}
-			if (px >= width - 1) {
-				px = width - 2;
-			}
-			if (py >= height - 1) {
-				py = height - 2;
-			}
-			
-			int ind = px + py * width;
-			if (ind >= data.getSize()) {
-				throw new IllegalArgumentException("Illegal access (" + px + ", " + py + ") " + ind + " - "
-						+ getFileName());
-			}
-			int h = data.getElem(ind) & 0xffff;
-			if(h > 0x7fff) {
-				return h - (0xffff);
-			}
-			return h;
-		}
+	private SrtmElevationService elevationService;
+	private int initialTilesLoaded;
+	private SrtmElevationService.SrtmStats initialStats;
 
-		private String getId(int ln, int lt) {
-			String id = "";
-			if(lt >= 0) {
-				id += "N";
-			} else {
-				id += "S";
-			}
-			lt = Math.abs(lt);
-			if(lt < 10) {
-				id += "0";
-			}
-			id += lt;
-			
-			if(ln >= 0) {
-				id += "E";
-			} else {
-				id += "W";
-			}
-			ln = Math.abs(ln);
-			if(ln < 10) {
-				id += "0";
-			}
-			if(ln < 100) {
-				id += "0";
-			}
-			id += ln;
-			return id;
-		}
-	}
-	
 	private class WayHeightStats {
 		double firstHeight = INEXISTENT_HEIGHT;
 		double lastHeight = INEXISTENT_HEIGHT;
@@ -379,12 +138,14 @@ public class IndexHeightData {
 		WayHeightStats wh = new WayHeightStats();
 
 		List<Node> ns = e.getNodes();
+		prefetchTiles(ns);
+		double[] heights = getPointHeights(ns);
 		double prevHeight = INEXISTENT_HEIGHT;
 		Node prev = null;
 		for (int i = 0; i < ns.size(); i++) {
 			Node n = ns.get(i);
 			if (n != null && n.getId() <= ObfConstants.PROPAGATE_NODE_BIT) {
-				double pointHeight = getPointHeight(n.getLatitude(), n.getLongitude());
+				double pointHeight = heights[i];
 				if (prev == null) {
 					if (pointHeight != INEXISTENT_HEIGHT) {
 						prevHeight = pointHeight;
@@ -548,8 +309,16 @@ public class IndexHeightData {
 	
 	
 	public void setSrtmData(String srtmData, File workingDir) {
-		this.srtmDataUrl = srtmData;
-		this.srtmWorkingDir = workingDir;
+		this.elevationService = SrtmElevationService.getInstance(srtmData, workingDir);
+		this.initialTilesLoaded = elevationService.getTilesLoaded();
+		this.initialStats = elevationService.getStats();
+	}
+
+	/**
+	 * Tile statistics since srtm data was set (service is shared between builds)
+	 */
+	public SrtmElevationService.SrtmStats getStats() {
+		return elevationService.getStats().minus(initialStats);
 	}
 	
 	public double getPointHeight(double lat, double lon) {
@@ -561,80 +330,58 @@ public class IndexHeightData {
 	}
 	
 	private double getPointHeight(double lat, double lon, File[] fileName, double[] neighboors) {
-		int lt = (int) lat;
-		int ln = (int) lon;
-		double lonDelta = lon - ln;
-		double latDelta = lat - lt;
-		if (lonDelta < 0) {
-			lonDelta += 1;
-			ln -= 1;
-		}
-		if (latDelta < 0) {
-			latDelta += 1;
-			lt -= 1;
-		}
-		int id = getTileId(lt, ln);
-		TileData tileData = map.get(id);
-		if (tileData == null) {
-			tileData = new TileData(id);
-			map.put(id, tileData);
+		double h = elevationService.getHeight(lat, lon, fileName, neighboors);
+		checkDownloadLimit();
+		return h;
+	}
+
+	/**
+	 * Heights of all nodes looked up in one batch (null nodes get {@link #INEXISTENT_HEIGHT})
+	 */
+	public double[] getPointHeights(List<Node> nodes) {
+		double[] lats = new double[nodes.size()];
+		double[] lons = new double[nodes.size()];
+		for (int i = 0; i < nodes.size(); i++) {
+			Node n = nodes.get(i);
+			if (n != null) {
+				lats[i] = n.getLatitude();
+				lons[i] = n.getLongitude();
+			}
 		}
-		if (!tileData.dataLoaded) {
-			gcTiles();
-			try {
-				tileData.loaded++;
-				log.info(String.format("SRTM: Load srtm data %d: %d %d", id, (int) lt, (int) ln));
-				File missingFile = tileData.loadData(srtmDataUrl, srtmWorkingDir);
-				if (fileName != null && fileName.length > 0) {
-					fileName[0] = missingFile;
-				}
-				srtmCountDownload++;
-				if (srtmCountDownload > MAX_SRTM_COUNT_DOWNLOAD) {
-					throw new RuntimeException("Max count of download SRTM data " + MAX_SRTM_COUNT_DOWNLOAD);
-				}
-			} catch (IOException e) {
-				log.error(e.getMessage(), e);
+		double[] res = elevationService.heights(lats, lons);
+		for (int i = 0; i < nodes.size(); i++) {
+			if (nodes.get(i) == null) {
+				res[i] = INEXISTENT_HEIGHT;
 			}
 		}
-		tileData.accessed++;
-		return tileData.getHeight(lonDelta, latDelta, neighboors);
+		checkDownloadLimit();
+		return res;
 	}
 
-
-
-	private void gcTiles() {
-		List<TileData> lst = new ArrayList<>(map.values());
-		Iterator<TileData> it = lst.iterator();
-		while (it.hasNext()) {
-			if (it.next().data == null) {
-				it.remove();
+	private void prefetchTiles(List<Node> nodes) {
+		double minLat = 90, maxLat = -90, minLon = 180, maxLon = -180;
+		for (Node n : nodes) {
+			if (n != null) {
+				minLat = Math.min(minLat, n.getLatitude());
+				maxLat = Math.max(maxLat, n.getLatitude());
+				minLon = Math.min(minLon, n.getLongitude());
+				maxLon = Math.max(maxLon, n.getLongitude());
 			}
 		}
-		if (MAXIMUM_LOADED_DATA != -1 && lst.size() >= MAXIMUM_LOADED_DATA) {
-			int toGC = MAXIMUM_LOADED_DATA / 2;
-			log.info(String.format("SRTM: GC srtm data %d of %d (total %d).", toGC, lst.size(), map.size()));
-			// sort that more accessed are not gc
-			Collections.sort(lst, new Comparator<TileData>() {
-
-				@Override
-				public int compare(TileData o1, TileData o2) {
-					return -Integer.compare(o1.accessed + 100 * o1.loaded, o2.accessed + 100 * o2.loaded);
-				}
-			});
-			for (int i = 0; i < lst.size(); i++) {
-				TileData tile = lst.get(i);
-				if (i > toGC) {
-					// unload
-					tile.dataLoaded = false;
-					tile.data = null;
-				}
-				tile.accessed = 0;
-			}
-			System.gc();
+		// way within single tile is loaded by lookup itself
+		if (minLat <= maxLat && ((int) Math.floor(minLat) != (int) Math.floor(maxLat)
+				|| (int) Math.floor(minLon) != (int) Math.floor(maxLon))) {
+			elevationService.prefetch(minLat, minLon, maxLat, maxLon);
 		}
 	}
-	
-	private static File loadFile(String fl, String folderURL, File workDir) {
+
+	private void checkDownloadLimit() {
+		if (elevationService.getTilesLoaded() - initialTilesLoaded > MAX_SRTM_COUNT_DOWNLOAD) {
+			throw new RuntimeException("Max count of download SRTM data " + MAX_SRTM_COUNT_DOWNLOAD);
+		}
+	}
+
+	static File loadFile(String fl, String folderURL, File workDir) {
 		if (folderURL.startsWith("http://") || folderURL.startsWith("https://")) {
 			File res = new File(workDir, fl);
 
@@ -694,8 +441,7 @@ public class IndexHeightData {
 			lt -= 1;
 		}
 		int id = getTileId(lt, ln);
-		TileData td = new TileData(id);
-		System.out.println(lat + " "  +lon + " (lat/lon) -> file " + td.getFileName() + " (y, x in %) " + (float) latDelta + " " + (float) lonDelta);
+		System.out.println(lat + " "  +lon + " (lat/lon) -> file " + SrtmElevationService.getFileName(id) + " (y, x in %) " + (float) latDelta + " " + (float) lonDelta);
 	}
 	
 	public static void main(String[] args) throws XmlPullParserException, IOException, ClassNotFoundException, InstantiationException, IllegalAccessException {
@@ -704,7 +450,7 @@ public class IndexHeightData {
 		
 		test(50.5841136, 2.8897935);
 		test(50.5841013, 2.8898731);
-		USE_BILINEAR_INTERPOLATION = false;
+		SrtmElevationService.USE_BILINEAR_INTERPOLATION = false;
 		cmp(hd, 50.5841136, 2.8897935, 44);
 		cmp(hd, 50.5841013, 2.8898731, 45);
 //		USE_BILINEAR_INTERPOLATION = false;
@@ -778,9 +524,9 @@ public class IndexHeightData {
 					d += MapUtils.getDistance(plat, plon, nlat, nlon);
 					Coordinate c = new Coordinate(nlon, nlat);
 					res.add(c);
-					USE_BILINEAR_INTERPOLATION = true;
+					SrtmElevationService.USE_BILINEAR_INTERPOLATION = true;
 					double blh = hd.getPointHeight(nlat, nlon, null);
-					USE_BILINEAR_INTERPOLATION = false;
+					SrtmElevationService.USE_BILINEAR_INTERPOLATION = false;
 					double bch = hd.getPointHeight(nlat, nlon, null);
 					System.out.println(String.format("%d %.6f %.6f %.2f %.2f", pnt++, nlat, nlon, d, bch, blh));
 					plat = nlat;
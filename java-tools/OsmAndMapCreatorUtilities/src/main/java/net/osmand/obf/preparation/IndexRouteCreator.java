@@ -58,6 +58,8 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 	private final static String CONFLICT_NAME = "#CONFLICT";
 	private RTree routeTree = null;
 	private RTree baserouteTree = null;
+	private RTreeBulkLoader routeTreeLoader = null;
+	private RTreeBulkLoader baserouteTreeLoader = null;
 	private MapRoutingTypes routeTypes;
 	RelationTagsPropagation tagsTransformer = new RelationTagsPropagation();
 
@@ -248,7 +250,7 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 					propagateToNodes.propagateTagsToWayNodesNoBorderRule(e);
 				}
 				routeTypes.encodePointTypes(e, pointTypes, pointNames, tagsTransformer, renderingTypes, false);
-				addWayToIndex(e.getId(), e.getNodes(), mapRouteInsertStat, routeTree, outTypes, pointTypes, pointNames, names);
+				addWayToIndex(e.getId(), e.getNodes(), mapRouteInsertStat, false, outTypes, pointTypes, pointNames, names);
 			}
 			if (settings.generateLowLevel) {
 				encoded = routeTypes.encodeBaseEntity(tags, outTypes, names) && e.getNodes().size() >= 2;
@@ -258,7 +260,7 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 					long id = e.getId();
 					List<Node> result = simplifyRouteForBaseSection(source, id);
 					routeTypes.encodePointTypes(e, pointTypes, pointNames, tagsTransformer, renderingTypes, true);
-					addWayToIndex(e.getId(), result, basemapRouteInsertStat, baserouteTree, outTypes, pointTypes,
+					addWayToIndex(e.getId(), result, basemapRouteInsertStat, true, outTypes, pointTypes,
 							pointNames, names);
 					// generalizeWay(e);
 				}
@@ -332,7 +334,7 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 		return false;
 	}
 
-	private void addWayToIndex(long id, List<Node> nodes, PreparedStatement insertStat, RTree rTree,
+	private void addWayToIndex(long id, List<Node> nodes, PreparedStatement insertStat, boolean basemap,
 			TIntArrayList outTypes,	TLongObjectHashMap<TIntArrayList> pointTypes,
 			TLongObjectHashMap<TIntObjectHashMap<String>> pointNamesRaw, Map<MapRoutingTypes.MapRouteType, String> names ) throws SQLException {
 		boolean init = false;
@@ -406,11 +408,18 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 
 			addBatch(insertStat, false);
 			try {
-				rTree.insert(new LeafElement(new Rect(minX, minY, maxX, maxY), id));
+				RTreeBulkLoader loader = basemap ? baserouteTreeLoader : routeTreeLoader;
+				if (loader != null) {
+					loader.insert(minX, minY, maxX, maxY, id);
+				} else {
+					(basemap ? baserouteTree : routeTree).insert(new LeafElement(new Rect(minX, minY, maxX, maxY), id));
+				}
 			} catch (RTreeInsertException e1) {
 				throw new IllegalArgumentException(e1);
 			} catch (IllegalValueException e1) {
 				throw new IllegalArgumentException(e1);
+			} catch (IOException e1) {
+				throw new IllegalStateException(e1);
 			}
 		}
 	}
@@ -533,7 +542,11 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 		stat.close();
 		mapRouteInsertStat = createStatementRouteObjInsert(mapConnection, false);
 		try {
-			routeTree = new RTree(rtreeMapIndexNonPackFileName);
+			if (settings.rtreeBulkLoad) {
+				routeTreeLoader = new RTreeBulkLoader(rtreeMapIndexNonPackFileName);
+			} else {
+				routeTree = new RTree(rtreeMapIndexNonPackFileName);
+			}
 		} catch (RTreeException e) {
 			throw new IOException(e);
 		}
@@ -541,7 +554,11 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 		if (settings.generateLowLevel) {
 			basemapRouteInsertStat = createStatementRouteObjInsert(mapConnection, true);
 			try {
-				baserouteTree = new RTree(rtreeMapIndexNonPackFileName + "b");
+				if (settings.rtreeBulkLoad) {
+					baserouteTreeLoader = new RTreeBulkLoader(rtreeMapIndexNonPackFileName + "b");
+				} else {
+					baserouteTree = new RTree(rtreeMapIndexNonPackFileName + "b");
+				}
 			} catch (RTreeException e) {
 				throw new IOException(e);
 			}
@@ -557,6 +574,7 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 
 	public void commitAndCloseFiles(String rTreeMapIndexNonPackFileName, String rTreeMapIndexPackFileName, boolean deleteDatabaseIndexes)
 			throws IOException, SQLException {
+		closeTreeLoaders();
 		// delete map rtree files
 		deleteRouteTreeFiles(rTreeMapIndexNonPackFileName, rTreeMapIndexPackFileName, deleteDatabaseIndexes, routeTree);
 		if(settings.generateLowLevel) {
@@ -565,6 +583,17 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 		closeAllPreparedStatements();
 	}
 
+	private void closeTreeLoaders() throws IOException {
+		if (routeTreeLoader != null) {
+			routeTreeLoader.close();
+			routeTreeLoader = null;
+		}
+		if (baserouteTreeLoader != null) {
+			baserouteTreeLoader.close();
+			baserouteTreeLoader = null;
+		}
+	}
+
 	private void deleteRouteTreeFiles(String rTreeMapIndexNonPackFileName, String rTreeMapIndexPackFileName, boolean deleteDatabaseIndexes,
 			RTree rte) throws IOException {
 		if (rte != null) {
@@ -676,11 +705,21 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 	}
 
 	public void packRtreeFiles(String rTreeRouteIndexNonPackFileName, String rTreeRouteIndexPackFileName) throws IOException {
-		routeTree = packRtreeFile(routeTree, rTreeRouteIndexNonPackFileName, rTreeRouteIndexPackFileName);
+		if (routeTreeLoader != null) {
+			routeTree = routeTreeLoader.build(rTreeRouteIndexPackFileName);
+		} else {
+			routeTree = packRtreeFile(routeTree, rTreeRouteIndexNonPackFileName, rTreeRouteIndexPackFileName);
+		}
 		if (settings.generateLowLevel) {
-			baserouteTree = packRtreeFile(baserouteTree, rTreeRouteIndexNonPackFileName + "b",
-					rTreeRouteIndexPackFileName + "b");
+			if (baserouteTreeLoader != null) {
+				// opened as regular rtree, missing roads are inserted into it while writing
+				baserouteTree = baserouteTreeLoader.build(rTreeRouteIndexPackFileName + "b");
+			} else {
+				baserouteTree = packRtreeFile(baserouteTree, rTreeRouteIndexNonPackFileName + "b",
+						rTreeRouteIndexPackFileName + "b");
+			}
 		}
+		closeTreeLoaders();
 	}
 
 	public void writeBinaryRouteIndex(File fl, BinaryMapIndexWriter writer, String regionName, boolean generateLowLevel) throws IOException, SQLException {
@@ -920,7 +959,7 @@ public class IndexRouteCreator extends AbstractIndexPartCreator {
 				outTypes.add(gw.mainType);
 				outTypes.addAll(gw.addtypes);
 				try {
-					addWayToIndex(gw.id, nodes, basemapRouteInsertStat, baserouteTree, outTypes, pointTypes,
+					addWayToIndex(gw.id, nodes, basemapRouteInsertStat, true, outTypes, pointTypes,
 							pointNames, names);
 				} catch (SQLException e) {
 					throw new IllegalStateException(e);
@@ -54,6 +54,7 @@ import rtree.Element;
 import rtree.IllegalValueException;
 import rtree.LeafElement;
 import rtree.RTree;
+import rtree.RTreeBulkLoader;
 import rtree.RTreeException;
 import rtree.RTreeInsertException;
 import rtree.Rect;
@@ -73,6 +74,7 @@ public class IndexTransportCreator extends AbstractIndexPartCreator {
 	private PreparedStatement transStopsStat;
 	private PreparedStatement transRouteGeometryStat;
 	private RTree transportStopsTree;
+	private RTreeBulkLoader transportStopsTreeLoader;
 	private Map<Long, Relation> masterRoutes = new HashMap<Long, Relation>();
 	private Connection gtfsConnection;
 
@@ -254,7 +256,12 @@ public class IndexTransportCreator extends AbstractIndexPartCreator {
 	}
 
 	public void packRTree(String rtreeTransportStopsFileName, String rtreeTransportStopsPackFileName) throws IOException {
-		transportStopsTree = packRtreeFile(transportStopsTree, rtreeTransportStopsFileName, rtreeTransportStopsPackFileName);
+		if (transportStopsTreeLoader != null) {
+			transportStopsTree = transportStopsTreeLoader.build(rtreeTransportStopsPackFileName);
+			transportStopsTreeLoader = null;
+		} else {
+			transportStopsTree = packRtreeFile(transportStopsTree, rtreeTransportStopsFileName, rtreeTransportStopsPackFileName);
+		}
 	}
 
 	public void indexRelations(Relation e, OsmDbAccessorContext ctx) throws SQLException {
@@ -344,7 +351,11 @@ public class IndexTransportCreator extends AbstractIndexPartCreator {
 			if (file.exists()) {
 				file.delete();
 			}
-			transportStopsTree = new RTree(file.getAbsolutePath());
+			if (settings.rtreeBulkLoad) {
+				transportStopsTreeLoader = new RTreeBulkLoader(file.getAbsolutePath());
+			} else {
+				transportStopsTree = new RTree(file.getAbsolutePath());
+			}
 		} catch (RTreeException e) {
 			throw new IOException(e);
 		}
@@ -523,11 +534,17 @@ public class IndexTransportCreator extends AbstractIndexPartCreator {
 				int y = (int) MapUtils.getTileNumberY(24, s.getLocation().getLatitude());
 				addBatch(transStopsStat);
 				try {
-					transportStopsTree.insert(new LeafElement(new Rect(x, y, x, y), s.getId()));
+					if (transportStopsTreeLoader != null) {
+						transportStopsTreeLoader.insert(x, y, x, y, s.getId());
+					} else {
+						transportStopsTree.insert(new LeafElement(new Rect(x, y, x, y), s.getId()));
+					}
 				} catch (RTreeInsertException e) {
 					throw new IllegalArgumentException(e);
 				} catch (IllegalValueException e) {
 					throw new IllegalArgumentException(e);
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
 				}
 				visitedStops.add(s.getId());
 			}
@@ -694,6 +711,10 @@ public class IndexTransportCreator extends AbstractIndexPartCreator {
 
 
 	public void commitAndCloseFiles(String rtreeStopsFileName, String rtreeStopsPackFileName, boolean deleteDatabaseIndexes) throws IOException, SQLException {
+		if (transportStopsTreeLoader != null) {
+			transportStopsTreeLoader.close();
+			transportStopsTreeLoader = null;
+		}
 		// delete transport rtree files
 		if (transportStopsTree != null) {
 			transportStopsTree.getFileHdr().getFile().close();
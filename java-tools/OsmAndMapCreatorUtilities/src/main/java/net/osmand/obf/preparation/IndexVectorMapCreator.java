@@ -53,6 +53,7 @@ import rtree.Element;
 import rtree.IllegalValueException;
 import rtree.LeafElement;
 import rtree.RTree;
+import rtree.RTreeBulkLoader;
 import rtree.RTreeException;
 import rtree.RTreeInsertException;
 import rtree.Rect;
@@ -106,6 +107,7 @@ public class IndexVectorMapCreator extends AbstractIndexPartCreator {
     private PreparedStatement mapLowLevelBinaryStat;
     private int lowLevelWays = -1;
     private RTree[] mapTree = null;
+    private RTreeBulkLoader[] mapTreeLoaders = null;
     private Connection mapConnection;
 
     private static int DUPLICATE_SPLIT = 5;
@@ -416,7 +418,7 @@ public class IndexVectorMapCreator extends AbstractIndexPartCreator {
                 }
                 innerWays = newinnerWays;
             }
-            insertBinaryMapRenderObjectIndex(mapTree[level], outerWay, innerWays, namesUse, id, true, typeUse,
+            insertBinaryMapRenderObjectIndex(level, outerWay, innerWays, namesUse, id, true, typeUse,
                     addtypeUse, true, true);
 
         }
@@ -644,7 +646,7 @@ public class IndexVectorMapCreator extends AbstractIndexPartCreator {
                 List<Node> res = new ArrayList<Node>();
                 OsmMapUtils.simplifyDouglasPeucker(wNodes, zoom - 1 + 8 + settings.zoomWaySmoothness, 3, res, false);
                 if (res.size() > 0) {
-                    insertBinaryMapRenderObjectIndex(mapTree[level], res, null, namesUse, id, false, typeUse,
+                    insertBinaryMapRenderObjectIndex(level, res, null, namesUse, id, false, typeUse,
                             addtypeUse, false, cycle);
                 }
             }
@@ -863,7 +865,7 @@ public class IndexVectorMapCreator extends AbstractIndexPartCreator {
         }
         if (res != null) {
             validateDuplicate(originalId, id);
-            insertBinaryMapRenderObjectIndex(mapTree[level], res, null, namesUse, id, area, typeUse, addtypeUse, true,
+            insertBinaryMapRenderObjectIndex(level, res, null, namesUse, id, area, typeUse, addtypeUse, true,
                     cycle);
         }
     }
@@ -1171,19 +1173,27 @@ public class IndexVectorMapCreator extends AbstractIndexPartCreator {
         this.mapConnection = mapConnection;
         mapBinaryStat = createStatementMapBinaryInsert(mapConnection);
         mapLowLevelBinaryStat = createStatementLowLevelMapBinaryInsert(mapConnection);
-        try {
-            mapTree = new RTree[mapZooms.size()];
+        mapTree = new RTree[mapZooms.size()];
+        if (settings.rtreeBulkLoad) {
+            // objects are collected by loaders, trees are built when index is packed
+            mapTreeLoaders = new RTreeBulkLoader[mapZooms.size()];
             for (int i = 0; i < mapZooms.size(); i++) {
-                File file = new File(rtreeMapIndexNonPackFileName + i);
-                if (file.exists()) {
-                    file.delete();
+                mapTreeLoaders[i] = new RTreeBulkLoader(rtreeMapIndexNonPackFileName + i);
+            }
+        } else {
+            try {
+                for (int i = 0; i < mapZooms.size(); i++) {
+                    File file = new File(rtreeMapIndexNonPackFileName + i);
+                    if (file.exists()) {
+                        file.delete();
+                    }
+                    mapTree[i] = new RTree(rtreeMapIndexNonPackFileName + i);
+                    // very slow
+                    // mapTree[i].getFileHdr().setBufferPolicy(true);
                 }
-                mapTree[i] = new RTree(rtreeMapIndexNonPackFileName + i);
-                // very slow
-                // mapTree[i].getFileHdr().setBufferPolicy(true);
+            } catch (RTreeException e) {
+                throw new IOException(e);
             }
-        } catch (RTreeException e) {
-            throw new IOException(e);
         }
         pStatements.put(mapBinaryStat, 0);
         pStatements.put(mapLowLevelBinaryStat, 0);
@@ -1272,7 +1282,7 @@ public class IndexVectorMapCreator extends AbstractIndexPartCreator {
         addBatch(mapLowLevelBinaryStat);
     }
 
-    private void insertBinaryMapRenderObjectIndex(RTree mapTree, Collection<Node> nodes, List<List<Node>> innerWays,
+    private void insertBinaryMapRenderObjectIndex(int level, Collection<Node> nodes, List<List<Node>> innerWays,
             Map<MapRulType, String> names, long id, boolean area, TIntArrayList types, TIntArrayList addTypes,
             boolean commit, boolean cycle)
             throws SQLException {
@@ -1352,11 +1362,17 @@ public class IndexVectorMapCreator extends AbstractIndexPartCreator {
             mapBinaryStat.setBytes(8, blabelCoordinates.toByteArray());
             addBatch(mapBinaryStat, commit);
             try {
-                mapTree.insert(new LeafElement(new Rect(minX, minY, maxX, maxY), id));
+                if (mapTreeLoaders != null) {
+                    mapTreeLoaders[level].insert(minX, minY, maxX, maxY, id);
+                } else {
+                    mapTree[level].insert(new LeafElement(new Rect(minX, minY, maxX, maxY), id));
+                }
             } catch (RTreeInsertException e1) {
                 throw new IllegalArgumentException(e1);
             } catch (IllegalValueException e1) {
                 throw new IllegalArgumentException(e1);
+            } catch (IOException e1) {
+                throw new IllegalStateException(e1);
             }
         }
     }
@@ -1372,13 +1388,24 @@ public class IndexVectorMapCreator extends AbstractIndexPartCreator {
     public void packRtreeFiles(String rTreeMapIndexNonPackFileName, String rTreeMapIndexPackFileName)
             throws IOException {
         for (int i = 0; i < mapZooms.size(); i++) {
-            mapTree[i] = packRtreeFile(mapTree[i], rTreeMapIndexNonPackFileName + i, rTreeMapIndexPackFileName + i);
+            if (mapTreeLoaders != null) {
+                mapTree[i] = mapTreeLoaders[i].build(rTreeMapIndexPackFileName + i);
+            } else {
+                mapTree[i] = packRtreeFile(mapTree[i], rTreeMapIndexNonPackFileName + i, rTreeMapIndexPackFileName + i);
+            }
         }
+        mapTreeLoaders = null;
     }
 
     public void commitAndCloseFiles(String rTreeMapIndexNonPackFileName, String rTreeMapIndexPackFileName,
             boolean deleteDatabaseIndexes)
             throws IOException, SQLException {
+        if (mapTreeLoaders != null) {
+            for (RTreeBulkLoader loader : mapTreeLoaders) {
+                loader.close();
+            }
+            mapTreeLoaders = null;
+        }
         // delete map rtree files
         if (mapTree != null) {
             for (int i = 0; i < mapTree.length; i++) {
@@ -0,0 +1,188 @@
+package net.osmand.obf.preparation;
+
+import gnu.trove.map.hash.TLongLongHashMap;
+import net.osmand.osm.edit.Node;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap storage of node coordinates backed by memory mapped temporary file,
+ * replaces node rows of sqlite nodes db for nodes without tags.
+ * Coordinates are kept as 1e-7 fixed point integers (precision of osm data).
+ *
+ * DENSE - slot is addressed directly by (id >> idShift), file is sparse on disk
+ * and suits planet / large countries where ids are spread over the whole range.
+ * SPARSE - (id, lat, lon) records are appended in id order and found by binary search,
+ * suits small extracts.
+ * Ids which don't fit the layout (negative, out of order, too big) are kept in a heap map.
+ *
+ * Store is written by single loading thread and could be read concurrently after loading.
+ */
+public class NodeLocationStore implements Closeable {
+
+	private static final Log log = LogFactory.getLog(NodeLocationStore.class);
+
+	public enum StoreType {
+		SQLITE,
+		DENSE,
+		SPARSE
+	}
+
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+	private static final int DENSE_SLOT = 8;
+	private static final int SPARSE_RECORD = 16;
+	// max dense slot index (1 TB file), bigger ids go to overflow
+	private static final long MAX_DENSE_INDEX = (1L << 40) / DENSE_SLOT;
+	// keeps latitude positive so zero filled slot means empty
+	private static final int LAT_OFFSET = 1_000_000_000;
+	private static final double PRECISION = 1e7;
+
+	private final StoreType type;
+	private final int idShift;
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final List<MappedByteBuffer> segments = new ArrayList<>();
+	private final TLongLongHashMap overflow = new TLongLongHashMap();
+
+	private long sparseCount;
+	private long lastSparseId = Long.MIN_VALUE;
+	private long count;
+
+	public NodeLocationStore(File file, StoreType type, int idShift) throws IOException {
+		if (type == StoreType.SQLITE) {
+			throw new IllegalArgumentException("Node location store is not used for " + type);
+		}
+		this.type = type;
+		this.idShift = idShift;
+		this.file = file;
+		if (file.exists()) {
+			file.delete();
+		}
+		this.raf = new RandomAccessFile(file, "rw");
+		this.channel = raf.getChannel();
+	}
+
+	public StoreType getType() {
+		return type;
+	}
+
+	public long size() {
+		return count;
+	}
+
+	public void put(long id, double lat, double lon) {
+		int ilat = (int) Math.round(lat * PRECISION) + LAT_OFFSET;
+		int ilon = (int) Math.round(lon * PRECISION);
+		count++;
+		if (type == StoreType.DENSE) {
+			long ind = id >> idShift;
+			if (id >= 0 && ind < MAX_DENSE_INDEX) {
+				long pos = ind * DENSE_SLOT;
+				MappedByteBuffer seg = segment(pos, true);
+				int off = (int) (pos & (SEGMENT_SIZE - 1));
+				seg.putInt(off, ilat);
+				seg.putInt(off + 4, ilon);
+				return;
+			}
+		} else if (id > lastSparseId) {
+			long pos = sparseCount * SPARSE_RECORD;
+			MappedByteBuffer seg = segment(pos, true);
+			int off = (int) (pos & (SEGMENT_SIZE - 1));
+			seg.putLong(off, id);
+			seg.putInt(off + 8, ilat);
+			seg.putInt(off + 12, ilon);
+			sparseCount++;
+			lastSparseId = id;
+			return;
+		}
+		overflow.put(id, ((long) ilat << 32) | (ilon & 0xffffffffL));
+	}
+
+	public Node getNode(long id) {
+		long packed = get(id);
+		if (packed == 0) {
+			return null;
+		}
+		int ilat = (int) (packed >> 32);
+		int ilon = (int) packed;
+		return new Node((ilat - LAT_OFFSET) / PRECISION, ilon / PRECISION, id);
+	}
+
+	private long get(long id) {
+		if (type == StoreType.DENSE) {
+			long ind = id >> idShift;
+			if (id >= 0 && ind < MAX_DENSE_INDEX) {
+				long pos = ind * DENSE_SLOT;
+				MappedByteBuffer seg = segment(pos, false);
+				if (seg != null) {
+					int off = (int) (pos & (SEGMENT_SIZE - 1));
+					int ilat = seg.getInt(off);
+					if (ilat != 0) {
+						return ((long) ilat << 32) | (seg.getInt(off + 4) & 0xffffffffL);
+					}
+				}
+			}
+		} else if (id <= lastSparseId) {
+			long lo = 0;
+			long hi = sparseCount - 1;
+			while (lo <= hi) {
+				long mid = (lo + hi) >>> 1;
+				long pos = mid * SPARSE_RECORD;
+				MappedByteBuffer seg = segment(pos, false);
+				int off = (int) (pos & (SEGMENT_SIZE - 1));
+				long midId = seg.getLong(off);
+				if (midId < id) {
+					lo = mid + 1;
+				} else if (midId > id) {
+					hi = mid - 1;
+				} else {
+					return ((long) seg.getInt(off + 8) << 32) | (seg.getInt(off + 12) & 0xffffffffL);
+				}
+			}
+		}
+		return overflow.isEmpty() ? 0 : overflow.get(id);
+	}
+
+	private MappedByteBuffer segment(long pos, boolean create) {
+		int ind = (int) (pos >> SEGMENT_SHIFT);
+		if (ind < segments.size() && segments.get(ind) != null) {
+			return segments.get(ind);
+		}
+		if (!create) {
+			return null;
+		}
+		while (segments.size() <= ind) {
+			segments.add(null);
+		}
+		try {
+			// mapping extends the file, untouched pages are not allocated on disk
+			MappedByteBuffer seg = channel.map(FileChannel.MapMode.READ_WRITE, ind * SEGMENT_SIZE, SEGMENT_SIZE);
+			segments.set(ind, seg);
+			return seg;
+		} catch (IOException e) {
+			throw new IllegalStateException("Can't map node locations file " + file.getAbsolutePath(), e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		log.info(String.format("Node locations %s: %d nodes, %d overflow, file %d MB", type, count,
+				overflow.size(), channel.size() >> 20));
+		segments.clear();
+		overflow.clear();
+		channel.close();
+		raf.close();
+		file.delete();
+	}
+}
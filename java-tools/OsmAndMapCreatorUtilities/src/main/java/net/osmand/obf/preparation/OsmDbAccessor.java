@@ -1,6 +1,7 @@
 package net.osmand.obf.preparation;
 
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -10,6 +11,7 @@ import java.sql.Statement;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 import net.osmand.IProgress;
 import net.osmand.osm.edit.Entity;
@@ -43,12 +45,19 @@ public class OsmDbAccessor implements OsmDbAccessorContext {
 	private PreparedStatement iterateWayBoundaries;
 	private OsmDbCreator dbCreator;
 	private OsmDbTagsPreparation tagsPrepration;
+	private NodeLocationStore nodeLocations;
+	// null for tags in plain format
+	private OsmDbTagsDictionary tagsDictionary;
 
 	public interface OsmDbVisitor {
 		
 		public void iterateEntity(Entity e, OsmDbAccessorContext ctx) throws SQLException;
 		
 	}
+
+	private static final int STAGE_BATCH_SIZE = 1000;
+	private static final int STAGE_QUEUE_SIZE = 8;
+	private static final List<Entity> END_BATCH = Collections.emptyList();
 	
 	public interface OsmDbTagsPreparation {
 
@@ -62,6 +71,9 @@ public class OsmDbAccessor implements OsmDbAccessorContext {
 
 	public void initDatabase()
 			throws SQLException {
+		if (tagsDictionary == null) {
+			tagsDictionary = OsmDbTagsDictionary.load(dbConn);
+		}
 		pselectNode = dbConn.prepareStatement("select n.latitude, n.longitude, n.tags from node n where n.id = ?"); //$NON-NLS-1$
 		pselectWay = dbConn.prepareStatement("select w.node, w.ord, w.tags, n.latitude, n.longitude, n.tags " + //$NON-NLS-1$
 				"from ways w left join node n on w.node = n.id where w.id = ? order by w.ord"); //$NON-NLS-1$
@@ -123,7 +135,7 @@ public class OsmDbAccessor implements OsmDbAccessorContext {
 						((Way) e).addNode(n);
 						readTags(n, rs.getBytes(6));
 					} else {
-						((Way) e).addNode(rs.getLong(1));
+						addStoredNode((Way) e, rs.getLong(1));
 					}
 				}
 				rs.close();
@@ -194,6 +206,9 @@ public class OsmDbAccessor implements OsmDbAccessorContext {
 								readTags(n, rs.getBytes(3));
 							}
 						}
+						if (n == null && nodeLocations != null) {
+							n = nodeLocations.getNode(i.getEntityId().getId());
+						}
 						map.put(i.getEntityId(), n);
 						rs.close();
 					}
@@ -213,6 +228,23 @@ public class OsmDbAccessor implements OsmDbAccessorContext {
 		}
 	}
 	
+	private void addStoredNode(Way w, long nodeId) {
+		Node n = nodeLocations == null ? null : nodeLocations.getNode(nodeId);
+		if (n != null) {
+			w.addNode(n);
+		} else {
+			w.addNode(nodeId);
+		}
+	}
+
+	public void setNodeLocations(NodeLocationStore nodeLocations) {
+		this.nodeLocations = nodeLocations;
+	}
+
+	public NodeLocationStore getNodeLocations() {
+		return nodeLocations;
+	}
+
 	public void setCreator(OsmDbCreator dbCreator) {
 		this.dbCreator = dbCreator;
 		
@@ -224,7 +256,12 @@ public class OsmDbAccessor implements OsmDbAccessorContext {
 	}
 
 	public void readTags(Entity e, byte[] tags){
-		if (tags != null) {
+		if (tags != null && tagsDictionary != null) {
+			tagsDictionary.decode(tags, e);
+			if (tagsPrepration != null) {
+				tagsPrepration.processTags(e);
+			}
+		} else if (tags != null) {
 			try {
 				int prev = 0;
 				List<String> vs = new ArrayList<String>();
@@ -299,6 +336,139 @@ public class OsmDbAccessor implements OsmDbAccessorContext {
 		return count;
 	}
 
+	/**
+	 * Iterates entities through pipeline of visitor stages. First stage runs on the calling thread,
+	 * every next stage runs on its own thread with its own prepared statements and receives entities
+	 * in batches after previous stage has processed them. So each entity is visited in the same order
+	 * as by serial iteration and never by two threads at once, while stages work on different batches.
+	 * Visitors which are not thread-safe against each other (shared connection, caches) should be
+	 * combined into one stage.
+	 */
+	public int iterateOverEntities(IProgress progress, EntityType type, List<OsmDbVisitor> stages) throws SQLException, InterruptedException {
+		if (stages.size() == 1) {
+			return iterateOverEntities(progress, type, stages.get(0));
+		}
+		List<StageWorker> workers = new ArrayList<>();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		List<BlockingQueue<List<Entity>>> queues = new ArrayList<>();
+		for (int i = 1; i < stages.size(); i++) {
+			queues.add(new ArrayBlockingQueue<List<Entity>>(STAGE_QUEUE_SIZE));
+		}
+		for (int i = 1; i < stages.size(); i++) {
+			BlockingQueue<List<Entity>> next = i < queues.size() ? queues.get(i) : null;
+			StageWorker w = new StageWorker(stages.get(i), createReadingContext(), queues.get(i - 1), next, error);
+			w.setName("EntityStage-" + type + "-" + i);
+			workers.add(w);
+			w.start();
+		}
+		OsmDbVisitor first = stages.get(0);
+		List<Entity> batch = new ArrayList<>(STAGE_BATCH_SIZE);
+		int count;
+		try {
+			count = iterateOverEntities(progress, type, new OsmDbVisitor() {
+
+				@Override
+				public void iterateEntity(Entity e, OsmDbAccessorContext ctx) throws SQLException {
+					first.iterateEntity(e, ctx);
+					batch.add(e);
+					if (batch.size() >= STAGE_BATCH_SIZE) {
+						putBatch(queues.get(0), new ArrayList<>(batch), error);
+						batch.clear();
+					}
+				}
+			});
+			if (!batch.isEmpty()) {
+				putBatch(queues.get(0), batch, error);
+			}
+		} finally {
+			queues.get(0).put(END_BATCH);
+			for (StageWorker w : workers) {
+				w.join();
+				w.ctx.closeStatements();
+			}
+		}
+		Throwable t = error.get();
+		if (t instanceof SQLException) {
+			throw (SQLException) t;
+		} else if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t != null) {
+			throw new IllegalStateException(t);
+		}
+		return count;
+	}
+
+	private static void putBatch(BlockingQueue<List<Entity>> queue, List<Entity> batch, AtomicReference<Throwable> error)
+			throws SQLException {
+		if (error.get() != null) {
+			// stop reading, error is rethrown after stages are finished
+			throw new SQLException("Entity stage failed", error.get());
+		}
+		try {
+			queue.put(batch);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException(e);
+		}
+	}
+
+	private OsmDbAccessor createReadingContext() throws SQLException {
+		OsmDbAccessor ctx = new OsmDbAccessor();
+		ctx.setDbConn(dbConn, dialect);
+		ctx.tagsPrepration = tagsPrepration;
+		ctx.nodeLocations = nodeLocations;
+		ctx.dbCreator = dbCreator;
+		ctx.tagsDictionary = tagsDictionary;
+		ctx.initDatabase();
+		return ctx;
+	}
+
+	private static class StageWorker extends Thread {
+
+		private final OsmDbVisitor visitor;
+		private final OsmDbAccessor ctx;
+		private final BlockingQueue<List<Entity>> input;
+		private final BlockingQueue<List<Entity>> output;
+		private final AtomicReference<Throwable> error;
+
+		StageWorker(OsmDbVisitor visitor, OsmDbAccessor ctx, BlockingQueue<List<Entity>> input,
+				BlockingQueue<List<Entity>> output, AtomicReference<Throwable> error) {
+			this.visitor = visitor;
+			this.ctx = ctx;
+			this.input = input;
+			this.output = output;
+			this.error = error;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				List<Entity> batch;
+				while ((batch = input.take()) != END_BATCH) {
+					// after failure queue is drained so previous stages are not blocked
+					if (error.get() == null) {
+						try {
+							for (Entity e : batch) {
+								visitor.iterateEntity(e, ctx);
+							}
+						} catch (Throwable t) {
+							error.compareAndSet(null, t);
+						}
+					}
+					if (output != null) {
+						output.put(batch);
+					}
+				}
+				if (output != null) {
+					output.put(END_BATCH);
+				}
+			} catch (InterruptedException e) {
+				error.compareAndSet(null, e);
+			}
+		}
+	}
+
 
 	private void computeRealCounts() throws SQLException {
 		if (!realCounts) {
@@ -316,6 +486,18 @@ public class OsmDbAccessor implements OsmDbAccessorContext {
 
 
 	public void closeReadingConnection() throws SQLException {
+		closeStatements();
+		if (nodeLocations != null) {
+			try {
+				nodeLocations.close();
+			} catch (IOException e) {
+				throw new SQLException(e);
+			}
+			nodeLocations = null;
+		}
+	}
+
+	private void closeStatements() throws SQLException {
 		if (pselectNode != null) {
 			pselectNode.close();
 		}
@@ -394,7 +576,7 @@ public class OsmDbAccessor implements OsmDbAccessorContext {
 							readTags(e, rs.getBytes(4));
 						}
 						if (rs.getObject(6) == null) {
-							((Way) e).addNode(rs.getLong(2));
+							addStoredNode((Way) e, rs.getLong(2));
 						} else {
 							Node n = new Node(rs.getDouble(5), rs.getDouble(6), rs.getLong(2));
 							readTags(n, rs.getBytes(7));
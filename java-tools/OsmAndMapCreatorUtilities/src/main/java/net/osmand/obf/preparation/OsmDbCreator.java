@@ -55,6 +55,9 @@ public class OsmDbCreator implements IOsmStorageFilter {
 
 	int propagateCount = 0;
 	private PreparedStatement prepPropagateNode;
+	private PreparedStatement prepPropagateStoredNode;
+	// when set only tagged and propagated nodes are written to sqlite
+	private NodeLocationStore nodeLocations;
 	
 	
 
@@ -84,6 +87,8 @@ public class OsmDbCreator implements IOsmStorageFilter {
 	private long generatedId = -100;
 
 	private PropagateToNodes propagateToNodes;
+	// null when tags are appended to db in plain format
+	private OsmDbTagsDictionary tagsDictionary;
 
 
 
@@ -249,13 +254,17 @@ public class OsmDbCreator implements IOsmStorageFilter {
 			dialect.deleteTableIfExists("relations", stat);
 			stat.executeUpdate("create table relations (id bigint, member bigint, type smallint, role varchar(1024), ord smallint, tags blob, primary key (id, ord))"); //$NON-NLS-1$
 			stat.executeUpdate("create index IdRIndex ON relations (id)"); //$NON-NLS-1$
+			OsmDbTagsDictionary.createTable(stat, dialect);
 			stat.close();
+			tagsDictionary = new OsmDbTagsDictionary();
 		} else {
 			if (previous != null) {
 				nodeIds = previous.nodeIds;
 				wayIds = previous.wayIds;
 				relationIds = previous.relationIds;
+				tagsDictionary = previous.tagsDictionary;
 			} else {
+				tagsDictionary = OsmDbTagsDictionary.load(dbConn);
 				// not used
 //				initIds("node", nodeIds);
 //				initIds("ways", wayIds);
@@ -266,6 +275,10 @@ public class OsmDbCreator implements IOsmStorageFilter {
 		prepWays = dbConn.prepareStatement("replace into ways(id, node, ord, tags, boundary) values (?, ?, ?, ?, ?)"); //$NON-NLS-1$
 		prepRelations = dbConn.prepareStatement("replace into relations(id, member, type, role, ord, tags) values (?, ?, ?, ?, ?, ?)"); //$NON-NLS-1$
 		prepPropagateNode = dbConn.prepareStatement("update node set propagate=1 where id=?");
+		if (nodeLocations != null) {
+			// untagged nodes are not in sqlite, so they should be inserted to be iterated
+			prepPropagateStoredNode = dbConn.prepareStatement("insert or ignore into node(id, latitude, longitude, tags, propagate) values (?, ?, ?, ?, 1)"); //$NON-NLS-1$
+		}
 		selectNode = dbConn.prepareStatement("select latitude, longitude from node where id=?"); //$NON-NLS-1$
 		dbConn.setAutoCommit(false);
 	}
@@ -296,13 +309,20 @@ public class OsmDbCreator implements IOsmStorageFilter {
 				prepRelations.executeBatch();
 			}
 			if (propagateCount > 0) {
-				prepPropagateNode.executeBatch();
+				executePropagateBatch();
+			}
+			if (tagsDictionary != null) {
+				tagsDictionary.persist(dbConn);
+				log.info(tagsDictionary.toString());
 			}
 		} catch (SQLException ex) {
 			log.error("TODO FIX: Could not save in db ", ex); //$NON-NLS-1$
 		}
 		prepRelations.close();
 		prepPropagateNode.close();
+		if (prepPropagateStoredNode != null) {
+			prepPropagateStoredNode.close();
+		}
 		if (delNode != null) {
 			delNode.close();
 		}
@@ -336,7 +356,7 @@ public class OsmDbCreator implements IOsmStorageFilter {
 		prepNode.executeBatch();
 		prepWays.executeBatch();
 		prepRelations.executeBatch();
-		prepPropagateNode.executeBatch();
+		executePropagateBatch();
 		currentWaysCount = 0;
 		currentCountNode = 0;
 		currentRelationsCount = 0;
@@ -365,18 +385,7 @@ public class OsmDbCreator implements IOsmStorageFilter {
 		}
 		try {
 			e.removeTags(tagsToIgnore);
-			ByteArrayOutputStream tags = new ByteArrayOutputStream();
-			try {
-				for (Entry<String, String> i : e.getTags().entrySet()) {
-					// UTF-8 default
-					tags.write(i.getKey().getBytes("UTF-8"));
-					tags.write(0);
-					tags.write(i.getValue().getBytes("UTF-8"));
-					tags.write(0);
-				}
-			} catch (IOException es) {
-				throw new RuntimeException(es);
-			}
+			byte[] tags = tagsDictionary != null ? tagsDictionary.encode(e.getTags()) : encodePlainTags(e);
 			long id = convertId(e);
 			if (propagateToNodes != null && e instanceof Way) {
 				boolean firstIteration = propagateToNodes.isNoRegisteredNodes();
@@ -394,6 +403,16 @@ public class OsmDbCreator implements IOsmStorageFilter {
 						if (i % 2 == 0) {
 							nodeIds.add(oldNodeIds.get(i / 2));
 							if (pn != null) {
+								if (prepPropagateStoredNode != null) {
+									Node n = nodeLocations.getNode(pn.id);
+									if (n != null) {
+										prepPropagateStoredNode.setLong(1, pn.id);
+										prepPropagateStoredNode.setDouble(2, n.getLatitude());
+										prepPropagateStoredNode.setDouble(3, n.getLongitude());
+										prepPropagateStoredNode.setBytes(4, new byte[0]);
+										prepPropagateStoredNode.addBatch();
+									}
+								}
 								prepPropagateNode.setLong(1, pn.id);
 								prepPropagateNode.addBatch();
 								propagateCount++;
@@ -430,20 +449,27 @@ public class OsmDbCreator implements IOsmStorageFilter {
 					}
 				}
 				if (propagateCount >= BATCH_SIZE_OSM) {
-					prepPropagateNode.executeBatch();
+					executePropagateBatch();
 					dbConn.commit(); // clear memory
 					propagateCount = 0;
 				}
 			}
 			if (e instanceof Node) {
-				currentCountNode++;
 				if (!e.getTags().isEmpty()) {
 					allNodes++;
 				}
+				if (nodeLocations != null) {
+					nodeLocations.put(id, ((Node) e).getLatitude(), ((Node) e).getLongitude());
+					if (e.getTags().isEmpty()) {
+						// coordinates are resolved from node locations store
+						return false;
+					}
+				}
+				currentCountNode++;
 				prepNode.setLong(1, id);
 				prepNode.setDouble(2, ((Node) e).getLatitude());
 				prepNode.setDouble(3, ((Node) e).getLongitude());
-				prepNode.setBytes(4, tags.toByteArray());
+				prepNode.setBytes(4, tags);
 				prepNode.setBoolean(5, false);
 				prepNode.addBatch();
 				executeNodesBatch(false);
@@ -456,7 +482,7 @@ public class OsmDbCreator implements IOsmStorageFilter {
 				for (int j = 0; j < nodeIds.size(); j++) {
 					currentWaysCount++;
 					if (ord == 0) {
-						prepWays.setBytes(4, tags.toByteArray());
+						prepWays.setBytes(4, tags);
 					}
 					prepWays.setLong(1, id);
 					prepWays.setLong(2, nodeIds.get(j));
@@ -476,7 +502,7 @@ public class OsmDbCreator implements IOsmStorageFilter {
 				for (RelationMember i : ((Relation) e).getMembers()) {
 					currentRelationsCount++;
 					if (ord == 0) {
-						prepRelations.setBytes(6, tags.toByteArray());
+						prepRelations.setBytes(6, tags);
 					}
 					prepRelations.setLong(1, id);
 					prepRelations.setLong(2, i.getEntityId().getId());
@@ -500,6 +526,22 @@ public class OsmDbCreator implements IOsmStorageFilter {
 		return false;
 	}
 
+	private static byte[] encodePlainTags(Entity e) {
+		ByteArrayOutputStream tags = new ByteArrayOutputStream();
+		try {
+			for (Entry<String, String> i : e.getTags().entrySet()) {
+				// UTF-8 default
+				tags.write(i.getKey().getBytes("UTF-8"));
+				tags.write(0);
+				tags.write(i.getValue().getBytes("UTF-8"));
+				tags.write(0);
+			}
+		} catch (IOException es) {
+			throw new RuntimeException(es);
+		}
+		return tags.toByteArray();
+	}
+
 	private void executeNodesBatch(boolean force) throws SQLException {
 		if (currentCountNode >= BATCH_SIZE_OSM || force) {
 			prepNode.executeBatch();
@@ -510,7 +552,20 @@ public class OsmDbCreator implements IOsmStorageFilter {
 
 
 
+	private void executePropagateBatch() throws SQLException {
+		if (prepPropagateStoredNode != null) {
+			prepPropagateStoredNode.executeBatch();
+		}
+		prepPropagateNode.executeBatch();
+	}
+
 	private Node getNode(long l) throws SQLException {
+		if (nodeLocations != null) {
+			Node n = nodeLocations.getNode(l);
+			if (n != null) {
+				return n;
+			}
+		}
 		selectNode.setLong(1, l);
 		ResultSet q = selectNode.executeQuery();
 		if (q.next()) {
@@ -531,6 +586,10 @@ public class OsmDbCreator implements IOsmStorageFilter {
 		return allWays;
 	}
 
+	public void setNodeLocations(NodeLocationStore nodeLocations) {
+		this.nodeLocations = nodeLocations;
+	}
+
 	public void setPropagateToNodes(PropagateToNodes propagateToNodes) {
 		this.propagateToNodes = propagateToNodes;
 	}
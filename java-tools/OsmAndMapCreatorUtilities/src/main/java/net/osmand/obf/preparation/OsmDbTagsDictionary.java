@@ -0,0 +1,176 @@
+package net.osmand.obf.preparation;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import net.osmand.osm.edit.Entity;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary coding of tags blobs in temporary osm db. Each key and value is written as varint header:
+ * even header is dictionary id (header >> 1), odd header is length (header >> 1) of following utf-8 literal.
+ * Keys get id on first occurrence, values after several occurrences (so unique names stay literal).
+ * Dictionary is stored in db table, decoded dictionary strings are shared between all entities.
+ */
+public class OsmDbTagsDictionary {
+
+	public static final String TABLE = "tags_dictionary";
+
+	private static final int MAX_ENTRIES = 1 << 20;
+	private static final int MAX_STRING_LENGTH = 64;
+	private static final int MAX_CANDIDATES = 1 << 20;
+	private static final int KEY_PROMOTE_COUNT = 1;
+	private static final int VALUE_PROMOTE_COUNT = 3;
+
+	private final List<String> strings = new ArrayList<>();
+	private final TObjectIntHashMap<String> ids = new TObjectIntHashMap<>(1024, 0.5f, -1);
+	// occurrences of strings which are not in dictionary yet
+	private final TObjectIntHashMap<String> candidates = new TObjectIntHashMap<>(1024, 0.5f, 0);
+	private final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+	private int persisted;
+	private long references;
+	private long literals;
+
+	public static void createTable(Statement stat, DBDialect dialect) throws SQLException {
+		dialect.deleteTableIfExists(TABLE, stat);
+		stat.executeUpdate("create table " + TABLE + " (id integer primary key, value text)"); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return dictionary or null if db has tags in plain format (key\0value\0)
+	 */
+	public static OsmDbTagsDictionary load(Connection conn) throws SQLException {
+		DatabaseMetaData md = conn.getMetaData();
+		try (ResultSet rs = md.getTables(null, null, TABLE, null)) {
+			if (!rs.next()) {
+				return null;
+			}
+		}
+		OsmDbTagsDictionary dictionary = new OsmDbTagsDictionary();
+		try (Statement stat = conn.createStatement();
+				ResultSet rs = stat.executeQuery("select id, value from " + TABLE + " order by id")) { //$NON-NLS-1$
+			while (rs.next()) {
+				String s = rs.getString(2);
+				if (rs.getInt(1) != dictionary.strings.size()) {
+					throw new SQLException("Tags dictionary is corrupted at " + rs.getInt(1));
+				}
+				dictionary.ids.put(s, dictionary.strings.size());
+				dictionary.strings.add(s);
+			}
+		}
+		dictionary.persisted = dictionary.strings.size();
+		return dictionary;
+	}
+
+	/**
+	 * Writes new dictionary entries, should be called before tags are read
+	 */
+	public void persist(Connection conn) throws SQLException {
+		if (persisted == strings.size()) {
+			return;
+		}
+		try (PreparedStatement ps = conn.prepareStatement("insert into " + TABLE + " (id, value) values (?, ?)")) { //$NON-NLS-1$
+			for (int i = persisted; i < strings.size(); i++) {
+				ps.setInt(1, i);
+				ps.setString(2, strings.get(i));
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+		persisted = strings.size();
+	}
+
+	public byte[] encode(Map<String, String> tags) {
+		buf.reset();
+		for (Map.Entry<String, String> e : tags.entrySet()) {
+			writeString(e.getKey(), KEY_PROMOTE_COUNT);
+			writeString(e.getValue(), VALUE_PROMOTE_COUNT);
+		}
+		return buf.toByteArray();
+	}
+
+	private void writeString(String s, int promoteCount) {
+		int id = ids.get(s);
+		if (id < 0 && s.length() <= MAX_STRING_LENGTH && strings.size() < MAX_ENTRIES) {
+			int cnt = candidates.adjustOrPutValue(s, 1, 1);
+			if (cnt >= promoteCount) {
+				candidates.remove(s);
+				id = strings.size();
+				strings.add(s);
+				ids.put(s, id);
+			} else if (candidates.size() > MAX_CANDIDATES) {
+				// forget rare strings to keep memory bounded
+				candidates.clear();
+			}
+		}
+		if (id >= 0) {
+			references++;
+			writeVarint(id << 1);
+		} else {
+			literals++;
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarint((bytes.length << 1) | 1);
+			buf.write(bytes, 0, bytes.length);
+		}
+	}
+
+	public void decode(byte[] tags, Entity e) {
+		int[] pos = new int[1];
+		while (pos[0] < tags.length) {
+			String key = readString(tags, pos);
+			String value = readString(tags, pos);
+			e.putTag(key, value);
+		}
+	}
+
+	private String readString(byte[] tags, int[] pos) {
+		int header = readVarint(tags, pos);
+		if ((header & 1) == 0) {
+			return strings.get(header >>> 1);
+		}
+		int len = header >>> 1;
+		String s = new String(tags, pos[0], len, StandardCharsets.UTF_8);
+		pos[0] += len;
+		return s;
+	}
+
+	private void writeVarint(int v) {
+		while ((v & ~0x7f) != 0) {
+			buf.write((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		buf.write(v);
+	}
+
+	private static int readVarint(byte[] b, int[] pos) {
+		int res = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte v = b[pos[0]++];
+			res |= (v & 0x7f) << shift;
+			if ((v & 0x80) == 0) {
+				return res;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	public int size() {
+		return strings.size();
+	}
+
+	@Override
+	public String toString() {
+		long total = references + literals;
+		return String.format("Tags dictionary: %d strings, %d references, %d literals (%.1f%% coded)", strings.size(),
+				references, literals, total == 0 ? 0 : references * 100.0 / total);
+	}
+}
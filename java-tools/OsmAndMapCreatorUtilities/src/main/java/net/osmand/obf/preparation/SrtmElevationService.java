@@ -0,0 +1,602 @@
+package net.osmand.obf.preparation;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferShort;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.apache.commons.logging.Log;
+
+import net.osmand.PlatformUtil;
+import net.osmand.util.BoundedLruMap;
+
+/**
+ * Elevation lookup over SRTM GeoTIFF tiles shared by all threads.
+ * Each tile is decoded once and converted into raw little-endian int16 file
+ * (header + width * height samples) which is memory mapped.
+ * Converted files form persistent disk cache reused by next runs, both mapped tiles
+ * and disk cache are bounded in bytes and released in least recently used order.
+ */
+public class SrtmElevationService {
+
+	private static final Log log = PlatformUtil.getLog(SrtmElevationService.class);
+
+	public static final String RAW_CACHE_DIR = "srtm-raw";
+	public static final String RAW_EXT = ".srtm";
+	// "SRTM" + version
+	private static final int RAW_MAGIC = 0x5352544d;
+	private static final int RAW_VERSION = 1;
+	private static final int RAW_HEADER_SIZE = 16;
+	// ways spanning more tiles are not prefetched
+	private static final int MAX_PREFETCH_TILES = 16;
+
+	static boolean USE_BILINEAR_INTERPOLATION = false;
+	// -1 no limit
+	public static long MAX_MAPPED_BYTES = 4L << 30;
+	public static long MAX_DISK_CACHE_BYTES = 64L << 30;
+	// null - working dir
+	public static String RAW_CACHE_FOLDER = null;
+
+	private static final Map<String, SrtmElevationService> instances = new ConcurrentHashMap<>();
+
+	private final String srtmDataUrl;
+	private final File workDir;
+	private final File rawDir;
+	// mapping of evicted tile is released by gc, readers holding tile could still use it
+	private final BoundedLruMap<Integer, SrtmTile> tiles;
+	// converted files on disk -> size, evicted files are deleted
+	private final BoundedLruMap<String, Long> rawFiles;
+	private final Map<Integer, Object> loadLocks = new ConcurrentHashMap<>();
+	private final Set<Integer> prefetching = ConcurrentHashMap.newKeySet();
+	private ExecutorService prefetchExecutor;
+
+	private final AtomicInteger tilesLoaded = new AtomicInteger();
+	private final AtomicLong lookups = new AtomicLong();
+	private final AtomicLong memoryHits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong converted = new AtomicLong();
+	private final AtomicLong missing = new AtomicLong();
+	private final AtomicLong prefetched = new AtomicLong();
+
+	public static SrtmElevationService getInstance(String srtmDataUrl, File workDir) {
+		String key = srtmDataUrl + "|" + (workDir == null ? "" : workDir.getAbsolutePath()) + "|" + RAW_CACHE_FOLDER;
+		return instances.computeIfAbsent(key, k -> new SrtmElevationService(srtmDataUrl, workDir));
+	}
+
+	private SrtmElevationService(String srtmDataUrl, File workDir) {
+		this.srtmDataUrl = srtmDataUrl;
+		this.workDir = workDir;
+		if (RAW_CACHE_FOLDER != null) {
+			this.rawDir = new File(RAW_CACHE_FOLDER);
+		} else {
+			File dir = workDir != null && workDir.canWrite() ? workDir : new File(System.getProperty("java.io.tmpdir"));
+			this.rawDir = new File(dir, RAW_CACHE_DIR);
+		}
+		this.rawDir.mkdirs();
+		// keep at least just loaded tile and just converted file
+		this.tiles = new BoundedLruMap<>(MAX_MAPPED_BYTES, IndexHeightData.MAXIMUM_LOADED_DATA, 1,
+				(id, tile) -> tile.getMappedSize());
+		this.rawFiles = new BoundedLruMap<String, Long>(MAX_DISK_CACHE_BYTES, -1, 1, (name, size) -> size)
+				.setEvictionListener((name, size) -> {
+					// mapped tiles stay readable after file is deleted
+					File f = new File(rawDir, name);
+					if (!f.delete()) {
+						f.deleteOnExit();
+					}
+				});
+		scanRawFiles();
+	}
+
+	private void scanRawFiles() {
+		File[] files = rawDir.listFiles((dir, name) -> name.endsWith(RAW_EXT));
+		if (files == null) {
+			return;
+		}
+		// oldest first, so least recently used files of previous runs are evicted first
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File f : files) {
+			rawFiles.put(f.getName(), f.length());
+		}
+		log.info(String.format("SRTM: disk cache %s has %d tiles, %d MB", rawDir.getAbsolutePath(), rawFiles.size(),
+				rawFiles.getWeight() >> 20));
+	}
+
+	/**
+	 * Number of tiles requested from srtm source (downloaded or read from folder)
+	 */
+	public int getTilesLoaded() {
+		return tilesLoaded.get();
+	}
+
+	public SrtmStats getStats() {
+		SrtmStats s = new SrtmStats();
+		s.lookups = lookups.get();
+		s.memoryHits = memoryHits.get();
+		s.diskHits = diskHits.get();
+		s.converted = converted.get();
+		s.missing = missing.get();
+		s.evicted = tiles.getEvictions();
+		s.diskEvicted = rawFiles.getEvictions();
+		s.prefetched = prefetched.get();
+		return s;
+	}
+
+	public double getHeight(double lat, double lon) {
+		return getHeight(lat, lon, null, null);
+	}
+
+	public double getHeight(double lat, double lon, File[] missingFile, double[] neighbours) {
+		int lt = (int) Math.floor(lat);
+		int ln = (int) Math.floor(lon);
+		SrtmTile tile = getTile(IndexHeightData.getTileId(lt, ln), missingFile);
+		return tile.getHeight(lon - ln, lat - lt, neighbours);
+	}
+
+	public double[] heights(double[] lats, double[] lons) {
+		return heights(lats, lons, null);
+	}
+
+	/**
+	 * Batch lookup: points are grouped by tile so each tile is resolved once,
+	 * missing heights are {@link IndexHeightData#INEXISTENT_HEIGHT}.
+	 */
+	public double[] heights(double[] lats, double[] lons, File[] missingFile) {
+		int n = lats.length;
+		double[] res = new double[n];
+		long[] order = new long[n];
+		for (int i = 0; i < n; i++) {
+			int id = IndexHeightData.getTileId((int) Math.floor(lats[i]), (int) Math.floor(lons[i]));
+			order[i] = ((long) id << 32) | i;
+		}
+		Arrays.sort(order);
+		double[] cf = new double[16];
+		SrtmTile tile = null;
+		for (int k = 0; k < n; k++) {
+			int id = (int) (order[k] >>> 32);
+			int i = (int) order[k];
+			if (tile == null || tile.id != id) {
+				tile = getTile(id, missingFile);
+			}
+			res[i] = tile.getHeight(lons[i] - Math.floor(lons[i]), lats[i] - Math.floor(lats[i]), cf);
+		}
+		return res;
+	}
+
+	/**
+	 * Starts loading tiles of bbox in background, so tiles of next lookups are mapped
+	 * (or converted) in parallel. Tiles already mapped or being loaded are skipped.
+	 */
+	public void prefetch(double minLat, double minLon, double maxLat, double maxLon) {
+		int minLt = (int) Math.floor(minLat);
+		int maxLt = (int) Math.floor(maxLat);
+		int minLn = (int) Math.floor(minLon);
+		int maxLn = (int) Math.floor(maxLon);
+		if ((maxLt - minLt + 1) * (maxLn - minLn + 1) > MAX_PREFETCH_TILES) {
+			return;
+		}
+		for (int lt = minLt; lt <= maxLt; lt++) {
+			for (int ln = minLn; ln <= maxLn; ln++) {
+				int id = IndexHeightData.getTileId(lt, ln);
+				if (!tiles.containsKey(id) && !loadLocks.containsKey(id) && prefetching.add(id)) {
+					prefetched.incrementAndGet();
+					getPrefetchExecutor().execute(() -> {
+						try {
+							resolveTile(id);
+						} finally {
+							prefetching.remove(id);
+						}
+					});
+				}
+			}
+		}
+	}
+
+	private synchronized ExecutorService getPrefetchExecutor() {
+		if (prefetchExecutor == null) {
+			int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+			AtomicInteger cnt = new AtomicInteger();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), r -> {
+						Thread t = new Thread(r, "srtm-prefetch-" + cnt.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					});
+			executor.allowCoreThreadTimeOut(true);
+			prefetchExecutor = executor;
+		}
+		return prefetchExecutor;
+	}
+
+	private SrtmTile getTile(int id, File[] missingFile) {
+		lookups.incrementAndGet();
+		SrtmTile tile = tiles.get(id);
+		if (tile != null) {
+			memoryHits.incrementAndGet();
+		} else {
+			tile = resolveTile(id);
+		}
+		if (tile.data == null && missingFile != null && missingFile.length > 0) {
+			missingFile[0] = tile.missingFile;
+		}
+		return tile;
+	}
+
+	private SrtmTile resolveTile(int id) {
+		SrtmTile tile;
+		// single load per tile, other threads wait for it
+		Object lock = loadLocks.computeIfAbsent(id, k -> new Object());
+		synchronized (lock) {
+			tile = tiles.get(id);
+			if (tile == null) {
+				tile = loadTile(id);
+				// failed tile is loaded again by next lookup
+				if (!tile.failed) {
+					tiles.put(id, tile);
+				}
+			}
+		}
+		loadLocks.remove(id, lock);
+		return tile;
+	}
+
+	/**
+	 * Maps cached raw file. Mapping is done under disk cache lock, so the file is not evicted
+	 * between existence check and opening, once mapped it stays readable after deletion.
+	 */
+	private boolean mapRawFile(SrtmTile tile, File raw) throws IOException {
+		synchronized (rawFiles) {
+			if (!raw.exists() || !tile.map(raw)) {
+				return false;
+			}
+			if (rawFiles.get(raw.getName()) == null) {
+				rawFiles.put(raw.getName(), raw.length());
+			}
+		}
+		// persist access order for next runs
+		raw.setLastModified(System.currentTimeMillis());
+		return true;
+	}
+
+	private void addRawFile(SrtmTile tile, File raw) throws IOException {
+		synchronized (rawFiles) {
+			// map before eviction, so other threads can't delete just converted file
+			if (!tile.map(raw)) {
+				throw new IOException("Can't map converted " + raw.getAbsolutePath());
+			}
+			rawFiles.put(raw.getName(), raw.length());
+		}
+	}
+
+	private SrtmTile loadTile(int id) {
+		SrtmTile tile = new SrtmTile(id);
+		String name = getFileName(id);
+		File raw = new File(rawDir, name + RAW_EXT);
+		try {
+			if (mapRawFile(tile, raw)) {
+				diskHits.incrementAndGet();
+				return tile;
+			}
+			tilesLoaded.incrementAndGet();
+			log.info(String.format("SRTM: Load srtm data %d: %s", id, name));
+			File f = IndexHeightData.loadFile(name + ".tif", srtmDataUrl, workDir);
+			if (!f.exists()) {
+				missing.incrementAndGet();
+				tile.missingFile = f;
+				return tile;
+			}
+			BufferedImage img = readImage(f);
+			// remove all downloaded files to save disk space
+			if (!srtmDataUrl.startsWith("/") && !srtmDataUrl.startsWith(".")) {
+				f.delete();
+			}
+			if (img == null) {
+				missing.incrementAndGet();
+				return tile;
+			}
+			convert(img, raw);
+			converted.incrementAndGet();
+			addRawFile(tile, raw);
+		} catch (IOException e) {
+			log.error(String.format("SRTM: Can't load %s: %s", name, e.getMessage()), e);
+			tile.data = null;
+			tile.failed = true;
+		}
+		return tile;
+	}
+
+	private static void convert(BufferedImage img, File raw) throws IOException {
+		int width = img.getWidth();
+		int height = img.getHeight();
+		DataBufferShort data = (DataBufferShort) img.getRaster().getDataBuffer();
+		File tmp = new File(raw.getParentFile(), raw.getName() + ".tmp");
+		try (RandomAccessFile rf = new RandomAccessFile(tmp, "rw"); FileChannel ch = rf.getChannel()) {
+			rf.setLength(0);
+			ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			buf.putInt(RAW_MAGIC).putInt(RAW_VERSION).putInt(width).putInt(height);
+			int size = width * height;
+			for (int i = 0; i < size; i++) {
+				if (buf.remaining() < 2) {
+					buf.flip();
+					while (buf.hasRemaining()) {
+						ch.write(buf);
+					}
+					buf.clear();
+				}
+				buf.putShort((short) data.getElem(i));
+			}
+			buf.flip();
+			while (buf.hasRemaining()) {
+				ch.write(buf);
+			}
+		}
+		if (!tmp.renameTo(raw)) {
+			raw.delete();
+			if (!tmp.renameTo(raw)) {
+				throw new IOException("Can't rename " + tmp.getAbsolutePath());
+			}
+		}
+	}
+
+	private static BufferedImage readImage(File f) {
+		try (FileInputStream fis = new FileInputStream(f)) {
+			BufferedImage img = ImageIO.read(fis);
+			if (img != null) {
+				return img;
+			}
+		} catch (Exception e) {
+			// fallback to other readers
+		}
+		return iterativeReadData(f);
+	}
+
+	private static BufferedImage iterativeReadData(File file) {
+		Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("tiff");
+		while (readers.hasNext()) {
+			ImageReader reader = readers.next();
+			if (!(reader instanceof com.sun.media.imageioimpl.plugins.tiff.TIFFImageReader)) {
+				ImageInputStream iis = null;
+				try {
+					iis = ImageIO.createImageInputStream(file);
+					reader.setInput(iis, true);
+					return reader.read(0);
+				} catch (IOException e) {
+					log.info("Error reading TIFF file with reader " + reader.getClass().getName() + ": " + e.getMessage());
+				} finally {
+					reader.dispose();
+					if (iis != null) {
+						try {
+							iis.close();
+						} catch (IOException e) {
+							log.error("Error closing ImageInputStream: " + e.getMessage());
+						}
+					}
+				}
+			}
+		}
+		log.error("Failed to read TIFF file with all available readers.");
+		return null;
+	}
+
+	static String getFileName(int id) {
+		int ln = (id >> 10) - 180;
+		int lt = (id - ((id >> 10) << 10)) - 90;
+		String res = lt >= 0 ? "N" : "S";
+		lt = Math.abs(lt);
+		if (lt < 10) {
+			res += "0";
+		}
+		res += lt;
+		res += ln >= 0 ? "E" : "W";
+		ln = Math.abs(ln);
+		if (ln < 10) {
+			res += "0";
+		}
+		if (ln < 100) {
+			res += "0";
+		}
+		res += ln;
+		return res;
+	}
+
+	public static class SrtmStats {
+		public long lookups;
+		public long memoryHits;
+		public long diskHits;
+		public long converted;
+		public long missing;
+		public long evicted;
+		public long diskEvicted;
+		public long prefetched;
+
+		public SrtmStats minus(SrtmStats s) {
+			SrtmStats r = new SrtmStats();
+			r.lookups = lookups - s.lookups;
+			r.memoryHits = memoryHits - s.memoryHits;
+			r.diskHits = diskHits - s.diskHits;
+			r.converted = converted - s.converted;
+			r.missing = missing - s.missing;
+			r.evicted = evicted - s.evicted;
+			r.diskEvicted = diskEvicted - s.diskEvicted;
+			r.prefetched = prefetched - s.prefetched;
+			return r;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("SRTM tiles: %d lookups, %d in memory (%.1f%%), %d from disk cache, %d converted, "
+					+ "%d missing, %d released, %d removed from disk cache, %d prefetched", lookups, memoryHits,
+					lookups == 0 ? 0 : memoryHits * 100.0 / lookups, diskHits, converted, missing, evicted,
+					diskEvicted, prefetched);
+		}
+	}
+
+	static class SrtmTile {
+		final int id;
+		ShortBuffer data;
+		File rawFile;
+		File missingFile;
+		// io error, tile is not cached
+		boolean failed;
+		int width;
+		int height;
+
+		SrtmTile(int id) {
+			this.id = id;
+		}
+
+		long getMappedSize() {
+			return data == null ? 0 : RAW_HEADER_SIZE + 2L * width * height;
+		}
+
+		boolean map(File raw) throws IOException {
+			try (RandomAccessFile rf = new RandomAccessFile(raw, "r"); FileChannel ch = rf.getChannel()) {
+				long size = ch.size();
+				if (size < RAW_HEADER_SIZE) {
+					return false;
+				}
+				MappedByteBuffer mb = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				mb.order(ByteOrder.LITTLE_ENDIAN);
+				int w = mb.getInt(8);
+				int h = mb.getInt(12);
+				if (mb.getInt(0) != RAW_MAGIC || mb.getInt(4) != RAW_VERSION
+						|| size != RAW_HEADER_SIZE + 2L * w * h) {
+					return false;
+				}
+				mb.position(RAW_HEADER_SIZE);
+				width = w;
+				height = h;
+				rawFile = raw;
+				data = mb.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+				return true;
+			}
+		}
+
+		double getHeight(double x, double y, double[] array) {
+			ShortBuffer d = data;
+			if (d == null) {
+				return IndexHeightData.INEXISTENT_HEIGHT;
+			}
+			if (USE_BILINEAR_INTERPOLATION) {
+				return bilinearInterpolation(d, x, y, array);
+			} else {
+				return bicubicInterpolation(d, x, y, array);
+			}
+		}
+
+		private double bicubicInterpolation(ShortBuffer d, double ix, double iy, double[] cf) {
+			double pdx = (width - 2) * ix + 1;
+			double pdy = (height - 2) * (1 - iy) + 1;
+			int px = (int) Math.round(pdx);
+			int py = (int) Math.round(pdy);
+			double x = pdx - px + 0.5;
+			double y = pdy - py + 0.5;
+			// pdx = 26.6 -> px = 27, x = 0.1 (26.5=0, 27.5=1)
+			// pdx = 26.4 -> px = 26, x = 0.9 (25.5=0, 26.5=1)
+			// pdx = 27.0 -> px = 27, x = 0.5 (26.5=0, 27.5=1)
+			px--;
+			py--;
+			if (cf == null) {
+				cf = new double[16];
+			}
+			for (int i = 0; i < cf.length; i++) {
+				cf[i] = 0;
+			}
+			// https://en.wikipedia.org/wiki/Bicubic_interpolation
+			// swap formula
+			double tx = y;
+			y = x;
+			x = tx;
+			cf[0] = (x-1)*(x-2)*(x+1)*(y-1)*(y-2)*(y+1) / 4 * getElem(d, px, py);
+			cf[1] = -(x)*(x-2)*(x+1)*(y-1)*(y-2)*(y+1) / 4 * getElem(d, px, py + 1);
+			cf[2] = -(x-1)*(x-2)*(x+1)*(y)*(y-2)*(y+1) / 4 * getElem(d, px + 1, py);
+			cf[3] = (x)*(x-2)*(x+1)*(y)*(y-2)*(y+1) / 4 * getElem(d, px + 1, py + 1);
+			cf[4] = -(x)*(x-2)*(x-1)*(y-1)*(y-2)*(y+1) / 12 * getElem(d, px, py - 1);
+			cf[5] = -(x+1)*(x-2)*(x-1)*(y-1)*(y-2)*(y) / 12 * getElem(d, px - 1, py);
+			cf[6] = (x)*(x-2)*(x-1)*(y+1)*(y-2)*(y) / 12 * getElem(d, px + 1, py - 1);
+			cf[7] = (x)*(x-2)*(x+1)*(y-1)*(y-2)*(y) / 12 * getElem(d, px - 1, py + 1);
+			cf[8] = (x)*(x-1)*(x+1)*(y-1)*(y-2)*(y+1) / 12 * getElem(d, px, py + 2);
+			cf[9] = (x-2)*(x-1)*(x+1)*(y-1)*(y)*(y+1) / 12 * getElem(d, px + 2, py);
+			cf[10] = (x)*(x-1)*(x-2)*(y)*(y-1)*(y-2) / 36 * getElem(d, px - 1, py - 1);
+			cf[11] = -(x)*(x-1)*(x+1)*(y)*(y+1)*(y-2) / 12 * getElem(d, px + 1, py + 2);
+			cf[12] = -(x)*(x+1)*(x-2)*(y)*(y-1)*(y+1) / 12 * getElem(d, px + 2, py + 1);
+			cf[13] = -(x)*(x-1)*(x+1)*(y)*(y-1)*(y-2) / 36 * getElem(d, px - 1, py + 2);
+			cf[14] = -(x)*(x-1)*(x-2)*(y)*(y-1)*(y+1) / 36 * getElem(d, px + 2, py - 1);
+			cf[15] =  (x)*(x-1)*(x+1)*(y)*(y-1)*(y+1) / 36 * getElem(d, px + 2, py + 2);
+			double h = 0;
+			for (int i = 0; i < cf.length; i++) {
+				h += cf[i];
+			}
+			return h;
+		}
+
+		private double bilinearInterpolation(ShortBuffer d, double x, double y, double[] array) {
+			double pdx = (width - 2) * x + 1;
+			double pdy = (height - 2) * (1 - y) + 1;
+			int px = (int) Math.round(pdx);
+			int py = (int) Math.round(pdy);
+			if (array == null) {
+				array = new double[4];
+			}
+			array[0] = getElem(d, px - 1, py - 1);
+			array[1] = getElem(d, px, py - 1);
+			array[2] = getElem(d, px - 1, py);
+			array[3] = getElem(d, px, py);
+			double cx = 0.5 + pdx - px;
+			double cy = 0.5 + pdy - py;
+			// 1.3 pdx ->  px = 1, px - 1 = 0, cx = 0.8, 1 - cx = 0.2,
+			// 1.7 pdx ->  px = 2, px - 1 = 1, cx = 0.2, 1 - cx = 0.8,
+			return (1 - cx) * (1 - cy) * array[0] +
+					cx * (1 - cy) * array[1] +
+					(1 - cx) * cy * array[2] +
+					cx * cy * array[3];
+		}
+
+		private double getElem(ShortBuffer d, int px, int py) {
+			if (px <= 0) {
+				px = 1;
+			}
+			if (py <= 0) {
+				py = 1;
+			}
+			if (px >= width - 1) {
+				px = width - 2;
+			}
+			if (py >= height - 1) {
+				py = height - 2;
+			}
+			int ind = px + py * width;
+			if (ind >= d.limit()) {
+				throw new IllegalArgumentException("Illegal access (" + px + ", " + py + ") " + ind + " - "
+						+ getFileName(id));
+			}
+			int h = d.get(ind) & 0xffff;
+			if (h > 0x7fff) {
+				return h - (0xffff);
+			}
+			return h;
+		}
+	}
+}
@@ -1,11 +1,27 @@
 package net.osmand.osm.io;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import net.osmand.IProgress;
 import net.osmand.osm.edit.Entity;
@@ -16,206 +32,378 @@ import net.osmand.osm.edit.Way;
 import net.osmand.osm.edit.Entity.EntityId;
 import net.osmand.osm.edit.Entity.EntityType;
 import crosby.binary.BinaryParser;
+import crosby.binary.Fileformat;
+import crosby.binary.Osmformat;
 import crosby.binary.Osmformat.DenseNodes;
 import crosby.binary.Osmformat.HeaderBlock;
 import crosby.binary.Osmformat.Info;
 import crosby.binary.Osmformat.Relation.MemberType;
-import crosby.binary.file.BlockInputStream;
+import crosby.binary.file.FileFormatException;
 
+/**
+ * Pbf blocks are read by reader thread, inflated and parsed by pool of parse threads
+ * and entities are registered by the calling thread in file order.
+ */
 public class OsmBaseStoragePbf extends OsmBaseStorage {
 
+	private static final Log log = LogFactory.getLog(OsmBaseStoragePbf.class);
+
+	private static final int MAX_HEADER_SIZE = 64 * 1024;
+	private static final int MAX_BODY_SIZE = 32 * 1024 * 1024;
+	private static final long THROUGHPUT_INTERVAL_MS = 5000;
+
+	private int parseThreads = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+
+	private static class EntityBatch {
+		final long bytes;
+		final List<EntityType> types = new ArrayList<>();
+		final List<Entity> entities = new ArrayList<>();
+		final List<EntityInfo> infos = new ArrayList<>();
+
+		EntityBatch(long bytes) {
+			this.bytes = bytes;
+		}
+	}
+
+	// end of file marker
+	private static final EntityBatch END_BATCH = new EntityBatch(0);
+
+	public void setParseThreads(int parseThreads) {
+		this.parseThreads = Math.max(1, parseThreads);
+	}
+
 	public synchronized void parseOSMPbf(final InputStream stream, final IProgress progress, final boolean entityInfo) throws IOException {
-		BinaryParser parser = new BinaryParser() {
-			public void updateProgress(int count) {
-				progressEntity += count;
+		this.progressEntity = 0;
+		this.entities.clear();
+		this.entityInfo.clear();
+		long totalBytes = stream.available();
+		if (progress != null) {
+			progress.startWork((int) Math.min(Integer.MAX_VALUE, totalBytes));
+		}
+
+		AtomicInteger threadCounter = new AtomicInteger();
+		ExecutorService parsePool = Executors.newFixedThreadPool(parseThreads, r -> {
+			Thread t = new Thread(r, "pbf-parse-" + threadCounter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		// bounds decoded blocks kept in memory, blocks are handed off in file order
+		BlockingQueue<Future<EntityBatch>> blocks = new ArrayBlockingQueue<>(parseThreads * 4);
+		Thread reader = new Thread(() -> readBlocks(stream, entityInfo, parsePool, blocks), "pbf-reader");
+		reader.setDaemon(true);
+		reader.start();
+
+		long start = System.currentTimeMillis();
+		long lastReport = start;
+		long bytes = 0;
+		long entitiesCount = 0;
+		try {
+			while (true) {
+				EntityBatch batch = takeBatch(blocks);
+				if (batch == END_BATCH) {
+					break;
+				}
+				for (int i = 0; i < batch.entities.size(); i++) {
+					registerEntity(batch.types.get(i), batch.entities.get(i), entityInfo ? batch.infos.get(i) : null);
+				}
+				bytes += batch.bytes;
+				entitiesCount += batch.entities.size();
+				progressEntity += batch.entities.size();
 				if (progress != null && progressEntity > moduleProgress && !progress.isIndeterminate()) {
-					try {
-						progressEntity = 0;
-						progress.remaining(stream.available());
-					} catch (IOException e) {
-						progress.startWork(-1);
-					}
+					progressEntity = 0;
+					progress.remaining((int) Math.max(0, Math.min(Integer.MAX_VALUE, totalBytes - bytes)));
+				}
+				long now = System.currentTimeMillis();
+				if (progress != null && now - lastReport > THROUGHPUT_INTERVAL_MS) {
+					lastReport = now;
+					progress.setGeneralProgress(formatThroughput(bytes, entitiesCount, now - start));
 				}
 			}
+		} finally {
+			reader.interrupt();
+			parsePool.shutdownNow();
+		}
+		String throughput = formatThroughput(bytes, entitiesCount, System.currentTimeMillis() - start);
+		log.info("Pbf parsed: " + throughput);
+		if (progress != null) {
+			progress.setGeneralProgress(throughput);
+			progress.finishTask();
+		}
+		completeReading();
+	}
+
+	private String formatThroughput(long bytes, long entities, long timeMs) {
+		double sec = Math.max(timeMs, 1) / 1000.0;
+		return String.format("%.1f MB/s, %d entities/s (%d parse threads)", bytes / sec / (1 << 20),
+				(long) (entities / sec), parseThreads);
+	}
+
+	private EntityBatch takeBatch(BlockingQueue<Future<EntityBatch>> blocks) throws IOException {
+		try {
+			return blocks.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Pbf reading was interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
 
-			public void registerEntity(EntityType type, Entity e, EntityInfo info) {
-				EntityId entityId = new EntityId(type, e.getId());
-				if (acceptEntityToLoad(entityId, e)) {
-					Entity oldEntity = entities.put(entityId, e);
-					if (info != null) {
-						OsmBaseStoragePbf.this.entityInfo.put(entityId, info);
+	private void readBlocks(InputStream stream, boolean entityInfo, ExecutorService parsePool,
+			BlockingQueue<Future<EntityBatch>> blocks) {
+		DataInputStream input = new DataInputStream(stream);
+		try {
+			try {
+				while (stream.available() > 0) {
+					int headerSize;
+					try {
+						headerSize = input.readInt();
+					} catch (EOFException e) {
+						break;
+					}
+					if (headerSize > MAX_HEADER_SIZE) {
+						throw new FileFormatException("Unexpectedly long header " + headerSize + " bytes. Possibly corrupt file.");
+					}
+					byte[] header = new byte[headerSize];
+					input.readFully(header);
+					Fileformat.BlockHeader blockHeader = Fileformat.BlockHeader.parseFrom(header);
+					int dataSize = blockHeader.getDatasize();
+					if (dataSize > MAX_BODY_SIZE) {
+						throw new FileFormatException("Unexpectedly long body " + dataSize + " bytes. Possibly corrupt file.");
 					}
-					if (!supressWarnings && oldEntity != null) {
-						throw new UnsupportedOperationException("Entity with id=" + oldEntity.getId() + " is duplicated in osm map"); //$NON-NLS-1$ //$NON-NLS-2$
+					if (!"OSMData".equals(blockHeader.getType())) {
+						// OSMHeader is not used
+						input.readFully(new byte[dataSize]);
+						continue;
 					}
+					byte[] blob = new byte[dataSize];
+					input.readFully(blob);
+					long blockBytes = 4 + headerSize + dataSize;
+					blocks.put(parsePool.submit(() -> new BlockParser(entityInfo).parseBlock(blob, blockBytes)));
 				}
+				blocks.put(CompletableFuture.completedFuture(END_BATCH));
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Throwable e) {
+				// any failure (e.g. OutOfMemoryError on huge block) is passed on, so consumer doesn't wait forever
+				blocks.put(CompletableFuture.failedFuture(e));
 			}
+		} catch (InterruptedException e) {
+			// consumer stopped reading
+		}
+	}
 
-			@Override
-			protected void parse(HeaderBlock header) {
+	private static byte[] inflate(byte[] blobData) throws IOException {
+		Fileformat.Blob blob = Fileformat.Blob.parseFrom(blobData);
+		if (blob.hasRaw()) {
+			return blob.getRaw().toByteArray();
+		} else if (blob.hasZlibData()) {
+			byte[] raw = new byte[blob.getRawSize()];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(blob.getZlibData().toByteArray());
+				inflater.inflate(raw);
+			} catch (DataFormatException e) {
+				throw new FileFormatException("Corrupted zlib data in pbf block: " + e.getMessage());
+			} finally {
+				inflater.end();
 			}
+			return raw;
+		}
+		throw new FileFormatException("Unsupported pbf block compression");
+	}
 
-			private DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'"); //$NON-NLS-1$
-
-			@Override
-			protected void parseDense(DenseNodes n) {
-				EntityInfo info = null;
-				long changeset = 0;
-				long timestamp = 0;
-				int uid = 0;
-				int user = 0;
-				long id = 0;
-				long lat = 0;
-				long lon = 0;
-				int keyInd = 0;
-				boolean tagsEmpty = n.getKeysValsCount() == 0;
-				for (int i = 0; i < n.getIdCount(); i++) {
-					id += n.getId(i);
-					lat += n.getLat(i);
-					lon += n.getLon(i);
-					Node node = new Node(parseLat(lat), parseLon(lon), id);
-
-					if (entityInfo && n.getDenseinfo() != null) {
-						info = new EntityInfo();
-						changeset += n.getDenseinfo().getChangeset(i);
-						timestamp += n.getDenseinfo().getTimestamp(i);
-						uid += n.getDenseinfo().getUid(i);
-						user += n.getDenseinfo().getUserSid(i);
-						info.setChangeset(String.valueOf(changeset)); //$NON-NLS-1$
-						info.setTimestamp(format.format(new Date(date_granularity * (timestamp))));
-						info.setUser(getStringById(user));
-						info.setUid(String.valueOf(uid)); //$NON-NLS-1$
-						info.setVersion(String.valueOf(n.getDenseinfo().getVersion(i))); //$NON-NLS-1$
-						info.setVisible("true"); //$NON-NLS-1$
-					}
-					if (!tagsEmpty) {
-						while (n.getKeysVals(keyInd) != 0) {
-							String key = getStringById(n.getKeysVals(keyInd));
-							String val = getStringById(n.getKeysVals(keyInd + 1));
-							node.putTag(key, val);
-							keyInd += 2;
-						}
-						keyInd++;
-					}
-					registerEntity(EntityType.NODE, node, info);
-				}
-				updateProgress(n.getIdCount());
+	private void registerEntity(EntityType type, Entity e, EntityInfo info) {
+		EntityId entityId = new EntityId(type, e.getId());
+		if (acceptEntityToLoad(entityId, e)) {
+			Entity oldEntity = entities.put(entityId, e);
+			if (info != null) {
+				this.entityInfo.put(entityId, info);
+			}
+			if (!supressWarnings && oldEntity != null) {
+				throw new UnsupportedOperationException("Entity with id=" + oldEntity.getId() + " is duplicated in osm map"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
+		}
+	}
+
+	/**
+	 * Parses single primitive block into entity batch, string table and offsets are kept per block
+	 * so each block needs its own parser.
+	 */
+	private static class BlockParser extends BinaryParser {
+
+		private final boolean entityInfo;
+		private final DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'"); //$NON-NLS-1$
+		private EntityBatch batch;
+
+		BlockParser(boolean entityInfo) {
+			this.entityInfo = entityInfo;
+		}
+
+		EntityBatch parseBlock(byte[] blob, long bytes) throws IOException {
+			batch = new EntityBatch(bytes);
+			parse(Osmformat.PrimitiveBlock.parseFrom(inflate(blob)));
+			return batch;
+		}
 
-			protected EntityInfo parseEntityInfo(Info i) {
-				EntityInfo info = new EntityInfo();
-				info.setChangeset(String.valueOf(i.getChangeset())); //$NON-NLS-1$
-				info.setTimestamp(format.format(getDate(i)));
-				info.setUser(getStringById(i.getUserSid()));
-				info.setUid(String.valueOf(i.getUid())); //$NON-NLS-1$
-				info.setVersion(String.valueOf(i.getVersion())); //$NON-NLS-1$
-				info.setVisible("true"); //$NON-NLS-1$
-				return info;
+		private void registerEntity(EntityType type, Entity e, EntityInfo info) {
+			batch.types.add(type);
+			batch.entities.add(e);
+			if (entityInfo) {
+				batch.infos.add(info);
 			}
+		}
 
-			@Override
-			protected void parseNodes(List<crosby.binary.Osmformat.Node> n) {
-				EntityInfo info = null;
-				int nsize = n.size();
-				for (int i = 0; i < nsize; i++) {
-					crosby.binary.Osmformat.Node nod = n.get(i);
-					Node e = new Node(parseLat(nod.getLat()), parseLon(nod.getLon()), nod.getId());
-					for (int j = 0; j < nod.getKeysCount(); j++) {
-						String key = getStringById(nod.getKeys(j));
-						String val = getStringById(nod.getVals(j));
-						e.putTag(key, val);
-					}
-					if (entityInfo) {
-						info = parseEntityInfo(nod.getInfo());
+		@Override
+		protected void parse(HeaderBlock header) {
+		}
+
+		@Override
+		protected void parseDense(DenseNodes n) {
+			EntityInfo info = null;
+			long changeset = 0;
+			long timestamp = 0;
+			int uid = 0;
+			int user = 0;
+			long id = 0;
+			long lat = 0;
+			long lon = 0;
+			int keyInd = 0;
+			boolean tagsEmpty = n.getKeysValsCount() == 0;
+			for (int i = 0; i < n.getIdCount(); i++) {
+				id += n.getId(i);
+				lat += n.getLat(i);
+				lon += n.getLon(i);
+				Node node = new Node(parseLat(lat), parseLon(lon), id);
+
+				if (entityInfo && n.getDenseinfo() != null) {
+					info = new EntityInfo();
+					changeset += n.getDenseinfo().getChangeset(i);
+					timestamp += n.getDenseinfo().getTimestamp(i);
+					uid += n.getDenseinfo().getUid(i);
+					user += n.getDenseinfo().getUserSid(i);
+					info.setChangeset(String.valueOf(changeset)); //$NON-NLS-1$
+					info.setTimestamp(format.format(new Date(date_granularity * (timestamp))));
+					info.setUser(getStringById(user));
+					info.setUid(String.valueOf(uid)); //$NON-NLS-1$
+					info.setVersion(String.valueOf(n.getDenseinfo().getVersion(i))); //$NON-NLS-1$
+					info.setVisible("true"); //$NON-NLS-1$
+				}
+				if (!tagsEmpty) {
+					while (n.getKeysVals(keyInd) != 0) {
+						String key = getStringById(n.getKeysVals(keyInd));
+						String val = getStringById(n.getKeysVals(keyInd + 1));
+						node.putTag(key, val);
+						keyInd += 2;
 					}
-					registerEntity(EntityType.NODE, e, info);
+					keyInd++;
 				}
-				updateProgress(nsize);
+				registerEntity(EntityType.NODE, node, info);
 			}
+		}
 
-			@Override
-			protected void parseRelations(List<crosby.binary.Osmformat.Relation> r) {
-				EntityInfo info = null;
-				int rsize = r.size();
-				for (int i = 0; i < rsize; i++) {
-					crosby.binary.Osmformat.Relation rel = r.get(i);
-					Relation e = new Relation(rel.getId());
-					long id = 0;
-					for (int j = 0; j < rel.getMemidsCount(); j++) {
-						id += rel.getMemids(j);
-						String role = getStringById(rel.getRolesSid(j));
-						MemberType t = rel.getTypes(j);
-						EntityType ts = EntityType.NODE;
-						switch (t) {
-						case NODE:
-							ts = EntityType.NODE;
-							break;
-						case WAY:
-							ts = EntityType.WAY;
-							break;
-						case RELATION:
-							ts = EntityType.RELATION;
-							break;
-						}
-						e.addMember(id, ts, role);
-					}
-					for (int j = 0; j < rel.getKeysCount(); j++) {
-						String key = getStringById(rel.getKeys(j));
-						String val = getStringById(rel.getVals(j));
-						e.putTag(key, val);
-					}
-					if (entityInfo) {
-						info = parseEntityInfo(rel.getInfo());
-					}
-					registerEntity(EntityType.RELATION, e, info);
+		protected EntityInfo parseEntityInfo(Info i) {
+			EntityInfo info = new EntityInfo();
+			info.setChangeset(String.valueOf(i.getChangeset())); //$NON-NLS-1$
+			info.setTimestamp(format.format(getDate(i)));
+			info.setUser(getStringById(i.getUserSid()));
+			info.setUid(String.valueOf(i.getUid())); //$NON-NLS-1$
+			info.setVersion(String.valueOf(i.getVersion())); //$NON-NLS-1$
+			info.setVisible("true"); //$NON-NLS-1$
+			return info;
+		}
+
+		@Override
+		protected void parseNodes(List<crosby.binary.Osmformat.Node> n) {
+			EntityInfo info = null;
+			int nsize = n.size();
+			for (int i = 0; i < nsize; i++) {
+				crosby.binary.Osmformat.Node nod = n.get(i);
+				Node e = new Node(parseLat(nod.getLat()), parseLon(nod.getLon()), nod.getId());
+				for (int j = 0; j < nod.getKeysCount(); j++) {
+					String key = getStringById(nod.getKeys(j));
+					String val = getStringById(nod.getVals(j));
+					e.putTag(key, val);
+				}
+				if (entityInfo) {
+					info = parseEntityInfo(nod.getInfo());
 				}
-				updateProgress(rsize);
+				registerEntity(EntityType.NODE, e, info);
 			}
+		}
 
-			@Override
-			protected void parseWays(List<crosby.binary.Osmformat.Way> w) {
-				EntityInfo info = null;
-				int wsize = w.size();
-				for (int i = 0; i < wsize; i++) {
-					crosby.binary.Osmformat.Way way = w.get(i);
-					Way e = new Way(way.getId());
-					long id = 0;
-					for (int j = 0; j < way.getRefsCount(); j++) {
-						id += way.getRefs(j);
-						e.addNode(id);
-					}
-					for (int j = 0; j < way.getKeysCount(); j++) {
-						String key = getStringById(way.getKeys(j));
-						String val = getStringById(way.getVals(j));
-						e.putTag(key, val);
-					}
-					if (entityInfo) {
-						info = parseEntityInfo(way.getInfo());
+		@Override
+		protected void parseRelations(List<crosby.binary.Osmformat.Relation> r) {
+			EntityInfo info = null;
+			int rsize = r.size();
+			for (int i = 0; i < rsize; i++) {
+				crosby.binary.Osmformat.Relation rel = r.get(i);
+				Relation e = new Relation(rel.getId());
+				long id = 0;
+				for (int j = 0; j < rel.getMemidsCount(); j++) {
+					id += rel.getMemids(j);
+					String role = getStringById(rel.getRolesSid(j));
+					MemberType t = rel.getTypes(j);
+					EntityType ts = EntityType.NODE;
+					switch (t) {
+					case NODE:
+						ts = EntityType.NODE;
+						break;
+					case WAY:
+						ts = EntityType.WAY;
+						break;
+					case RELATION:
+						ts = EntityType.RELATION;
+						break;
 					}
-					registerEntity(EntityType.WAY, e, info);
+					e.addMember(id, ts, role);
 				}
-				updateProgress(wsize);
+				for (int j = 0; j < rel.getKeysCount(); j++) {
+					String key = getStringById(rel.getKeys(j));
+					String val = getStringById(rel.getVals(j));
+					e.putTag(key, val);
+				}
+				if (entityInfo) {
+					info = parseEntityInfo(rel.getInfo());
+				}
+				registerEntity(EntityType.RELATION, e, info);
 			}
+		}
 
-			@Override
-			public void complete() {
+		@Override
+		protected void parseWays(List<crosby.binary.Osmformat.Way> w) {
+			EntityInfo info = null;
+			int wsize = w.size();
+			for (int i = 0; i < wsize; i++) {
+				crosby.binary.Osmformat.Way way = w.get(i);
+				Way e = new Way(way.getId());
+				long id = 0;
+				for (int j = 0; j < way.getRefsCount(); j++) {
+					id += way.getRefs(j);
+					e.addNode(id);
+				}
+				for (int j = 0; j < way.getKeysCount(); j++) {
+					String key = getStringById(way.getKeys(j));
+					String val = getStringById(way.getVals(j));
+					e.putTag(key, val);
+				}
+				if (entityInfo) {
+					info = parseEntityInfo(way.getInfo());
+				}
+				registerEntity(EntityType.WAY, e, info);
 			}
-
-		};
-
-		this.progressEntity = 0;
-		this.entities.clear();
-		this.entityInfo.clear();
-		if(progress != null){
-			progress.startWork(stream.available());
 		}
 
-		BlockInputStream bis = new BlockInputStream(stream, parser);
-		bis.process();
-
-		if(progress != null){
-			progress.finishTask();
+		@Override
+		public void complete() {
 		}
-		completeReading();
 	}
 }
@@ -471,7 +471,6 @@ public class HHRoutingOBFWriter {
 			long timestamp = reader != null ? reader.getDateCreated() : edition;
 			BinaryMapIndexWriter bmiw = new BinaryMapIndexWriter(new RandomAccessFile(writeFile, "rw"), timestamp);
 			if (reader != null) {
-				byte[] BUFFER_TO_READ = new byte[BUFFER_SIZE];
 				for (int i = 0; i < reader.getIndexes().size(); i++) {
 					BinaryIndexPart part = reader.getIndexes().get(i);
 					if (part instanceof HHRouteRegion && ((HHRouteRegion) part).profile.equals(profile)) {
@@ -480,7 +479,7 @@ public class HHRoutingOBFWriter {
 					}
 					bmiw.getCodedOutStream().writeTag(part.getFieldNumber(), WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
 					BinaryInspector.writeInt(bmiw.getCodedOutStream(), part.getLength());
-					BinaryInspector.copyBinaryPart(bmiw.getCodedOutStream(), BUFFER_TO_READ, reader.getRaf(), part.getFilePointer(), part.getLength());
+					BinaryInspector.copyBinaryPart(bmiw.getCodedOutStream(), bmiw.getRaf().getChannel(), reader.getRaf(), part.getFilePointer(), part.getLength());
 				}
 			}
 			boolean allowLongSize = false; // worldwide maps - 2 profiles by 8M points
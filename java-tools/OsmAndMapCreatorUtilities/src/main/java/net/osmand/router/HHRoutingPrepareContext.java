@@ -76,7 +76,7 @@ public class HHRoutingPrepareContext {
 	
 
 	
-	RoutingContext gcMemoryLimitToUnloadAll(RoutingContext ctx, List<NetworkRouteRegion> subRegions,
+	synchronized RoutingContext gcMemoryLimitToUnloadAll(RoutingContext ctx, List<NetworkRouteRegion> subRegions,
 			boolean force) throws IOException {
 		long usedMemory = (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20;
 		if (force || ((usedMemory - MEMORY_LAST_USED_MB) > MEMORY_RELOAD_MB
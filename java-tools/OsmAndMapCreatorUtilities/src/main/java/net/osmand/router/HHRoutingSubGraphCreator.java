@@ -19,23 +19,32 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.logging.Log;
 
 import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.iterator.TLongIntIterator;
 import gnu.trove.map.hash.TIntIntHashMap;
 import gnu.trove.map.hash.TLongIntHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.PlatformUtil;
 import net.osmand.ResultMatcher;
 import net.osmand.binary.BinaryMapIndexReader;
@@ -131,6 +140,7 @@ public class HHRoutingSubGraphCreator {
 	static int ALG_BY_DEPTH_MINMAX_DIFF = 10;
 
 	static boolean CLEAN = false;
+	static int THREAD_POOL = 1; // regions far from each other are processed in parallel
 	static String ROUTING_PROFILE = "car";
 	static String ROUTING_PARAMS = "allow_private";
 
@@ -162,6 +172,8 @@ public class HHRoutingSubGraphCreator {
 				ALG_BY_DEPTH_REACH_POINTS = true;
 			} else if (a.equals("--network_by_limits")) {
 				ALG_BY_DEPTH_REACH_POINTS = false;
+			} else if (a.startsWith("--threads=")) {
+				THREAD_POOL = Integer.parseInt(a.substring("--threads=".length()));
 			} else if (a.equals("--clean")) {
 				CLEAN = true;
 			} else if (a.equals("--merge")) {
@@ -271,14 +283,12 @@ public class HHRoutingSubGraphCreator {
 			}
 		});
 		ctx.networkDB.insertRegions(ctx.routeRegions);
+		List<NetworkRouteRegion> pending = new ArrayList<>();
 		int procInd = 0;
 		for (NetworkRouteRegion nrouteRegion : ctx.routeRegions) {
-			System.out.println("------------------------");
 			procInd++;
-			logf("Region bbox %s %d of %d (l,t - r,b): %.5f, %.5f x %.5f, %.5f", nrouteRegion.region.getName(), procInd, ctx.routeRegions.size(),
-					nrouteRegion.rect.left, nrouteRegion.rect.top, nrouteRegion.rect.right, nrouteRegion.rect.bottom);
 			if (ctx.networkDB.hasVisitedPoints(nrouteRegion)) {
-				System.out.println("Already processed");
+				logf("Region %s %d of %d already processed", nrouteRegion.region.getName(), procInd, ctx.routeRegions.size());
 				continue;
 			}
 			if (nrouteRegion.region.getLeftLongitude() > nrouteRegion.region.getRightLongitude()) {
@@ -289,46 +299,9 @@ public class HHRoutingSubGraphCreator {
 				}
 				throw new IllegalStateException();
 			}
-
-			double overlapBbox = OVERLAP_FOR_ROUTING;
-			boolean notProcessed = true;
-			while (notProcessed) {
-				ctx.startRegionProcess(nrouteRegion, overlapBbox);
-				RouteRegion routeRegion = null;
-				for (RouteRegion rr : ctx.rctx.reverseMap.keySet()) {
-					if (rr.getFilePointer() == nrouteRegion.region.getFilePointer()
-							&& nrouteRegion.region.getName().equals(rr.getName())) {
-						routeRegion = rr;
-						break;
-					}
-				}
-				BinaryMapIndexReader reader = ctx.rctx.reverseMap.get(routeRegion);
-				logf("Region %s %d of %d %s", nrouteRegion.region.getName(), procInd, ctx.routeRegions.size(),
-						new Date().toString());
-
-				List<RouteSubregion> regions = reader.searchRouteIndexTree(
-						BinaryMapIndexReader.buildSearchRequest(
-								MapUtils.get31TileNumberX(nrouteRegion.region.getLeftLongitude()),
-								MapUtils.get31TileNumberX(nrouteRegion.region.getRightLongitude()),
-								MapUtils.get31TileNumberY(nrouteRegion.region.getTopLatitude()),
-								MapUtils.get31TileNumberY(nrouteRegion.region.getBottomLatitude()), 16, null),
-						routeRegion.getSubregions());
-
-				final long estimatedRoads = 1 + routeRegion.getLength() / 150; // 5 000 / 1 MB - 1 per 200 Byte
-				RouteDataObjectProcessor proc = new RouteDataObjectProcessor(ctx, estimatedRoads);
-				reader.loadRouteIndexData(regions, proc);
-				boolean ok = ctx.finishRegionProcess(overlapBbox);
-				if (!ok) {
-					overlapBbox *= 2;
-					// clean up for reprocessing
-					ctx.networkDB.cleanupRegionForReprocessing(nrouteRegion, ctx.networkPointToDbInd, ctx.longRoads);
-
-				} else {
-					notProcessed = false;
-				}
-				ctx.printStatsNetworks();
-			}
+			pending.add(nrouteRegion);
 		}
+		processRegions(ctx, pending);
 		if (ctx.longRoads.size() > 0) {
 			processLongRoads(ctx);
 		}
@@ -336,6 +309,111 @@ public class HHRoutingSubGraphCreator {
 		return ctx;
 	}
 
+	private void processRegions(NetworkCollectPointCtx ctx, List<NetworkRouteRegion> pending) throws IOException, SQLException {
+		// Regions which are far from each other (with routing overlap) don't share vertices and border points,
+		// so they are processed in parallel. Results are saved in the order of sequential processing,
+		// so db ids and merged points don't depend on number of threads.
+		Map<NetworkRouteRegion, Double> overlaps = new HashMap<>();
+		int total = pending.size();
+		int processed = 0;
+		ExecutorService service = Executors.newFixedThreadPool(THREAD_POOL);
+		try {
+			while (!pending.isEmpty()) {
+				List<NetworkRouteRegion> batch = new ArrayList<>();
+				for (int i = 0; i < pending.size() && batch.size() < THREAD_POOL; i++) {
+					NetworkRouteRegion r = pending.get(i);
+					boolean independent = true;
+					for (int j = 0; j < i && independent; j++) {
+						NetworkRouteRegion prev = pending.get(j);
+						// extra overlap covers segments crossing routing bbox
+						double overlap = overlaps.getOrDefault(r, OVERLAP_FOR_ROUTING)
+								+ overlaps.getOrDefault(prev, OVERLAP_FOR_ROUTING) + OVERLAP_FOR_ROUTING;
+						independent = !prev.intersects(r, overlap);
+					}
+					if (independent) {
+						batch.add(r);
+					}
+				}
+				ctx.unloadRegions(batch);
+				List<NetworkCollectPointCtx> workers = new ArrayList<>();
+				List<Future<Boolean>> results = new ArrayList<>();
+				for (NetworkRouteRegion nrouteRegion : batch) {
+					System.out.println("------------------------");
+					logf("Region bbox %s %d of %d (l,t - r,b): %.5f, %.5f x %.5f, %.5f", nrouteRegion.region.getName(),
+							processed + workers.size() + 1, total, nrouteRegion.rect.left, nrouteRegion.rect.top,
+							nrouteRegion.rect.right, nrouteRegion.rect.bottom);
+					NetworkCollectPointCtx worker = ctx.prepareRegionWorker(nrouteRegion,
+							overlaps.getOrDefault(nrouteRegion, OVERLAP_FOR_ROUTING));
+					workers.add(worker);
+					results.add(service.submit(new Callable<Boolean>() {
+						@Override
+						public Boolean call() throws Exception {
+							try {
+								loadRegionRoads(worker);
+								return worker.checkRegionBbox();
+							} finally {
+								worker.closeRoutingContext();
+							}
+						}
+					}));
+				}
+				// saving changes border points which are read by workers, so whole batch is awaited
+				boolean[] ok = new boolean[results.size()];
+				for (int i = 0; i < results.size(); i++) {
+					try {
+						ok[i] = results.get(i).get();
+					} catch (InterruptedException | ExecutionException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				for (int i = 0; i < workers.size(); i++) {
+					NetworkCollectPointCtx worker = workers.get(i);
+					if (!ok[i]) {
+						// region and next regions of batch are reprocessed as in sequential processing
+						overlaps.put(worker.currentProcessingRegion, worker.overlapBbox * 2);
+						for (int j = i; j < workers.size(); j++) {
+							ctx.discardRegion(workers.get(j));
+						}
+						break;
+					}
+					pending.remove(worker.currentProcessingRegion);
+					ctx.saveRegion(worker);
+					processed++;
+					ctx.printStatsNetworks();
+				}
+			}
+		} finally {
+			service.shutdownNow();
+		}
+	}
+
+	private void loadRegionRoads(NetworkCollectPointCtx ctx) throws IOException {
+		NetworkRouteRegion nrouteRegion = ctx.currentProcessingRegion;
+		ctx.reloadRoutingContext();
+		RouteRegion routeRegion = null;
+		for (RouteRegion rr : ctx.rctx.reverseMap.keySet()) {
+			if (rr.getFilePointer() == nrouteRegion.region.getFilePointer()
+					&& nrouteRegion.region.getName().equals(rr.getName())) {
+				routeRegion = rr;
+				break;
+			}
+		}
+		BinaryMapIndexReader reader = ctx.rctx.reverseMap.get(routeRegion);
+		logf("Region %s %s", nrouteRegion.region.getName(), new Date().toString());
+
+		List<RouteSubregion> regions = reader.searchRouteIndexTree(
+				BinaryMapIndexReader.buildSearchRequest(
+						MapUtils.get31TileNumberX(nrouteRegion.region.getLeftLongitude()),
+						MapUtils.get31TileNumberX(nrouteRegion.region.getRightLongitude()),
+						MapUtils.get31TileNumberY(nrouteRegion.region.getTopLatitude()),
+						MapUtils.get31TileNumberY(nrouteRegion.region.getBottomLatitude()), 16, null),
+				routeRegion.getSubregions());
+
+		final long estimatedRoads = 1 + routeRegion.getLength() / 150; // 5 000 / 1 MB - 1 per 200 Byte
+		RouteDataObjectProcessor proc = new RouteDataObjectProcessor(ctx, estimatedRoads);
+		reader.loadRouteIndexData(regions, proc);
+	}
+
 	private void processLongRoads(NetworkCollectPointCtx ctx) throws IOException, SQLException {
 		int size = ctx.longRoads.size();
 		if (size == 0) {
@@ -1184,6 +1262,30 @@ public class HHRoutingSubGraphCreator {
 			this.totalBorderPoints += borderPoints;
 
 		}
+
+		public void addStats(NetworkCollectStats s) {
+			TLongIntIterator bit = s.borderPntsCluster.iterator();
+			while (bit.hasNext()) {
+				bit.advance();
+				borderPntsCluster.adjustOrPutValue(bit.key(), bit.value(), bit.value());
+			}
+			addDistr(borderPntsDistr, s.borderPntsDistr);
+			addDistr(pntsDistr, s.pntsDistr);
+			addDistr(edgesDistr, s.edgesDistr);
+			edges += s.edges;
+			isolatedIslands += s.isolatedIslands;
+			toMergeIslands += s.toMergeIslands;
+			shortcuts += s.shortcuts;
+			totalBorderPoints += s.totalBorderPoints;
+		}
+
+		private static void addDistr(TIntIntHashMap distr, TIntIntHashMap add) {
+			TIntIntIterator it = add.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				distr.adjustOrPutValue(it.key(), it.value(), it.value());
+			}
+		}
 	}
 
 	private static class NetworkCollectPointCtx {
@@ -1203,8 +1305,13 @@ public class HHRoutingSubGraphCreator {
 		List<NetworkLongRoad> longRoads = new ArrayList<>();
 		TLongObjectHashMap<NetworkBorderPoint> networkPointToDbInd = new TLongObjectHashMap<>();
 		List<NetworkRouteRegion> validateIntersectionRegions = new ArrayList<>();
+		List<NetworkRouteRegion> regionsForRouting = new ArrayList<>();
+		double overlapBbox;
+		QuadRect updatedRect;
 
-
+		// region worker: clusters have local index till db ids are assigned by saveRegion
+		List<List<RouteSegmentBorderPoint>> pendingClusters;
+		TLongHashSet pendingNetworkPoints;
 
 		public NetworkCollectPointCtx(HHRoutingPrepareContext prepareContext, HHRoutingPreparationDB networkDB) throws IOException {
 			this.prepareContext = prepareContext;
@@ -1212,6 +1319,16 @@ public class HHRoutingSubGraphCreator {
 			this.networkDB = networkDB;
 		}
 
+		private NetworkCollectPointCtx(NetworkCollectPointCtx main) {
+			this.prepareContext = main.prepareContext;
+			this.networkDB = main.networkDB;
+			this.routeRegions = main.routeRegions;
+			this.networkPointToDbInd = main.networkPointToDbInd;
+			this.checkLongRoads = main.checkLongRoads;
+			this.pendingClusters = new ArrayList<>();
+			this.pendingNetworkPoints = new TLongHashSet();
+		}
+
 		public long getTotalPoints() {
 			long totalPoints = 0;
 			for (NetworkRouteRegion r : routeRegions) {
@@ -1221,7 +1338,7 @@ public class HHRoutingSubGraphCreator {
 		}
 
 		public int borderPointsSize() {
-			return networkPointToDbInd.size();
+			return networkPointToDbInd.size() + (pendingNetworkPoints == null ? 0 : pendingNetworkPoints.size());
 		}
 
 		public String globalVisitedMessage(long k) {
@@ -1255,13 +1372,44 @@ public class HHRoutingSubGraphCreator {
 		}
 
 		public void startRegionProcess(NetworkRouteRegion nrouteRegion, double overlapBbox) throws IOException, SQLException {
+			prepareRegionProcess(nrouteRegion, overlapBbox, true);
+			reloadRoutingContext();
+		}
+
+		/**
+		 * Worker is prepared on main thread, so visited vertices of intersecting regions are loaded from db here
+		 * and only read by worker.
+		 */
+		public NetworkCollectPointCtx prepareRegionWorker(NetworkRouteRegion nrouteRegion, double overlapBbox) throws SQLException {
+			NetworkCollectPointCtx worker = new NetworkCollectPointCtx(this);
+			worker.prepareRegionProcess(nrouteRegion, overlapBbox, false);
+			return worker;
+		}
+
+		public void unloadRegions(List<NetworkRouteRegion> processRegions) {
+			for (NetworkRouteRegion nr : routeRegions) {
+				boolean intersects = false;
+				for (NetworkRouteRegion p : processRegions) {
+					if (nr == p || nr.intersects(p, OVERLAP_FOR_VISITED)) {
+						intersects = true;
+						break;
+					}
+				}
+				if (!intersects) {
+					nr.unload();
+				}
+			}
+		}
+
+		private void prepareRegionProcess(NetworkRouteRegion nrouteRegion, double overlapBbox, boolean unload) throws SQLException {
+			this.overlapBbox = overlapBbox;
 			currentProcessingRegion = nrouteRegion;
 			currentProcessingRegion.visitedVertices = new TLongIntHashMap();
 			currentProcessingRegion.calcRect = null;
 			currentProcessingRegion.points = -1;
 			validateIntersectionRegions = new ArrayList<>();
 			allVerticesCache = new TLongObjectHashMap<>();
-			List<NetworkRouteRegion> regionsForRouting = new ArrayList<>();
+			regionsForRouting = new ArrayList<>();
 			for (NetworkRouteRegion nr : routeRegions) {
 				if (nr == nrouteRegion) {
 					continue;
@@ -1273,21 +1421,40 @@ public class HHRoutingSubGraphCreator {
 					regionsForRouting.add(nr);
 				} else if (nr.intersects(nrouteRegion, overlapBbox)) {
 					regionsForRouting.add(nr);
-				} else {
+				} else if (unload) {
 					nr.unload();
 				}
 			}
 			if (nrouteRegion.file != null) {
 				regionsForRouting.add(nrouteRegion);
 			}
+		}
+
+		public void reloadRoutingContext() throws IOException {
 			// force reload cause subregions could change on rerun
 			rctx = prepareContext.gcMemoryLimitToUnloadAll(rctx, regionsForRouting, true);
+		}
 
+		public void closeRoutingContext() throws IOException {
+			if (rctx != null) {
+				for (BinaryMapIndexReader r : rctx.map.keySet()) {
+					r.close();
+				}
+				rctx = null;
+			}
 		}
 
 		public void addCluster(NetworkIsland cluster) {
-			cluster.dbIndex = networkDB.prepareBorderPointsToInsert(currentProcessingRegion == null ? 0 : currentProcessingRegion.id,
-					cluster.borderVertices, networkPointToDbInd);
+			if (pendingClusters != null) {
+				cluster.dbIndex = pendingClusters.size();
+				pendingClusters.add(cluster.borderVertices);
+				for (RouteSegmentBorderPoint p : cluster.borderVertices) {
+					pendingNetworkPoints.add(p.unidirId);
+				}
+			} else {
+				cluster.dbIndex = networkDB.prepareBorderPointsToInsert(currentProcessingRegion == null ? 0 : currentProcessingRegion.id,
+						cluster.borderVertices, networkPointToDbInd);
+			}
 			lastClusterInd = cluster.dbIndex;
 			stats.addCluster(cluster);
 			if (cluster.visitedVertices.size() > TOTAL_MAX_POINTS * 1.5) {
@@ -1333,7 +1500,17 @@ public class HHRoutingSubGraphCreator {
 		}
 
 		public boolean finishRegionProcess(double overlapBbox) throws SQLException {
+			this.overlapBbox = overlapBbox;
+			if (!checkRegionBbox()) {
+				return false;
+			}
+			saveRegion(this);
+			return true;
+		}
+
+		public boolean checkRegionBbox() {
 			logf("Tiles " + rctx.calculationProgress.getInfo(null).get("tiles"));
+			updatedRect = null;
 			QuadRect c = currentProcessingRegion.getCalcBbox();
 			QuadRect r = currentProcessingRegion.rect;
 			if(c.left < r.left || c.top > r.top || c.bottom < r.bottom || c.right > r.right) {
@@ -1349,7 +1526,32 @@ public class HHRoutingSubGraphCreator {
 					System.err.println("BBOX is out of range for routing");
 					return false;
 				}
-				currentProcessingRegion.rect = n;
+				// applied on save, so regions of parallel workers are not changed
+				updatedRect = n;
+			}
+			return true;
+		}
+
+		public void saveRegion(NetworkCollectPointCtx worker) throws SQLException {
+			NetworkRouteRegion region = worker.currentProcessingRegion;
+			if (worker != this) {
+				// db ids are assigned in the same order as in sequential processing
+				int[] clusterIds = new int[worker.pendingClusters.size()];
+				for (int i = 0; i < clusterIds.length; i++) {
+					clusterIds[i] = networkDB.prepareBorderPointsToInsert(region.id, worker.pendingClusters.get(i),
+							networkPointToDbInd);
+					lastClusterInd = clusterIds[i];
+				}
+				region.visitedVertices.transformValues(v -> clusterIds[v]);
+				for (NetworkIsland cluster : worker.visualClusters) {
+					cluster.dbIndex = clusterIds[cluster.dbIndex];
+					visualClusters.add(cluster);
+				}
+				stats.addStats(worker.stats);
+				longRoads.addAll(worker.longRoads);
+			}
+			if (worker.updatedRect != null) {
+				region.rect = worker.updatedRect;
 			}
 			int ins = 0, tl = 0;
 			for (NetworkBorderPoint npnt : networkPointToDbInd.valueCollection()) {
@@ -1366,21 +1568,29 @@ public class HHRoutingSubGraphCreator {
 					tl++;
 				}
 			}
-			logf("Saving visited %,d points (%,d border points) from %s to db...", currentProcessingRegion.getPoints(), ins,
-					currentProcessingRegion.getName());
-			networkDB.insertProcessedRegion(currentProcessingRegion, networkPointToDbInd, longRoads);
+			logf("Saving visited %,d points (%,d border points) from %s to db...", region.getPoints(), ins,
+					region.getName());
+			networkDB.insertProcessedRegion(region, networkPointToDbInd, longRoads);
 			logf("     saved - total %,d points (%,d border points), ", getTotalPoints(), tl);
 
-			currentProcessingRegion.unload();
-			currentProcessingRegion = null;
-			return true;
+			region.unload();
+			worker.currentProcessingRegion = null;
+		}
 
+		public void discardRegion(NetworkCollectPointCtx worker) {
+			// visited vertices have local cluster index
+			worker.currentProcessingRegion.visitedVertices = null;
+			worker.currentProcessingRegion.points = 0;
+			worker.currentProcessingRegion = null;
 		}
 
 		public boolean testIfNetworkPoint(long pntId) {
 			if (networkPointToDbInd.contains(pntId)) {
 				return true;
 			}
+			if (pendingNetworkPoints != null && pendingNetworkPoints.contains(pntId)) {
+				return true;
+			}
 			return false;
 		}
 
@@ -1426,7 +1636,7 @@ public class HHRoutingSubGraphCreator {
 				for (int pos = 0; pos < object.getPointsLength() - 1; pos++) {
 					RouteSegmentPoint pntAround = new RouteSegmentPoint(object, pos, 0);
 					long mainPoint = calcUniDirRoutePointInternalId(pntAround);
-					if (ctx.testGlobalVisited(mainPoint) || ctx.networkPointToDbInd.containsKey(mainPoint)) {
+					if (ctx.testGlobalVisited(mainPoint) || ctx.testIfNetworkPoint(mainPoint)) {
 						// already existing cluster
 						continue;
 					}
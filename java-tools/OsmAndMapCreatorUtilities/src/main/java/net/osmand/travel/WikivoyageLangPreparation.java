@@ -436,7 +436,7 @@ public class WikivoyageLangPreparation {
 			this.dbBrowser = dbBrowser;
 			progress.startTask("Parse wikivoyage xml", progIS.available());
 			wikiVoyageConn = dialect.getDatabaseConnection(wikivoyageSqlite.getAbsolutePath(), log);
-			imageUrlStorage = new WikiImageUrlStorage(wikiVoyageConn, wikivoyageSqlite.getParent(), lang);
+			imageUrlStorage = new WikiImageUrlStorage(wikivoyageSqlite.getParent(), lang);
 			createInitialDbStructure(wikiVoyageConn, lang, uncompressed);
 			prepInsert = generateInsertPrep(wikiVoyageConn, uncompressed);
 			enPageInfos = readEnPageInfo(wikiVoyageConn);
@@ -512,6 +512,7 @@ public class WikivoyageLangPreparation {
 			prepInsert.close();
 			assignDefaultPartOfAndValidate();
 			wikiVoyageConn.close();
+			imageUrlStorage.close();
 			final Map<String, Integer> mp = WikiDatabasePreparation.POI_OTHER_TYPES;
 			List<String> keys = new ArrayList<>(mp.keySet());
 			Collections.sort(keys, new Comparator<String>() {
@@ -0,0 +1,162 @@
+package net.osmand.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map with least recently used eviction bounded by weight of entries (usually estimated bytes) and
+ * optionally by number of entries. Weight of entry is computed on put and could be updated by
+ * {@link #reweigh(Object)} when value changes its size. All methods are synchronized on the map,
+ * so compound operations of caller could synchronize on it too.
+ */
+public class BoundedLruMap<K, V> {
+
+	// -1 no limit
+	private final long maxWeight;
+	private final int maxEntries;
+	// most recent entries are never evicted, so just put oversized value is still available
+	private final int keepEntries;
+	private final Weigher<K, V> weigher;
+	private EvictionListener<K, V> evictionListener;
+
+	private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(256, 0.75f, true);
+	private long weight;
+	private long evictions;
+
+	public interface Weigher<K, V> {
+		long weigh(K key, V value);
+	}
+
+	public interface EvictionListener<K, V> {
+		void evicted(K key, V value);
+	}
+
+	private static class Entry<V> {
+		final V value;
+		long weight;
+
+		Entry(V value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	public BoundedLruMap(long maxWeight, Weigher<K, V> weigher) {
+		this(maxWeight, -1, 0, weigher);
+	}
+
+	public BoundedLruMap(long maxWeight, int maxEntries, int keepEntries, Weigher<K, V> weigher) {
+		this.maxWeight = maxWeight;
+		this.maxEntries = maxEntries;
+		this.keepEntries = keepEntries;
+		this.weigher = weigher;
+	}
+
+	/**
+	 * Listener is called under lock of the map
+	 */
+	public synchronized BoundedLruMap<K, V> setEvictionListener(EvictionListener<K, V> evictionListener) {
+		this.evictionListener = evictionListener;
+		return this;
+	}
+
+	/**
+	 * @return value and marks it as most recently used
+	 */
+	public synchronized V get(K key) {
+		Entry<V> e = map.get(key);
+		return e == null ? null : e.value;
+	}
+
+	/**
+	 * Doesn't change access order
+	 */
+	public synchronized boolean containsKey(K key) {
+		return map.containsKey(key);
+	}
+
+	/**
+	 * @return previous value
+	 */
+	public synchronized V put(K key, V value) {
+		Entry<V> e = new Entry<>(value, weigher.weigh(key, value));
+		Entry<V> previous = map.put(key, e);
+		if (previous != null) {
+			weight -= previous.weight;
+		}
+		weight += e.weight;
+		evict();
+		return previous == null ? null : previous.value;
+	}
+
+	public synchronized V remove(K key) {
+		Entry<V> e = map.remove(key);
+		if (e == null) {
+			return null;
+		}
+		weight -= e.weight;
+		return e.value;
+	}
+
+	public synchronized void clear() {
+		map.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Updates weight of entry when value has changed its size
+	 */
+	public synchronized void reweigh(K key) {
+		Entry<V> e = map.get(key);
+		if (e != null) {
+			long w = weigher.weigh(key, e.value);
+			weight += w - e.weight;
+			e.weight = w;
+			evict();
+		}
+	}
+
+	/**
+	 * Updates weight of all entries, values could change size outside of the map
+	 */
+	public synchronized void reweighAll() {
+		long total = 0;
+		for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+			e.getValue().weight = weigher.weigh(e.getKey(), e.getValue().value);
+			total += e.getValue().weight;
+		}
+		weight = total;
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+		while (map.size() > keepEntries && it.hasNext() && ((maxWeight != -1 && weight > maxWeight)
+				|| (maxEntries != -1 && map.size() > maxEntries))) {
+			Map.Entry<K, Entry<V>> eldest = it.next();
+			it.remove();
+			weight -= eldest.getValue().weight;
+			evictions++;
+			if (evictionListener != null) {
+				evictionListener.evicted(eldest.getKey(), eldest.getValue().value);
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return map.size();
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+}
@@ -86,7 +86,6 @@ public class IndexUploader {
 	protected static final Log log = PlatformUtil.getLog(IndexUploader.class);
 	private final static double MIN_SIZE_TO_UPLOAD = 0.001d;
 
-	private final static int BUFFER_SIZE = 1 << 15;
 	private final static int MB = 1 << 20;
 	
 	public static final int MAX_FILES_BEFORE_CLEANUP = 200; 
@@ -560,7 +559,6 @@ public class IndexUploader {
 			}
 
 		});
-		byte[] BUFFER_TO_READ = new byte[BUFFER_SIZE];
 		ous.writeInt32(OsmandOdb.OsmAndStructure.VERSION_FIELD_NUMBER, index.getVersion());
 		ous.writeInt64(OsmandOdb.OsmAndStructure.DATECREATED_FIELD_NUMBER, index.getDateCreated());
 
@@ -573,7 +571,7 @@ public class IndexUploader {
 			} 
 			ous.writeTag(part.getFieldNumber(), WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
 			BinaryMerger.writeInt(ous, part.getLength());
-			BinaryMerger.copyBinaryPart(ous, BUFFER_TO_READ, raf, part.getFilePointer(), part.getLength());
+			BinaryMerger.copyBinaryPart(ous, routf.getChannel(), raf, part.getFilePointer(), part.getLength());
 		}
 
 		ous.writeInt32(OsmandOdb.OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, index.getVersion());
@@ -595,7 +593,7 @@ public class IndexUploader {
 				}
 				ous.writeTag(OsmandOdb.OsmAndMapIndex.LEVELS_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
 				BinaryMerger.writeInt(ous, r.getLength());
-				BinaryMerger.copyBinaryPart(ous, new byte[BUFFER_SIZE], raf, r.getFilePointer(), r.getLength());
+				BinaryMerger.copyBinaryPart(ous, routf.getChannel(), raf, r.getFilePointer(), r.getLength());
 				continue;
 			}
 			final TLongObjectHashMap<BinaryMapDataObject> objects = new TLongObjectHashMap<BinaryMapDataObject>();
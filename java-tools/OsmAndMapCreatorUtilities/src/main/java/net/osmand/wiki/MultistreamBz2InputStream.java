@@ -0,0 +1,166 @@
+package net.osmand.wiki;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+import gnu.trove.list.array.TLongArrayList;
+import net.osmand.util.Algorithms;
+
+/**
+ * Reads wikipedia multistream bz2 dump (pages-articles-multistream.xml.bz2) decompressing bz2 streams in parallel.
+ * Index file (lines offset:pageId:title) gives offsets of streams, each stream is read sequentially from compressed
+ * input and decompressed by pool, decompressed streams are returned in order of the file.
+ */
+public class MultistreamBz2InputStream extends InputStream {
+
+	private static final int READ_AHEAD_PER_THREAD = 4;
+
+	private final InputStream compressed;
+	private final TLongArrayList offsets;
+	private final ExecutorService service;
+	private final int readAhead;
+	private final ArrayDeque<Future<byte[]>> blocks = new ArrayDeque<>();
+	private int nextBlock = 0;
+	private long position = 0;
+	private byte[] current = new byte[0];
+	private int currentPos = 0;
+
+	/**
+	 * @param compressed stream of multistream dump from the beginning
+	 * @param length length of dump file
+	 */
+	public MultistreamBz2InputStream(InputStream compressed, long length, File indexFile, int threads)
+			throws IOException {
+		this.compressed = compressed;
+		this.offsets = readStreamOffsets(indexFile, length);
+		this.service = Executors.newFixedThreadPool(threads);
+		this.readAhead = threads * READ_AHEAD_PER_THREAD;
+	}
+
+	/**
+	 * @return sorted offsets of all bz2 streams including 0 (header stream) and file length as the last element
+	 */
+	public static TLongArrayList readStreamOffsets(File indexFile, long length) throws IOException {
+		TLongArrayList offsets = new TLongArrayList();
+		offsets.add(0);
+		try (BufferedReader r = new BufferedReader(new InputStreamReader(
+				new BZip2CompressorInputStream(new FileInputStream(indexFile), true), StandardCharsets.UTF_8))) {
+			String s;
+			while ((s = r.readLine()) != null) {
+				int i = s.indexOf(':');
+				if (i <= 0) {
+					continue;
+				}
+				long offset = Long.parseLong(s.substring(0, i));
+				// ~100 pages share the same stream
+				if (offset > offsets.get(offsets.size() - 1)) {
+					offsets.add(offset);
+				} else if (offset < offsets.get(offsets.size() - 1)) {
+					throw new IOException("Multistream index is not sorted: " + s);
+				}
+			}
+		}
+		if (length <= offsets.get(offsets.size() - 1)) {
+			throw new IOException("Multistream index doesn't match dump length " + length);
+		}
+		offsets.add(length);
+		return offsets;
+	}
+
+	private void fillReadAhead() throws IOException {
+		while (blocks.size() < readAhead && nextBlock < offsets.size() - 1) {
+			long start = offsets.get(nextBlock);
+			long end = offsets.get(nextBlock + 1);
+			nextBlock++;
+			while (position < start) {
+				long skipped = compressed.skip(start - position);
+				if (skipped <= 0) {
+					throw new EOFException("Unexpected end of multistream dump");
+				}
+				position += skipped;
+			}
+			byte[] block = new byte[(int) (end - start)];
+			int read = 0;
+			while (read < block.length) {
+				int r = compressed.read(block, read, block.length - read);
+				if (r < 0) {
+					throw new EOFException("Unexpected end of multistream dump");
+				}
+				read += r;
+			}
+			position = end;
+			blocks.add(service.submit(() -> decompress(block)));
+		}
+	}
+
+	private static byte[] decompress(byte[] block) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(block.length * 5);
+		try (InputStream in = new BZip2CompressorInputStream(new ByteArrayInputStream(block), true)) {
+			Algorithms.streamCopy(in, out);
+		}
+		return out.toByteArray();
+	}
+
+	private boolean nextBlock() throws IOException {
+		while (currentPos >= current.length) {
+			fillReadAhead();
+			Future<byte[]> f = blocks.poll();
+			if (f == null) {
+				return false;
+			}
+			try {
+				current = f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+			currentPos = 0;
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextBlock()) {
+			return -1;
+		}
+		return current[currentPos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextBlock()) {
+			return -1;
+		}
+		int n = Math.min(len, current.length - currentPos);
+		System.arraycopy(current, currentPos, b, off, n);
+		currentPos += n;
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+		service.shutdownNow();
+		compressed.close();
+	}
+}
@@ -21,6 +21,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -32,6 +33,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -79,6 +85,8 @@ public class WikiDatabasePreparation {
 	public static final String WIKIDATA_MAPPING_SQLITE = "wikidata_mapping.sqlitedb";
 	public static final String WIKIDATA_ARTICLES_GZ = "wikidatawiki-latest-pages-articles.xml.gz";
 	public static final String WIKI_ARTICLES_GZ = "wiki-latest-pages-articles.xml.gz";
+	public static final String WIKI_ARTICLES_MULTISTREAM_BZ2 = "wiki-latest-pages-articles-multistream.xml.bz2";
+	public static final String WIKI_ARTICLES_MULTISTREAM_INDEX_BZ2 = "wiki-latest-pages-articles-multistream-index.txt.bz2";
 	public static final String OSM_WIKI_FILE_PREFIX = "osm_wiki_";
 
 	private static final int OPTIMAL_SHORT_DESCR = 250;
@@ -970,7 +978,7 @@ public class WikiDatabasePreparation {
 		return value;
 	}
 
-	public static Map<String, Integer> POI_OTHER_TYPES = new HashMap<>();
+	public static Map<String, Integer> POI_OTHER_TYPES = new ConcurrentHashMap<>();
 
 	private static PoiFieldCategory transformCategory(String[] info) {
 		// {{listing | type=go}
@@ -999,8 +1007,7 @@ public class WikiDatabasePreparation {
 					if (res != PoiFieldCategory.OTHER) {
 						return res;
 					}
-					Integer it = POI_OTHER_TYPES.get(val);
-					POI_OTHER_TYPES.put(val, it == null ? 1 : it.intValue() + 1);
+					POI_OTHER_TYPES.merge(val, 1, Integer::sum);
 				}
 			}
 		}
@@ -1161,6 +1168,7 @@ public class WikiDatabasePreparation {
 		String resultDB = "";
 		String wikipediaSqliteName = "";
 		String wikidataSqliteName = "";
+		int threads = Runtime.getRuntime().availableProcessors();
 
 		for (String arg : args) {
 			String val = arg.substring(arg.indexOf("=") + 1);
@@ -1175,6 +1183,8 @@ public class WikiDatabasePreparation {
 				testArticleID = Long.parseLong(val);
 			} else if (arg.startsWith("--result_db=")) {
 				resultDB = val;
+			} else if (arg.startsWith("--threads=")) {
+				threads = Integer.parseInt(val);
 			}
 		}
 
@@ -1252,10 +1262,10 @@ public class WikiDatabasePreparation {
 			break;
 		case "process-wikipedia":
 			log.info("Processing wikipedia...");
-			processWikipedia(wikipediaFolder, wikipediaSqliteName, lang, 0);
+			processWikipedia(wikipediaFolder, wikipediaSqliteName, lang, 0, threads);
 			break;
 		case "test-wikipedia":
-			processWikipedia(wikipediaFolder, wikipediaSqliteName, lang, testArticleID);
+			processWikipedia(wikipediaFolder, wikipediaSqliteName, lang, testArticleID, threads);
 			break;
 		case "test-wikidata":
 			wikidataDB = new File(wikidataSqliteName + ".test");
@@ -1466,16 +1476,32 @@ public class WikiDatabasePreparation {
 	}
 
 	public static void processWikipedia(final String wikipediaFolder, final String wikipediaSqliteFileName, String lang,
-			long testArticleId) throws ParserConfigurationException, SAXException, IOException, SQLException {
+			long testArticleId, int threads) throws ParserConfigurationException, SAXException, IOException, SQLException {
 		File wikipediaSqlite = new File(wikipediaSqliteFileName);
-		String wikiFile = wikipediaFolder + lang + WIKI_ARTICLES_GZ;
+		File multistreamFile = new File(wikipediaFolder + lang + WIKI_ARTICLES_MULTISTREAM_BZ2);
+		File multistreamIndex = new File(wikipediaFolder + lang + WIKI_ARTICLES_MULTISTREAM_INDEX_BZ2);
+		boolean multistream = multistreamFile.exists() && multistreamIndex.exists();
+		File wikiFile = multistream ? multistreamFile : new File(wikipediaFolder + lang + WIKI_ARTICLES_GZ);
 		SAXParser sx = SAXParserFactory.newInstance().newSAXParser();
-		FileProgressImplementation progress = new FileProgressImplementation("Read wikipedia file", new File(wikiFile));
+		FileProgressImplementation progress = new FileProgressImplementation("Read wikipedia file", wikiFile);
 		InputStream streamFile = progress.openFileInputStream();
-		InputSource is = getInputSource(streamFile);
-		final WikipediaHandler handler = new WikipediaHandler(sx, progress, lang, wikipediaSqlite, testArticleId);
-		sx.parse(is, handler);
-		handler.finish();
+		InputSource is;
+		if (multistream) {
+			log.info("Read multistream dump " + wikiFile.getName());
+			streamFile = new MultistreamBz2InputStream(streamFile, wikiFile.length(), multistreamIndex, threads);
+			is = new InputSource(new InputStreamReader(streamFile, "UTF-8"));
+			is.setEncoding("UTF-8");
+		} else {
+			is = getInputSource(streamFile);
+		}
+		final WikipediaHandler handler = new WikipediaHandler(sx, progress, lang, wikipediaSqlite, testArticleId, threads);
+		try {
+			sx.parse(is, handler);
+			handler.finish();
+		} finally {
+			handler.shutdown();
+			streamFile.close();
+		}
 	}
 
 	public static void processWikidata(File wikidataSqlite, final String wikidataFile,
@@ -1530,16 +1556,23 @@ public class WikiDatabasePreparation {
 		private final static int BATCH_SIZE = 1000;
 		private static final long ARTICLES_BATCH = 1000;
 
-		final ByteArrayOutputStream bous = new ByteArrayOutputStream(64000);
+		private static final int PENDING_PER_THREAD = 64;
+
 		private String lang;
 		private FileProgressImplementation progIS;
 		private long cid;
+		// articles are rendered by pool and written in order of dump by parser thread
+		private final ExecutorService service;
+		private final ArrayDeque<Future<WikipediaArticle>> articles = new ArrayDeque<>();
+		private final int maxPending;
 
 		WikipediaHandler(SAXParser saxParser, FileProgressImplementation progIS, String lang, File wikipediaSqlite,
-				long testArticleId) throws SQLException {
+				long testArticleId, int threads) throws SQLException {
 			this.lang = lang;
 			this.saxParser = saxParser;
 			this.progIS = progIS;
+			this.service = Executors.newFixedThreadPool(threads);
+			this.maxPending = threads * PENDING_PER_THREAD;
 			conn = dialect.getDatabaseConnection(wikipediaSqlite.getAbsolutePath(), log);
 			log.info("Prepare wiki_content table");
 			conn.createStatement().execute(
@@ -1552,7 +1585,7 @@ public class WikiDatabasePreparation {
 					"INSERT INTO wiki_content(id, title, lang, shortDescription, redirect, zipContent) VALUES (?, ?, ?, ?, ?, ?)");
 			selectPrep = conn.prepareStatement(
 					"SELECT id FROM wiki_mapping WHERE wiki_mapping.title = ? AND wiki_mapping.lang = ?");
-			imageUrlStorage = new WikiImageUrlStorage(conn, wikipediaSqlite.getParent(), lang);
+			imageUrlStorage = new WikiImageUrlStorage(wikipediaSqlite.getParent(), lang);
 			log.info("Tables are prepared");
 		}
 
@@ -1564,7 +1597,8 @@ public class WikiDatabasePreparation {
 			}
 		}
 
-		public void finish() throws SQLException {
+		public void finish() throws SQLException, IOException {
+			writeArticles(true);
 			insertPrep.executeBatch();
 			if (!conn.getAutoCommit()) {
 				conn.commit();
@@ -1572,12 +1606,47 @@ public class WikiDatabasePreparation {
 			selectPrep.close();
 			insertPrep.close();
 			conn.close();
+			imageUrlStorage.close();
+		}
+
+		public void shutdown() {
+			service.shutdownNow();
 		}
 
 		public int getCount() {
 			return (int) (counter - 1);
 		}
 
+		private void writeArticles(boolean all) throws SQLException, IOException {
+			while (!articles.isEmpty() && (all || articles.size() >= maxPending || articles.peek().isDone())) {
+				WikipediaArticle article;
+				try {
+					article = articles.poll().get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException(e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof SQLException) {
+						throw (SQLException) e.getCause();
+					}
+					throw new IOException(e.getCause());
+				}
+				if (article == null) {
+					continue;
+				}
+				if (++counter % ARTICLES_BATCH == 0) {
+					log.info("Article accepted " + article.cid + " " + article.title);
+				}
+				insertPrep.setLong(1, article.wikiId);
+				insertPrep.setString(2, article.title);
+				insertPrep.setString(3, lang);
+				insertPrep.setString(4, article.shortDescr);
+				insertPrep.setString(5, article.redirect);
+				insertPrep.setBytes(6, article.zipContent);
+				addBatch();
+			}
+		}
+
 		@Override
 		public void startElement(String uri, String localName, String qName, Attributes attributes) {
 			String name = saxParser.isNamespaceAware() ? localName : qName;
@@ -1630,8 +1699,6 @@ public class WikiDatabasePreparation {
 						cid = Long.parseLong(pageId.toString());
 					} else if (name.equals("text")) {
 						long wikiId = 0;
-						String plainStr = null;
-						String shortDescr = null;
 						if (namespace == 0) {
 							selectPrep.setString(1, title.toString());
 							selectPrep.setString(2, lang);
@@ -1643,38 +1710,14 @@ public class WikiDatabasePreparation {
 							selectPrep.clearParameters();
 						}
 						if (wikiId != 0) {
-							try {
-								CustomWikiModel wikiModel = new CustomWikiModel(
-										"https://" + lang + ".wikipedia.org/wiki/${image}",
-										"https://" + lang + ".wikipedia.org/wiki/${title}", imageUrlStorage, true);
-								String rawWikiText = removeMacroBlocks(ctext, null, new HashMap<>(), null, lang,
-										title.toString(), null, null);
-								plainStr = generateHtmlArticle(rawWikiText, wikiModel);
-								shortDescr = getShortDescr(rawWikiText, wikiModel);
-							} catch (RuntimeException e) {
-								log.error(String.format("Error with article %d - %s : %s", cid, title, e.getMessage()), e);
-							}
-						}
-						if (plainStr != null) {
-							String redirect = getRedirect(ctext);
-							if (++counter % ARTICLES_BATCH == 0) {
-								log.info("Article accepted " + cid + " " + title.toString());
-//								double GB = (1l << 30);
-//								log.info(String.format("Memory used : free %.2f GB of %.2f GB",
-//										Runtime.getRuntime().freeMemory() / GB, Runtime.getRuntime().totalMemory() / GB));
-							}
-							try {
-								insertPrep.setLong(1, wikiId);
-								insertPrep.setString(2, title.toString());
-								insertPrep.setString(3, lang);
-								insertPrep.setString(4, shortDescr);
-								insertPrep.setString(5, redirect);
-								insertPrep.setBytes(6, gzip(plainStr));
-								addBatch();
-							} catch (SQLException e) {
-								throw new SAXException(e);
-							}
+							final long articleId = wikiId;
+							final long articleCid = cid;
+							final String articleTitle = title.toString();
+							final StringBuilder articleText = new StringBuilder(ctext);
+							articles.add(service.submit(
+									() -> renderArticle(articleId, articleCid, articleTitle, articleText)));
 						}
+						writeArticles(false);
 						ctext = null;
 					}
 				}
@@ -1683,8 +1726,36 @@ public class WikiDatabasePreparation {
 			}
 		}
 
-		private byte[] gzip(String plainStr) throws IOException, UnsupportedEncodingException {
-			bous.reset();
+		private WikipediaArticle renderArticle(long wikiId, long cid, String title, StringBuilder ctext)
+				throws IOException, SQLException {
+			String plainStr = null;
+			String shortDescr = null;
+			try {
+				CustomWikiModel wikiModel = new CustomWikiModel(
+						"https://" + lang + ".wikipedia.org/wiki/${image}",
+						"https://" + lang + ".wikipedia.org/wiki/${title}", imageUrlStorage, true);
+				String rawWikiText = removeMacroBlocks(ctext, null, new HashMap<>(), null, lang,
+						title, null, null);
+				plainStr = generateHtmlArticle(rawWikiText, wikiModel);
+				shortDescr = getShortDescr(rawWikiText, wikiModel);
+			} catch (RuntimeException e) {
+				log.error(String.format("Error with article %d - %s : %s", cid, title, e.getMessage()), e);
+			}
+			if (plainStr == null) {
+				return null;
+			}
+			WikipediaArticle article = new WikipediaArticle();
+			article.wikiId = wikiId;
+			article.cid = cid;
+			article.title = title;
+			article.shortDescr = shortDescr;
+			article.redirect = getRedirect(ctext);
+			article.zipContent = gzip(plainStr);
+			return article;
+		}
+
+		private static byte[] gzip(String plainStr) throws IOException, UnsupportedEncodingException {
+			ByteArrayOutputStream bous = new ByteArrayOutputStream(64000);
 			GZIPOutputStream gzout = new GZIPOutputStream(bous);
 			gzout.write((plainStr == null ? "" : plainStr).getBytes("UTF-8"));
 			gzout.close();
@@ -1692,6 +1763,15 @@ public class WikiDatabasePreparation {
 		}
 	}
 
+	private static class WikipediaArticle {
+		long wikiId;
+		long cid;
+		String title;
+		String shortDescr;
+		String redirect;
+		byte[] zipContent;
+	}
+
 	public static String getShortDescr(String rawWikiText, CustomWikiModel wikiModel) throws IOException {
 		final PlainTextConverter converter = new PlainTextConverter(false);
 		// clean up photos links [[.... ]] in the beginning only!
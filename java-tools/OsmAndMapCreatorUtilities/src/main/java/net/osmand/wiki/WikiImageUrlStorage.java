@@ -1,8 +1,11 @@
 package net.osmand.wiki;
 
+import net.osmand.PlatformUtil;
+import net.osmand.obf.preparation.DBDialect;
 import net.osmand.util.Algorithms;
 import net.osmand.util.SqlInsertValuesReader;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.logging.Log;
 
 import java.io.*;
 import java.sql.Connection;
@@ -18,10 +21,17 @@ public class WikiImageUrlStorage {
 	public static final int WIDTH = 2;
 	public static final String LOCALIZED_WIKIPEDIA = "https://upload.wikimedia.org/wikipedia/";
 	public static final String LATEST_IMAGE_SQL_DUMP = "wiki-latest-image.sql.gz";
+	public static final String IMAGE_SQLITE = "wiki-image.sqlite";
+	private static final Log log = PlatformUtil.getLog(WikiImageUrlStorage.class);
+	// own connection: articles are rendered on worker threads while parser thread writes to article db
+	private final Connection conn;
 	private final PreparedStatement urlSelectStat;
 	private final PreparedStatement urlInsertStat;
 
-	public WikiImageUrlStorage(Connection conn, String workDir, String lang) throws SQLException {
+	public WikiImageUrlStorage(String workDir, String lang) throws SQLException {
+		File imageSqlite = new File(workDir, lang + IMAGE_SQLITE);
+		imageSqlite.delete();
+		conn = DBDialect.SQLITE.getDatabaseConnection(imageSqlite.getAbsolutePath(), log);
 		conn.createStatement().execute("DROP TABLE IF EXISTS image");
 		conn.createStatement().execute("CREATE TABLE IF NOT EXISTS image(name text unique, thumb_url text)");
 		urlSelectStat = conn.prepareStatement("SELECT thumb_url FROM image where name = ? ");
@@ -49,12 +59,12 @@ public class WikiImageUrlStorage {
 		}
 	}
 
-	public String getThumbUrl(String imageFileName) {
+	public synchronized String getThumbUrl(String imageFileName) {
 		imageFileName = Algorithms.capitalizeFirstLetter(imageFileName.trim());
 		String url = "";
 		try {
 			urlSelectStat.setString(NAME, imageFileName);
-			ResultSet rs = urlSelectStat.executeQuery(); {
+			try (ResultSet rs = urlSelectStat.executeQuery()) {
 				if (rs.next()) {
 					url = rs.getString(THUMB_URL_SELECT);
 				}
@@ -64,4 +74,10 @@ public class WikiImageUrlStorage {
 		}
 		return url;
 	}
+
+	public synchronized void close() throws SQLException {
+		urlSelectStat.close();
+		urlInsertStat.close();
+		conn.close();
+	}
 }
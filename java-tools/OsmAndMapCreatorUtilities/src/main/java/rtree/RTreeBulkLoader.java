@@ -0,0 +1,437 @@
+package rtree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Builds packed rtree file directly from leaf rectangles with Sort-Tile-Recursive algorithm
+ * (same layout as {@link Pack}) without intermediate non packed rtree.
+ * <p>
+ * Rectangles are buffered and spilled to temp files as runs sorted by x center, runs are merged
+ * while cutting vertical slices, each slice is sorted by y center and written as full leaf nodes
+ * sequentially. Upper levels (1/{@link Node#MAX} of leaves) are packed in memory.
+ * <p>
+ * Loader is not thread safe, rtree file must not be opened before {@link #build(String)}.
+ */
+public class RTreeBulkLoader implements Closeable {
+
+	public static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+	private static final int X = 0;
+	private static final int Y = 1;
+	// sort key is (center sum + offset) << IDX_BITS | index, center sum takes 33 bits
+	private static final int IDX_BITS = 30;
+	private static final long CENTER_OFFSET = 1L << 32;
+	private static final int ELEMENT_SIZE = 4 * Node.INTEGER_SIZE + Node.LONG_SIZE;
+	private static final int IO_BUFFER = 1 << 16;
+
+	private final String tempFilePrefix;
+	private final int runSize;
+	private final List<File> runs = new ArrayList<>();
+	private Rects buffer = new Rects(1024);
+	private long size;
+
+	// output state
+	private DataOutputStream out;
+	private int totalNodes;
+	private int[] parents;
+	private final byte[] zeros = new byte[Node.NODE_SIZE];
+
+	public RTreeBulkLoader(String tempFilePrefix) {
+		this(tempFilePrefix, DEFAULT_RUN_SIZE);
+	}
+
+	public RTreeBulkLoader(String tempFilePrefix, int runSize) {
+		if (runSize < Node.MAX || runSize >= 1 << IDX_BITS) {
+			throw new IllegalArgumentException("Run size " + runSize);
+		}
+		this.tempFilePrefix = tempFilePrefix;
+		this.runSize = runSize;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public void insert(int minX, int minY, int maxX, int maxY, long id) throws IOException {
+		if (buffer.size == runSize) {
+			spillRun();
+		}
+		buffer.add(minX, minY, maxX, maxY, id);
+		size++;
+	}
+
+	public void insert(Rect r, long id) throws IOException {
+		insert(r.getMinX(), r.getMinY(), r.getMaxX(), r.getMaxY(), id);
+	}
+
+	/**
+	 * Writes packed rtree to file (file is overwritten) and opens it.
+	 * Temporary runs are deleted and loader can't be used after.
+	 */
+	public RTree build(String fileName) throws IOException {
+		File file = new File(fileName);
+		if (file.exists()) {
+			file.delete();
+		}
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER));
+			out.write(zeros, 0, Node.FILE_HDR_SIZE);
+			totalNodes = 0;
+			parents = new int[1024];
+			if (size <= Node.MAX) {
+				buffer.sort(0, buffer.size, X);
+				writeNode(buffer, 0, buffer.size, Node.LEAF_NODE);
+			} else {
+				Rects level = writeLeaves();
+				while (level.size > 1) {
+					level.sort(0, level.size, X);
+					level = writeLevel(level);
+				}
+			}
+			out.close();
+			out = null;
+			writeHeaderAndParents(file);
+		} finally {
+			close();
+		}
+		try {
+			return new RTree(fileName);
+		} catch (RTreeException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private Rects writeLeaves() throws IOException {
+		long leaves = (size + Node.MAX - 1) / Node.MAX;
+		int sliceSize = (int) Math.ceil(Math.sqrt(leaves)) * Node.MAX;
+		Rects parentLevel = new Rects((int) leaves);
+		Rects slice = new Rects(sliceSize);
+		RunStream sorted = openSortedStream();
+		try {
+			while (sorted.next()) {
+				slice.add(sorted.minX, sorted.minY, sorted.maxX, sorted.maxY, sorted.ptr);
+				if (slice.size == sliceSize) {
+					writeSlice(slice, Node.LEAF_NODE, parentLevel);
+				}
+			}
+			if (slice.size > 0) {
+				writeSlice(slice, Node.LEAF_NODE, parentLevel);
+			}
+		} finally {
+			sorted.close();
+		}
+		return parentLevel;
+	}
+
+	private Rects writeLevel(Rects children) throws IOException {
+		int nodes = (children.size + Node.MAX - 1) / Node.MAX;
+		int sliceSize = (int) Math.ceil(Math.sqrt(nodes)) * Node.MAX;
+		Rects parentLevel = new Rects(nodes);
+		Rects slice = new Rects(Math.min(sliceSize, children.size));
+		for (int start = 0; start < children.size; start += sliceSize) {
+			int end = Math.min(children.size, start + sliceSize);
+			slice.size = 0;
+			for (int i = start; i < end; i++) {
+				slice.add(children.minX[i], children.minY[i], children.maxX[i], children.maxY[i], children.ptr[i]);
+			}
+			writeSlice(slice, Node.NONLEAF_NODE, parentLevel);
+		}
+		return parentLevel;
+	}
+
+	private void writeSlice(Rects slice, int elementType, Rects parentLevel) throws IOException {
+		slice.sort(0, slice.size, Y);
+		for (int start = 0; start < slice.size; start += Node.MAX) {
+			int end = Math.min(slice.size, start + Node.MAX);
+			int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+			int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+			for (int i = start; i < end; i++) {
+				minX = Math.min(minX, slice.minX[i]);
+				minY = Math.min(minY, slice.minY[i]);
+				maxX = Math.max(maxX, slice.maxX[i]);
+				maxY = Math.max(maxY, slice.maxY[i]);
+			}
+			int nodeIndex = writeNode(slice, start, end, elementType);
+			parentLevel.add(minX, minY, maxX, maxY, nodeIndex);
+		}
+		slice.size = 0;
+	}
+
+	private int writeNode(Rects elements, int start, int end, int elementType) throws IOException {
+		int nodeIndex = totalNodes++;
+		if (parents.length < totalNodes) {
+			parents = Arrays.copyOf(parents, parents.length * 2);
+		}
+		parents[nodeIndex] = Node.NOT_DEFINED;
+		out.writeInt(end - start);
+		out.writeLong(Node.NOT_DEFINED);
+		out.writeInt(ELEMENT_SIZE);
+		out.writeInt(elementType);
+		for (int i = start; i < end; i++) {
+			out.writeInt(elements.minX[i]);
+			out.writeInt(elements.minY[i]);
+			out.writeInt(elements.maxX[i]);
+			out.writeInt(elements.maxY[i]);
+			out.writeLong(elements.ptr[i]);
+			if (elementType == Node.NONLEAF_NODE) {
+				parents[(int) elements.ptr[i]] = nodeIndex;
+			}
+		}
+		out.write(zeros, 0, Node.NODE_SIZE - Node.NODE_HDR_SIZE - (end - start) * ELEMENT_SIZE);
+		return nodeIndex;
+	}
+
+	private void writeHeaderAndParents(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(0);
+			raf.writeInt(totalNodes);
+			// root is written last
+			raf.writeLong(totalNodes - 1);
+			// empty free nodes stack
+			raf.writeInt(Node.NOT_DEFINED);
+			for (int i = 0; i < totalNodes; i++) {
+				if (parents[i] != Node.NOT_DEFINED) {
+					raf.seek(Node.FILE_HDR_SIZE + (long) i * Node.NODE_SIZE + Node.INTEGER_SIZE);
+					raf.writeLong(parents[i]);
+				}
+			}
+		}
+	}
+
+	private void spillRun() throws IOException {
+		buffer.sort(0, buffer.size, X);
+		File run = new File(tempFilePrefix + ".run" + runs.size());
+		runs.add(run);
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), IO_BUFFER))) {
+			for (int i = 0; i < buffer.size; i++) {
+				dos.writeInt(buffer.minX[i]);
+				dos.writeInt(buffer.minY[i]);
+				dos.writeInt(buffer.maxX[i]);
+				dos.writeInt(buffer.maxY[i]);
+				dos.writeLong(buffer.ptr[i]);
+			}
+		}
+		buffer.size = 0;
+	}
+
+	private RunStream openSortedStream() throws IOException {
+		if (runs.isEmpty()) {
+			buffer.sort(0, buffer.size, X);
+			return new MemoryRun(buffer, 0);
+		}
+		if (buffer.size > 0) {
+			spillRun();
+		}
+		buffer = new Rects(0);
+		List<RunStream> streams = new ArrayList<>();
+		for (int i = 0; i < runs.size(); i++) {
+			streams.add(new FileRun(runs.get(i), i));
+		}
+		return new MergedRuns(streams);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+		}
+		for (File run : runs) {
+			run.delete();
+		}
+		runs.clear();
+		buffer = new Rects(0);
+		parents = null;
+	}
+
+	private static long center(int min, int max) {
+		return (long) min + max;
+	}
+
+	private static class Rects {
+		int[] minX;
+		int[] minY;
+		int[] maxX;
+		int[] maxY;
+		long[] ptr;
+		int size;
+
+		Rects(int capacity) {
+			minX = new int[capacity];
+			minY = new int[capacity];
+			maxX = new int[capacity];
+			maxY = new int[capacity];
+			ptr = new long[capacity];
+		}
+
+		void add(int x1, int y1, int x2, int y2, long p) {
+			if (size == ptr.length) {
+				int capacity = Math.max(16, size * 2);
+				minX = Arrays.copyOf(minX, capacity);
+				minY = Arrays.copyOf(minY, capacity);
+				maxX = Arrays.copyOf(maxX, capacity);
+				maxY = Arrays.copyOf(maxY, capacity);
+				ptr = Arrays.copyOf(ptr, capacity);
+			}
+			minX[size] = x1;
+			minY[size] = y1;
+			maxX[size] = x2;
+			maxY[size] = y2;
+			ptr[size] = p;
+			size++;
+		}
+
+		// stable sort by center on axis
+		void sort(int start, int end, int axis) {
+			int n = end - start;
+			long[] keys = new long[n];
+			for (int i = 0; i < n; i++) {
+				long c = axis == X ? center(minX[start + i], maxX[start + i]) : center(minY[start + i], maxY[start + i]);
+				keys[i] = ((c + CENTER_OFFSET) << IDX_BITS) | i;
+			}
+			Arrays.sort(keys);
+			int mask = (1 << IDX_BITS) - 1;
+			int[] tmp = new int[n];
+			for (int[] arr : new int[][] { minX, minY, maxX, maxY }) {
+				for (int i = 0; i < n; i++) {
+					tmp[i] = arr[start + (int) (keys[i] & mask)];
+				}
+				System.arraycopy(tmp, 0, arr, start, n);
+			}
+			long[] ltmp = new long[n];
+			for (int i = 0; i < n; i++) {
+				ltmp[i] = ptr[start + (int) (keys[i] & mask)];
+			}
+			System.arraycopy(ltmp, 0, ptr, start, n);
+		}
+	}
+
+	private static abstract class RunStream implements Comparable<RunStream> {
+		final int order;
+		int minX;
+		int minY;
+		int maxX;
+		int maxY;
+		long ptr;
+
+		RunStream(int order) {
+			this.order = order;
+		}
+
+		abstract boolean next() throws IOException;
+
+		void close() throws IOException {
+		}
+
+		@Override
+		public int compareTo(RunStream o) {
+			int c = Long.compare(center(minX, maxX), center(o.minX, o.maxX));
+			return c != 0 ? c : Integer.compare(order, o.order);
+		}
+	}
+
+	private static class MemoryRun extends RunStream {
+		private final Rects rects;
+		private int ind = -1;
+
+		MemoryRun(Rects rects, int order) {
+			super(order);
+			this.rects = rects;
+		}
+
+		@Override
+		boolean next() {
+			if (++ind >= rects.size) {
+				return false;
+			}
+			minX = rects.minX[ind];
+			minY = rects.minY[ind];
+			maxX = rects.maxX[ind];
+			maxY = rects.maxY[ind];
+			ptr = rects.ptr[ind];
+			return true;
+		}
+	}
+
+	private static class FileRun extends RunStream {
+		private final DataInputStream in;
+		private long remaining;
+
+		FileRun(File file, int order) throws IOException {
+			super(order);
+			this.remaining = file.length() / ELEMENT_SIZE;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), IO_BUFFER));
+		}
+
+		@Override
+		boolean next() throws IOException {
+			if (remaining-- <= 0) {
+				return false;
+			}
+			minX = in.readInt();
+			minY = in.readInt();
+			maxX = in.readInt();
+			maxY = in.readInt();
+			ptr = in.readLong();
+			return true;
+		}
+
+		@Override
+		void close() throws IOException {
+			in.close();
+		}
+	}
+
+	private static class MergedRuns extends RunStream {
+		private final List<RunStream> streams;
+		private final PriorityQueue<RunStream> queue = new PriorityQueue<>();
+		private RunStream current;
+
+		MergedRuns(List<RunStream> streams) throws IOException {
+			super(0);
+			this.streams = streams;
+			for (RunStream s : streams) {
+				if (s.next()) {
+					queue.add(s);
+				}
+			}
+		}
+
+		@Override
+		boolean next() throws IOException {
+			if (current != null && current.next()) {
+				queue.add(current);
+			}
+			current = queue.poll();
+			if (current == null) {
+				return false;
+			}
+			minX = current.minX;
+			minY = current.minY;
+			maxX = current.maxX;
+			maxY = current.maxY;
+			ptr = current.ptr;
+			return true;
+		}
+
+		@Override
+		void close() throws IOException {
+			for (RunStream s : streams) {
+				s.close();
+			}
+		}
+	}
+}
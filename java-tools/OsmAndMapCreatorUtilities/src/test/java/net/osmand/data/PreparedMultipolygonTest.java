@@ -0,0 +1,53 @@
+package net.osmand.data;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.osm.edit.Node;
+import net.osmand.osm.edit.Way;
+
+public class PreparedMultipolygonTest {
+
+	private long id = 1;
+
+	@Test
+	public void testSameAsMultipolygon() {
+		Random rnd = new Random(7);
+		MultipolygonBuilder bld = new MultipolygonBuilder();
+		bld.addOuterWay(star(rnd, 52, 13, 0.5, 3000));
+		bld.addOuterWay(star(rnd, 53.5, 13, 0.3, 300));
+		bld.addInnerWay(star(rnd, 52, 13, 0.15, 500));
+		Multipolygon mp = bld.build();
+		PreparedMultipolygon prepared = new PreparedMultipolygon(mp);
+		for (int i = 0; i < 20000; i++) {
+			double lat = 51.3 + rnd.nextDouble() * 2.6;
+			double lon = 12.3 + rnd.nextDouble() * 1.4;
+			Assert.assertEquals(lat + " " + lon, mp.containsPoint(lat, lon), prepared.containsPoint(lat, lon));
+		}
+	}
+
+	@Test
+	public void testSmallPolygon() {
+		MultipolygonBuilder bld = new MultipolygonBuilder();
+		bld.addOuterWay(star(new Random(7), 0, 0, 1, 8));
+		PreparedMultipolygon prepared = new PreparedMultipolygon(bld.build());
+		Assert.assertTrue(prepared.containsPoint(0, 0));
+		Assert.assertFalse(prepared.containsPoint(2, 0));
+	}
+
+	private Way star(Random rnd, double lat, double lon, double radius, int points) {
+		Way w = new Way(id++);
+		for (int i = 0; i <= points; i++) {
+			double angle = 2 * Math.PI * (i % points) / points;
+			double r = radius * (0.6 + 0.4 * rnd.nextDouble());
+			if (i == points) {
+				w.addNode(w.getNodes().get(0));
+			} else {
+				w.addNode(new Node(lat + r * Math.sin(angle), lon + r * Math.cos(angle), id++));
+			}
+		}
+		return w;
+	}
+}
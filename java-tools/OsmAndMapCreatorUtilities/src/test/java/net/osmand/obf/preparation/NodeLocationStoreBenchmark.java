@@ -0,0 +1,43 @@
+package net.osmand.obf.preparation;
+
+import net.osmand.IProgress;
+import net.osmand.obf.preparation.NodeLocationStore.StoreType;
+
+import java.io.File;
+
+/**
+ * Compares OBF generation with sqlite node rows and with memory mapped node locations.
+ * Usage: NodeLocationStoreBenchmark <file.osm.pbf> [working dir] [SQLITE,DENSE,SPARSE]
+ */
+public class NodeLocationStoreBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.out.println("Usage: <file.osm.pbf> [working dir] [SQLITE,DENSE,SPARSE]");
+			return;
+		}
+		File pbf = new File(args[0]);
+		File workDir = new File(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"), "node-locations-benchmark");
+		String[] types = (args.length > 2 ? args[2] : "SQLITE,DENSE,SPARSE").split(",");
+		for (String t : types) {
+			StoreType type = StoreType.valueOf(t.trim().toUpperCase());
+			File dir = new File(workDir, type.name().toLowerCase());
+			dir.mkdirs();
+			IndexCreatorSettings settings = new IndexCreatorSettings();
+			settings.indexMap = true;
+			settings.indexRouting = true;
+			settings.nodeLocationStore = type;
+			IndexCreator creator = new IndexCreator(dir, settings);
+			creator.setMapFileName(type.name().toLowerCase() + ".obf");
+			creator.setDeleteOsmDB(false);
+
+			long start = System.currentTimeMillis();
+			File obf = creator.generateIndexes(pbf, IProgress.EMPTY_PROGRESS, null, null, null, null);
+			long time = System.currentTimeMillis() - start;
+			File nodesDb = new File(dir, IndexCreator.TEMP_NODES_DB);
+			System.out.printf("%-7s %8d ms  nodes db %6d MB  obf %8d KB%n", type, time,
+					nodesDb.length() >> 20, obf.length() >> 10);
+			nodesDb.delete();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package net.osmand.obf.preparation;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.osm.edit.Node;
+
+public class OsmDbTagsDictionaryTest {
+
+	@Test
+	public void testEncodeDecode() throws SQLException {
+		Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+		try {
+			Statement stat = conn.createStatement();
+			OsmDbTagsDictionary.createTable(stat, DBDialect.SQLITE_IN_MEMORY);
+			stat.close();
+			OsmDbTagsDictionary writer = new OsmDbTagsDictionary();
+			byte[][] blobs = new byte[10][];
+			for (int i = 0; i < blobs.length; i++) {
+				blobs[i] = writer.encode(tags(i));
+			}
+			writer.persist(conn);
+			// repeated keys and values are coded with ids
+			Assert.assertTrue(blobs[9].length < blobs[0].length);
+
+			OsmDbTagsDictionary reader = OsmDbTagsDictionary.load(conn);
+			Assert.assertNotNull(reader);
+			Assert.assertEquals(writer.size(), reader.size());
+			String prevValue = null;
+			for (int i = 0; i < blobs.length; i++) {
+				Node n = new Node(0, 0, i);
+				reader.decode(blobs[i], n);
+				Assert.assertEquals(tags(i), n.getTags());
+				if (prevValue != null && i > 4) {
+					// dictionary strings are shared
+					Assert.assertSame(prevValue, n.getTag("highway"));
+				}
+				prevValue = n.getTag("highway");
+			}
+		} finally {
+			conn.close();
+		}
+	}
+
+	@Test
+	public void testPlainDatabase() throws SQLException {
+		Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+		try {
+			Assert.assertNull(OsmDbTagsDictionary.load(conn));
+		} finally {
+			conn.close();
+		}
+	}
+
+	private static Map<String, String> tags(int i) {
+		Map<String, String> tags = new LinkedHashMap<>();
+		tags.put("highway", "residential");
+		tags.put("name", "Улица " + i);
+		tags.put("note", "");
+		return tags;
+	}
+}
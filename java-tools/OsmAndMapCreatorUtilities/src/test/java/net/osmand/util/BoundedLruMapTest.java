@@ -0,0 +1,82 @@
+package net.osmand.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoundedLruMapTest {
+
+	@Test
+	public void testEvictLeastRecentlyUsed() {
+		List<String> evicted = new ArrayList<>();
+		BoundedLruMap<String, byte[]> map = new BoundedLruMap<String, byte[]>(30, (k, v) -> v.length)
+				.setEvictionListener((k, v) -> evicted.add(k));
+		map.put("a", new byte[10]);
+		map.put("b", new byte[10]);
+		map.put("c", new byte[10]);
+		Assert.assertNotNull(map.get("a"));
+		map.put("d", new byte[10]);
+		Assert.assertNull(map.get("b"));
+		Assert.assertNotNull(map.get("a"));
+		Assert.assertEquals(3, map.size());
+		Assert.assertEquals(30, map.getWeight());
+		Assert.assertEquals(1, map.getEvictions());
+		Assert.assertEquals(List.of("b"), evicted);
+	}
+
+	@Test
+	public void testReplaceAndRemove() {
+		BoundedLruMap<String, byte[]> map = new BoundedLruMap<>(100, (k, v) -> v.length);
+		map.put("a", new byte[10]);
+		map.put("a", new byte[20]);
+		Assert.assertEquals(20, map.getWeight());
+		map.put("b", new byte[5]);
+		map.remove("a");
+		Assert.assertEquals(5, map.getWeight());
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertEquals(0, map.getWeight());
+	}
+
+	@Test
+	public void testKeepMostRecent() {
+		BoundedLruMap<String, byte[]> map = new BoundedLruMap<>(10, -1, 1, (k, v) -> v.length);
+		map.put("a", new byte[5]);
+		map.put("b", new byte[50]);
+		Assert.assertNull(map.get("a"));
+		Assert.assertNotNull(map.get("b"));
+		Assert.assertEquals(50, map.getWeight());
+	}
+
+	@Test
+	public void testMaxEntriesAndNoWeightLimit() {
+		BoundedLruMap<Integer, byte[]> map = new BoundedLruMap<>(-1, 2, 1, (k, v) -> v.length);
+		map.put(1, new byte[1000]);
+		map.put(2, new byte[1000]);
+		map.put(3, new byte[1000]);
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(1));
+		Assert.assertEquals(2000, map.getWeight());
+	}
+
+	@Test
+	public void testReweigh() {
+		List<byte[]> values = new ArrayList<>();
+		BoundedLruMap<Integer, List<byte[]>> map = new BoundedLruMap<>(100, (k, v) -> v.size() * 10L);
+		map.put(1, values);
+		map.put(2, new ArrayList<>());
+		for (int i = 0; i < 5; i++) {
+			values.add(new byte[0]);
+		}
+		map.reweigh(1);
+		Assert.assertEquals(50, map.getWeight());
+		for (int i = 0; i < 10; i++) {
+			values.add(new byte[0]);
+		}
+		map.reweighAll();
+		Assert.assertNull(map.get(1));
+		Assert.assertEquals(0, map.getWeight());
+	}
+}
@@ -0,0 +1,99 @@
+package net.osmand.wiki;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MultistreamBz2InputStreamTest {
+
+	private static final int PAGE_STREAMS = 25;
+	private static final int PAGES_PER_STREAM = 3;
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		ByteArrayOutputStream dump = new ByteArrayOutputStream();
+		StringBuilder index = new StringBuilder();
+		Random rnd = new Random(PAGE_STREAMS);
+		addStream(dump, plain, "<mediawiki>\n");
+		int pageId = 1;
+		for (int i = 0; i < PAGE_STREAMS; i++) {
+			StringBuilder pages = new StringBuilder();
+			for (int j = 0; j < PAGES_PER_STREAM; j++, pageId++) {
+				// several pages share the stream offset in index
+				index.append(dump.size()).append(':').append(pageId).append(":Title ").append(pageId).append('\n');
+				pages.append("<page><id>").append(pageId).append("</id><text>");
+				for (int k = rnd.nextInt(5000); k >= 0; k--) {
+					pages.append((char) ('a' + rnd.nextInt(26)));
+				}
+				pages.append("</text></page>\n");
+			}
+			addStream(dump, plain, pages.toString());
+		}
+		addStream(dump, plain, "</mediawiki>\n");
+
+		File indexFile = writeIndex(index.toString());
+		try {
+			byte[] data = dump.toByteArray();
+			try (InputStream is = new MultistreamBz2InputStream(new ByteArrayInputStream(data), data.length,
+					indexFile, 3)) {
+				Assert.assertArrayEquals(plain.toByteArray(), readFully(is));
+			}
+		} finally {
+			indexFile.delete();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnsortedIndex() throws IOException {
+		File indexFile = writeIndex("500:2:Second\n100:1:First\n");
+		try {
+			MultistreamBz2InputStream.readStreamOffsets(indexFile, 1000);
+		} finally {
+			indexFile.delete();
+		}
+	}
+
+	private static void addStream(ByteArrayOutputStream dump, ByteArrayOutputStream plain, String text)
+			throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		plain.write(bytes);
+		dump.write(bz2(bytes));
+	}
+
+	private static File writeIndex(String index) throws IOException {
+		File f = File.createTempFile("multistream-index", ".txt.bz2");
+		try (OutputStream out = new FileOutputStream(f)) {
+			out.write(bz2(index.getBytes(StandardCharsets.UTF_8)));
+		}
+		return f;
+	}
+
+	private static byte[] bz2(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (BZip2CompressorOutputStream bz = new BZip2CompressorOutputStream(out)) {
+			bz.write(data);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] readFully(InputStream is) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[777];
+		int r;
+		while ((r = is.read(buf)) != -1) {
+			out.write(buf, 0, r);
+		}
+		return out.toByteArray();
+	}
+}
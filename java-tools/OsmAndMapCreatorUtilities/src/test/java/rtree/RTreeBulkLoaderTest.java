@@ -0,0 +1,115 @@
+package rtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import gnu.trove.set.hash.TLongHashSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RTreeBulkLoaderTest {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("rtree-bulk", "");
+		dir.delete();
+		dir.mkdirs();
+		RTree.clearCache();
+	}
+
+	@After
+	public void tearDown() {
+		RTree.clearCache();
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testEmptyTree() throws Exception {
+		RTree tree = build(0, 100, 1);
+		Node root = tree.getReadNode(tree.getFileHdr().getRootIndex());
+		Assert.assertEquals(0, root.getTotalElements());
+		Assert.assertEquals(Node.LEAF_NODE, root.getElementType());
+	}
+
+	@Test
+	public void testSingleLeaf() throws Exception {
+		checkTree(Node.MAX, 100, 1);
+	}
+
+	@Test
+	public void testSpilledRuns() throws Exception {
+		// small runs force external merge
+		checkTree(50000, 1000, 2);
+	}
+
+	@Test
+	public void testMemoryRun() throws Exception {
+		checkTree(50000, RTreeBulkLoader.DEFAULT_RUN_SIZE, 3);
+	}
+
+	private RTree build(int count, int runSize, long seed) throws IOException {
+		String name = new File(dir, "tree" + seed).getAbsolutePath();
+		Random r = new Random(seed);
+		try (RTreeBulkLoader loader = new RTreeBulkLoader(name, runSize)) {
+			for (int i = 0; i < count; i++) {
+				int x = r.nextInt(1 << 30);
+				int y = r.nextInt(1 << 30);
+				loader.insert(x, y, x + r.nextInt(1 << 16), y + r.nextInt(1 << 16), i);
+			}
+			return loader.build(name + ".pack");
+		}
+	}
+
+	private void checkTree(int count, int runSize, long seed) throws Exception {
+		RTree tree = build(count, runSize, seed);
+		List<?> all = tree.getAllElements();
+		Assert.assertEquals(count, all.size());
+		TLongHashSet ids = new TLongHashSet();
+		for (Object o : all) {
+			ids.add(((LeafElement) o).getPtr());
+		}
+		Assert.assertEquals(count, ids.size());
+
+		// compare search with brute force over generated rectangles
+		Random r = new Random(seed);
+		Rect query = new Rect(1 << 28, 1 << 28, 1 << 29, 1 << 29);
+		int expected = 0;
+		for (int i = 0; i < count; i++) {
+			int x = r.nextInt(1 << 30);
+			int y = r.nextInt(1 << 30);
+			Rect rect = new Rect(x, y, x + r.nextInt(1 << 16), y + r.nextInt(1 << 16));
+			if (rect.overlaps(query)) {
+				expected++;
+			}
+		}
+		Assert.assertEquals(expected, tree.overlaps(query).size());
+		checkNode(tree, tree.getFileHdr().getRootIndex(), Node.NOT_DEFINED);
+	}
+
+	private void checkNode(RTree tree, long index, long parent) throws Exception {
+		Node node = tree.getReadNode(index);
+		Assert.assertEquals(parent, node.getParent());
+		Assert.assertTrue(node.getTotalElements() <= Node.MAX);
+		if (node.getElementType() == Node.NONLEAF_NODE) {
+			Element[] elements = node.getAllElements();
+			for (int i = 0; i < node.getTotalElements(); i++) {
+				Rect mbr = tree.getReadNode(elements[i].getPtr()).getNodeMBR();
+				Rect rect = elements[i].getRect();
+				Assert.assertEquals(mbr.getMinX(), rect.getMinX());
+				Assert.assertEquals(mbr.getMinY(), rect.getMinY());
+				Assert.assertEquals(mbr.getMaxX(), rect.getMaxX());
+				Assert.assertEquals(mbr.getMaxY(), rect.getMaxY());
+				checkNode(tree, elements[i].getPtr(), index);
+			}
+		}
+	}
+}
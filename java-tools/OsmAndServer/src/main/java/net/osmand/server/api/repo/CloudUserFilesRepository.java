@@ -45,6 +45,13 @@ public interface CloudUserFilesRepository extends JpaRepository<UserFile, Long>
 			+ "(SELECT uft.name, MAX(uft.updatetime) FROM UserFile uft WHERE uft.userid = :userid GROUP BY uft.name)")
 	List<UserFile> findLatestFilesByFolderName(@Param("userid") int userid, @Param("folderName") String folderName, @Param("type") String type);
 
+	@Query("select new net.osmand.server.api.repo.CloudUserFilesRepository$UserFileNoData("
+			+ " uf.id, uf.userid, uf.deviceid, uf.type, uf.name, uf.updatetime, uf.clienttime, uf.filesize, uf.zipfilesize, uf.storage, uf.storagename ) "
+			+ " FROM UserFile uf "
+			+ "WHERE uf.userid = :userid AND uf.name LIKE :folderName% AND uf.type = :type AND (uf.name, uf.updatetime) IN "
+			+ "(SELECT uft.name, MAX(uft.updatetime) FROM UserFile uft WHERE uft.userid = :userid GROUP BY uft.name)")
+	List<UserFileNoData> findLatestFilesNoDataByFolderName(@Param("userid") int userid, @Param("folderName") String folderName, @Param("type") String type);
+
 //	@Modifying
 //	@Query("update UserFile uf set uf.details = ?1 where uf.id = ?2")
 //	@Transactional
@@ -0,0 +1,77 @@
+package net.osmand.server.api.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import net.osmand.util.Algorithms;
+import net.osmand.util.BoundedLruMap;
+
+/**
+ * Results of gpx processing (track data and analysis json) by content hash of request. Results are kept
+ * gzipped, so large tracks take several times less memory, LRU is bounded by compressed bytes.
+ */
+public class GpxResultCache {
+
+	private static final long ENTRY_BYTES = 256;
+	// larger results would evict too many entries
+	private static final int MAX_ENTRY_PART = 16;
+
+	private final BoundedLruMap<String, byte[]> cacheMap;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+
+	public GpxResultCache(long maxBytes) {
+		this.cacheMap = new BoundedLruMap<>(maxBytes, GpxResultCache::weigh);
+	}
+
+	public String get(String key) {
+		byte[] gzipped = cacheMap.get(key);
+		if (gzipped == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return Algorithms.gzipToString(gzipped);
+	}
+
+	public void put(String key, String result) throws IOException {
+		ByteArrayOutputStream bous = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzout = new GZIPOutputStream(bous)) {
+			gzout.write(result.getBytes(StandardCharsets.UTF_8));
+		}
+		byte[] gzipped = bous.toByteArray();
+		if (weigh(key, gzipped) > cacheMap.getMaxWeight() / MAX_ENTRY_PART) {
+			skipped.incrementAndGet();
+			return;
+		}
+		cacheMap.put(key, gzipped);
+	}
+
+	private static long weigh(String key, byte[] gzipped) {
+		return ENTRY_BYTES + key.length() * 2L + gzipped.length;
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		long h = hits.get();
+		long m = misses.get();
+		synchronized (cacheMap) {
+			stats.put("entries", cacheMap.size());
+			stats.put("bytes", cacheMap.getWeight());
+		}
+		stats.put("maxBytes", cacheMap.getMaxWeight());
+		stats.put("hits", h);
+		stats.put("misses", m);
+		stats.put("hitRate", h + m == 0 ? 0 : (double) h / (h + m));
+		stats.put("evictions", cacheMap.getEvictions());
+		stats.put("skipped", skipped.get());
+		return stats;
+	}
+}
@@ -2,6 +2,7 @@ package net.osmand.server.api.services;
 
 import kotlin.Pair;
 import net.osmand.obf.preparation.IndexHeightData;
+import net.osmand.obf.preparation.SrtmElevationService;
 import net.osmand.server.WebSecurityConfiguration;
 import net.osmand.server.utils.WebGpxParser;
 import net.osmand.server.utils.exception.OsmAndPublicApiException;
@@ -18,6 +19,7 @@ import net.osmand.util.Algorithms;
 import okio.Buffer;
 import okio.Okio;
 import okio.Source;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,8 +38,18 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 
+import jakarta.annotation.PreDestroy;
+
 import static net.osmand.shared.IndexConstants.GPX_FILE_EXT;
 import static net.osmand.shared.IndexConstants.GPX_FILE_PREFIX;
 
@@ -56,6 +68,103 @@ public class GpxService {
     @Value("${osmand.srtm.location}")
     String srtmLocation;
 
+    // converted srtm tiles, empty - temp folder
+    @Value("${osmand.srtm.cache:}")
+    String srtmCacheLocation;
+
+    private static final int GPX_PARSE_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int GPX_PARSE_QUEUE = 32;
+    private static final long GPX_RESULT_CACHE_BYTES = 128L << 20;
+
+    private final ThreadPoolExecutor gpxParseExecutor = createGpxParseExecutor();
+    private final GpxResultCache gpxResultCache = new GpxResultCache(GPX_RESULT_CACHE_BYTES);
+    private final Map<String, CompletableFuture<ResponseEntity<String>>> runningResults = new ConcurrentHashMap<>();
+    private final AtomicLong sharedResults = new AtomicLong();
+    private final AtomicLong rejectedResults = new AtomicLong();
+
+    public interface GpxResultTask {
+        ResponseEntity<String> process() throws IOException;
+    }
+
+    private static ThreadPoolExecutor createGpxParseExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(GPX_PARSE_THREADS, GPX_PARSE_THREADS, 1,
+                TimeUnit.MINUTES, new ArrayBlockingQueue<>(GPX_PARSE_QUEUE), r -> {
+                    Thread t = new Thread(r, "gpx-parse-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdownGpxParsePool() {
+        gpxParseExecutor.shutdownNow();
+    }
+
+    /**
+     * Cache key of request content, variant contains parameters which change result (e.g. file name)
+     */
+    public String getResultKey(String kind, InputStream content, String variant) throws IOException {
+        try (InputStream in = content) {
+            return kind + "|" + DigestUtils.sha256Hex(in) + "|" + variant;
+        }
+    }
+
+    public String getResultKey(String kind, byte[] content, String variant) {
+        return kind + "|" + DigestUtils.sha256Hex(content) + "|" + variant;
+    }
+
+    /**
+     * @return json of successful result processed before with same key or null
+     */
+    public String getCachedResult(String key) {
+        return gpxResultCache.get(key);
+    }
+
+    /**
+     * Processes gpx in parse pool, so servlet threads are not blocked by large files. Successful results are cached,
+     * requests with same key which come while processing is running get the same result.
+     */
+    public CompletableFuture<ResponseEntity<String>> processResult(String key, GpxResultTask task) {
+        CompletableFuture<ResponseEntity<String>> future = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<String>> running = runningResults.putIfAbsent(key, future);
+        if (running != null) {
+            sharedResults.incrementAndGet();
+            return running;
+        }
+        try {
+            gpxParseExecutor.execute(() -> {
+                try {
+                    ResponseEntity<String> res = task.process();
+                    if (res.getStatusCode().is2xxSuccessful() && res.getBody() != null) {
+                        gpxResultCache.put(key, res.getBody());
+                    }
+                    future.complete(res);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    runningResults.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runningResults.remove(key, future);
+            rejectedResults.incrementAndGet();
+            future.complete(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Server is busy, please try again later"));
+        }
+        return future;
+    }
+
+    public Map<String, Object> getResultCacheStats() {
+        Map<String, Object> stats = gpxResultCache.getStats();
+        stats.put("shared", sharedResults.get());
+        stats.put("rejected", rejectedResults.get());
+        stats.put("activeThreads", gpxParseExecutor.getActiveCount());
+        stats.put("queued", gpxParseExecutor.getQueue().size());
+        return stats;
+    }
+
     public WebGpxParser.TrackData buildTrackDataFromGpxFile(GpxFile gpxFile, GpxTrackAnalysis existingAnalysis) throws IOException {
         GpxTrackAnalysis analysis = existingAnalysis != null ? existingAnalysis : getAnalysis(gpxFile, false);
 
@@ -188,19 +297,23 @@ public class GpxService {
             }
             return null;
         } else {
-            File srtmFolder = new File(srtmLocation);
-            if (!srtmFolder.exists()) {
+            SrtmElevationService elevationService = getElevationService();
+            if (elevationService == null) {
                 return null;
             }
-            IndexHeightData hd = new IndexHeightData();
-            hd.setSrtmData(srtmFolder.getAbsolutePath(), srtmFolder);
             for (Track tr : gpxFile.getTracks()) {
                 for (TrkSegment s : tr.getSegments()) {
-                    for (int i = 0; i < s.getPoints().size(); i++) {
-                        WptPt wpt = s.getPoints().get(i);
-                        double h = hd.getPointHeight(wpt.getLat(), wpt.getLon(), missingFile);
-                        if (h != IndexHeightData.INEXISTENT_HEIGHT) {
-                            wpt.setEle(h);
+                    List<WptPt> points = s.getPoints();
+                    double[] lats = new double[points.size()];
+                    double[] lons = new double[points.size()];
+                    for (int i = 0; i < points.size(); i++) {
+                        lats[i] = points.get(i).getLat();
+                        lons[i] = points.get(i).getLon();
+                    }
+                    double[] heights = elevationService.heights(lats, lons, missingFile);
+                    for (int i = 0; i < points.size(); i++) {
+                        if (heights[i] != IndexHeightData.INEXISTENT_HEIGHT) {
+                            points.get(i).setEle(heights[i]);
                         } else if (i == 0) {
                             return null;
                         }
@@ -211,6 +324,23 @@ public class GpxService {
         return gpxFile;
     }
 
+    /**
+     * Shared elevation service over local srtm folder, null if srtm is not configured or is remote
+     */
+    public SrtmElevationService getElevationService() {
+        if (srtmLocation == null || srtmLocation.startsWith("http://") || srtmLocation.startsWith("https://")) {
+            return null;
+        }
+        File srtmFolder = new File(srtmLocation);
+        if (!srtmFolder.exists()) {
+            return null;
+        }
+        File cacheFolder = srtmCacheLocation == null || srtmCacheLocation.isEmpty()
+                ? new File(System.getProperty("java.io.tmpdir"), "osmand-srtm") : new File(srtmCacheLocation);
+        cacheFolder.mkdirs();
+        return SrtmElevationService.getInstance(srtmFolder.getAbsolutePath(), cacheFolder);
+    }
+
     public boolean isGzipStream(InputStream in) throws IOException {
         in.mark(2); // mark the stream to be able to reset it
         byte[] signature = new byte[2];
@@ -12,6 +12,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -26,6 +28,9 @@ public class IpLocationService {
 	public static final String COUNTRY_NAME = "country_name"; // used by tools (Netherlands)
 	public static final String CITY = "city"; // used by tools (Amstelveen)
 
+	private static final int IP_CACHE_LIMIT = 10000;
+	private static final long DB_CHECK_INTERVAL_MS = 60 * 1000;
+
 	@Value("${geoip.city.dat.v4}")
 	private String GeoIPCityV4;
 
@@ -35,6 +40,17 @@ public class IpLocationService {
 	private final ObjectMapper jsonMapper = new ObjectMapper();
 	private static final Log LOG = LogFactory.getLog(IpLocationService.class);
 
+	private final GeoIpDatabase dbV4 = new GeoIpDatabase();
+	private final GeoIpDatabase dbV6 = new GeoIpDatabase();
+
+	private final Map<String, Map<String, String>> ipCache = Collections.synchronizedMap(
+			new LinkedHashMap<>(1024, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+					return size() > IP_CACHE_LIMIT;
+				}
+			});
+
 	public String getLocationAsJson(String ip) throws JsonProcessingException {
 		return jsonMapper.writeValueAsString(getAllFields(ip));
 	}
@@ -45,17 +61,24 @@ public class IpLocationService {
 	}
 
 	private Map<String, String> getAllFields(String ip) {
+		if (Algorithms.isEmpty(ip)) {
+			return new LinkedHashMap<>();
+		}
+		Map<String, String> cached = ipCache.get(ip);
+		if (cached != null) {
+			return cached;
+		}
+		boolean ipv6 = ip.contains(":");
+		LookupService lookup = ipv6 ? dbV6.get(GeoIPCityV6) : dbV4.get(GeoIPCityV4);
+		if (lookup == null) {
+			return new LinkedHashMap<>();
+		}
 		Map<String, String> fields = new LinkedHashMap<>();
-		if (!Algorithms.isEmpty(ip)) {
-			boolean ipv6 = ip.contains(":");
-			File db = new File(ipv6 ? GeoIPCityV6 : GeoIPCityV4);
-			try {
-				LookupService lookup = new LookupService(db);
-				Location location = ipv6 ? lookup.getLocationV6(ip) : lookup.getLocation(ip);
-				if (location == null) {
-					LOG.warn(String.format("geoiplookup null location for %s", ip));
-					return fields;
-				}
+		try {
+			Location location = ipv6 ? lookup.getLocationV6(ip) : lookup.getLocation(ip);
+			if (location == null) {
+				LOG.warn(String.format("geoiplookup null location for %s", ip));
+			} else {
 				if (!Algorithms.isEmpty(location.countryCode)) {
 					fields.put(COUNTRY_CODE, location.countryCode);
 				}
@@ -71,11 +94,57 @@ public class IpLocationService {
 					fields.put(LATITUDE, String.valueOf(location.latitude));
 					fields.put(LONGITUDE, String.valueOf(location.longitude));
 				}
-			} catch (Exception e) {
-				LOG.warn(String.format("geoiplookup failed for %s", ip));
+			}
+		} catch (Exception e) {
+			LOG.warn(String.format("geoiplookup failed for %s", ip));
+			LOG.info(e);
+			return fields;
+		}
+		Map<String, String> result = Collections.unmodifiableMap(fields);
+		ipCache.put(ip, result);
+		return result;
+	}
+
+	/**
+	 * Keeps GeoIP database loaded in memory (GEOIP_MEMORY_CACHE) and reloads it
+	 * when the file on disk is replaced. Readers always see a fully loaded instance.
+	 */
+	private class GeoIpDatabase {
+		private volatile LookupService lookup;
+		private volatile long lastModified;
+		private volatile long lastCheck;
+
+		LookupService get(String path) {
+			long now = System.currentTimeMillis();
+			if (lookup == null || now - lastCheck > DB_CHECK_INTERVAL_MS) {
+				reloadIfChanged(path, now);
+			}
+			return lookup;
+		}
+
+		private synchronized void reloadIfChanged(String path, long now) {
+			if (lookup != null && now - lastCheck <= DB_CHECK_INTERVAL_MS) {
+				return;
+			}
+			lastCheck = now;
+			File db = new File(path);
+			long modified = db.lastModified();
+			if (lookup != null && modified == lastModified) {
+				return;
+			}
+			try {
+				LookupService loaded = new LookupService(db, LookupService.GEOIP_MEMORY_CACHE);
+				boolean reload = lookup != null;
+				lookup = loaded;
+				lastModified = modified;
+				if (reload) {
+					ipCache.clear();
+					LOG.info(String.format("geoip database %s reloaded", path));
+				}
+			} catch (IOException e) {
+				LOG.warn(String.format("geoip database %s failed to load", path));
 				LOG.info(e);
 			}
 		}
-		return fields;
 	}
 }
@@ -27,13 +27,23 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import javax.annotation.Nullable;
 
+import jakarta.annotation.PreDestroy;
 import net.osmand.search.core.spatial.SpatialTextSearch;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -47,6 +57,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -55,6 +66,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
 import org.xml.sax.SAXException;
 import org.xmlpull.v1.XmlPullParserException;
 
@@ -98,9 +110,11 @@ import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
 import net.osmand.router.RoutingContext;
 import net.osmand.server.WebSecurityConfiguration;
 import net.osmand.server.api.repo.CloudUserDevicesRepository;
+import net.osmand.server.tileManager.MetatileRenderScheduler;
 import net.osmand.server.tileManager.TileMemoryCache;
 import net.osmand.server.tileManager.TileServerConfig;
 import net.osmand.server.tileManager.VectorMetatile;
+import net.osmand.server.utils.RegionBoundsIndex;
 import net.osmand.server.utils.TimezoneMapper;
 import net.osmand.server.utils.WebGpxParser;
 import net.osmand.shared.gpx.GpxFile;
@@ -147,6 +161,16 @@ public class OsmAndMapsService {
 
 	private static final long MAX_PROFILE_WAIT_MS = 6000;
 
+	// each approximation worker builds its own RoutingContext and leases readers from obfFiles
+	private static final int APPROXIMATE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	private static final int APPROXIMATE_QUEUE = APPROXIMATE_THREADS * 4;
+	private static final long APPROXIMATE_TIMEOUT_MS = 5 * 60 * 1000;
+
+	// concurrent java routing is admitted by memory: each calculation reserves osmand.routing.memory-per-request MB
+	// (MEM_LIMIT by default, the same as config.memoryLimitation of routing context) before it gets routing context
+	private static final int ROUTING_MEMORY_BUDGET_MB = (int) Math.max(MEM_LIMIT, (Runtime.getRuntime().maxMemory() >> 20) / 2);
+	private static final long MAX_ROUTING_ADMISSION_WAIT_MS = 30000;
+
 
 	private static final String INTERACTIVE_KEY = "int";
 	private static final String DEFAULT_INTERACTIVE_STYLE = "hd";
@@ -155,6 +179,9 @@ public class OsmAndMapsService {
 
 	private final Map<String, BinaryMapIndexReaderReference> obfFiles = new LinkedHashMap<>();
 
+	// region polygon bounds of obfFiles, used to select files by bbox without scanning all regions
+	private final RegionBoundsIndex<BinaryMapIndexReaderReference> obfRegionsIndex = new RegionBoundsIndex<>();
+
 	public enum ObfReason {
 		SEARCH("search"),
 		SEARCH_TEST("search-test"),
@@ -174,11 +201,15 @@ public class OsmAndMapsService {
 	}
 
 	CachedOsmandIndexes cacheFiles = null;
+	// changed whenever obf file is added or replaced, results cached from readers become stale
+	private final AtomicLong obfEdition = new AtomicLong();
 
 	final List<RoutingCacheContext> routingCaches = new ArrayList<>();
 
 	NativeJavaRendering nativelib;
 
+	private MetatileRenderScheduler metatileRenderScheduler;
+
 	File tempDir;
 
 	@Autowired
@@ -192,6 +223,55 @@ public class OsmAndMapsService {
 	@Value("${tile-server.routeObf.location}")
 	String routeObfLocation;
 
+	private final ThreadPoolExecutor approximateExecutor = createApproximateExecutor();
+	// native library is not thread safe: native routing and native approximation are serialized
+	private final Object nativeLibLock = new Object();
+	private final AtomicLong approximateCompleted = new AtomicLong();
+	private final AtomicLong approximateCancelled = new AtomicLong();
+	private final AtomicLong approximateRejected = new AtomicLong();
+
+	private final Semaphore routingMemoryBudget = new Semaphore(ROUTING_MEMORY_BUDGET_MB, true);
+	private final AtomicLong routingCacheHits = new AtomicLong();
+	private final AtomicLong routingCacheNew = new AtomicLong();
+	private final AtomicLong routingSeparate = new AtomicLong();
+	private final AtomicLong routingAdmissionTimeouts = new AtomicLong();
+	private final RoutingStats separateRoutingStats = new RoutingStats();
+
+	private static ThreadPoolExecutor createApproximateExecutor() {
+		AtomicLong threadCounter = new AtomicLong();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(APPROXIMATE_THREADS, APPROXIMATE_THREADS, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(APPROXIMATE_QUEUE),
+				r -> {
+					Thread t = new Thread(r, "approximate-" + threadCounter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@PreDestroy
+	public void shutdownApproximatePool() {
+		approximateExecutor.shutdownNow();
+		synchronized (this) {
+			if (metatileRenderScheduler != null) {
+				metatileRenderScheduler.shutdown();
+			}
+		}
+	}
+
+	public Map<String, Object> getApproximateStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("threads", APPROXIMATE_THREADS);
+		stats.put("active", approximateExecutor.getActiveCount());
+		stats.put("queued", approximateExecutor.getQueue().size());
+		stats.put("queueCapacity", APPROXIMATE_QUEUE);
+		stats.put("completed", approximateCompleted.get());
+		stats.put("cancelled", approximateCancelled.get());
+		stats.put("rejected", approximateRejected.get());
+		return stats;
+	}
+
 	public CloudUserDevicesRepository.CloudUserDevice checkUser() {
 		Object user = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 		if (user instanceof WebSecurityConfiguration.OsmAndProUser osmAndProUser) {
@@ -274,6 +354,7 @@ public class OsmAndMapsService {
 		long created;
 		int used;
 		HHRoutingConfig hhConfig;
+		final RoutingStats stats = new RoutingStats();
 
 		@Override
 		public String toString() {
@@ -290,6 +371,29 @@ public class OsmAndMapsService {
 
 	}
 
+	public static class RoutingStats {
+		int calculations;
+		long waitTime;
+		long calcTime;
+		long maxCalcTime;
+
+		synchronized void add(long waitMs, long calcMs) {
+			calculations++;
+			waitTime += waitMs;
+			calcTime += calcMs;
+			maxCalcTime = Math.max(maxCalcTime, calcMs);
+		}
+
+		synchronized Map<String, Object> toMap() {
+			Map<String, Object> m = new LinkedHashMap<>();
+			m.put("calculations", calculations);
+			m.put("avgWaitMs", calculations == 0 ? 0 : waitTime / calculations);
+			m.put("avgCalcMs", calculations == 0 ? 0 : calcTime / calculations);
+			m.put("maxCalcMs", maxCalcTime);
+			return m;
+		}
+	}
+
 	public class BinaryMapIndexReaderReference {
 		private File file;
 		private static final int WAIT_LOCK_CHECK = 10;
@@ -512,6 +616,9 @@ public class OsmAndMapsService {
 		@Value("${osmand.routing.hh-only-limit}") // --osmand.routing.hh-only-limit= or $HH_ONLY_LIMIT=
 		public int hhOnlyLimit; // See application.yml, set 100 for production, or 1000 for testing server (km)
 
+		@Value("${osmand.routing.memory-per-request:0}") // --osmand.routing.memory-per-request= or $ROUTING_MEMORY_PER_REQUEST=
+		public int memoryPerRequest; // MB reserved by each routing from memory budget, 0 - routing context memory limit
+
 		public Map<String, RoutingServerConfigEntry> config = new TreeMap<>(new ProfileComparator());
 
 		private class ProfileComparator implements Comparator<String> {
@@ -657,8 +764,20 @@ public class OsmAndMapsService {
 		return null;
 	}
 
-	public ResponseEntity<String> renderMetaTile(VectorMetatile tile, TileMemoryCache<VectorMetatile> tileMemoryCache) throws XmlPullParserException, IOException, SAXException {
-		return tile.renderMetaTile(nativelib, tileMemoryCache);
+	public ResponseEntity<String> renderMetaTile(VectorMetatile tile, TileMemoryCache<VectorMetatile> tileMemoryCache,
+	                                             boolean prefetch) throws XmlPullParserException, IOException, SAXException {
+		return getMetatileRenderScheduler().render(tile, prefetch, t -> t.renderMetaTile(nativelib, tileMemoryCache, getMetatileRenderScheduler().getSaveExecutor()));
+	}
+
+	private synchronized MetatileRenderScheduler getMetatileRenderScheduler() {
+		if (metatileRenderScheduler == null) {
+			metatileRenderScheduler = new MetatileRenderScheduler();
+		}
+		return metatileRenderScheduler;
+	}
+
+	public Map<String, Object> getRenderStats() {
+		return getMetatileRenderScheduler().getStats();
 	}
 
 	public BufferedImage renderGeotiffTile(String tilePath, String outColorFilename, String midColorFilename,
@@ -719,7 +838,6 @@ public class OsmAndMapsService {
 	}
 
 	private List<RouteSegmentResult> approximateByWaypoints(List<WptPt> waypoints, String routeMode, Map<String, Object> props) throws IOException, InterruptedException {
-		List<RouteSegmentResult> route;
 		List<LatLon> polyline = new ArrayList<>();
 		for (WptPt wpt : waypoints) {
 			polyline.add(new LatLon(wpt.lat, wpt.lon));
@@ -728,6 +846,55 @@ public class OsmAndMapsService {
 		if (!validateAndInitConfig()) {
 			return Collections.emptyList();
 		}
+		RouteCalculationProgress progress = new RouteCalculationProgress();
+		Future<List<RouteSegmentResult>> task;
+		try {
+			task = approximateExecutor.submit(() -> approximateWorker(waypoints, routeMode, props, quadRect, progress));
+		} catch (RejectedExecutionException e) {
+			approximateRejected.incrementAndGet();
+			LOGGER.warn(String.format("Approximation rejected (%d points): queue is full %d/%d", waypoints.size(),
+					approximateExecutor.getQueue().size(), APPROXIMATE_QUEUE));
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+					"Approximation server is busy, please try again later");
+		}
+		try {
+			List<RouteSegmentResult> route = task.get(APPROXIMATE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			approximateCompleted.incrementAndGet();
+			return route;
+		} catch (TimeoutException e) {
+			cancelApproximation(task, progress);
+			LOGGER.warn(String.format("Approximation cancelled (%d points): timeout %d ms", waypoints.size(),
+					APPROXIMATE_TIMEOUT_MS));
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+					"Approximation took too long, please try again later");
+		} catch (InterruptedException e) {
+			cancelApproximation(task, progress);
+			throw e;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException ioe) {
+				throw ioe;
+			} else if (cause instanceof InterruptedException ie) {
+				throw ie;
+			} else if (cause instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private void cancelApproximation(Future<?> task, RouteCalculationProgress progress) {
+		approximateCancelled.incrementAndGet();
+		progress.isCancelled = true;
+		task.cancel(true);
+	}
+
+	private List<RouteSegmentResult> approximateWorker(List<WptPt> waypoints, String routeMode, Map<String, Object> props,
+	                                                   QuadRect quadRect, RouteCalculationProgress progress)
+			throws IOException, InterruptedException {
+		if (progress.isCancelled) {
+			return Collections.emptyList();
+		}
 		RoutePlannerFrontEnd router = new RoutePlannerFrontEnd();
 		List<BinaryMapIndexReader> usedMapList = new ArrayList<>();
 		try {
@@ -739,11 +906,11 @@ public class OsmAndMapsService {
 			}
 			RouteParameters rp = parseRouteParameters(routeMode);
 			RoutingContext ctx = prepareRouterContext(rp, router, usedMapList, true);
-			route = approximate(ctx, router, props, waypoints, rp.useExternalTimestamps);
+			ctx.calculationProgress = progress;
+			return approximate(ctx, router, props, waypoints, rp.useExternalTimestamps);
 		} finally {
 			unlockReaders(usedMapList);
 		}
-		return route;
 	}
 
 	public List<RouteSegmentResult> approximate(RoutingContext ctx, RoutePlannerFrontEnd router,
@@ -756,16 +923,19 @@ public class OsmAndMapsService {
 		return approximateInternal(ctx, router, props, waypoints, useExternalTimestamps);
 	}
 
-	private synchronized List<RouteSegmentResult> approximateSyncNative(RoutingContext ctx, RoutePlannerFrontEnd router,
-	                                                                    Map<String, Object> props, List<WptPt> waypoints,
-	                                                                    boolean useExternalTimestamps)
+	private List<RouteSegmentResult> approximateSyncNative(RoutingContext ctx, RoutePlannerFrontEnd router,
+	                                                       Map<String, Object> props, List<WptPt> waypoints,
+	                                                       boolean useExternalTimestamps)
 			throws IOException, InterruptedException {
-		return approximateInternal(ctx, router, props, waypoints, useExternalTimestamps);
+		// native approximation is still serialized, but no longer blocks java approximations and the service
+		synchronized (nativeLibLock) {
+			return approximateInternal(ctx, router, props, waypoints, useExternalTimestamps);
+		}
 	}
 
-	private synchronized List<RouteSegmentResult> approximateInternal(RoutingContext ctx, RoutePlannerFrontEnd router,
-	                                                                  Map<String, Object> props, List<WptPt> waypoints,
-	                                                                  boolean useExternalTimestamps)
+	private List<RouteSegmentResult> approximateInternal(RoutingContext ctx, RoutePlannerFrontEnd router,
+	                                                     Map<String, Object> props, List<WptPt> waypoints,
+	                                                     boolean useExternalTimestamps)
 			throws IOException, InterruptedException {
 		GpxRouteApproximation gctx = new GpxRouteApproximation(ctx);
 		List<GpxPoint> gpxPoints = router.generateGpxPoints(gctx, new LocationsHolder(waypoints));
@@ -1017,6 +1187,7 @@ public class OsmAndMapsService {
 		String selectedCache = "SEPARATE";
 		String routeParametersStr = "";
 		public long waitTime;
+		public long admissionWaitTime;
 	}
 
 
@@ -1030,9 +1201,13 @@ public class OsmAndMapsService {
 		List<BinaryMapIndexReader> usedMapList = new ArrayList<>();
 		List<RouteSegmentResult> routeRes;
 		RoutingContext ctx = null;
+		DebugInfo di = new DebugInfo();
+		int memoryPermits = 0;
+		long calcStart = 0;
 		try {
 			RouteParameters rp = parseRouteParameters(routeMode);
-			DebugInfo di = new DebugInfo();
+			// reserve memory before cached context is locked, so waiting requests don't hold contexts
+			memoryPermits = acquireRoutingMemory(di);
 			ctx = lockCacheRoutingContext(router, rp, di);
 			LOGGER.info(String.format("REQ routing %s (%s - %.1f sec, %s): %s -> %s - cache %s", profile,
 					di.selectedCache, di.waitTime / 1e3, di.routeParametersStr, start, end, di.routingCacheInfo));
@@ -1059,23 +1234,86 @@ public class OsmAndMapsService {
 				// BRP is disabled (limited) and HH is disabled (hhoff)
 				return null;
 			}
+			calcStart = System.currentTimeMillis();
 			ctx.routingTime = 0;
 			ctx.calculationProgress = progress;
 			if (rp.onlineRouting != null) {
 				routeRes = onlineRouting(rp, ctx, router, props, start, end, intermediates);
 			} else {
-				RouteCalcResult rc = ctx.nativeLib != null ? runRoutingSync(start, end, intermediates, router, ctx)
-						: router.searchRoute(ctx, start, end, intermediates, null);
+				RouteCalcResult rc = searchRoute(ctx, router, start, end, intermediates);
 				routeRes = rc == null ? null : rc.getList();
 				putResultProps(ctx, routeRes, props);
 			}
 		} finally {
+			if (memoryPermits > 0) {
+				routingMemoryBudget.release(memoryPermits);
+			}
 			unlockReaders(usedMapList);
-			unlockCacheRoutingContext(ctx);
+			long calcTime = calcStart == 0 ? -1 : System.currentTimeMillis() - calcStart;
+			if (!unlockCacheRoutingContext(ctx, di.waitTime + di.admissionWaitTime, calcTime) && calcTime >= 0) {
+				separateRoutingStats.add(di.waitTime + di.admissionWaitTime, calcTime);
+			}
 		}
 		return routeRes;
 	}
 
+	private RouteCalcResult searchRoute(RoutingContext ctx, RoutePlannerFrontEnd router, LatLon start, LatLon end,
+	                                    List<LatLon> intermediates) throws IOException, InterruptedException {
+		if (ctx.nativeLib != null) {
+			// only java routing runs concurrently
+			synchronized (nativeLibLock) {
+				return router.searchRoute(ctx, start, end, intermediates, null);
+			}
+		}
+		return router.searchRoute(ctx, start, end, intermediates, null);
+	}
+
+	private int acquireRoutingMemory(DebugInfo di) throws InterruptedException {
+		long start = System.currentTimeMillis();
+		int perRequest = routingConfig.memoryPerRequest > 0 ? routingConfig.memoryPerRequest : MEM_LIMIT;
+		int permits = Math.min(ROUTING_MEMORY_BUDGET_MB, perRequest);
+		boolean acquired = routingMemoryBudget.tryAcquire(permits, MAX_ROUTING_ADMISSION_WAIT_MS, TimeUnit.MILLISECONDS);
+		di.admissionWaitTime = System.currentTimeMillis() - start;
+		if (!acquired) {
+			routingAdmissionTimeouts.incrementAndGet();
+			LOGGER.warn(String.format("Routing rejected: %d MB not available in %.1f sec (free %d of %d MB)", permits,
+					di.admissionWaitTime / 1e3, routingMemoryBudget.availablePermits(), ROUTING_MEMORY_BUDGET_MB));
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Routing server is busy, please try again later");
+		}
+		return permits;
+	}
+
+	public Map<String, Object> getRoutingStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		long hits = routingCacheHits.get();
+		long total = hits + routingCacheNew.get() + routingSeparate.get();
+		stats.put("memoryBudgetMb", ROUTING_MEMORY_BUDGET_MB);
+		stats.put("memoryAvailableMb", routingMemoryBudget.availablePermits());
+		stats.put("admissionQueue", routingMemoryBudget.getQueueLength());
+		stats.put("admissionTimeouts", routingAdmissionTimeouts.get());
+		stats.put("cacheHits", hits);
+		stats.put("cacheNew", routingCacheNew.get());
+		stats.put("separate", routingSeparate.get());
+		stats.put("cacheHitRate", total == 0 ? 0 : (double) hits / total);
+		stats.put("separateStats", separateRoutingStats.toMap());
+		List<Map<String, Object>> contexts = new ArrayList<>();
+		synchronized (routingCaches) {
+			for (RoutingCacheContext c : routingCaches) {
+				Map<String, Object> m = new LinkedHashMap<>();
+				m.put("profile", c.profile);
+				m.put("params", c.routeParamsStr);
+				m.put("locked", c.locked != 0);
+				m.put("used", c.used);
+				m.put("aliveMin", (System.currentTimeMillis() - c.created) / 60 / 1000);
+				m.putAll(c.stats.toMap());
+				contexts.add(m);
+			}
+		}
+		stats.put("contexts", contexts);
+		stats.put("approximation", getApproximateStats());
+		return stats;
+	}
+
 	private static long getLocalTimeMillisByLatLon(double lat, double lon) {
 		String tz = TimezoneMapper.latLngToTimezoneString(lat, lon);
 		ZonedDateTime zonedDateTime = ZonedDateTime.now(ZoneId.of(tz));
@@ -1088,12 +1326,19 @@ public class OsmAndMapsService {
 			return null;
 		}
 		if (rp.useNativeRouting || rp.useNativeApproximation || rp.noGlobalFile || rp.calcMode != null) {
+			routingSeparate.incrementAndGet();
 			return null;
 		}
 		RoutingCacheContext cache = lockRoutingCache(router, rp, di);
 		if (cache == null) {
+			routingSeparate.incrementAndGet();
 			return null;
 		}
+		if ("NEW".equals(di.selectedCache)) {
+			routingCacheNew.incrementAndGet();
+		} else {
+			routingCacheHits.incrementAndGet();
+		}
 		RoutingContext c = cache.rCtx;
 		c.unloadAllData();
 		c.calculationProgress = new RouteCalculationProgress();
@@ -1224,12 +1469,15 @@ public class OsmAndMapsService {
 		return rParamsStr;
 	}
 
-	private boolean unlockCacheRoutingContext(RoutingContext ctx) {
+	private boolean unlockCacheRoutingContext(RoutingContext ctx, long waitTime, long calcTime) {
 		synchronized (routingCaches) {
 			for (RoutingCacheContext c : routingCaches) {
 				if (c.rCtx == ctx) {
 					c.hCtx = c.hhConfig.cacheCtx;
 					c.locked = 0;
+					if (calcTime >= 0) {
+						c.stats.add(waitTime, calcTime);
+					}
 					return true;
 				}
 			}
@@ -1237,11 +1485,6 @@ public class OsmAndMapsService {
 		return false;
 	}
 
-	private synchronized RouteCalcResult runRoutingSync(LatLon start, LatLon end, List<LatLon> intermediates,
-	                                                    RoutePlannerFrontEnd router, RoutingContext ctx) throws IOException, InterruptedException {
-		return router.searchRoute(ctx, start, end, intermediates, null);
-	}
-
 
 	private void putResultProps(RoutingContext ctx, List<RouteSegmentResult> route, Map<String, Object> props) {
 		float completeTime = 0;
@@ -1318,6 +1561,7 @@ public class OsmAndMapsService {
 			ref = new BinaryMapIndexReaderReference();
 			ref.file = target;
 			obfFiles.put(target.getAbsolutePath(), ref);
+			indexObfRegion(ref);
 		}
 		if (ref.fileIndex != null) {
 			ref.fileIndex = null;
@@ -1341,6 +1585,7 @@ public class OsmAndMapsService {
 		if (nativelib != null) {
 			nativelib.initMapFile(target.getAbsolutePath(), false);
 		}
+		obfEdition.incrementAndGet();
 		LOGGER.info("Init new obf file " + target.getName() + " " + (System.currentTimeMillis() - val) + " ms");
 	}
 
@@ -1381,26 +1626,29 @@ public class OsmAndMapsService {
 				MapUtils.get31LongitudeX((int) Math.max(quadRect.left, quadRect.right)),
 				MapUtils.get31LatitudeY((int) Math.max(quadRect.top, quadRect.bottom)));
 
-		for (BinaryMapIndexReaderReference ref : obfFiles.values()) {
-			File file = ref.file;
-			String downloadName = getDownloadNameByFileName(file.getName());
-			WorldRegion wr = osmandRegions.getRegionDataByDownloadName(downloadName);
-			if (wr == null) {
-				continue;
-			}
-			if (wr.isRegionJoinMapDownload() || wr.isRegionJoinRoadsDownload()) {
-				LOGGER.error("Deprecated joint OBF filtered: " + file.getName());
-				continue;
-			}
-			List<QuadRect> polyBboxes = wr.getAllPolygonsBounds();
-			if (polyBboxes != null && !polyBboxes.isEmpty()
-					&& polyBboxes.stream().anyMatch(pb -> QuadRect.intersects(pb, queryLatLon))) {
-				files.add(file);
-			}
+		for (BinaryMapIndexReaderReference ref : obfRegionsIndex.query(queryLatLon)) {
+			files.add(ref.file);
 		}
 		return files;
 	}
 
+	private void indexObfRegion(BinaryMapIndexReaderReference ref) throws IOException {
+		if (osmandRegions == null) {
+			osmandRegions = new OsmandRegions(null);
+		}
+		File file = ref.file;
+		String downloadName = getDownloadNameByFileName(file.getName());
+		WorldRegion wr = osmandRegions.getRegionDataByDownloadName(downloadName);
+		if (wr == null) {
+			return;
+		}
+		if (wr.isRegionJoinMapDownload() || wr.isRegionJoinRoadsDownload()) {
+			LOGGER.error("Deprecated joint OBF filtered: " + file.getName());
+			return;
+		}
+		obfRegionsIndex.add(ref, wr.getAllPolygonsBounds());
+	}
+
 	public List<BinaryMapIndexReaderReference> getObfReadersByCodes(String maps) throws IOException {
 		initObfReaders();
 		Map<String, BinaryMapIndexReaderReference> byDownloadName = new LinkedHashMap<>();
@@ -1534,6 +1782,10 @@ public class OsmAndMapsService {
 	}
 
 
+	public long getObfEdition() {
+		return obfEdition.get();
+	}
+
 	public synchronized void initObfReaders() throws IOException {
 		if (cacheFiles != null) {
 			return;
@@ -1553,6 +1805,8 @@ public class OsmAndMapsService {
 						ref.file = obf;
 						ref.fileIndex = cacheFiles.getFileIndex(obf, true);
 						obfFiles.put(obf.getAbsolutePath(), ref);
+						indexObfRegion(ref);
+						obfEdition.incrementAndGet();
 					}
 				}
 			}
@@ -0,0 +1,296 @@
+package net.osmand.server.api.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import net.osmand.shared.gpx.GpxFile;
+import net.osmand.shared.gpx.GpxTrackAnalysis;
+import net.osmand.shared.gpx.GpxUtilities;
+import net.osmand.util.Algorithms;
+import net.osmand.util.BoundedLruMap;
+import okio.Buffer;
+import okio.Source;
+
+/**
+ * Two level cache of osm gpx routes: parsed gpx with analysis is kept in heap LRU bounded by estimated bytes,
+ * raw gzipped gpx is stored on local disk (LRU bounded by bytes, survives restarts) so evicted routes
+ * are parsed again without database query. Concurrent loads of the same route are done once.
+ */
+@Service
+public class OsmGpxRouteCache {
+
+	private static final Log LOG = LogFactory.getLog(OsmGpxRouteCache.class);
+
+	// approximate size of parsed gpx objects
+	private static final long ROUTE_ENTRY_BYTES = 4096;
+	private static final long POINT_BYTES = 320;
+	private static final int DISK_SUBFOLDERS = 1000;
+	private static final String FILE_EXT = ".gpx.gz";
+	private static final long MB = 1 << 20;
+
+	@Value("${osmgpx.cache.location:}")
+	private String location;
+
+	@Value("${osmgpx.cache.max-memory-mb:512}")
+	private long maxMemoryMb;
+
+	@Value("${osmgpx.cache.max-disk-mb:8192}")
+	private long maxDiskMb;
+
+	private File cacheDir;
+	private BoundedLruMap<Long, CachedRoute> memoryMap;
+	// id -> file size, evicted files are deleted
+	private BoundedLruMap<Long, Long> diskFiles;
+
+	private final Map<Long, CompletableFuture<CachedRoute>> routeLoads = new ConcurrentHashMap<>();
+	private final Map<Long, CompletableFuture<byte[]>> rawLoads = new ConcurrentHashMap<>();
+
+	private final AtomicLong memoryHits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong dbLoads = new AtomicLong();
+	private final AtomicLong sharedLoads = new AtomicLong();
+	private final AtomicLong notFound = new AtomicLong();
+
+	public interface RawRouteLoader {
+		/**
+		 * @return gzipped gpx or null if route doesn't exist
+		 */
+		byte[] load(long id) throws IOException;
+	}
+
+	public record CachedRoute(GpxFile gpxFile, GpxTrackAnalysis analysis, long weight) {
+	}
+
+	private interface Loader<T> {
+		T load() throws IOException;
+	}
+
+	@PostConstruct
+	public void init() {
+		memoryMap = new BoundedLruMap<>(maxMemoryMb * MB, (id, route) -> route.weight);
+		diskFiles = new BoundedLruMap<Long, Long>(maxDiskMb * MB, (id, size) -> size)
+				.setEvictionListener((id, size) -> getDiskFile(id).delete());
+		if (Algorithms.isEmpty(location)) {
+			LOG.info("Osm gpx disk cache is disabled");
+			return;
+		}
+		File dir = new File(location);
+		if (!dir.exists() && !dir.mkdirs()) {
+			LOG.error("Osm gpx disk cache is disabled, can't create " + dir.getAbsolutePath());
+			return;
+		}
+		cacheDir = dir;
+		scanDiskCache();
+	}
+
+	private void scanDiskCache() {
+		List<File> files = new ArrayList<>();
+		File[] subfolders = cacheDir.listFiles(File::isDirectory);
+		for (File sub : subfolders == null ? new File[0] : subfolders) {
+			File[] list = sub.listFiles();
+			for (File f : list == null ? new File[0] : list) {
+				if (f.getName().endsWith(FILE_EXT)) {
+					files.add(f);
+				} else {
+					// unfinished writes
+					f.delete();
+				}
+			}
+		}
+		// oldest first, so they are evicted first
+		files.sort(Comparator.comparingLong(File::lastModified));
+		for (File f : files) {
+			String name = f.getName();
+			try {
+				long id = Long.parseLong(name.substring(0, name.length() - FILE_EXT.length()));
+				diskFiles.put(id, f.length());
+			} catch (NumberFormatException e) {
+				f.delete();
+			}
+		}
+		LOG.info(String.format("Osm gpx disk cache %s: %d files, %d MB", cacheDir.getAbsolutePath(),
+				diskFiles.size(), diskFiles.getWeight() / MB));
+	}
+
+	/**
+	 * @return parsed route or null if route doesn't exist or can't be parsed
+	 */
+	public CachedRoute getRoute(long id, RawRouteLoader loader) throws IOException {
+		CachedRoute cached = memoryMap.get(id);
+		if (cached != null) {
+			memoryHits.incrementAndGet();
+			return cached;
+		}
+		return singleFlight(routeLoads, id, () -> {
+			// loaded by concurrent request which has just finished
+			CachedRoute route = memoryMap.get(id);
+			if (route != null) {
+				return route;
+			}
+			byte[] raw = getRaw(id, loader);
+			route = raw == null ? null : parse(raw);
+			if (route != null) {
+				memoryMap.put(id, route);
+			}
+			return route;
+		});
+	}
+
+	/**
+	 * @return gzipped gpx or null if route doesn't exist
+	 */
+	public byte[] getRaw(long id, RawRouteLoader loader) throws IOException {
+		return singleFlight(rawLoads, id, () -> {
+			byte[] raw = readDisk(id);
+			if (raw != null) {
+				diskHits.incrementAndGet();
+				return raw;
+			}
+			dbLoads.incrementAndGet();
+			raw = loader.load(id);
+			if (raw == null) {
+				notFound.incrementAndGet();
+				return null;
+			}
+			writeDisk(id, raw);
+			return raw;
+		});
+	}
+
+	private <T> T singleFlight(Map<Long, CompletableFuture<T>> loads, long id, Loader<T> loader) throws IOException {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		CompletableFuture<T> running = loads.putIfAbsent(id, future);
+		if (running != null) {
+			sharedLoads.incrementAndGet();
+			return await(running);
+		}
+		try {
+			T res = loader.load();
+			future.complete(res);
+			return res;
+		} catch (IOException | RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loads.remove(id, future);
+		}
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for route", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException io) {
+				throw io;
+			}
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private CachedRoute parse(byte[] raw) throws IOException {
+		String gpx = Objects.requireNonNull(Algorithms.gzipToString(raw));
+		try (Source src = new Buffer().write(gpx.getBytes())) {
+			GpxFile gpxFile = GpxUtilities.INSTANCE.loadGpxFile(src);
+			if (gpxFile.getError() != null) {
+				return null;
+			}
+			GpxTrackAnalysis analysis = gpxFile.getAnalysis(System.currentTimeMillis());
+			long weight = ROUTE_ENTRY_BYTES + (long) (analysis.getPoints() + analysis.getWptPoints()) * POINT_BYTES;
+			return new CachedRoute(gpxFile, analysis, weight);
+		}
+	}
+
+	private File getDiskFile(long id) {
+		File sub = new File(cacheDir, String.valueOf(id % DISK_SUBFOLDERS));
+		return new File(sub, id + FILE_EXT);
+	}
+
+	private byte[] readDisk(long id) {
+		if (cacheDir == null) {
+			return null;
+		}
+		if (diskFiles.get(id) == null) {
+			return null;
+		}
+		File f = getDiskFile(id);
+		try {
+			byte[] raw = Files.readAllBytes(f.toPath());
+			// keeps lru order after restart
+			f.setLastModified(System.currentTimeMillis());
+			return raw;
+		} catch (IOException e) {
+			LOG.warn("Can't read cached gpx " + f.getAbsolutePath() + ": " + e.getMessage());
+			diskFiles.remove(id);
+			return null;
+		}
+	}
+
+	private void writeDisk(long id, byte[] raw) {
+		if (cacheDir == null) {
+			return;
+		}
+		File f = getDiskFile(id);
+		File tmp = new File(f.getParentFile(), id + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			f.getParentFile().mkdirs();
+			Files.write(tmp.toPath(), raw);
+			Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOG.warn("Can't write cached gpx " + f.getAbsolutePath() + ": " + e.getMessage());
+			tmp.delete();
+			return;
+		}
+		diskFiles.put(id, (long) raw.length);
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		synchronized (memoryMap) {
+			stats.put("memoryRoutes", memoryMap.size());
+			stats.put("memoryBytes", memoryMap.getWeight());
+		}
+		stats.put("maxMemoryBytes", memoryMap.getMaxWeight());
+		synchronized (diskFiles) {
+			stats.put("diskFiles", diskFiles.size());
+			stats.put("diskBytes", diskFiles.getWeight());
+		}
+		stats.put("maxDiskBytes", diskFiles.getMaxWeight());
+		stats.put("diskLocation", cacheDir == null ? "" : cacheDir.getAbsolutePath());
+		long mh = memoryHits.get();
+		long dh = diskHits.get();
+		long db = dbLoads.get();
+		stats.put("memoryHits", mh);
+		stats.put("diskHits", dh);
+		stats.put("dbLoads", db);
+		stats.put("hitRate", mh + dh + db == 0 ? 0 : (double) (mh + dh) / (mh + dh + db));
+		stats.put("sharedLoads", sharedLoads.get());
+		stats.put("notFound", notFound.get());
+		stats.put("memoryEvictions", memoryMap.getEvictions());
+		stats.put("diskEvictions", diskFiles.getEvictions());
+		return stats;
+	}
+}
@@ -8,6 +8,8 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import net.osmand.data.LatLonEle;
+import net.osmand.obf.preparation.IndexHeightData;
+import net.osmand.obf.preparation.SrtmElevationService;
 import net.osmand.shared.gpx.ElevationApproximator;
 import net.osmand.router.*;
 import net.osmand.shared.gpx.ElevationDiffsCalculator;
@@ -40,6 +42,9 @@ public class RoutingService {
     @Autowired
     WebGpxParser webGpxParser;
 
+    @Autowired
+    GpxService gpxService;
+
     public static class RouteResult {
         public List<WebGpxParser.Point> points;
         public List<GpxUtilities.RouteType> routeTypes;
@@ -80,7 +85,7 @@ public class RoutingService {
         return new RouteResult(pointsRes, routeTypes);
     }
 
-    public synchronized List<WebGpxParser.Point> approximateRoute(List<WebGpxParser.Point> points, String routeMode) throws IOException, InterruptedException {
+    public List<WebGpxParser.Point> approximateRoute(List<WebGpxParser.Point> points, String routeMode) throws IOException, InterruptedException {
         List<Location> locations = new ArrayList<>();
         List<RouteSegmentResult> approximateResult = osmAndMapsService.approximateRoute(points, routeMode);
         List<WebGpxParser.Point> gpxPoints = getPoints(approximateResult, locations);
@@ -260,8 +265,42 @@ public class RoutingService {
                 features.add(f);
             }
         }
+        addSrtmElevations(resListEle);
         return resListEle;
     }
+
+    // segments without heights in obf get elevation from srtm in one batch
+    private void addSrtmElevations(List<LatLonEle> points) {
+        int missing = 0;
+        for (LatLonEle p : points) {
+            if (Double.isNaN(p.getElevation())) {
+                missing++;
+            }
+        }
+        SrtmElevationService elevationService = missing > 0 ? gpxService.getElevationService() : null;
+        if (elevationService == null) {
+            return;
+        }
+        double[] lats = new double[missing];
+        double[] lons = new double[missing];
+        int k = 0;
+        for (LatLonEle p : points) {
+            if (Double.isNaN(p.getElevation())) {
+                lats[k] = p.getLatitude();
+                lons[k++] = p.getLongitude();
+            }
+        }
+        double[] heights = elevationService.heights(lats, lons);
+        k = 0;
+        for (LatLonEle p : points) {
+            if (Double.isNaN(p.getElevation())) {
+                double h = heights[k++];
+                if (h != IndexHeightData.INEXISTENT_HEIGHT) {
+                    p.setElevation((float) h);
+                }
+            }
+        }
+    }
     
     public List<Double> calculateElevationDiffs(List<LatLonEle> points) {
         ElevationApproximator approximator = getElevationApproximator(points);
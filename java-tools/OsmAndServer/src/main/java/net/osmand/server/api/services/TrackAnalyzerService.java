@@ -4,6 +4,7 @@ import net.osmand.data.LatLon;
 import net.osmand.server.api.repo.CloudUserDevicesRepository;
 import net.osmand.server.api.repo.CloudUserFilesRepository;
 import net.osmand.server.controllers.pub.UserdataController;
+import net.osmand.server.utils.GpxSegmentIndex;
 import net.osmand.shared.gpx.GpxFile;
 import net.osmand.shared.gpx.GpxTrackAnalysis;
 import net.osmand.shared.gpx.GpxUtilities;
@@ -82,30 +83,54 @@ public class TrackAnalyzerService {
 		boolean useOnePoint = wptPoints.size() == 1;
 		String[] tiles = getQuadTileShortlinks(wptPoints);
 
-		//get files for analysis
-		UserdataController.UserFilesResults userFiles = userdataService.generateGpxFilesByQuadTiles(dev.userid, false,  tiles);
+		//get files for analysis, segment index allows to skip files which don't pass near points
+		Map<Long, String> segmentIndexes = new HashMap<>();
+		UserdataController.UserFilesResults userFiles = userdataService.generateGpxFilesByQuadTiles(dev.userid, false,
+				tiles, segmentIndexes);
 		List<CloudUserFilesRepository.UserFileNoData> filesForAnalysis = getFilesForAnalysis(userFiles, analyzerRequest.folders);
 
 		if (Algorithms.isEmpty(analyzerRequest.points)) {
 			return null;
 		}
+		List<WptPt> checkPoints = useOnePoint ? wptPoints : wptPoints.subList(0, 2);
+		// matches by MAX_DIST_THRESHOLD are used only if nothing matches by MIN_DIST_THRESHOLD
+		List<FileSegments> fallback = new ArrayList<>();
 		for (CloudUserFilesRepository.UserFileNoData file : filesForAnalysis) {
-			processFileForSegments(file, useOnePoint, wptPoints, MIN_DIST_THRESHOLD, analysisResponse);
+			GpxSegmentIndex index = GpxSegmentIndex.parse(segmentIndexes.get(file.id));
+			if (index != null && !index.isNear(checkPoints, MAX_DIST_THRESHOLD)) {
+				continue;
+			}
+			processFileForSegments(file, useOnePoint, wptPoints, analysisResponse, fallback);
 		}
 		if (analysisResponse.segments.isEmpty()) {
-			for (CloudUserFilesRepository.UserFileNoData file : filesForAnalysis) {
-				processFileForSegments(file, useOnePoint, wptPoints, MAX_DIST_THRESHOLD, analysisResponse);
+			for (FileSegments fs : fallback) {
+				addSegments(fs, analysisResponse);
 			}
 		}
 		return analysisResponse;
 	}
 
+	private static class FileSegments {
+		final CloudUserFilesRepository.UserFileNoData file;
+		final String name;
+		final GpxFile gpxFile;
+		final List<TrkSegment> segments;
+
+		FileSegments(CloudUserFilesRepository.UserFileNoData file, String name, GpxFile gpxFile,
+		             List<TrkSegment> segments) {
+			this.file = file;
+			this.name = name;
+			this.gpxFile = gpxFile;
+			this.segments = segments;
+		}
+	}
+
 	private void processFileForSegments(
 			CloudUserFilesRepository.UserFileNoData file,
 			boolean useOnePoint,
 			List<WptPt> wptPoints,
-			double distThreshold,
-			TrackAnalyzerResponse analysisResponse) throws IOException {
+			TrackAnalyzerResponse analysisResponse,
+			List<FileSegments> fallback) throws IOException {
 
 		Optional<CloudUserFilesRepository.UserFile> of = filesRepository.findById(file.id);
 		if (of.isEmpty()) {
@@ -120,31 +145,45 @@ public class TrackAnalyzerService {
 
 		for (Track t : gpxFile.getTracks()) {
 			for (TrkSegment s : t.getSegments()) {
-				List<TrkSegment> segments = useOnePoint
-						? processSegmentsForOnePoint(uf.name, s, wptPoints.get(0), distThreshold)
-						: processSegments(uf.name, s, wptPoints.get(0), wptPoints.get(1), distThreshold);
-
+				List<TrkSegment> segments = findSegments(uf.name, s, useOnePoint, wptPoints, MIN_DIST_THRESHOLD);
 				if (!segments.isEmpty()) {
-					analysisResponse.segments.put(uf.name, segments);
-					analysisResponse.files.add(file);
-
-					List<Map<String, String>> statResults = new ArrayList<>();
-					for (TrkSegment seg : segments) {
-						GpxFile g = new GpxFile(OSMAND_ROUTER_V2);
-						g.getTracks().add(new Track());
-						g.getTracks().get(0).getSegments().add(seg);
-						GpxTrackAnalysis analysis = g.getAnalysis(0);
-
-						Map<String, String> trackAnalysisData = getSegmentAnalysis(analysis);
-						trackAnalysisData.put("date", String.valueOf(GpxUtilities.INSTANCE.getCreationTime(gpxFile)));
-						statResults.add(trackAnalysisData);
+					addSegments(new FileSegments(file, uf.name, gpxFile, segments), analysisResponse);
+					fallback.clear();
+				} else if (analysisResponse.segments.isEmpty()) {
+					segments = findSegments(uf.name, s, useOnePoint, wptPoints, MAX_DIST_THRESHOLD);
+					if (!segments.isEmpty()) {
+						fallback.add(new FileSegments(file, uf.name, gpxFile, segments));
 					}
-					analysisResponse.trackAnalysis.put(uf.name, statResults);
 				}
 			}
 		}
 	}
 
+	private List<TrkSegment> findSegments(String trackName, TrkSegment s, boolean useOnePoint, List<WptPt> wptPoints,
+	                                      double distThreshold) {
+		return useOnePoint
+				? processSegmentsForOnePoint(trackName, s, wptPoints.get(0), distThreshold)
+				: processSegments(trackName, s, wptPoints.get(0), wptPoints.get(1), distThreshold);
+	}
+
+	private void addSegments(FileSegments fs, TrackAnalyzerResponse analysisResponse) {
+		analysisResponse.segments.put(fs.name, fs.segments);
+		analysisResponse.files.add(fs.file);
+
+		List<Map<String, String>> statResults = new ArrayList<>();
+		for (TrkSegment seg : fs.segments) {
+			GpxFile g = new GpxFile(OSMAND_ROUTER_V2);
+			g.getTracks().add(new Track());
+			g.getTracks().get(0).getSegments().add(seg);
+			GpxTrackAnalysis analysis = g.getAnalysis(0);
+
+			Map<String, String> trackAnalysisData = getSegmentAnalysis(analysis);
+			trackAnalysisData.put("date", String.valueOf(GpxUtilities.INSTANCE.getCreationTime(fs.gpxFile)));
+			statResults.add(trackAnalysisData);
+		}
+		analysisResponse.trackAnalysis.put(fs.name, statResults);
+	}
+
 	@NotNull
 	private static Map<String, String> getSegmentAnalysis(GpxTrackAnalysis analysis) {
 		Map<String, String> trackAnalysisData = new HashMap<>();
@@ -10,12 +10,19 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -23,6 +30,7 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
@@ -65,6 +73,7 @@ import net.osmand.server.api.services.StorageService.InternalZipFile;
 import net.osmand.server.controllers.pub.UserSessionResources;
 import net.osmand.server.controllers.pub.UserdataController;
 import net.osmand.server.controllers.user.MapApiController;
+import net.osmand.server.utils.StreamingZipWriter;
 import net.osmand.server.utils.WebGpxParser;
 import net.osmand.server.utils.exception.OsmAndPublicApiException;
 import net.osmand.util.Algorithms;
@@ -121,6 +130,8 @@ public class UserdataService {
 
     Gson gson = new Gson();
 
+	private final ThreadPoolExecutor backupReadAheadExecutor = createBackupReadAheadExecutor();
+
     public static final String ERROR_MESSAGE_FILE_IS_NOT_AVAILABLE = "File is not available";
     public static final String BRAND_DEVICE_WEB = "OsmAnd";
     public static final String MODEL_DEVICE_WEB = "Web";
@@ -129,6 +140,12 @@ public class UserdataService {
     private static final long MB = 1024 * 1024;
     public static final int BUFFER_SIZE = 1024 * 512;
     public static final long MAXIMUM_ACCOUNT_SIZE = 3000 * MB; // 3 (5 GB - std, 50 GB - ext, 1000 GB - pro)
+	// streaming export reads next files from storage while current one is written
+	private static final int BACKUP_READ_AHEAD_THREADS = 8;
+	private static final int BACKUP_READ_AHEAD_QUEUE = 64;
+	private static final int BACKUP_READ_AHEAD_FILES = 2;
+	private static final int BACKUP_READ_AHEAD_BYTES = 1024 * 1024;
+	private static final int BACKUP_STREAM_BUFFER = 64 * 1024;
     private static final String USER_FOLDER_PREFIX = "user-";
     private static final String FILE_NAME_SUFFIX = ".gz";
     private static final int MAX_FILENAME = 220; // max basename bytes
@@ -1086,83 +1103,41 @@ public class UserdataService {
     }
 
 
-    public void getBackup(HttpServletResponse response, CloudUserDevicesRepository.CloudUserDevice dev,
-			Set<String> filterTypes, boolean includeDeleted, String format) throws IOException {
+	public void getBackup(HttpServletResponse response, CloudUserDevicesRepository.CloudUserDevice dev,
+			Set<String> filterTypes, boolean includeDeleted, String format, boolean streaming) throws IOException {
 		List<UserFileNoData> files = filesRepository.listFilesByUserid(dev.userid, null, null);
 		Set<String> fileIds = new TreeSet<>();
-		SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yy");
-		String fileName = "Export_" + formatter.format(new Date());
-		File tmpFile = File.createTempFile(fileName, ".zip");
-		response.setHeader("Content-Disposition", "attachment; filename=" + fileName + format);
-		response.setHeader("Content-Type", "application/zip");
-		ZipOutputStream zs = null;
-		try {
-            JSONArray itemsJson = new JSONArray();
-			zs = new ZipOutputStream(new FileOutputStream(tmpFile));
-			for (CloudUserFilesRepository.UserFileNoData sf : files) {
-				String fileId = sf.type + "____" + sf.name;
-                if (shouldSkipFile(filterTypes, sf, null)) {
-                    continue;
-                }
-				if (fileIds.add(fileId)) {
-					if (sf.filesize >= 0) {
-                        itemsJson.put(new JSONObject(toJson(sf.type, sf.name)));
-                        InputStream s3is = getInputStream(sf);
-                        InputStream is;
-                        if (s3is == null) {
-                            CloudUserFilesRepository.UserFile userFile = getUserFile(sf.name, sf.type, null, dev);
-                            if (userFile != null) {
-                                is = new GZIPInputStream(getInputStream(dev, userFile));
-                            } else {
-                                is = null;
-                            }
-                        } else {
-                            is = new GZIPInputStream(s3is);
-                        }
-                        ZipEntry zipEntry;
-                        if (format.equals(".zip")) {
-                            zipEntry = new ZipEntry(sf.type + File.separatorChar + sf.name);
-                        } else {
-                            if (sf.type.equalsIgnoreCase(FILE_TYPE_GPX)) {
-                                zipEntry = new ZipEntry("tracks" + File.separatorChar + sf.name);
-                            } else {
-                                zipEntry = new ZipEntry(sf.name);
-                            }
-                        }
-						zs.putNextEntry(zipEntry);
-                        if (is != null) {
-                            Algorithms.streamCopy(is, zs);
-                        }
-						zs.closeEntry();
-					} else if (includeDeleted) {
-						// include last version of deleted files
-						fileIds.remove(fileId);
+		List<BackupItem> items = new ArrayList<>();
+		JSONArray itemsJson = new JSONArray();
+		for (CloudUserFilesRepository.UserFileNoData sf : files) {
+			String fileId = sf.type + "____" + sf.name;
+			if (shouldSkipFile(filterTypes, sf, null)) {
+				continue;
+			}
+			if (fileIds.add(fileId)) {
+				if (sf.filesize >= 0) {
+					itemsJson.put(new JSONObject(toJson(sf.type, sf.name)));
+					String entryName;
+					if (format.equals(".zip")) {
+						entryName = sf.type + File.separatorChar + sf.name;
+					} else if (sf.type.equalsIgnoreCase(FILE_TYPE_GPX)) {
+						entryName = "tracks" + File.separatorChar + sf.name;
+					} else {
+						entryName = sf.name;
 					}
+					items.add(new BackupItem(entryName, sf.updatetime, sf.filesize, () -> openBackupFile(dev, sf)));
+				} else if (includeDeleted) {
+					// include last version of deleted files
+					fileIds.remove(fileId);
 				}
 			}
-            JSONObject json = createItemsJson(itemsJson);
-            ZipEntry zipEntry = new ZipEntry("items.json");
-            zs.putNextEntry(zipEntry);
-            InputStream is = new ByteArrayInputStream(json.toString().getBytes());
-            Algorithms.streamCopy(is, zs);
-            zs.closeEntry();
-			zs.flush();
-			zs.finish();
-			zs.close();
-			response.setHeader("Content-Length", tmpFile.length() + "");
-			FileInputStream fis = new FileInputStream(tmpFile);
-			try {
-				OutputStream ous = response.getOutputStream();
-				Algorithms.streamCopy(fis, ous);
-				ous.close();
-			} finally {
-				fis.close();
-			}
-		} finally {
-			if (zs != null) {
-				zs.close();
-			}
-			tmpFile.delete();
+		}
+		SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yy");
+		String fileName = "Export_" + formatter.format(new Date());
+		if (streaming) {
+			streamBackup(response, fileName, format, items, itemsJson);
+		} else {
+			writeBackup(response, fileName, format, items, itemsJson);
 		}
 	}
 
@@ -1182,47 +1157,191 @@ public class UserdataService {
         return false;
     }
 
-    @Transactional
-    public void getBackupFolder(HttpServletResponse response, CloudUserDevicesRepository.CloudUserDevice dev,
-                                String folderName, String format, String type, List<CloudUserFilesRepository.UserFile> selectedFiles) throws IOException {
-        List<UserFile> files = folderName != null
-		        ? filesRepository.findLatestFilesByFolderName(dev.userid, folderName + "/", type)
-		        : selectedFiles;
-        SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yy");
-        String fileName = "Export_" + formatter.format(new Date());
-        File tmpFile = File.createTempFile(fileName, ".zip");
-        try (ZipOutputStream zs = new ZipOutputStream(new FileOutputStream(tmpFile))) {
-            JSONArray itemsJson = new JSONArray();
-            for (UserFile file : files) {
-                if (!shouldSkipFile(Collections.singleton(type), null, file)) {
-                    itemsJson.put(new JSONObject(toJson(type, file.name)));
-                    InputStream is = new GZIPInputStream(getInputStream(dev, file));
-                    ZipEntry zipEntry = new ZipEntry(file.name);
-                    zs.putNextEntry(zipEntry);
-                    Algorithms.streamCopy(is, zs);
-                    zs.closeEntry();
-                }
-            }
-            JSONObject json = createItemsJson(itemsJson);
-            ZipEntry zipEntry = new ZipEntry("items.json");
-            zs.putNextEntry(zipEntry);
-            InputStream is = new ByteArrayInputStream(json.toString().getBytes());
-            Algorithms.streamCopy(is, zs);
-            zs.closeEntry();
-            zs.flush();
-            zs.finish();
-            response.setHeader("Content-Disposition", "attachment; filename=" + fileName + format);
-            response.setHeader("Content-Type", "application/zip");
-            response.setHeader("Content-Length", tmpFile.length() + "");
-            try (FileInputStream fis = new FileInputStream(tmpFile)) {
-                OutputStream ous = response.getOutputStream();
-                Algorithms.streamCopy(fis, ous);
-                ous.close();
-            }
-        } finally {
-            Files.delete(tmpFile.toPath());
-        }
-    }
+	@Transactional
+	public void getBackupFolder(HttpServletResponse response, CloudUserDevicesRepository.CloudUserDevice dev,
+			String folderName, String format, String type, List<CloudUserFilesRepository.UserFile> selectedFiles,
+			boolean streaming) throws IOException {
+		List<BackupItem> items = new ArrayList<>();
+		JSONArray itemsJson = new JSONArray();
+		if (folderName != null) {
+			// file data is not loaded with the list, files are read one by one while backup is written
+			List<UserFileNoData> files = filesRepository.findLatestFilesNoDataByFolderName(dev.userid, folderName + "/", type);
+			for (UserFileNoData file : files) {
+				if (file.filesize != -1 && !file.name.endsWith(EMPTY_FILE_NAME) && !file.name.endsWith(INFO_EXT)) {
+					itemsJson.put(new JSONObject(toJson(type, file.name)));
+					items.add(new BackupItem(file.name, file.updatetime, file.filesize, () -> openBackupFile(dev, file)));
+				}
+			}
+		} else {
+			for (UserFile file : selectedFiles) {
+				if (!shouldSkipFile(Collections.singleton(type), null, file)) {
+					itemsJson.put(new JSONObject(toJson(type, file.name)));
+					long size = file.filesize != null ? file.filesize : StreamingZipWriter.UNKNOWN_SIZE;
+					items.add(new BackupItem(file.name, file.updatetime, size, () -> getInputStream(dev, file)));
+				}
+			}
+		}
+		SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yy");
+		String fileName = "Export_" + formatter.format(new Date());
+		if (streaming) {
+			streamBackup(response, fileName, format, items, itemsJson);
+		} else {
+			writeBackup(response, fileName, format, items, itemsJson);
+		}
+	}
+
+	private interface BackupFileOpener {
+		// gzipped file or null if file is missing
+		InputStream open() throws IOException;
+	}
+
+	private record BackupItem(String entryName, Date time, long size, BackupFileOpener opener) {
+	}
+
+	private InputStream openBackupFile(CloudUserDevicesRepository.CloudUserDevice dev, UserFileNoData sf) {
+		InputStream s3is = getInputStream(sf);
+		if (s3is == null) {
+			CloudUserFilesRepository.UserFile userFile = getUserFile(sf.name, sf.type, null, dev);
+			return userFile != null ? getInputStream(dev, userFile) : null;
+		}
+		return s3is;
+	}
+
+	// zip is prepared in temporary file to send Content-Length
+	private void writeBackup(HttpServletResponse response, String fileName, String format,
+			List<BackupItem> items, JSONArray itemsJson) throws IOException {
+		File tmpFile = File.createTempFile(fileName, ".zip");
+		try {
+			try (ZipOutputStream zs = new ZipOutputStream(new FileOutputStream(tmpFile))) {
+				for (BackupItem item : items) {
+					InputStream gzis = item.opener().open();
+					zs.putNextEntry(new ZipEntry(item.entryName()));
+					if (gzis != null) {
+						try (InputStream is = new GZIPInputStream(gzis)) {
+							Algorithms.streamCopy(is, zs);
+						}
+					}
+					zs.closeEntry();
+				}
+				JSONObject json = createItemsJson(itemsJson);
+				zs.putNextEntry(new ZipEntry("items.json"));
+				InputStream is = new ByteArrayInputStream(json.toString().getBytes());
+				Algorithms.streamCopy(is, zs);
+				zs.closeEntry();
+				zs.finish();
+			}
+			response.setHeader("Content-Disposition", "attachment; filename=" + fileName + format);
+			response.setHeader("Content-Type", "application/zip");
+			response.setHeader("Content-Length", tmpFile.length() + "");
+			try (FileInputStream fis = new FileInputStream(tmpFile)) {
+				OutputStream ous = response.getOutputStream();
+				Algorithms.streamCopy(fis, ous);
+				ous.close();
+			}
+		} finally {
+			Files.delete(tmpFile.toPath());
+		}
+	}
+
+	// zip is sent while files are read, stored gzip data is copied to entries without recompression
+	private void streamBackup(HttpServletResponse response, String fileName, String format,
+			List<BackupItem> items, JSONArray itemsJson) throws IOException {
+		response.setHeader("Content-Disposition", "attachment; filename=" + fileName + format);
+		response.setHeader("Content-Type", "application/zip");
+		Deque<Future<InputStream>> pending = new ArrayDeque<>();
+		// read ahead tasks which are not started yet don't open files after export is stopped
+		AtomicBoolean stopped = new AtomicBoolean();
+		int next = 0;
+		try {
+			OutputStream ous = response.getOutputStream();
+			StreamingZipWriter zw = new StreamingZipWriter(ous, BACKUP_STREAM_BUFFER);
+			for (BackupItem item : items) {
+				while (next < items.size() && pending.size() <= BACKUP_READ_AHEAD_FILES) {
+					BackupFileOpener opener = items.get(next++).opener();
+					pending.add(backupReadAheadExecutor.submit(() -> stopped.get() ? null : readAhead(opener)));
+				}
+				long time = item.time() != null ? item.time().getTime() : System.currentTimeMillis();
+				try (InputStream is = getReadAhead(pending.poll())) {
+					if (is != null) {
+						zw.putGzipEntry(item.entryName(), is, time, item.size());
+					} else {
+						zw.putStoredEntry(item.entryName(), new byte[0], time);
+					}
+				}
+			}
+			JSONObject json = createItemsJson(itemsJson);
+			zw.putStoredEntry("items.json", json.toString().getBytes(), System.currentTimeMillis());
+			zw.finish();
+			ous.close();
+		} finally {
+			stopped.set(true);
+			// running tasks are not cancelled: cancelled future loses stream which is opened by task
+			for (Future<InputStream> f : pending) {
+				try {
+					InputStream is = f.get();
+					if (is != null) {
+						is.close();
+					}
+				} catch (Exception e) {
+					// cancelled or failed
+				}
+			}
+		}
+	}
+
+	// keeps at most BACKUP_READ_AHEAD_BYTES of file in memory, rest is read from storage while writing
+	private static InputStream readAhead(BackupFileOpener opener) throws IOException {
+		InputStream is = opener.open();
+		if (is == null) {
+			return null;
+		}
+		byte[] head;
+		try {
+			head = is.readNBytes(BACKUP_READ_AHEAD_BYTES);
+		} catch (IOException | RuntimeException e) {
+			is.close();
+			throw e;
+		}
+		if (head.length < BACKUP_READ_AHEAD_BYTES) {
+			is.close();
+			return new ByteArrayInputStream(head);
+		}
+		return new SequenceInputStream(new ByteArrayInputStream(head), is);
+	}
+
+	private static InputStream getReadAhead(Future<InputStream> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Backup export is interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException io) {
+				throw io;
+			}
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static ThreadPoolExecutor createBackupReadAheadExecutor() {
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(BACKUP_READ_AHEAD_THREADS, BACKUP_READ_AHEAD_THREADS, 1,
+				TimeUnit.MINUTES, new ArrayBlockingQueue<>(BACKUP_READ_AHEAD_QUEUE), r -> {
+					Thread t = new Thread(r, "backup-read-ahead-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@PreDestroy
+	public void shutdownBackupReadAheadPool() {
+		backupReadAheadExecutor.shutdownNow();
+	}
 
 
     @Transactional
@@ -1424,7 +1543,16 @@ public class UserdataService {
 	}
 
 	public UserdataController.UserFilesResults generateGpxFilesByQuadTiles(int userId, boolean allVersions, String[] tiles) {
-		String query = "SELECT u.id, u.userid, u.deviceid, u.type, u.name, u.updatetime, u.clienttime, u.filesize, u.zipfilesize, u.storage, u.storagename " +
+		return generateGpxFilesByQuadTiles(userId, allVersions, tiles, null);
+	}
+
+	/**
+	 * @param segmentIndexes filled with segment index of files (by file id) if not null
+	 */
+	public UserdataController.UserFilesResults generateGpxFilesByQuadTiles(int userId, boolean allVersions, String[] tiles,
+	                                                                       Map<Long, String> segmentIndexes) {
+		String query = "SELECT u.id, u.userid, u.deviceid, u.type, u.name, u.updatetime, u.clienttime, u.filesize, u.zipfilesize, u.storage, u.storagename" +
+				(segmentIndexes != null ? ", u.gendetails ->> '" + WebUserdataService.SEGMENT_INDEX + "' AS segmentindex " : " ") +
 				"FROM user_files u " +
 				"WHERE u.userid = ? " +
 				"AND u.type = 'GPX' " +
@@ -1449,6 +1577,9 @@ public class UserdataService {
 			String storagename = (String) row.get("storagename");
 
 			userFileNoDataList.add(new UserFileNoData(id, uId, deviceId, type, name, updateTime, clientTime, fileSize, zipFileSize, storage, null, storagename));
+			if (segmentIndexes != null && row.get("segmentindex") != null) {
+				segmentIndexes.put(id, (String) row.get("segmentindex"));
+			}
 		}
 
 		sanitizeFileNames(userFileNoDataList);
@@ -12,6 +12,7 @@ import net.osmand.server.api.repo.CloudUserDevicesRepository;
 import net.osmand.server.api.repo.CloudUserFilesRepository;
 import net.osmand.server.controllers.pub.UserSessionResources;
 import net.osmand.server.controllers.pub.UserdataController.UserFilesResults;
+import net.osmand.server.utils.GpxSegmentIndex;
 import net.osmand.server.utils.WebGpxParser;
 import net.osmand.server.utils.exception.OsmAndPublicApiException;
 import net.osmand.shared.gpx.GpxFile;
@@ -74,6 +75,8 @@ public class WebUserdataService {
 	private static final String FAV_POINT_GROUPS = "pointGroups";
 	public static final String ANALYSIS = "analysis";
 	public static final String ANALYSIS_ADDITIONAL = "analysisAdditional";
+	// GpxSegmentIndex of track, used by track analyzer only
+	public static final String SEGMENT_INDEX = "segmentIndex";
 	public static final String SHARE = "share";
 	private static final String AUTHOR = "author";
 	private static final String HAS_ADVANCED_ROUTE = "hasAdvancedRoute";
@@ -373,7 +376,7 @@ public class WebUserdataService {
 	public JsonObject detailsForResponse(JsonObject details) {
 		JsonObject response = new JsonObject();
 		for (String key : details.keySet()) {
-			if (!ANALYSIS_ADDITIONAL.equals(key)) {
+			if (!ANALYSIS_ADDITIONAL.equals(key) && !SEGMENT_INDEX.equals(key)) {
 				response.add(key, details.get(key));
 			}
 		}
@@ -407,6 +410,10 @@ public class WebUserdataService {
 				if (!gpxFile.getRoutes().isEmpty()) {
 					details.addProperty(HAS_ADVANCED_ROUTE, true);
 				}
+				String segmentIndex = GpxSegmentIndex.build(gpxFile);
+				if (segmentIndex != null) {
+					details.addProperty(SEGMENT_INDEX, segmentIndex);
+				}
 			}
 		}
 		details.add(SHARE, gson.toJsonTree(isShared));
@@ -10,7 +10,18 @@ import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import jakarta.annotation.PreDestroy;
 import net.osmand.search.core.TopIndexFilter;
 import net.osmand.search.core.spatial.SpatialPoiSearch.SpatialPoiType;
 import org.apache.commons.logging.Log;
@@ -63,6 +74,14 @@ public class PoiSearchService {
 	private static final int SPATIAL_POI_CATEGORY_VIEW_TILES = 3;
 	private static final double SEARCH_POI_RADIUS_DEGREE = 0.0007;
 	private static final String WIKI_POI_TYPE = "osmwiki";
+	private static final int POI_CATEGORY_THREADS = 4;
+	private static final int POI_CATEGORY_QUEUE = 32;
+	// all categories of one request share the deadline, late categories are dropped from response
+	private static final long POI_CATEGORY_TIMEOUT_MS = 10_000;
+	private static final long POI_TILE_CACHE_BYTES = 256L << 20;
+
+	private final ThreadPoolExecutor poiCategoryExecutor = createPoiCategoryExecutor();
+	private final PoiTileCache poiTileCache = new PoiTileCache(POI_TILE_CACHE_BYTES);
 
 	@Autowired
 	OsmAndMapsService osmAndMapsService;
@@ -79,6 +98,23 @@ public class PoiSearchService {
 	@Autowired
 	private SearchResultConverter searchResultConverter;
 
+	private static ThreadPoolExecutor createPoiCategoryExecutor() {
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(POI_CATEGORY_THREADS, POI_CATEGORY_THREADS, 1,
+				TimeUnit.MINUTES, new ArrayBlockingQueue<>(POI_CATEGORY_QUEUE), r -> {
+					Thread t = new Thread(r, "poi-category-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@PreDestroy
+	public void shutdownPoiCategoryPool() {
+		poiCategoryExecutor.shutdownNow();
+	}
+
 	public static class PoiSearchResult {
 
 		public PoiSearchResult(boolean useLimit, boolean mapLimitExceeded, FeatureCollection features) {
@@ -171,6 +207,7 @@ public class PoiSearchService {
 		QuadRect searchBbox = mapReadersService.getSearchBbox(data.bbox);
 		List<BinaryMapIndexReader> usedMapList = new ArrayList<>();
 		boolean useLimit = false;
+		Map<String, String> categoryTimings = null;
 		try {
 			List<OsmAndMapsService.BinaryMapIndexReaderReference> mapList = mapReadersService.getMapsForSearch(searchBbox, baseSearch);
 			if (mapList.isEmpty()) {
@@ -187,26 +224,12 @@ public class PoiSearchService {
 
 			if (data.categories.size() == 1) {
 				stats = searchPoiByTypeCategory(data.categories.get(0), locale, searchBbox, usedMapList, foundFeatures,
-						null, zoom, timeZone);
+						null, zoom, timeZone, null);
 				useLimit = foundFeatures.size() >= TOTAL_LIMIT_POI;
 			} else {
-				PoiSearchLimit poiSearchLimit = new PoiSearchLimit(TOTAL_LIMIT_POI / data.categories.size(),
-						TOTAL_LIMIT_POI, false);
-				for (PoiSearchCategory categoryObj : data.categories) {
-					if (poiSearchLimit.isLimitReached()) {
-						useLimit = true;
-						break;
-					}
-					int categoryStartSize = foundFeatures.size();
-					searchPoiByTypeCategory(categoryObj, locale, searchBbox, usedMapList, foundFeatures, poiSearchLimit,
-							zoom, timeZone);
-					int categoryEndSize = foundFeatures.size();
-					poiSearchLimit.updateAfterCategory(categoryStartSize, categoryEndSize);
-					if (poiSearchLimit.useLimit) {
-						useLimit = true;
-						break;
-					}
-				}
+				categoryTimings = new LinkedHashMap<>();
+				useLimit = searchPoiByCategories(data.categories, locale, searchBbox, mapList, usedMapList,
+						foundFeatures, zoom, timeZone, categoryTimings);
 			}
 		} finally {
 			osmAndMapsService.unlockReaders(usedMapList);
@@ -218,6 +241,14 @@ public class PoiSearchService {
 					new FeatureCollection(features.toArray(new Feature[0])));
 			if (stats != null) {
 				res.info = spatialSearchService.getSearchStats(stats, sTime, features.size());
+			} else {
+				// several categories or all tiles were cached
+				res.info = new LinkedHashMap<>();
+				res.info.put("timeAll", String.format("%.1f", (System.currentTimeMillis() - sTime) / 1e3));
+				res.info.put("results", features.size());
+			}
+			if (categoryTimings != null) {
+				res.info.put("categories", categoryTimings);
 			}
 			return res;
 		} else {
@@ -294,6 +325,25 @@ public class PoiSearchService {
 				readers, spatialSearchService.getSpatialPoiTypeSearch(), null);
 	}
 
+	private SpatialSearchContext createPoiCategoryContext(QuadRect bboxLatLon, int poiZoom,
+	                                                      List<BinaryMapIndexReader> readers, BooleanSupplier cancelled) {
+		SpatialSearchContext sscontext = createPoiCategoryContext(bboxLatLon, poiZoom, readers);
+		if (cancelled != null) {
+			sscontext.resultMatcher = new ResultMatcher<>() {
+				@Override
+				public boolean publish(SpatialSearchResult object) {
+					return false; // used only as a cancellation hook
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return cancelled.getAsBoolean();
+				}
+			};
+		}
+		return sscontext;
+	}
+
 	private SpatialSearchContext createSpatialContext(SpatialTextSearchSettings settings,
 	                                                  List<BinaryMapIndexReader> readers,
 	                                                  SpatialPoiSearch poiTypeSearch, LatLon center) {
@@ -369,10 +419,131 @@ public class PoiSearchService {
 		return bbox31 == null ? viewZoom : estimatePoiZoom(toLatLonBbox(bbox31), -1);
 	}
 
+	private static class PoiCategoryResult {
+		final Map<Long, Feature> features = new LinkedHashMap<>();
+		long timeMs;
+		boolean incompleteReaders;
+	}
+
+	/**
+	 * Searches categories in parallel: each category collects up to {@link #TOTAL_LIMIT_POI} into its own map,
+	 * results are merged in request order and fair share / total limit are applied while merging, so overlapping
+	 * POIs and limits are handled as in sequential search. Categories whose worker could not lock all maps or
+	 * which were rejected by the pool run on the calling thread with already locked readers. All categories
+	 * are cancelled at the shared deadline.
+	 */
+	private boolean searchPoiByCategories(List<PoiSearchCategory> categories, String locale, QuadRect searchBbox,
+	                                      List<OsmAndMapsService.BinaryMapIndexReaderReference> mapList,
+	                                      List<BinaryMapIndexReader> usedMapList, Map<Long, Feature> foundFeatures,
+	                                      int zoom, String timeZone, Map<String, String> categoryTimings)
+			throws IOException {
+		long deadline = System.currentTimeMillis() + POI_CATEGORY_TIMEOUT_MS;
+		AtomicBoolean stopped = new AtomicBoolean();
+		BooleanSupplier cancelled = () -> stopped.get() || System.currentTimeMillis() > deadline;
+		List<Future<PoiCategoryResult>> tasks = new ArrayList<>();
+		try {
+			for (PoiSearchCategory categoryObj : categories) {
+				try {
+					tasks.add(poiCategoryExecutor.submit(() -> {
+						if (cancelled.getAsBoolean()) {
+							return null;
+						}
+						boolean[] incomplete = new boolean[1];
+						List<BinaryMapIndexReader> readers = osmAndMapsService.getReaders(mapList, incomplete);
+						try {
+							if (incomplete[0]) {
+								// not all maps could be locked, category is repeated with request readers
+								PoiCategoryResult res = new PoiCategoryResult();
+								res.incompleteReaders = true;
+								return res;
+							}
+							return searchPoiCategory(categoryObj, locale, searchBbox, readers, zoom, timeZone,
+									cancelled);
+						} finally {
+							osmAndMapsService.unlockReaders(readers);
+						}
+					}));
+				} catch (RejectedExecutionException e) {
+					LOGGER.warn(String.format("Poi category '%s' rejected, all pool threads are busy",
+							categoryObj.category()));
+					tasks.add(null);
+				}
+			}
+			PoiSearchLimit poiSearchLimit = new PoiSearchLimit(TOTAL_LIMIT_POI / categories.size(),
+					TOTAL_LIMIT_POI, false);
+			for (int i = 0; i < categories.size(); i++) {
+				PoiSearchCategory categoryObj = categories.get(i);
+				PoiCategoryResult categoryRes = null;
+				String timing;
+				try {
+					if (tasks.get(i) != null) {
+						categoryRes = tasks.get(i).get(Math.max(0, deadline - System.currentTimeMillis()),
+								TimeUnit.MILLISECONDS);
+					}
+					if (tasks.get(i) == null || (categoryRes != null && categoryRes.incompleteReaders)) {
+						categoryRes = searchPoiCategory(categoryObj, locale, searchBbox, usedMapList, zoom,
+								timeZone, cancelled);
+					}
+					if (System.currentTimeMillis() > deadline) {
+						// result of category cancelled at deadline is partial
+						throw new TimeoutException();
+					}
+					timing = categoryRes == null ? "-" : String.format("%.2f", categoryRes.timeMs / 1e3);
+				} catch (TimeoutException e) {
+					LOGGER.warn(String.format("Poi category '%s' timeout %d ms", categoryObj.category(),
+							POI_CATEGORY_TIMEOUT_MS));
+					categoryRes = null;
+					timing = "timeout";
+				} catch (ExecutionException e) {
+					LOGGER.error(String.format("Poi category '%s' failed: %s", categoryObj.category(), e.getCause()),
+							e.getCause());
+					timing = "error";
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Poi search interrupted", e);
+				}
+				categoryTimings.put(categoryObj.category(), timing);
+				if (categoryRes == null || poiSearchLimit.isLimitReached()) {
+					continue;
+				}
+				int categoryStartSize = foundFeatures.size();
+				int remaining = poiSearchLimit.getRemainingForSave(categoryStartSize, categoryStartSize);
+				for (Map.Entry<Long, Feature> e : categoryRes.features.entrySet()) {
+					if (remaining <= 0) {
+						break;
+					}
+					if (foundFeatures.putIfAbsent(e.getKey(), e.getValue()) == null) {
+						remaining--;
+					}
+				}
+				poiSearchLimit.updateAfterCategory(categoryStartSize, foundFeatures.size());
+			}
+			return poiSearchLimit.useLimit;
+		} finally {
+			stopped.set(true);
+			for (Future<PoiCategoryResult> task : tasks) {
+				if (task != null) {
+					task.cancel(false);
+				}
+			}
+		}
+	}
+
+	private PoiCategoryResult searchPoiCategory(PoiSearchCategory categoryObj, String locale, QuadRect searchBbox,
+	                                            List<BinaryMapIndexReader> readers, int zoom, String timeZone,
+	                                            BooleanSupplier cancelled) throws IOException {
+		long start = System.currentTimeMillis();
+		PoiCategoryResult res = new PoiCategoryResult();
+		searchPoiByTypeCategory(categoryObj, locale, searchBbox, readers, res.features, null, zoom, timeZone,
+				cancelled);
+		res.timeMs = System.currentTimeMillis() - start;
+		return res;
+	}
+
 	private SpatialSearchContext.SpatialSearchStats searchPoiByTypeCategory(PoiSearchCategory categoryObj, String locale,
 	                                     QuadRect searchBbox, List<BinaryMapIndexReader> readers,
 	                                     Map<Long, Feature> foundFeatures, PoiSearchLimit poiSearchLimit,
-	                                     int zoom, String timeZone) throws IOException {
+	                                     int zoom, String timeZone, BooleanSupplier cancelled) throws IOException {
 		if (searchBbox == null) {
 			return null;
 		}
@@ -387,11 +558,47 @@ public class PoiSearchService {
 
 		QuadRect bboxLatLon = toLatLonBbox(searchBbox);
 		int poiZoom = estimatePoiZoom(bboxLatLon, zoom);
-		SpatialSearchContext sscontext = createPoiCategoryContext(bboxLatLon, poiZoom, readers);
-		List<Amenity> amenities = searchPoiAmenities(sscontext, categoryObj.category(), bboxLatLon, poiZoom, remaining);
+		String category = categoryObj.category();
+		PoiTileCache.TileRequest tiles = poiTileCache.request(category, poiZoom, bboxLatLon, getMapsKey(readers),
+				osmAndMapsService.getObfEdition());
+		SpatialSearchContext sscontext = null;
+		List<Amenity> amenities;
+		if (tiles == null) {
+			sscontext = createPoiCategoryContext(bboxLatLon, poiZoom, readers, cancelled);
+			amenities = searchPoiAmenities(sscontext, category, bboxLatLon, poiZoom, remaining);
+		} else {
+			if (tiles.hasMissingTiles()) {
+				QuadRect missingBbox = tiles.getMissingBbox();
+				int loadLimit = Math.max(remaining, TOTAL_LIMIT_POI);
+				sscontext = createPoiCategoryContext(missingBbox, poiZoom, readers, cancelled);
+				List<Amenity> loaded = searchPoiAmenities(sscontext, category, missingBbox, poiZoom, loadLimit);
+				// truncated or cancelled results are not cached
+				tiles.addLoaded(loaded, loaded.size() < loadLimit && (cancelled == null || !cancelled.getAsBoolean()));
+			}
+			amenities = tiles.getAmenities(bboxLatLon);
+			if (amenities.size() > remaining) {
+				// tiles are merged in tile order, not in search order, so truncated result would prefer cached tiles
+				poiTileCache.overLimit();
+				sscontext = createPoiCategoryContext(bboxLatLon, poiZoom, readers, cancelled);
+				amenities = searchPoiAmenities(sscontext, category, bboxLatLon, poiZoom, remaining);
+			}
+		}
 
 		searchResultConverter.saveAmenityResults(amenities, foundFeatures, remaining, locale, timeZone);
-		return sscontext.getStats();
+		return sscontext == null ? null : sscontext.getStats();
+	}
+
+	private static String getMapsKey(List<BinaryMapIndexReader> readers) {
+		List<String> names = new ArrayList<>();
+		for (BinaryMapIndexReader r : readers) {
+			names.add(r.getFile().getName());
+		}
+		Collections.sort(names);
+		return names.size() + ":" + Integer.toHexString(names.hashCode());
+	}
+
+	public Map<String, Object> getPoiCacheStats() {
+		return poiTileCache.getStats();
 	}
 
 	private Feature getPoi(String type, String name, LatLon loc, Long osmId, String timeZone) throws IOException {
@@ -0,0 +1,220 @@
+package net.osmand.server.api.services.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.osmand.data.Amenity;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadRect;
+import net.osmand.util.BoundedLruMap;
+import net.osmand.util.MapUtils;
+
+/**
+ * POI category results per map tile, so panning map reads only tiles which weren't requested before.
+ * Tiles are taken at poi zoom, key contains category, poi zoom, tile and used maps. LRU bounded by
+ * estimated bytes, all entries are dropped when obf files are replaced (map edition is advanced).
+ */
+public class PoiTileCache {
+
+	// approximate size of amenity with names and tags
+	private static final long AMENITY_BYTES = 1024;
+	private static final long TILE_ENTRY_BYTES = 256;
+	// larger views are searched without cache
+	private static final int MAX_TILES_PER_REQUEST = 64;
+
+	private final BoundedLruMap<String, List<Amenity>> cacheMap;
+	// guarded by cacheMap
+	private long edition = -1;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private final AtomicLong uncachedRequests = new AtomicLong();
+	private final AtomicLong overLimitRequests = new AtomicLong();
+
+	public PoiTileCache(long maxBytes) {
+		this.cacheMap = new BoundedLruMap<>(maxBytes, (key, tile) -> weigh(tile));
+	}
+
+	/**
+	 * @return tiles covering bbox with already cached results or null if bbox has too many tiles
+	 * or request still uses replaced maps
+	 */
+	public TileRequest request(String category, int poiZoom, QuadRect bboxLatLon, String mapsKey, long edition) {
+		int minX = (int) MapUtils.getTileNumberX(poiZoom, bboxLatLon.left);
+		int maxX = (int) MapUtils.getTileNumberX(poiZoom, bboxLatLon.right);
+		int minY = (int) MapUtils.getTileNumberY(poiZoom, bboxLatLon.top);
+		int maxY = (int) MapUtils.getTileNumberY(poiZoom, bboxLatLon.bottom);
+		if ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_TILES_PER_REQUEST) {
+			uncachedRequests.incrementAndGet();
+			return null;
+		}
+		TileRequest req = new TileRequest(category + "|" + poiZoom + "|" + mapsKey + "|", poiZoom, edition);
+		synchronized (cacheMap) {
+			if (!checkEdition(edition)) {
+				uncachedRequests.incrementAndGet();
+				return null;
+			}
+			for (int x = minX; x <= maxX; x++) {
+				for (int y = minY; y <= maxY; y++) {
+					List<Amenity> cached = cacheMap.get(req.keyPrefix + x + "|" + y);
+					if (cached != null) {
+						hits.incrementAndGet();
+						req.cached.addAll(cached);
+					} else {
+						misses.incrementAndGet();
+						req.missing.put(tileKey(x, y), new ArrayList<>());
+					}
+				}
+			}
+		}
+		return req;
+	}
+
+	/**
+	 * Tile results exceeded limit of request, so request is searched without cache
+	 */
+	public void overLimit() {
+		overLimitRequests.incrementAndGet();
+	}
+
+	private void put(TileRequest req) {
+		synchronized (cacheMap) {
+			if (req.edition != edition) {
+				// maps were replaced during search
+				return;
+			}
+			for (Map.Entry<Long, List<Amenity>> e : req.missing.entrySet()) {
+				int x = (int) (e.getKey() >> 32);
+				int y = (int) (long) e.getKey();
+				List<Amenity> tile = e.getValue().isEmpty() ? Collections.emptyList() : e.getValue();
+				cacheMap.put(req.keyPrefix + x + "|" + y, tile);
+			}
+		}
+	}
+
+	/**
+	 * Newer edition drops all entries, request of older edition (started before maps were replaced) is not cached
+	 */
+	private boolean checkEdition(long ed) {
+		if (ed < edition) {
+			return false;
+		}
+		if (ed > edition) {
+			if (cacheMap.size() > 0) {
+				invalidations.incrementAndGet();
+			}
+			cacheMap.clear();
+			edition = ed;
+		}
+		return true;
+	}
+
+	private static long weigh(List<Amenity> tile) {
+		return TILE_ENTRY_BYTES + tile.size() * AMENITY_BYTES;
+	}
+
+	private static long tileKey(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		long h = hits.get();
+		long m = misses.get();
+		synchronized (cacheMap) {
+			stats.put("tiles", cacheMap.size());
+			stats.put("bytes", cacheMap.getWeight());
+			stats.put("edition", edition);
+		}
+		stats.put("maxBytes", cacheMap.getMaxWeight());
+		stats.put("hits", h);
+		stats.put("misses", m);
+		stats.put("hitRate", h + m == 0 ? 0 : (double) h / (h + m));
+		stats.put("evictions", cacheMap.getEvictions());
+		stats.put("invalidations", invalidations.get());
+		stats.put("uncachedRequests", uncachedRequests.get());
+		stats.put("overLimitRequests", overLimitRequests.get());
+		return stats;
+	}
+
+	public class TileRequest {
+		private final String keyPrefix;
+		private final int zoom;
+		private final long edition;
+		private final List<Amenity> cached = new ArrayList<>();
+		private final Map<Long, List<Amenity>> missing = new LinkedHashMap<>();
+
+		private TileRequest(String keyPrefix, int zoom, long edition) {
+			this.keyPrefix = keyPrefix;
+			this.zoom = zoom;
+			this.edition = edition;
+		}
+
+		public boolean hasMissingTiles() {
+			return !missing.isEmpty();
+		}
+
+		public QuadRect getMissingBbox() {
+			QuadRect bbox = null;
+			for (long key : missing.keySet()) {
+				int x = (int) (key >> 32);
+				int y = (int) key;
+				double left = MapUtils.getLongitudeFromTile(zoom, x);
+				double right = MapUtils.getLongitudeFromTile(zoom, x + 1);
+				double top = MapUtils.getLatitudeFromTile(zoom, y);
+				double bottom = MapUtils.getLatitudeFromTile(zoom, y + 1);
+				if (bbox == null) {
+					bbox = new QuadRect(left, top, right, bottom);
+				} else {
+					bbox.left = Math.min(bbox.left, left);
+					bbox.right = Math.max(bbox.right, right);
+					bbox.top = Math.max(bbox.top, top);
+					bbox.bottom = Math.min(bbox.bottom, bottom);
+				}
+			}
+			return bbox;
+		}
+
+		/**
+		 * Distributes amenities loaded for missing bbox to tiles, only complete results are cached
+		 */
+		public void addLoaded(List<Amenity> amenities, boolean complete) {
+			for (Amenity a : amenities) {
+				LatLon l = a.getLocation();
+				List<Amenity> tile = missing.get(tileKey((int) MapUtils.getTileNumberX(zoom, l.getLongitude()),
+						(int) MapUtils.getTileNumberY(zoom, l.getLatitude())));
+				// missing bbox could include cached tiles
+				if (tile != null) {
+					tile.add(a);
+				}
+			}
+			if (complete) {
+				put(this);
+			}
+		}
+
+		public List<Amenity> getAmenities(QuadRect bboxLatLon) {
+			List<Amenity> res = new ArrayList<>();
+			addInside(res, cached, bboxLatLon);
+			for (List<Amenity> tile : missing.values()) {
+				addInside(res, tile, bboxLatLon);
+			}
+			return res;
+		}
+
+		private void addInside(List<Amenity> res, List<Amenity> amenities, QuadRect bboxLatLon) {
+			for (Amenity a : amenities) {
+				LatLon l = a.getLocation();
+				if (l.getLongitude() >= bboxLatLon.left && l.getLongitude() <= bboxLatLon.right
+						&& l.getLatitude() <= bboxLatLon.top && l.getLatitude() >= bboxLatLon.bottom) {
+					res.add(a);
+				}
+			}
+		}
+	}
+}
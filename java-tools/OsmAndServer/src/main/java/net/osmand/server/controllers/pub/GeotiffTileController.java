@@ -5,6 +5,7 @@ import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.concurrent.*;
 
 import javax.imageio.ImageIO;
@@ -52,7 +53,14 @@ public class GeotiffTileController {
 	@Value("${osmand.heightmap.location}")
 	String geotiffTiles;
 
-	private final TileMemoryCache<GeotiffTile> tileMemoryCache = new TileMemoryCache<>();
+	private static final long TILE_MEMORY_CACHE_BYTES = 256L << 20;
+
+	private final TileMemoryCache<GeotiffTile> tileMemoryCache = new TileMemoryCache<>("heightmap-tiles",
+			TILE_MEMORY_CACHE_BYTES);
+
+	public Map<String, Object> getTileCacheStats() {
+		return tileMemoryCache.getStats();
+	}
 
 	private ResponseEntity<?> errorConfig(String msg) {
 		return ResponseEntity.badRequest()
@@ -77,6 +85,7 @@ public class GeotiffTileController {
 		tileMemoryCache.conditionalCleanupCache();
 		BufferedImage img = tile.getCacheRuntimeImage();
 		tile.touch();
+		tileMemoryCache.refresh(tile);
 
 		if (img == null) {
 			if (z < UNDERSCALED_BASE_ZOOM) {
@@ -280,6 +289,7 @@ public class GeotiffTileController {
 		}
 		tile.setRuntimeImage(img);
 		tile.saveTileToCache(tile, cacheFile);
+		tileMemoryCache.refresh(tile);
 		return img;
 	}
 
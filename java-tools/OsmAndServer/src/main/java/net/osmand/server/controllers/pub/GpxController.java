@@ -8,6 +8,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.zip.GZIPInputStream;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -201,52 +202,67 @@ public class GpxController {
 	}
 
 	@PostMapping(path = {"/get-gpx-analysis"}, produces = "application/json")
-	public ResponseEntity<String> getGpxInfo(@RequestPart(name = "file") @Valid @NotNull @NotEmpty MultipartFile file,
+	public CompletableFuture<ResponseEntity<String>> getGpxInfo(@RequestPart(name = "file") @Valid @NotNull @NotEmpty MultipartFile file,
 	                                         HttpServletRequest request, HttpSession httpSession) throws IOException {
-
+		String filename = file.getOriginalFilename();
+		String key = gpxService.getResultKey("get-gpx-analysis", file.getInputStream(), filename);
+		String cached = gpxService.getCachedResult(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(ResponseEntity.ok(cached));
+		}
 		File tmpGpx = gpxService.saveMultipartFileToTemp(file, httpSession.getId());
 		GPXSessionContext ctx = session.getGpxResources(httpSession);
 		ctx.tempFiles.add(tmpGpx);
-		GpxFile gpxFile = GpxUtilities.INSTANCE.loadGpxFile(Okio.source(tmpGpx));
-		if (gpxFile.getError() != null) {
-			return ResponseEntity.badRequest().body("Error reading gpx!");
-		} else {
-			GPXSessionFile sessionFile = new GPXSessionFile();
-			gpxFile.setPath(file.getOriginalFilename());
-			GpxTrackAnalysis analysis = gpxFile.getAnalysis(System.currentTimeMillis());
-			sessionFile.file = tmpGpx;
-			sessionFile.size = file.getSize() / (double) (1 << 20);
-			gpxService.cleanupFromNan(analysis);
-			sessionFile.analysis = analysis;
-			GpxFile srtmGpx = gpxService.calculateSrtmAltitude(gpxFile, null);
-			GpxTrackAnalysis srtmAnalysis = null;
-			if (srtmGpx != null) {
-				srtmAnalysis = srtmGpx.getAnalysis(System.currentTimeMillis());
-			}
-			sessionFile.srtmAnalysis = srtmAnalysis;
-			if (srtmAnalysis != null) {
-				gpxService.cleanupFromNan(srtmAnalysis);
+		double size = file.getSize() / (double) (1 << 20);
+		return gpxService.processResult(key, () -> {
+			GpxFile gpxFile = GpxUtilities.INSTANCE.loadGpxFile(Okio.source(tmpGpx));
+			if (gpxFile.getError() != null) {
+				return ResponseEntity.badRequest().body("Error reading gpx!");
+			} else {
+				GPXSessionFile sessionFile = new GPXSessionFile();
+				gpxFile.setPath(filename);
+				GpxTrackAnalysis analysis = gpxFile.getAnalysis(System.currentTimeMillis());
+				sessionFile.file = tmpGpx;
+				sessionFile.size = size;
+				gpxService.cleanupFromNan(analysis);
+				sessionFile.analysis = analysis;
+				GpxFile srtmGpx = gpxService.calculateSrtmAltitude(gpxFile, null);
+				GpxTrackAnalysis srtmAnalysis = null;
+				if (srtmGpx != null) {
+					srtmAnalysis = srtmGpx.getAnalysis(System.currentTimeMillis());
+				}
+				sessionFile.srtmAnalysis = srtmAnalysis;
+				if (srtmAnalysis != null) {
+					gpxService.cleanupFromNan(srtmAnalysis);
+				}
+				return ResponseEntity.ok(gson.toJson(Map.of("info", sessionFile)));
 			}
-			return ResponseEntity.ok(gson.toJson(Map.of("info", sessionFile)));
-		}
+		});
 	}
 
 	@PostMapping(path = {"/process-track-data"}, produces = "application/json")
-	public ResponseEntity<String> processTrackData(@RequestPart(name = "file") @Valid @NotNull @NotEmpty MultipartFile file,
+	public CompletableFuture<ResponseEntity<String>> processTrackData(@RequestPart(name = "file") @Valid @NotNull @NotEmpty MultipartFile file,
 	                                               HttpSession httpSession) throws IOException {
 
 		String filename = file.getOriginalFilename();
+		String key = gpxService.getResultKey("process-track-data", file.getInputStream(), filename);
+		String cached = gpxService.getCachedResult(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(ResponseEntity.ok(cached));
+		}
 		File tmpFile = gpxService.saveMultipartFileToTemp(file, httpSession.getId());
 		session.getGpxResources(httpSession).tempFiles.add(tmpFile);
-		GpxFile gpxFile = gpxService.importGpx(Okio.source(tmpFile), filename);
-		if (gpxFile.getError() != null) {
-			LOGGER.error(String.format(
-					"process-track-data loadGpxFile (%s) error (%s)", filename, gpxFile.getError().getMessage()));
-			return ResponseEntity.badRequest().body("Error reading gpx: " + gpxFile.getError().getMessage());
-		} else {
-			WebGpxParser.TrackData gpxData = gpxService.buildTrackDataFromGpxFile(gpxFile, null);
-			return ResponseEntity.ok(gsonWithNans.toJson(Map.of("gpx_data", gpxData)));
-		}
+		return gpxService.processResult(key, () -> {
+			GpxFile gpxFile = gpxService.importGpx(Okio.source(tmpFile), filename);
+			if (gpxFile.getError() != null) {
+				LOGGER.error(String.format(
+						"process-track-data loadGpxFile (%s) error (%s)", filename, gpxFile.getError().getMessage()));
+				return ResponseEntity.badRequest().body("Error reading gpx: " + gpxFile.getError().getMessage());
+			} else {
+				WebGpxParser.TrackData gpxData = gpxService.buildTrackDataFromGpxFile(gpxFile, null);
+				return ResponseEntity.ok(gsonWithNans.toJson(Map.of("gpx_data", gpxData)));
+			}
+		});
 	}
 
 	@PostMapping(path = "/save-track-data", produces = MediaType.APPLICATION_XML_VALUE)
@@ -295,21 +311,33 @@ public class GpxController {
 	}
 
 	@RequestMapping(path = {"/get-srtm-data"}, produces = "application/json")
-	public ResponseEntity<String> getSrtmData(@RequestBody byte[] data) throws IOException {
-		String jsonData = decompressGzip(data);
-		WebGpxParser.TrackData trackData = gson.fromJson(jsonData, WebGpxParser.TrackData.class);
-		trackData = gpxService.addSrtmData(trackData);
-		
-		return ResponseEntity.ok(gsonWithNans.toJson(Map.of("data", trackData)));
+	public CompletableFuture<ResponseEntity<String>> getSrtmData(@RequestBody byte[] data) {
+		String key = gpxService.getResultKey("get-srtm-data", data, "");
+		String cached = gpxService.getCachedResult(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(ResponseEntity.ok(cached));
+		}
+		return gpxService.processResult(key, () -> {
+			String jsonData = decompressGzip(data);
+			WebGpxParser.TrackData trackData = gson.fromJson(jsonData, WebGpxParser.TrackData.class);
+			trackData = gpxService.addSrtmData(trackData);
+			return ResponseEntity.ok(gsonWithNans.toJson(Map.of("data", trackData)));
+		});
 	}
 
 	@RequestMapping(path = {"/get-analysis"}, produces = "application/json")
-	public ResponseEntity<String> getAnalysis(@RequestBody byte[] data) throws IOException {
-		String jsonData = decompressGzip(data);
-		WebGpxParser.TrackData trackData = gson.fromJson(jsonData, WebGpxParser.TrackData.class);
-		trackData = gpxService.addAnalysisData(trackData);
-
-		return ResponseEntity.ok(gsonWithNans.toJson(Map.of("data", trackData)));
+	public CompletableFuture<ResponseEntity<String>> getAnalysis(@RequestBody byte[] data) {
+		String key = gpxService.getResultKey("get-analysis", data, "");
+		String cached = gpxService.getCachedResult(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(ResponseEntity.ok(cached));
+		}
+		return gpxService.processResult(key, () -> {
+			String jsonData = decompressGzip(data);
+			WebGpxParser.TrackData trackData = gson.fromJson(jsonData, WebGpxParser.TrackData.class);
+			trackData = gpxService.addAnalysisData(trackData);
+			return ResponseEntity.ok(gsonWithNans.toJson(Map.of("data", trackData)));
+		});
 	}
 
 	private static String decompressGzip(byte[] compressed) throws IOException {
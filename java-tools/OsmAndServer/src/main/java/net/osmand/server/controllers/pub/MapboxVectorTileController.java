@@ -4,6 +4,7 @@ import java.awt.*;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.concurrent.*;
 
 import net.osmand.server.tileManager.TileMemoryCache;
@@ -40,7 +41,14 @@ public class MapboxVectorTileController {
 	@Autowired
 	TileServerConfig config;
 
-	private final TileMemoryCache<MapboxVectorTile> tileMemoryCache = new TileMemoryCache<>();
+	private static final long TILE_MEMORY_CACHE_BYTES = 128L << 20;
+
+	private final TileMemoryCache<MapboxVectorTile> tileMemoryCache = new TileMemoryCache<>("mapbox-vector-tiles",
+			TILE_MEMORY_CACHE_BYTES);
+
+	public Map<String, Object> getTileCacheStats() {
+		return tileMemoryCache.getStats();
+	}
 
 	private ResponseEntity<?> errorConfig(String msg) {
 		return ResponseEntity.badRequest()
@@ -66,6 +74,7 @@ public class MapboxVectorTileController {
 		byte[] data = cache ? tile.getCacheRuntimeTile() : null;
 		if (cache) {
 			tile.touch();
+			tileMemoryCache.refresh(tile);
 		}
 
 		if (data == null) {
@@ -186,6 +195,7 @@ public class MapboxVectorTileController {
 		}
 		tile.setRuntimeTile(data);
 		tile.saveTileToCache(tile, cacheFile);
+		tileMemoryCache.refresh(tile);
 		return data;
 	}
 }
@@ -4,20 +4,18 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import net.osmand.server.DatasourceConfiguration;
 import net.osmand.server.api.services.GpxService;
+import net.osmand.server.api.services.OsmGpxRouteCache;
+import net.osmand.server.api.services.OsmGpxRouteCache.CachedRoute;
 import net.osmand.server.osmgpx.GarbageClassifier;
 import net.osmand.server.utils.WebGpxParser;
-import net.osmand.shared.gpx.GpxFile;
-import net.osmand.shared.gpx.GpxTrackAnalysis;
-import net.osmand.shared.gpx.GpxUtilities;
 import net.osmand.util.Algorithms;
-import okio.Buffer;
-import okio.Source;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.geojson.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
@@ -31,9 +29,6 @@ import java.io.OutputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.GZIPInputStream;
 
 import static net.osmand.server.api.services.UserdataService.BUFFER_SIZE;
@@ -52,21 +47,18 @@ public class OsmGpxController {
 	@Autowired
 	DatasourceConfiguration config;
 
+	@Autowired
+	OsmGpxRouteCache routeCache;
+
 	@Autowired
 	Gson gson = new GsonBuilder().create();
 
 	protected static final Log LOGGER = LogFactory.getLog(OsmGpxController.class);
 	Gson gsonWithNans = new GsonBuilder().serializeSpecialFloatingPointValues().create();
 
-	Map<String, RouteFile> routesCache = new ConcurrentHashMap<>();
-
-	private final ReentrantLock lock = new ReentrantLock();
-
-	private static final int MAX_RUNTIME_CACHE_SIZE = 5000;
 	private static final int MAX_ROUTES_SUMMARY = 100000;
 	private static final int MAX_ROUTES_FULL_MODE_THRESHOLD = 5000;
 	private static final int MAX_TAGS_PER_BBOX = 1000;
-	private final AtomicInteger cacheTouch = new AtomicInteger(0);
 
 	private static final String GPX_METADATA_TABLE_NAME = "osm_gpx_data";
 	private static final String GPX_FILES_TABLE_NAME = "osm_gpx_files";
@@ -101,8 +93,6 @@ public class OsmGpxController {
 			return ResponseEntity.ok("OsmGpx datasource is not initialized");
 		}
 
-		cleanupCache();
-
 		StringBuilder conditions = new StringBuilder();
 		List<Object> params = new ArrayList<>();
 
@@ -460,17 +450,24 @@ public class OsmGpxController {
 
 	@GetMapping(path = {"/get-osm-route"}, produces = "application/json")
 	public ResponseEntity<String> getRoute(@RequestParam Long id) throws IOException {
-		RouteFile routeFile = routesCache.get(id.toString());
-		// get from cache
-		if (routeFile != null) {
-			WebGpxParser.TrackData gpxData = gpxService.buildTrackDataFromGpxFile(routeFile.gpxFile.clone(), routeFile.analysis);
+		CachedRoute route;
+		try {
+			route = routeCache.getRoute(id, this::loadRawRoute);
+		} catch (IOException e) {
+			return ResponseEntity.badRequest().body("Error loading GPX file");
+		} catch (DataAccessException e) {
+			return ResponseEntity.badRequest().body("No records found");
+		}
+		if (route != null) {
+			WebGpxParser.TrackData gpxData = gpxService.buildTrackDataFromGpxFile(route.gpxFile().clone(), route.analysis());
 			if (gpxData != null) {
 				return ResponseEntity.ok(gsonWithNans.toJson(Map.of("gpx_data", gpxData)));
-			} else {
-				return ResponseEntity.badRequest().body("Error loading GPX file");
 			}
 		}
-		// get from DB
+		return ResponseEntity.badRequest().body("No records found");
+	}
+
+	private byte[] loadRawRoute(long id) {
 		String query = "SELECT id, data FROM " + GPX_FILES_TABLE_NAME + " WHERE id = ? LIMIT 1";
 		try {
 			GpxData resultData = jdbcTemplate.queryForObject(query, (rs, rowNum) -> {
@@ -478,26 +475,10 @@ public class OsmGpxController {
 				byte[] byteArray = rs.getBytes("data");
 				return new GpxData(rId, byteArray);
 			}, id);
-
-			if (resultData != null && resultData.byteArray != null) {
-				try (Source src = new Buffer().write(Objects.requireNonNull(Algorithms.gzipToString(resultData.byteArray)).getBytes())) {
-					GpxFile gpxFile = GpxUtilities.INSTANCE.loadGpxFile(src);
-					if (gpxFile.getError() == null) {
-						GpxTrackAnalysis analysis = gpxFile.getAnalysis(System.currentTimeMillis());
-						routesCache.put(id.toString(), new RouteFile(resultData.byteArray, gpxFile, analysis));
-						WebGpxParser.TrackData gpxData = gpxService.buildTrackDataFromGpxFile(gpxFile.clone(), analysis);
-						if (gpxData != null) {
-							return ResponseEntity.ok(gsonWithNans.toJson(Map.of("gpx_data", gpxData)));
-						}
-					}
-				} catch (IOException e) {
-					return ResponseEntity.badRequest().body("Error loading GPX file");
-				}
-			}
-		} catch (DataAccessException e) {
-			return ResponseEntity.badRequest().body("No records found");
+			return resultData != null ? resultData.byteArray : null;
+		} catch (EmptyResultDataAccessException e) {
+			return null;
 		}
-		return ResponseEntity.badRequest().body("No records found");
 	}
 
 	@GetMapping(path = {"/get-route-info"}, produces = "application/json")
@@ -518,31 +499,18 @@ public class OsmGpxController {
 
 	@GetMapping(path = {"/get-original-file"}, produces = "application/json")
 	public void getFile(@RequestParam Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
-		RouteFile routeFile = routesCache.get(id.toString());
 		byte[] fileData;
-		if (routeFile != null) {
-			fileData = routeFile.bytes;
-		} else {
-			String query = "SELECT id, data FROM " + GPX_FILES_TABLE_NAME + " WHERE id = ? LIMIT 1";
-			try {
-				GpxData resultData = jdbcTemplate.queryForObject(query, (rs, rowNum) -> {
-					Long rId = rs.getLong("id");
-					byte[] byteArray = rs.getBytes("data");
-					return new GpxData(rId, byteArray);
-				}, id);
-
-				if (resultData != null && resultData.byteArray != null) {
-					fileData = resultData.byteArray;
-				} else {
-					response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-					response.getWriter().write("No records found");
-					return;
-				}
-			} catch (DataAccessException e) {
-				response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-				response.getWriter().write("Error loading GPX file");
-				return;
-			}
+		try {
+			fileData = routeCache.getRaw(id, this::loadRawRoute);
+		} catch (DataAccessException e) {
+			response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+			response.getWriter().write("Error loading GPX file");
+			return;
+		}
+		if (fileData == null) {
+			response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+			response.getWriter().write("No records found");
+			return;
 		}
 		String acceptEncoding = request.getHeader("Accept-Encoding");
 		boolean gzipSupported = acceptEncoding != null && acceptEncoding.contains("gzip");
@@ -667,35 +635,9 @@ public class OsmGpxController {
 		}
 	}
 
-	private record RouteFile(byte[] bytes, GpxFile gpxFile, GpxTrackAnalysis analysis) {
-	}
-
 	private record GpxData(Long id, byte[] byteArray) {
 	}
 
-	private void cleanupCache() {
-		if (lock.tryLock()) {
-			try {
-				int version = cacheTouch.incrementAndGet();
-
-				if (version % MAX_RUNTIME_CACHE_SIZE == 0 && version > 0) {
-					cacheTouch.set(0);
-
-					List<String> keysToRemove = new ArrayList<>(routesCache.keySet());
-
-					if (routesCache.size() >= MAX_RUNTIME_CACHE_SIZE) {
-						for (int i = 0; i < MAX_RUNTIME_CACHE_SIZE / 2; i++) {
-							String key = keysToRemove.get(i);
-							routesCache.remove(key);
-						}
-					}
-				}
-			} finally {
-				lock.unlock();
-			}
-		}
-	}
-
 	// for testing purposes
 	@GetMapping(path = {"/get-single-route"}, produces = "application/json")
 	public ResponseEntity<String> getSingleRoute() {
@@ -30,6 +30,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -255,6 +256,8 @@ public class RoutingController {
 			try {
 				List<RouteSegmentResult> res = osmAndMapsService.gpxApproximation(routeMode, props, gpxFile);
 				routingService.convertResults(resList, features, res);
+			} catch (ResponseStatusException e) {
+				throw e;
 			} catch (IOException | InterruptedException | RuntimeException e) {
 				LOGGER.error(e.getMessage(), e);
 			}
@@ -332,6 +335,9 @@ public class RoutingController {
 						props.put("diffElevationDown", eleDiff.get(1));
 					}
 				}
+			} catch (ResponseStatusException e) {
+				// server is busy, fallback line is not a route
+				throw e;
 			} catch (IOException | InterruptedException | RuntimeException e) {
 				LOGGER.error(e.getMessage(), e);
 			}
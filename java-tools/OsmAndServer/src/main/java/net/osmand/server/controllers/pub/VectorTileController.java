@@ -45,7 +45,15 @@ public class VectorTileController {
 	@Autowired
 	TileServerConfig config;
 
-	private final TileMemoryCache<VectorMetatile> tileMemoryCache = new TileMemoryCache<>();
+	// 2048x2048 ARGB metatile takes 16 MB
+	private static final long TILE_MEMORY_CACHE_BYTES = 1280L << 20;
+
+	private final TileMemoryCache<VectorMetatile> tileMemoryCache = new TileMemoryCache<>("vector-metatiles",
+			TILE_MEMORY_CACHE_BYTES);
+
+	public Map<String, Object> getTileCacheStats() {
+		return tileMemoryCache.getStats();
+	}
 
 	private static final CacheControl STYLES_HTTP_CACHE =
 			CacheControl.maxAge(30, TimeUnit.DAYS).cachePublic();
@@ -101,6 +109,7 @@ public class VectorTileController {
 
 	@RequestMapping(path = "/{style}/{z}/{x}/{y}.png", produces = MediaType.IMAGE_PNG_VALUE)
 	public ResponseEntity<?> getTile(@PathVariable String style, @PathVariable int z, @PathVariable int x, @PathVariable int y,
+	                                 @RequestParam(required = false, defaultValue = "false") boolean prefetch,
 	                                 @RequestParam(required = false) Map<String, String> renderingParams)
 			throws IOException, XmlPullParserException, SAXException {
 		if (!osmAndMapsService.validateAndInitConfig()) {
@@ -126,7 +135,7 @@ public class VectorTileController {
 		BufferedImage img = tile.getCacheRuntimeImage();
 		tile.touch();
 		if (img == null) {
-			ResponseEntity<String> err = osmAndMapsService.renderMetaTile(tile, tileMemoryCache);
+			ResponseEntity<String> err = osmAndMapsService.renderMetaTile(tile, tileMemoryCache, prefetch);
 			img = tile.runtimeImage;
 			if (err != null) {
 				return err;
@@ -134,6 +143,7 @@ public class VectorTileController {
 				return ResponseEntity.badRequest().body("Unexpected error during rendering");
 			}
 		}
+		tileMemoryCache.refresh(tile);
 		BufferedImage subimage = tile.readSubImage(img, x, y);
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		ImageIO.write(subimage, "png", baos);
@@ -52,9 +52,13 @@ import net.osmand.server.api.services.DownloadIndexesService.DownloadServerRegio
 import net.osmand.server.api.services.DownloadIndexesService.DownloadServerType;
 import net.osmand.server.api.services.LogsAccessService.LogsPresentation;
 import net.osmand.server.api.services.MotdService.MotdSettings;
+import net.osmand.server.api.services.search.PoiSearchService;
+import net.osmand.server.controllers.pub.GeotiffTileController;
+import net.osmand.server.controllers.pub.MapboxVectorTileController;
 import net.osmand.server.controllers.pub.ReportsController;
 import net.osmand.server.controllers.pub.ReportsController.BtcTransactionReport;
 import net.osmand.server.controllers.pub.ReportsController.PayoutResult;
+import net.osmand.server.controllers.pub.VectorTileController;
 import net.osmand.server.controllers.pub.WebController;
 
 import static net.osmand.server.api.services.UserSubscriptionService.OSMAND_PROMO_SUBSCRIPTION;
@@ -81,6 +85,15 @@ public class AdminController {
 	@Autowired
 	private ReportsController reports;
 
+	@Autowired
+	private VectorTileController vectorTileController;
+
+	@Autowired
+	private MapboxVectorTileController mapboxVectorTileController;
+
+	@Autowired
+	private GeotiffTileController geotiffTileController;
+
 	@Autowired
 	private PollsService pollsService;
 
@@ -137,6 +150,18 @@ public class AdminController {
 
 	@Autowired
 	private WebAccessConfig webAccessConfig;
+
+	@Autowired
+	private OsmAndMapsService osmAndMapsService;
+
+	@Autowired
+	private PoiSearchService poiSearchService;
+
+	@Autowired
+	private OsmGpxRouteCache osmGpxRouteCache;
+
+	@Autowired
+	private GpxService gpxService;
 	
 	private Gson gson = new Gson();
 	
@@ -260,6 +285,46 @@ public class AdminController {
 		return ResponseEntity.ok(deviceSub);
 	}
 
+	@GetMapping(path = {"/routing-stats"}, produces = "application/json")
+	@ResponseBody
+	public ResponseEntity<String> getRoutingStats() {
+		return ResponseEntity.ok(gson.toJson(osmAndMapsService.getRoutingStats()));
+	}
+
+	@GetMapping(path = {"/poi-cache-stats"}, produces = "application/json")
+	@ResponseBody
+	public ResponseEntity<String> getPoiCacheStats() {
+		return ResponseEntity.ok(gson.toJson(poiSearchService.getPoiCacheStats()));
+	}
+
+	@GetMapping(path = {"/osmgpx-cache-stats"}, produces = "application/json")
+	@ResponseBody
+	public ResponseEntity<String> getOsmGpxCacheStats() {
+		return ResponseEntity.ok(gson.toJson(osmGpxRouteCache.getStats()));
+	}
+
+	@GetMapping(path = {"/gpx-cache-stats"}, produces = "application/json")
+	@ResponseBody
+	public ResponseEntity<String> getGpxCacheStats() {
+		return ResponseEntity.ok(gson.toJson(gpxService.getResultCacheStats()));
+	}
+
+	@GetMapping(path = {"/tile-cache-stats"}, produces = "application/json")
+	@ResponseBody
+	public ResponseEntity<String> getTileCacheStats() {
+		List<Map<String, Object>> stats = new ArrayList<>();
+		stats.add(vectorTileController.getTileCacheStats());
+		stats.add(mapboxVectorTileController.getTileCacheStats());
+		stats.add(geotiffTileController.getTileCacheStats());
+		return ResponseEntity.ok(gson.toJson(stats));
+	}
+
+	@GetMapping(path = {"/render-stats"}, produces = "application/json")
+	@ResponseBody
+	public ResponseEntity<String> getRenderStats() {
+		return ResponseEntity.ok(gson.toJson(osmAndMapsService.getRenderStats()));
+	}
+
 	@PostMapping("/get-email-by-orderId")
 	@ResponseBody
 	public ResponseEntity<String> getEmailByOrderId(@RequestParam String orderId) {
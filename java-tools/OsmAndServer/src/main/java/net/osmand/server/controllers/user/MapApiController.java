@@ -600,6 +600,7 @@ public class MapApiController {
 	public void createBackup(HttpServletResponse response,
 	                         @RequestParam(name = "updatetime", required = false) boolean includeDeleted,
 	                         @RequestParam String format,
+	                         @RequestParam(required = false) boolean streaming,
 	                         @RequestBody List<String> data) throws IOException {
 		CloudUserDevice dev = osmAndMapsService.checkUser();
 		if (dev == null) {
@@ -610,7 +611,7 @@ public class MapApiController {
 			}
 			return;
 		}
-		userdataService.getBackup(response, dev, Set.copyOf(data), includeDeleted, format);
+		userdataService.getBackup(response, dev, Set.copyOf(data), includeDeleted, format, streaming);
 	}
 
 	@PostMapping(value = "/download-backup-folder")
@@ -619,6 +620,7 @@ public class MapApiController {
 	                               @RequestParam(required = false) String folderName,
 								   @RequestParam(required = false) Boolean shared,
 								   @RequestParam(required = false) Boolean smart,
+	                               @RequestParam(required = false) boolean streaming,
 	                               HttpServletResponse response) throws IOException {
 		CloudUserDevice dev = osmAndMapsService.checkUser();
 		if (dev == null) {
@@ -634,14 +636,14 @@ public class MapApiController {
 			if (Boolean.TRUE.equals(smart)) {
 				files = smartFolderService.findSmartFolderFilesByName(folderName, dev);
 				if (files != null) {
-					userdataService.getBackupFolder(response, dev, null, format, type, files);
+					userdataService.getBackupFolder(response, dev, null, format, type, files, streaming);
 				}
 			} else {
-				userdataService.getBackupFolder(response, dev, folderName, format, type, null);
+				userdataService.getBackupFolder(response, dev, folderName, format, type, null, streaming);
 			}
 		} else if (Boolean.TRUE.equals(shared)) {
 			files = shareFileService.getOriginalSharedWithMeFiles(dev, type);
-			userdataService.getBackupFolder(response, dev, null, format, type, files);
+			userdataService.getBackupFolder(response, dev, null, format, type, files, streaming);
 		}
 	}
 
@@ -0,0 +1,211 @@
+package net.osmand.server.tileManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.http.ResponseEntity;
+import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Schedules metatile rendering: identical metatile keys share one in-flight render,
+ * interactive requests are rendered before prefetch requests, queue length and
+ * render latency are collected per zoom. Native rendering is serialized by the shared
+ * rendering storage, so metatiles are rendered by one thread and png files are written
+ * to disk cache by a separate pool.
+ */
+public class MetatileRenderScheduler {
+
+	private static final Log LOGGER = LogFactory.getLog(MetatileRenderScheduler.class);
+
+	private static final int MAX_ZOOM = 31;
+	private static final long RENDER_TIMEOUT_SEC = 120;
+	private static final int SAVE_THREADS = 2;
+	private static final int SAVE_QUEUE = 64;
+
+	private final ThreadPoolExecutor executor;
+	private final ThreadPoolExecutor saveExecutor;
+	private final Map<String, RenderTask> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong taskOrder = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final ZoomStats[] zoomStats = new ZoomStats[MAX_ZOOM + 1];
+
+	public interface MetatileRenderer {
+		ResponseEntity<String> render(VectorMetatile tile) throws IOException, XmlPullParserException, SAXException;
+	}
+
+	private static class ZoomStats {
+		final AtomicInteger queued = new AtomicInteger();
+		final AtomicLong rendered = new AtomicLong();
+		final AtomicLong totalWaitMs = new AtomicLong();
+		final AtomicLong totalRenderMs = new AtomicLong();
+		final AtomicLong maxRenderMs = new AtomicLong();
+	}
+
+	private class RenderTask implements Runnable, Comparable<RenderTask> {
+		final VectorMetatile tile;
+		final MetatileRenderer renderer;
+		final long order = taskOrder.incrementAndGet();
+		final long created = System.currentTimeMillis();
+		final CompletableFuture<ResponseEntity<String>> result = new CompletableFuture<>();
+		boolean prefetch;
+
+		RenderTask(VectorMetatile tile, MetatileRenderer renderer, boolean prefetch) {
+			this.tile = tile;
+			this.renderer = renderer;
+			this.prefetch = prefetch;
+		}
+
+		@Override
+		public void run() {
+			ZoomStats stats = zoomStats[tile.z];
+			stats.queued.decrementAndGet();
+			long start = System.currentTimeMillis();
+			try {
+				result.complete(renderer.render(tile));
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			} finally {
+				inFlight.remove(tile.key, this);
+				long renderMs = System.currentTimeMillis() - start;
+				stats.rendered.incrementAndGet();
+				stats.totalWaitMs.addAndGet(start - created);
+				stats.totalRenderMs.addAndGet(renderMs);
+				stats.maxRenderMs.accumulateAndGet(renderMs, Math::max);
+			}
+		}
+
+		@Override
+		public int compareTo(RenderTask o) {
+			if (prefetch != o.prefetch) {
+				return prefetch ? 1 : -1;
+			}
+			return Long.compare(order, o.order);
+		}
+	}
+
+	public MetatileRenderScheduler() {
+		for (int i = 0; i < zoomStats.length; i++) {
+			zoomStats[i] = new ZoomStats();
+		}
+		executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+				new PriorityBlockingQueue<>(),
+				r -> {
+					Thread t = new Thread(r, "metatile-render");
+					t.setDaemon(true);
+					return t;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		AtomicInteger threadCounter = new AtomicInteger();
+		// full queue is saved by render thread, so disk writes slow down rendering instead of piling up images
+		saveExecutor = new ThreadPoolExecutor(SAVE_THREADS, SAVE_THREADS, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(SAVE_QUEUE),
+				r -> {
+					Thread t = new Thread(r, "metatile-save-" + threadCounter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		saveExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	public Executor getSaveExecutor() {
+		return saveExecutor;
+	}
+
+	public ResponseEntity<String> render(VectorMetatile tile, boolean prefetch, MetatileRenderer renderer)
+			throws IOException, XmlPullParserException, SAXException {
+		if (tile.z < 0 || tile.z > MAX_ZOOM) {
+			return ResponseEntity.badRequest().body("Zoom is out of range: " + tile.z);
+		}
+		RenderTask task = new RenderTask(tile, renderer, prefetch);
+		RenderTask existing = inFlight.putIfAbsent(tile.key, task);
+		if (existing != null) {
+			coalesced.incrementAndGet();
+			task = existing;
+			if (!prefetch && existing.prefetch && executor.remove(existing)) {
+				// interactive request waits for queued prefetch, so requeue it with interactive priority
+				existing.prefetch = false;
+				executor.execute(existing);
+			}
+		} else {
+			zoomStats[tile.z].queued.incrementAndGet();
+			executor.execute(task);
+		}
+		ResponseEntity<String> res;
+		try {
+			res = task.result.get(RENDER_TIMEOUT_SEC, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Rendering metatile " + tile.key + " was interrupted", e);
+		} catch (TimeoutException e) {
+			LOGGER.warn(String.format("Rendering metatile %s timed out (%d sec)", tile.key, RENDER_TIMEOUT_SEC));
+			return ResponseEntity.badRequest().body("Rendering timed out");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException ioe) {
+				throw ioe;
+			} else if (cause instanceof XmlPullParserException xppe) {
+				throw xppe;
+			} else if (cause instanceof SAXException saxe) {
+				throw saxe;
+			} else if (cause instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IOException(cause);
+		}
+		if (task.tile != tile && tile.runtimeImage == null) {
+			tile.runtimeImage = task.tile.runtimeImage;
+			tile.setInfo(task.tile.getInfo());
+		}
+		return res;
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+		saveExecutor.shutdown();
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("active", executor.getActiveCount());
+		stats.put("queued", executor.getQueue().size());
+		stats.put("saveQueued", saveExecutor.getQueue().size());
+		stats.put("inFlight", inFlight.size());
+		stats.put("coalesced", coalesced.get());
+		List<Map<String, Object>> zooms = new ArrayList<>();
+		for (int z = 0; z < zoomStats.length; z++) {
+			ZoomStats zs = zoomStats[z];
+			long rendered = zs.rendered.get();
+			int queued = zs.queued.get();
+			if (rendered == 0 && queued == 0) {
+				continue;
+			}
+			Map<String, Object> m = new LinkedHashMap<>();
+			m.put("zoom", z);
+			m.put("queued", queued);
+			m.put("rendered", rendered);
+			m.put("avgWaitMs", rendered == 0 ? 0 : zs.totalWaitMs.get() / rendered);
+			m.put("avgRenderMs", rendered == 0 ? 0 : zs.totalRenderMs.get() / rendered);
+			m.put("maxRenderMs", zs.maxRenderMs.get());
+			zooms.add(m);
+		}
+		stats.put("zooms", zooms);
+		return stats;
+	}
+}
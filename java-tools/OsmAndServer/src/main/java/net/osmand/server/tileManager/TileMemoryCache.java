@@ -1,23 +1,55 @@
 package net.osmand.server.tileManager;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import net.osmand.util.BoundedLruMap;
+
+/**
+ * LRU cache of tiles bounded by bytes: runtime data (image raster or byte[]) is weighed
+ * together with a fixed per tile overhead, least recently used tiles are evicted first.
+ */
 public class TileMemoryCache<T extends TileCacheProvider> {
-	private final Map<String, T> cacheMap = new ConcurrentHashMap<>();
-	private final Map<String, Object> lockMap = new ConcurrentHashMap<>();
-	private final AtomicInteger cacheTouch = new AtomicInteger(0);
+	// approximate size of tile object without runtime data
+	private static final long TILE_ENTRY_BYTES = 512;
+	private static final long CLEANUP_INTERVAL_MILLIS = 10000;
 
-	private static final int MAX_RUNTIME_IMAGE_CACHE_SIZE = 80;
-	private static final int MAX_RUNTIME_TILES_CACHE_SIZE = 10000;
+	private final String name;
+	// the most recent tile is never evicted, so oversized tile is still returned to the caller
+	private final BoundedLruMap<String, T> cacheMap;
+	private final Map<String, TileLock> lockMap = new ConcurrentHashMap<>();
 
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
 	private final AtomicLong lastCleanupTime = new AtomicLong(0);
-	private static final long CLEANUP_INTERVAL_MILLIS = 10000;
+
+	private static class TileLock {
+		int refs;
+	}
+
+	public TileMemoryCache(String name, long maxBytes) {
+		this.name = name;
+		this.cacheMap = new BoundedLruMap<>(maxBytes, -1, 1, (key, tile) -> weigh(tile));
+	}
 
 	public T getTile(String key, TileProvider<T> provider) {
-		return cacheMap.computeIfAbsent(key, provider::createTile);
+		T tile = get(key);
+		if (tile != null) {
+			return tile;
+		}
+		// create outside of lock, tile constructors could access disk cache
+		T created = provider.createTile(key);
+		synchronized (cacheMap) {
+			T existing = cacheMap.get(key);
+			if (existing != null) {
+				return existing;
+			}
+			cacheMap.put(key, created);
+		}
+		return created;
 	}
 
 	public void put(String key, T tile) {
@@ -25,15 +57,39 @@ public class TileMemoryCache<T extends TileCacheProvider> {
 	}
 
 	public T get(String key) {
-		return cacheMap.get(key);
+		synchronized (cacheMap) {
+			T tile = cacheMap.get(key);
+			if (tile == null) {
+				misses.incrementAndGet();
+				return null;
+			}
+			hits.incrementAndGet();
+			cacheMap.reweigh(key);
+			return tile;
+		}
+	}
+
+	/**
+	 * Should be called when runtime data of cached tile was loaded or rendered
+	 */
+	public void refresh(T tile) {
+		synchronized (cacheMap) {
+			if (cacheMap.get(tile.getTileId()) == tile) {
+				cacheMap.reweigh(tile.getTileId());
+			}
+		}
 	}
 
 	public Object getLock(String tileId) {
-		return lockMap.computeIfAbsent(tileId, k -> new Object());
+		return lockMap.compute(tileId, (k, lock) -> {
+			TileLock l = lock == null ? new TileLock() : lock;
+			l.refs++;
+			return l;
+		});
 	}
 
 	public void removeLock(String tileId) {
-		lockMap.remove(tileId);
+		lockMap.computeIfPresent(tileId, (k, lock) -> --lock.refs <= 0 ? null : lock);
 	}
 
 	public void conditionalCleanupCache() {
@@ -45,31 +101,38 @@ public class TileMemoryCache<T extends TileCacheProvider> {
 	}
 
 	private void cleanupCache() {
-		int version = cacheTouch.incrementAndGet();
-		// so with atomic only 1 thread will get % X == 0
-		if (version % MAX_RUNTIME_IMAGE_CACHE_SIZE == 0 && version > 0) {
-			cacheTouch.set(0);
-			SortedSet<T> sortedCache = Collections.synchronizedSortedSet(new TreeSet<>(cacheMap.values()));
-			List<T> imageTiles = new ArrayList<>();
-			for (T tile : sortedCache) {
-				if (tile.getTile() != null) {
-					imageTiles.add(tile);
-				}
-			}
-			if (imageTiles.size() >= MAX_RUNTIME_IMAGE_CACHE_SIZE) {
-				for (int i = 0; i < MAX_RUNTIME_IMAGE_CACHE_SIZE / 2; i++) {
-					T tile = imageTiles.get(i);
-					tile.setTile(null);
-				}
-			}
-			if (cacheMap.size() >= MAX_RUNTIME_TILES_CACHE_SIZE) {
-				Iterator<T> it = sortedCache.iterator();
-				while (cacheMap.size() >= MAX_RUNTIME_TILES_CACHE_SIZE / 2 && it.hasNext()) {
-					T tile = it.next();
-					cacheMap.remove(tile.getTileId());
-				}
-			}
+		// runtime data could be released or assigned outside of the cache
+		cacheMap.reweighAll();
+	}
+
+	private static long weigh(TileCacheProvider tile) {
+		Object data = tile.getTile();
+		long bytes = TILE_ENTRY_BYTES;
+		if (data instanceof BufferedImage img) {
+			DataBuffer db = img.getRaster().getDataBuffer();
+			bytes += (long) db.getSize() * db.getNumBanks() * DataBuffer.getDataTypeSize(db.getDataType()) / 8;
+		} else if (data instanceof byte[] arr) {
+			bytes += arr.length;
+		}
+		return bytes;
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		long h = hits.get();
+		long m = misses.get();
+		stats.put("name", name);
+		synchronized (cacheMap) {
+			stats.put("tiles", cacheMap.size());
+			stats.put("bytes", cacheMap.getWeight());
 		}
+		stats.put("maxBytes", cacheMap.getMaxWeight());
+		stats.put("hits", h);
+		stats.put("misses", m);
+		stats.put("hitRate", h + m == 0 ? 0 : (double) h / (h + m));
+		stats.put("evictions", cacheMap.getEvictions());
+		stats.put("locks", lockMap.size());
+		return stats;
 	}
 
 	public interface TileProvider<T> {
@@ -4,6 +4,8 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import net.osmand.NativeJavaRendering;
 import net.osmand.server.tileManager.TileServerConfig.VectorStyle;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.http.ResponseEntity;
 import org.xml.sax.SAXException;
 import org.xmlpull.v1.XmlPullParserException;
@@ -12,11 +14,14 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class VectorMetatile implements TileCacheProvider, Comparable<VectorMetatile> {
 
+	private static final Log LOGGER = LogFactory.getLog(VectorMetatile.class);
+
 	public BufferedImage runtimeImage;
 	public long lastAccess;
 	public final String key;
@@ -147,9 +152,31 @@ public class VectorMetatile implements TileCacheProvider, Comparable<VectorMetat
 		}
 	}
 
-	public ResponseEntity<String> renderMetaTile(NativeJavaRendering nativelib, TileMemoryCache<VectorMetatile> tileCache)
-			throws IOException, XmlPullParserException, SAXException {
+	/**
+	 * Renders metatile image, png and info files are written to disk cache by saveExecutor
+	 */
+	public ResponseEntity<String> renderMetaTile(NativeJavaRendering nativelib, TileMemoryCache<VectorMetatile> tileCache,
+	                                             Executor saveExecutor) throws IOException, XmlPullParserException, SAXException {
+		boolean[] renderedOut = new boolean[1];
+		ResponseEntity<String> res = renderNativeSync(nativelib, tileCache, renderedOut);
+		// png encoding doesn't need native library, so it doesn't block next rendering
+		if (renderedOut[0] && this.runtimeImage != null) {
+			File cacheFile = this.getCacheFile(".png");
+			if (cacheFile != null) {
+				saveExecutor.execute(() -> {
+					try {
+						this.saveTileToCache(this, cacheFile);
+					} catch (IOException e) {
+						LOGGER.error("Error saving metatile " + this.key + ": " + e.getMessage(), e);
+					}
+				});
+			}
+		}
+		return res;
+	}
 
+	private ResponseEntity<String> renderNativeSync(NativeJavaRendering nativelib, TileMemoryCache<VectorMetatile> tileCache,
+	                                                boolean[] renderedOut) throws IOException, XmlPullParserException, SAXException {
 		int ZOOM_EN_PREFERRED_LANG = 6;
 
 		// don't synchronize this to not block routing
@@ -211,10 +238,7 @@ public class VectorMetatile implements TileCacheProvider, Comparable<VectorMetat
 			this.runtimeImage = result.getImage();
 			if (this.runtimeImage != null) {
 				this.setInfo(result.getGenerationResult().getInfo());
-				File cacheFile = this.getCacheFile(".png");
-				if (cacheFile != null) {
-					this.saveTileToCache(this, cacheFile);
-				}
+				renderedOut[0] = true;
 			}
 			String msg = String.format("Rendered %d %d at %d (%s %s): %dx%d - %d ms", this.left, this.top, this.z,
 					this.style.name, props, ctx.width, ctx.height, (int) (System.currentTimeMillis() - now));
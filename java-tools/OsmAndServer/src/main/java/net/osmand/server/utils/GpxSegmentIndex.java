@@ -0,0 +1,236 @@
+package net.osmand.server.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import net.osmand.shared.gpx.GpxFile;
+import net.osmand.shared.gpx.primitives.Track;
+import net.osmand.shared.gpx.primitives.TrkSegment;
+import net.osmand.shared.gpx.primitives.WptPt;
+import net.osmand.util.MapUtils;
+
+/**
+ * Compact index of gpx track segments to select files near points without loading gpx.
+ * Each segment is simplified (Douglas-Peucker with {@link #SIMPLIFY_TOLERANCE}), coordinates are 1e-6 degrees
+ * delta encoded as zigzag varints and index is kept base64 in file details, segment bboxes are restored on read.
+ * Simplified segment stays within tolerance of original points, so checks are done with distance + tolerance.
+ */
+public class GpxSegmentIndex {
+
+	public static final double SIMPLIFY_TOLERANCE = 10; // meters
+	// coordinates rounding
+	private static final double QUANTIZATION_TOLERANCE = 1; // meters
+	private static final int VERSION = 1;
+	private static final double COORD_MULT = 1e6;
+	private static final double METERS_IN_DEGREE = 111_000;
+
+	private final List<IndexedSegment> segments = new ArrayList<>();
+
+	private static class IndexedSegment {
+		int[] lat;
+		int[] lon;
+		int minLat = Integer.MAX_VALUE;
+		int maxLat = Integer.MIN_VALUE;
+		int minLon = Integer.MAX_VALUE;
+		int maxLon = Integer.MIN_VALUE;
+	}
+
+	public static String build(GpxFile gpxFile) {
+		List<int[]> encoded = new ArrayList<>();
+		for (Track t : gpxFile.getTracks()) {
+			for (TrkSegment s : t.getSegments()) {
+				List<WptPt> points = s.getPoints();
+				if (!points.isEmpty()) {
+					encoded.add(simplify(points));
+				}
+			}
+		}
+		if (encoded.isEmpty()) {
+			return null;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeVarint(out, VERSION);
+		writeVarint(out, encoded.size());
+		for (int[] seg : encoded) {
+			writeVarint(out, seg.length / 2);
+			int pLat = 0, pLon = 0;
+			for (int i = 0; i < seg.length; i += 2) {
+				writeVarint(out, zigzag(seg[i] - pLat));
+				writeVarint(out, zigzag(seg[i + 1] - pLon));
+				pLat = seg[i];
+				pLon = seg[i + 1];
+			}
+		}
+		return Base64.getEncoder().encodeToString(out.toByteArray());
+	}
+
+	/**
+	 * @return null if index is missing or has unsupported version
+	 */
+	public static GpxSegmentIndex parse(String index) {
+		if (index == null || index.isEmpty()) {
+			return null;
+		}
+		try {
+			ByteBuffer buf = ByteBuffer.wrap(Base64.getDecoder().decode(index));
+			if (readVarint(buf) != VERSION) {
+				return null;
+			}
+			GpxSegmentIndex res = new GpxSegmentIndex();
+			int cnt = readVarint(buf);
+			for (int k = 0; k < cnt; k++) {
+				IndexedSegment seg = new IndexedSegment();
+				int n = readVarint(buf);
+				seg.lat = new int[n];
+				seg.lon = new int[n];
+				int lat = 0, lon = 0;
+				for (int i = 0; i < n; i++) {
+					lat += unzigzag(readVarint(buf));
+					lon += unzigzag(readVarint(buf));
+					seg.lat[i] = lat;
+					seg.lon[i] = lon;
+					seg.minLat = Math.min(seg.minLat, lat);
+					seg.maxLat = Math.max(seg.maxLat, lat);
+					seg.minLon = Math.min(seg.minLon, lon);
+					seg.maxLon = Math.max(seg.maxLon, lon);
+				}
+				res.segments.add(seg);
+			}
+			return res;
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if some segment could pass within dist of all points
+	 */
+	public boolean isNear(List<WptPt> points, double dist) {
+		double d = dist + SIMPLIFY_TOLERANCE + QUANTIZATION_TOLERANCE;
+		for (IndexedSegment seg : segments) {
+			boolean near = true;
+			for (WptPt p : points) {
+				if (!isNear(seg, p.getLat(), p.getLon(), d)) {
+					near = false;
+					break;
+				}
+			}
+			if (near) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isNear(IndexedSegment seg, double lat, double lon, double dist) {
+		double dLat = dist / METERS_IN_DEGREE;
+		double dLon = dLat / Math.max(Math.cos(Math.toRadians(Math.min(Math.abs(lat) + dLat, 89.9))), 0.001);
+		if (lat + dLat < seg.minLat / COORD_MULT || lat - dLat > seg.maxLat / COORD_MULT
+				|| lon + dLon < seg.minLon / COORD_MULT || lon - dLon > seg.maxLon / COORD_MULT) {
+			return false;
+		}
+		if (seg.lat.length == 1) {
+			return MapUtils.getDistance(lat, lon, seg.lat[0] / COORD_MULT, seg.lon[0] / COORD_MULT) < dist;
+		}
+		for (int i = 1; i < seg.lat.length; i++) {
+			double d = MapUtils.getOrthogonalDistance(lat, lon, seg.lat[i - 1] / COORD_MULT, seg.lon[i - 1] / COORD_MULT,
+					seg.lat[i] / COORD_MULT, seg.lon[i] / COORD_MULT);
+			if (d < dist) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// returns lat, lon pairs of kept points
+	private static int[] simplify(List<WptPt> points) {
+		int n = points.size();
+		boolean[] keep = new boolean[n];
+		keep[0] = true;
+		keep[n - 1] = true;
+		int[] stack = new int[64];
+		int sp = 0;
+		if (n > 2) {
+			stack[sp++] = 0;
+			stack[sp++] = n - 1;
+		}
+		while (sp > 0) {
+			int end = stack[--sp];
+			int start = stack[--sp];
+			WptPt a = points.get(start);
+			WptPt b = points.get(end);
+			double maxDist = -1;
+			int maxInd = -1;
+			for (int i = start + 1; i < end; i++) {
+				WptPt p = points.get(i);
+				double d = MapUtils.getOrthogonalDistance(p.getLat(), p.getLon(), a.getLat(), a.getLon(), b.getLat(),
+						b.getLon());
+				if (d > maxDist) {
+					maxDist = d;
+					maxInd = i;
+				}
+			}
+			if (maxDist > SIMPLIFY_TOLERANCE) {
+				keep[maxInd] = true;
+				if (sp + 4 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				if (maxInd - start > 1) {
+					stack[sp++] = start;
+					stack[sp++] = maxInd;
+				}
+				if (end - maxInd > 1) {
+					stack[sp++] = maxInd;
+					stack[sp++] = end;
+				}
+			}
+		}
+		int cnt = 0;
+		for (boolean k : keep) {
+			if (k) {
+				cnt++;
+			}
+		}
+		int[] res = new int[cnt * 2];
+		int j = 0;
+		for (int i = 0; i < n; i++) {
+			if (keep[i]) {
+				res[j++] = (int) Math.round(points.get(i).getLat() * COORD_MULT);
+				res[j++] = (int) Math.round(points.get(i).getLon() * COORD_MULT);
+			}
+		}
+		return res;
+	}
+
+	private static int zigzag(int v) {
+		return (v << 1) ^ (v >> 31);
+	}
+
+	private static int unzigzag(int v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int v) {
+		while ((v & ~0x7f) != 0) {
+			out.write((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out.write(v);
+	}
+
+	private static int readVarint(ByteBuffer buf) {
+		int res = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = buf.get();
+			res |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return res;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+}
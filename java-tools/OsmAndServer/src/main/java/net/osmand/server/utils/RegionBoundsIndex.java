@@ -0,0 +1,80 @@
+package net.osmand.server.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.data.QuadRect;
+import net.osmand.data.QuadTree;
+import net.osmand.util.MapUtils;
+
+/**
+ * Spatial index of region polygon bounds (lat/lon) mapped to arbitrary values (OBF reader references).
+ * Query returns values whose polygon bounds intersect the box, in the order values were added.
+ */
+public class RegionBoundsIndex<T> {
+
+	private static final int QUAD_TREE_DEPTH = 8;
+	private static final float QUAD_TREE_RATIO = 0.55f;
+
+	private record RegionBounds<T>(T value, QuadRect latLonBounds, int order) {
+	}
+
+	private final Map<T, List<RegionBounds<T>>> values = new LinkedHashMap<>();
+	private final QuadTree<RegionBounds<T>> tree = new QuadTree<>(
+			new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE), QUAD_TREE_DEPTH, QUAD_TREE_RATIO);
+	private int order;
+
+	public synchronized boolean contains(T value) {
+		return values.containsKey(value);
+	}
+
+	public synchronized int size() {
+		return values.size();
+	}
+
+	public synchronized void add(T value, List<QuadRect> latLonBounds) {
+		if (values.containsKey(value) || latLonBounds == null || latLonBounds.isEmpty()) {
+			return;
+		}
+		int valueOrder = order++;
+		List<RegionBounds<T>> list = new ArrayList<>(latLonBounds.size());
+		for (QuadRect b : latLonBounds) {
+			RegionBounds<T> rb = new RegionBounds<>(value, b, valueOrder);
+			list.add(rb);
+			tree.insert(rb, toTileBox(b));
+		}
+		values.put(value, list);
+	}
+
+	public List<T> query(QuadRect queryLatLon) {
+		List<RegionBounds<T>> candidates = new ArrayList<>();
+		synchronized (this) {
+			tree.queryInBox(toTileBox(queryLatLon), candidates);
+		}
+		Map<T, RegionBounds<T>> matched = new HashMap<>();
+		for (RegionBounds<T> rb : candidates) {
+			if (!matched.containsKey(rb.value()) && QuadRect.intersects(rb.latLonBounds(), queryLatLon)) {
+				matched.put(rb.value(), rb);
+			}
+		}
+		List<RegionBounds<T>> sorted = new ArrayList<>(matched.values());
+		sorted.sort(Comparator.comparingInt(RegionBounds::order));
+		List<T> res = new ArrayList<>(sorted.size());
+		for (RegionBounds<T> rb : sorted) {
+			res.add(rb.value());
+		}
+		return res;
+	}
+
+	private static QuadRect toTileBox(QuadRect latLon) {
+		int x1 = MapUtils.get31TileNumberX(latLon.left);
+		int x2 = MapUtils.get31TileNumberX(latLon.right);
+		int y1 = MapUtils.get31TileNumberY(latLon.top);
+		int y2 = MapUtils.get31TileNumberY(latLon.bottom);
+		return new QuadRect(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+	}
+}
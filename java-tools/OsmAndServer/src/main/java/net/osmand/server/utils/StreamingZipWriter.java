@@ -0,0 +1,402 @@
+package net.osmand.server.utils;
+
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Zip writer to output stream without seeking and temporary files. Gzipped input is copied to entry
+ * as is (gzip and zip share raw deflate format), data is only inflated to verify crc and find end of
+ * deflate stream. Sizes are written in data descriptors after entries, zip64 records are added when needed.
+ * Entry with expected size of {@link #ZIP64_EXPECTED_SIZE} or more gets zip64 extra in local header and 8-byte sizes
+ * in data descriptor (readers like ZipInputStream choose descriptor format by local header), smaller entries stay
+ * in zip32 format for old readers. Output stream is not closed, archive is complete only after {@link #finish()}.
+ */
+public class StreamingZipWriter {
+
+	private static final int LOCAL_HEADER_SIG = 0x04034b50;
+	private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+	private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+	private static final int END_SIG = 0x06054b50;
+	private static final int ZIP64_END_SIG = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+	private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	private static final int FLAG_UTF8 = 1 << 11;
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+	private static final int VERSION_DEFAULT = 20;
+	private static final int VERSION_ZIP64 = 45;
+	private static final long ZIP32_MAX = 0xffffffffL;
+	private static final int ZIP16_MAX = 0xffff;
+	private static final int ZIP64_EXTRA_ID = 1;
+
+	// expected size is not exact (size of stored file, deflate overhead), so zip64 is used with margin
+	public static final long ZIP64_EXPECTED_SIZE = 1L << 31;
+	public static final long UNKNOWN_SIZE = -1;
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+	private static final int GZIP_HEADER = 10;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final CountingOutputStream out;
+	private final int bufferSize;
+	private final List<Entry> entries = new ArrayList<>();
+	private boolean finished;
+
+	private static class Entry {
+		byte[] name;
+		int dosTime;
+		int method;
+		boolean zip64;
+		long offset;
+		long dataOffset;
+		long crc;
+		long compressedSize;
+		long size;
+	}
+
+	public StreamingZipWriter(OutputStream out, int bufferSize) {
+		this.out = new CountingOutputStream(out);
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Writes gzipped input as entry without recompression, input which is not gzip is compressed.
+	 *
+	 * @param expectedSize uncompressed size if it is known or {@link #UNKNOWN_SIZE}, entries which are expected
+	 *                     to be smaller than 4 GB fail if they exceed it
+	 */
+	public void putGzipEntry(String name, InputStream gzipped, long time, long expectedSize) throws IOException {
+		PushbackInputStream in = new PushbackInputStream(gzipped, Math.max(bufferSize, GZIP_HEADER));
+		byte[] header = new byte[GZIP_HEADER];
+		int len = in.readNBytes(header, 0, GZIP_HEADER);
+		if (len < GZIP_HEADER || readShort(header, 0) != GZIP_MAGIC || header[2] != METHOD_DEFLATED) {
+			in.unread(header, 0, len);
+			putEntry(name, in, time, expectedSize);
+			return;
+		}
+		skipGzipHeaderFields(in, header[3]);
+		Entry e = startEntry(name, time, expectedSize >= ZIP64_EXPECTED_SIZE);
+		Inflater inflater = new Inflater(true);
+		try {
+			CRC32 crc = new CRC32();
+			byte[] buf = new byte[bufferSize];
+			byte[] inflated = new byte[bufferSize];
+			int read = 0;
+			while (!inflater.finished()) {
+				if (inflater.needsInput()) {
+					// previous chunk belongs to deflate stream completely
+					out.write(buf, 0, read);
+					read = in.read(buf);
+					if (read < 0) {
+						throw new EOFException("Unexpected end of gzip data: " + name);
+					}
+					inflater.setInput(buf, 0, read);
+				}
+				int n = inflater.inflate(inflated);
+				if (n == 0 && inflater.needsDictionary()) {
+					throw new IOException("Unsupported gzip data: " + name);
+				}
+				crc.update(inflated, 0, n);
+			}
+			int rem = inflater.getRemaining();
+			out.write(buf, 0, read - rem);
+			in.unread(buf, read - rem, rem);
+			byte[] trailer = new byte[8];
+			if (in.readNBytes(trailer, 0, trailer.length) < trailer.length) {
+				throw new EOFException("Unexpected end of gzip data: " + name);
+			}
+			e.crc = crc.getValue();
+			e.size = inflater.getBytesWritten();
+			if (readInt(trailer, 0) != e.crc || readInt(trailer, 4) != (e.size & ZIP32_MAX)) {
+				throw new IOException("Corrupted gzip data: " + name);
+			}
+			if (in.read() != -1) {
+				// deflate stream of entry can't be continued with next gzip member
+				throw new IOException("Multi-member gzip is not supported: " + name);
+			}
+		} catch (DataFormatException ex) {
+			throw new IOException("Corrupted gzip data: " + name, ex);
+		} finally {
+			inflater.end();
+		}
+		endEntry(e);
+	}
+
+	public void putEntry(String name, InputStream in, long time, long expectedSize) throws IOException {
+		Entry e = startEntry(name, time, expectedSize >= ZIP64_EXPECTED_SIZE);
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			CRC32 crc = new CRC32();
+			// entry data is followed by descriptor, so underlying stream is not closed
+			DeflaterOutputStream dos = new DeflaterOutputStream(new FilterOutputStream(out) {
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					out.write(b, off, len);
+				}
+			}, deflater, bufferSize);
+			byte[] buf = new byte[bufferSize];
+			int n;
+			while ((n = in.read(buf)) != -1) {
+				crc.update(buf, 0, n);
+				dos.write(buf, 0, n);
+			}
+			dos.finish();
+			e.crc = crc.getValue();
+			e.size = deflater.getBytesRead();
+		} finally {
+			deflater.end();
+		}
+		endEntry(e);
+	}
+
+	/**
+	 * Writes small data as stored (not compressed) entry, crc and sizes are known before data.
+	 */
+	public void putStoredEntry(String name, byte[] data, long time) throws IOException {
+		Entry e = newEntry(name, time, METHOD_STORED);
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		e.crc = crc.getValue();
+		e.size = data.length;
+		e.compressedSize = data.length;
+		writeInt(LOCAL_HEADER_SIG);
+		writeShort(VERSION_DEFAULT);
+		writeShort(FLAG_UTF8);
+		writeShort(METHOD_STORED);
+		writeInt(e.dosTime);
+		writeInt(e.crc);
+		writeInt(e.compressedSize);
+		writeInt(e.size);
+		writeShort(e.name.length);
+		writeShort(0);
+		out.write(e.name);
+		out.write(data);
+		entries.add(e);
+	}
+
+	private Entry newEntry(String name, long time, int method) throws IOException {
+		if (finished) {
+			throw new IOException("Zip is already finished");
+		}
+		Entry e = new Entry();
+		e.name = name.getBytes(StandardCharsets.UTF_8);
+		e.dosTime = toDosTime(time);
+		e.method = method;
+		e.offset = out.count;
+		return e;
+	}
+
+	private Entry startEntry(String name, long time, boolean zip64) throws IOException {
+		Entry e = newEntry(name, time, METHOD_DEFLATED);
+		e.zip64 = zip64;
+		writeInt(LOCAL_HEADER_SIG);
+		writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+		writeShort(FLAG_DATA_DESCRIPTOR | FLAG_UTF8);
+		writeShort(METHOD_DEFLATED);
+		writeInt(e.dosTime);
+		// crc and sizes are in data descriptor
+		writeInt(0);
+		writeInt(zip64 ? ZIP32_MAX : 0);
+		writeInt(zip64 ? ZIP32_MAX : 0);
+		writeShort(e.name.length);
+		writeShort(zip64 ? 20 : 0);
+		out.write(e.name);
+		if (zip64) {
+			writeShort(ZIP64_EXTRA_ID);
+			writeShort(16);
+			writeLong(0);
+			writeLong(0);
+		}
+		e.dataOffset = out.count;
+		return e;
+	}
+
+	private void endEntry(Entry e) throws IOException {
+		e.compressedSize = out.count - e.dataOffset;
+		if (!e.zip64 && (e.size >= ZIP32_MAX || e.compressedSize >= ZIP32_MAX)) {
+			// local header is already written without zip64 extra, so descriptor can't have 8-byte sizes
+			throw new IOException("Entry exceeds 4 GB, but it wasn't expected: " + new String(e.name, StandardCharsets.UTF_8));
+		}
+		writeInt(DATA_DESCRIPTOR_SIG);
+		writeInt(e.crc);
+		if (e.zip64) {
+			writeLong(e.compressedSize);
+			writeLong(e.size);
+		} else {
+			writeInt(e.compressedSize);
+			writeInt(e.size);
+		}
+		entries.add(e);
+	}
+
+	public void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		long cdOffset = out.count;
+		for (Entry e : entries) {
+			boolean zip64Size = e.size >= ZIP32_MAX;
+			boolean zip64Csize = e.compressedSize >= ZIP32_MAX;
+			boolean zip64Offset = e.offset >= ZIP32_MAX;
+			int extraLen = (zip64Size ? 8 : 0) + (zip64Csize ? 8 : 0) + (zip64Offset ? 8 : 0);
+			boolean zip64 = extraLen > 0;
+			int version = zip64 || e.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT;
+			writeInt(CENTRAL_HEADER_SIG);
+			writeShort(version);
+			writeShort(version);
+			writeShort(e.method == METHOD_DEFLATED ? FLAG_DATA_DESCRIPTOR | FLAG_UTF8 : FLAG_UTF8);
+			writeShort(e.method);
+			writeInt(e.dosTime);
+			writeInt(e.crc);
+			writeInt(zip64Csize ? ZIP32_MAX : e.compressedSize);
+			writeInt(zip64Size ? ZIP32_MAX : e.size);
+			writeShort(e.name.length);
+			writeShort(zip64 ? extraLen + 4 : 0);
+			writeShort(0); // comment
+			writeShort(0); // disk
+			writeShort(0); // internal attributes
+			writeInt(0); // external attributes
+			writeInt(zip64Offset ? ZIP32_MAX : e.offset);
+			out.write(e.name);
+			if (zip64) {
+				writeShort(ZIP64_EXTRA_ID);
+				writeShort(extraLen);
+				if (zip64Size) {
+					writeLong(e.size);
+				}
+				if (zip64Csize) {
+					writeLong(e.compressedSize);
+				}
+				if (zip64Offset) {
+					writeLong(e.offset);
+				}
+			}
+		}
+		long cdSize = out.count - cdOffset;
+		if (entries.size() >= ZIP16_MAX || cdOffset >= ZIP32_MAX || cdSize >= ZIP32_MAX) {
+			long zip64EndOffset = out.count;
+			writeInt(ZIP64_END_SIG);
+			writeLong(44);
+			writeShort(VERSION_ZIP64);
+			writeShort(VERSION_ZIP64);
+			writeInt(0);
+			writeInt(0);
+			writeLong(entries.size());
+			writeLong(entries.size());
+			writeLong(cdSize);
+			writeLong(cdOffset);
+			writeInt(ZIP64_LOCATOR_SIG);
+			writeInt(0);
+			writeLong(zip64EndOffset);
+			writeInt(1);
+		}
+		writeInt(END_SIG);
+		writeShort(0);
+		writeShort(0);
+		writeShort(Math.min(entries.size(), ZIP16_MAX));
+		writeShort(Math.min(entries.size(), ZIP16_MAX));
+		writeInt(Math.min(cdSize, ZIP32_MAX));
+		writeInt(Math.min(cdOffset, ZIP32_MAX));
+		writeShort(0);
+		out.flush();
+	}
+
+	private static void skipGzipHeaderFields(InputStream in, int flags) throws IOException {
+		if ((flags & FEXTRA) != 0) {
+			byte[] len = in.readNBytes(2);
+			if (len.length < 2) {
+				throw new EOFException("Unexpected end of gzip header");
+			}
+			in.skipNBytes(readShort(len, 0));
+		}
+		if ((flags & FNAME) != 0) {
+			skipZeroTerminated(in);
+		}
+		if ((flags & FCOMMENT) != 0) {
+			skipZeroTerminated(in);
+		}
+		if ((flags & FHCRC) != 0) {
+			in.skipNBytes(2);
+		}
+	}
+
+	private static void skipZeroTerminated(InputStream in) throws IOException {
+		int b;
+		while ((b = in.read()) != 0) {
+			if (b < 0) {
+				throw new EOFException("Unexpected end of gzip header");
+			}
+		}
+	}
+
+	private static int toDosTime(long time) {
+		Calendar c = Calendar.getInstance();
+		c.setTimeInMillis(time);
+		int year = c.get(Calendar.YEAR);
+		if (year < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return (year - 1980) << 25 | (c.get(Calendar.MONTH) + 1) << 21 | c.get(Calendar.DAY_OF_MONTH) << 16
+				| c.get(Calendar.HOUR_OF_DAY) << 11 | c.get(Calendar.MINUTE) << 5 | c.get(Calendar.SECOND) >> 1;
+	}
+
+	private static int readShort(byte[] b, int off) {
+		return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8;
+	}
+
+	private static long readInt(byte[] b, int off) {
+		return (readShort(b, off) | (long) readShort(b, off + 2) << 16) & ZIP32_MAX;
+	}
+
+	private void writeShort(int v) throws IOException {
+		out.write(v & 0xff);
+		out.write((v >>> 8) & 0xff);
+	}
+
+	private void writeInt(long v) throws IOException {
+		writeShort((int) (v & 0xffff));
+		writeShort((int) ((v >>> 16) & 0xffff));
+	}
+
+	private void writeLong(long v) throws IOException {
+		writeInt(v & ZIP32_MAX);
+		writeInt(v >>> 32);
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+		long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package net.osmand.server.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.data.QuadRect;
+import net.osmand.map.OsmandRegions;
+import net.osmand.map.WorldRegion;
+
+// Compares RegionBoundsIndex with the linear scan over region polygon bounds used before in OsmAndMapsService.getMaps
+public class RegionBoundsIndexBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int queries = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		double boxDegrees = args.length > 1 ? Double.parseDouble(args[1]) : 0.5;
+
+		OsmandRegions or = new OsmandRegions(null);
+		List<WorldRegion> regions = new ArrayList<>();
+		RegionBoundsIndex<WorldRegion> index = new RegionBoundsIndex<>();
+		long start = System.nanoTime();
+		for (String fullName : or.cacheAllCountries(false).keySet()) {
+			WorldRegion wr = or.getRegionData(fullName);
+			if (wr == null || wr.getRegionDownloadName() == null || wr.isRegionJoinMapDownload()
+					|| wr.isRegionJoinRoadsDownload()) {
+				continue;
+			}
+			List<QuadRect> bounds = wr.getAllPolygonsBounds();
+			if (bounds != null && !bounds.isEmpty()) {
+				regions.add(wr);
+				index.add(wr, bounds);
+			}
+		}
+		System.out.printf("Indexed %d regions in %.1f ms%n", regions.size(), (System.nanoTime() - start) / 1e6);
+
+		Random rnd = new Random(42);
+		List<QuadRect> boxes = new ArrayList<>(queries);
+		for (int i = 0; i < queries; i++) {
+			double lon = rnd.nextDouble() * 360 - 180;
+			double lat = rnd.nextDouble() * 160 - 80;
+			boxes.add(new QuadRect(lon, lat + boxDegrees, lon + boxDegrees, lat));
+		}
+
+		long scanFound = 0;
+		start = System.nanoTime();
+		for (QuadRect box : boxes) {
+			for (WorldRegion wr : regions) {
+				if (wr.getAllPolygonsBounds().stream().anyMatch(pb -> QuadRect.intersects(pb, box))) {
+					scanFound++;
+				}
+			}
+		}
+		double scanMs = (System.nanoTime() - start) / 1e6;
+
+		long indexFound = 0;
+		start = System.nanoTime();
+		for (QuadRect box : boxes) {
+			indexFound += index.query(box).size();
+		}
+		double indexMs = (System.nanoTime() - start) / 1e6;
+
+		System.out.printf("Linear scan: %8.1f ms (%.2f us/query), found %d%n", scanMs, scanMs * 1000 / queries, scanFound);
+		System.out.printf("Index query: %8.1f ms (%.2f us/query), found %d%n", indexMs, indexMs * 1000 / queries, indexFound);
+		if (scanFound != indexFound) {
+			throw new IllegalStateException("Index results differ from linear scan");
+		}
+	}
+}
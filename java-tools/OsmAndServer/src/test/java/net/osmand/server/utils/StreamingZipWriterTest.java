@@ -0,0 +1,120 @@
+package net.osmand.server.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingZipWriterTest {
+
+	private static final long TIME = 1700000000000L;
+
+	private final byte[] stored = "{\"version\":1,\"items\":[]}".getBytes(StandardCharsets.UTF_8);
+	private final byte[] deflated = text(100000);
+	private final byte[] gzipped = text(300000);
+
+	@Test
+	public void testZipFile() throws IOException {
+		File f = File.createTempFile("streaming", ".zip");
+		try {
+			try (FileOutputStream fos = new FileOutputStream(f)) {
+				fos.write(writeZip(StreamingZipWriter.UNKNOWN_SIZE));
+			}
+			try (ZipFile zf = new ZipFile(f)) {
+				Assert.assertEquals(4, zf.size());
+				assertEntry(zf, "items.json", ZipEntry.STORED, stored);
+				assertEntry(zf, "empty.gpx", ZipEntry.STORED, new byte[0]);
+				assertEntry(zf, "tracks/deflated.gpx", ZipEntry.DEFLATED, deflated);
+				assertEntry(zf, "tracks/gzipped.gpx", ZipEntry.DEFLATED, gzipped);
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testZipInputStream() throws IOException {
+		try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(writeZip(StreamingZipWriter.UNKNOWN_SIZE)))) {
+			assertNextEntry(zis, "items.json", ZipEntry.STORED, stored);
+			assertNextEntry(zis, "tracks/deflated.gpx", ZipEntry.DEFLATED, deflated);
+			assertNextEntry(zis, "tracks/gzipped.gpx", ZipEntry.DEFLATED, gzipped);
+			assertNextEntry(zis, "empty.gpx", ZipEntry.STORED, new byte[0]);
+			Assert.assertNull(zis.getNextEntry());
+		}
+	}
+
+	@Test
+	public void testZip64LocalHeader() throws IOException {
+		// entries expected to be large have zip64 extra in local header, central directory stays zip32 for small sizes
+		File f = File.createTempFile("streaming64", ".zip");
+		try {
+			try (FileOutputStream fos = new FileOutputStream(f)) {
+				fos.write(writeZip(StreamingZipWriter.ZIP64_EXPECTED_SIZE));
+			}
+			try (ZipFile zf = new ZipFile(f)) {
+				assertEntry(zf, "tracks/deflated.gpx", ZipEntry.DEFLATED, deflated);
+				assertEntry(zf, "tracks/gzipped.gpx", ZipEntry.DEFLATED, gzipped);
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	private byte[] writeZip(long expectedSize) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StreamingZipWriter zw = new StreamingZipWriter(out, 4096);
+		zw.putStoredEntry("items.json", stored, TIME);
+		zw.putEntry("tracks/deflated.gpx", new ByteArrayInputStream(deflated), TIME, expectedSize);
+		zw.putGzipEntry("tracks/gzipped.gpx", new ByteArrayInputStream(gzip(gzipped)), TIME, expectedSize);
+		zw.putStoredEntry("empty.gpx", new byte[0], TIME);
+		zw.finish();
+		return out.toByteArray();
+	}
+
+	private static void assertEntry(ZipFile zf, String name, int method, byte[] data) throws IOException {
+		ZipEntry e = zf.getEntry(name);
+		Assert.assertNotNull(name, e);
+		Assert.assertEquals(name, method, e.getMethod());
+		Assert.assertEquals(name, data.length, e.getSize());
+		try (InputStream is = zf.getInputStream(e)) {
+			Assert.assertArrayEquals(name, data, is.readAllBytes());
+		}
+	}
+
+	private static void assertNextEntry(ZipInputStream zis, String name, int method, byte[] data) throws IOException {
+		ZipEntry e = zis.getNextEntry();
+		Assert.assertNotNull(name, e);
+		Assert.assertEquals(name, e.getName());
+		Assert.assertEquals(name, method, e.getMethod());
+		Assert.assertArrayEquals(name, data, zis.readAllBytes());
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+			gz.write(data);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] text(int size) {
+		Random rnd = new Random(size);
+		StringBuilder sb = new StringBuilder(size);
+		while (sb.length() < size) {
+			sb.append("<trkpt lat=\"").append(rnd.nextInt(90)).append('.').append(rnd.nextInt(100000))
+					.append("\" lon=\"").append(rnd.nextInt(180)).append("\"/>\n");
+		}
+		return sb.substring(0, size).getBytes(StandardCharsets.UTF_8);
+	}
+}